@@ -7,9 +7,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.InvalidKeyException;
@@ -36,10 +38,17 @@ import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 
 import org.asf.connective.https.ConnectiveHTTPSServer;
+import org.asf.emuferal.accounts.AccountManager;
 import org.asf.emuferal.accounts.EmuFeralAccount;
 import org.asf.emuferal.accounts.PlayerInventory;
+import org.asf.emuferal.accounts.impl.KeyValuePlayerInventory;
+import org.asf.emuferal.accounts.impl.StoreBasedAccountManager;
+import org.asf.emuferal.dms.DMManager;
+import org.asf.emuferal.dms.impl.KeyValueDMManager;
 import org.asf.emuferal.entities.components.ComponentManager;
 import org.asf.emuferal.entities.inventoryitems.InventoryItemManager;
+import org.asf.emuferal.ipbans.IpBanManager;
+import org.asf.emuferal.ipbans.impl.KeyValueIpBanManager;
 import org.asf.emuferal.modules.IEmuFeralModule;
 import org.asf.emuferal.modules.ModuleManager;
 import org.asf.emuferal.modules.eventbus.EventBus;
@@ -60,6 +69,10 @@ import org.asf.emuferal.networking.http.api.UserHandler;
 import org.asf.emuferal.networking.http.api.XPDetailsHandler;
 import org.asf.emuferal.networking.http.director.GameServerRequestHandler;
 import org.asf.emuferal.players.Player;
+import org.asf.emuferal.social.SocialManager;
+import org.asf.emuferal.social.impl.KeyValueSocialManager;
+import org.asf.emuferal.storage.StorageProvider;
+import org.asf.emuferal.util.ThreadUtil;
 import org.asf.rats.ConnectiveHTTPServer;
 import org.asf.rats.ConnectiveServerFactory;
 
@@ -352,7 +365,11 @@ public class EmuFeral {
 							+ "give-all-clothes=true\n" + "give-all-wings=true\n" + "give-all-sanctuary-types=true\n"
 							+ "give-all-furniture=true\n" + "give-all-currency=true\n" + "give-all-resources=true\n"
 							+ "discovery-server-address=localhost\n" + "encrypt-api=false\n" + "encrypt-chat=true\n"
-							+ "encrypt-game=false\n\nvpn-user-whitelist=vpn-whitelist\n" + "vpn-ipv4-banlist=\n"
+							+ "encrypt-game=false\n" + "game-server-nio=false\n" + "game-server-io-threads=2\n"
+							+ "game-server-worker-threads=8\n"
+							+ "virtual-threads=false\n" + "movement-tick-rate=15\n" + "movement-interest-radius=100\n"
+							+ "account-storage=files\n" + "storage=files\n"
+							+ "\nvpn-user-whitelist=vpn-whitelist\n" + "vpn-ipv4-banlist=\n"
 							+ "vpn-ipv6-banlist=");
 		}
 
@@ -406,6 +423,32 @@ public class EmuFeral {
 				&& new File("keystore.jks").exists() && new File("keystore.jks.password").exists();
 		discoveryAddress = properties.getOrDefault("discovery-server-address", discoveryAddress);
 
+		// Account storage
+		if (properties.getOrDefault("account-storage", "files").equals("store")) {
+			// Account stores used to be created in the server directory
+			File legacyStore = new File("accounts.db");
+			if (legacyStore.exists() && !new File("storage/accounts.db").exists()) {
+				new File("storage").mkdirs();
+				Files.move(legacyStore.toPath(), Path.of("storage/accounts.db"));
+			}
+			AccountManager.setInstance(
+					new StoreBasedAccountManager(StorageProvider.getInstance().openStore("accounts")));
+		}
+
+		// Inventory, social, DM and IP ban storage
+		if (properties.getOrDefault("storage", "files").equals("kv")) {
+			StorageProvider provider = StorageProvider.getInstance();
+			KeyValuePlayerInventory.setStore(provider.openStore("inventories"));
+			SocialManager.setInstance(new KeyValueSocialManager(provider.openStore("social")));
+			DMManager.setInstance(new KeyValueDMManager(provider.openStore("dms")));
+			IpBanManager.setInstance(new KeyValueIpBanManager(provider.openStore("ipbans")));
+		}
+
+		// Client thread mode
+		if (properties.getOrDefault("virtual-threads", "false").equals("true")
+				&& !ThreadUtil.setVirtualThreadsEnabled(true))
+			System.err.println("Virtual threads are not supported by this JVM, using platform threads instead.");
+
 		// Start the servers
 		System.out.println("Starting Emulated Feral API server...");
 
@@ -475,12 +518,26 @@ public class EmuFeral {
 				sock = new ServerSocket(Integer.parseInt(properties.get("game-port")), 0,
 						InetAddress.getByName("0.0.0.0"));
 			}
+		else if (properties.getOrDefault("game-server-nio", "false").equals("true"))
+			sock = null;
 		else
 			sock = new ServerSocket(Integer.parseInt(properties.get("game-port")), 0, InetAddress.getByName("0.0.0.0"));
-		gameServer = new GameServer(sock);
+		if (sock == null) {
+			// Non-blocking transport (not available with encryption)
+			ServerSocketChannel channel = ServerSocketChannel.open();
+			channel.bind(new InetSocketAddress(InetAddress.getByName("0.0.0.0"),
+					Integer.parseInt(properties.get("game-port"))));
+			gameServer = new GameServer(channel,
+					Integer.parseInt(properties.getOrDefault("game-server-io-threads", "2")),
+					Integer.parseInt(properties.getOrDefault("game-server-worker-threads", "8")));
+		} else
+			gameServer = new GameServer(sock);
 
 		// Server settings
 		gameServer.whitelistFile = properties.get("vpn-user-whitelist");
+		gameServer.movementTickRate = Integer.parseInt(properties.getOrDefault("movement-tick-rate", "0"));
+		gameServer.movementInterestRadius = Double
+				.parseDouble(properties.getOrDefault("movement-interest-radius", "0"));
 
 		// Download VPN ips
 		try {
@@ -727,6 +784,7 @@ public class EmuFeral {
 			if (!sancD.has("SanctuaryLook")) {
 				// Delete the entry
 				inv.getItem("201").getAsJsonArray().remove(inv.getSanctuaryAccessor().getSanctuaryLook(id));
+				inv.getAccessor().invalidateIndex("201");
 				continue;
 			}
 
@@ -738,6 +796,7 @@ public class EmuFeral {
 			if (inv.getSanctuaryAccessor().getSanctuaryClassObject(classId) == null) {
 				// Delete the entry
 				inv.getItem("201").getAsJsonArray().remove(inv.getSanctuaryAccessor().getSanctuaryLook(id));
+				inv.getAccessor().invalidateIndex("201");
 			}
 		}
 
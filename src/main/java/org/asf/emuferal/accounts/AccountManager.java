@@ -16,6 +16,16 @@ public abstract class AccountManager {
 		return instance;
 	}
 
+	/**
+	 * Replaces the active account manager, called on startup when a different
+	 * account storage is configured
+	 * 
+	 * @param manager New AccountManager instance
+	 */
+	public static void setInstance(AccountManager manager) {
+		instance = manager;
+	}
+
 	/**
 	 * Authenticates a player login and returns a account ID
 	 * 
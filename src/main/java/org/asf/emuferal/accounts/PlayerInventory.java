@@ -1,6 +1,7 @@
 package org.asf.emuferal.accounts;
 
 import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 
 import org.asf.emuferal.accounts.highlevel.AvatarAccessor;
 import org.asf.emuferal.accounts.highlevel.ClothingItemAccessor;
@@ -23,6 +24,7 @@ import org.asf.emuferal.accounts.highlevel.impl.InteractionMemoryAccessorImpl;
 import org.asf.emuferal.accounts.highlevel.impl.SanctuaryAccessorImpl;
 import org.asf.emuferal.accounts.highlevel.impl.TwiggleAccessorImpl;
 import org.asf.emuferal.accounts.highlevel.impl.UserVarAccessorImpl;
+import org.asf.emuferal.accounts.highlevel.itemdata.item.CompactInventory;
 import org.asf.emuferal.players.Player;
 
 public abstract class PlayerInventory {
@@ -156,6 +158,24 @@ public abstract class PlayerInventory {
 	 */
 	public abstract JsonElement getItem(String itemID);
 
+	/**
+	 * Retrieves a inventory in its typed form, only supported for inventories
+	 * accepted by {@link CompactInventory#isCompactInventory(String)}
+	 * 
+	 * @param itemID Inventory item ID
+	 * @return CompactInventory instance or null if the inventory is not present
+	 */
+	public CompactInventory getCompactInventory(String itemID) {
+		// Implementations that don't keep the typed form in memory convert the json
+		// on every call
+		JsonElement ele = getItem(itemID);
+		if (ele == null || !ele.isJsonArray())
+			return null;
+		CompactInventory inv = new CompactInventory(itemID, json -> setItem(itemID, JsonParser.parseString(json)));
+		inv.load(ele.getAsJsonArray());
+		return inv;
+	}
+
 	/**
 	 * Saves a item to the player inventory
 	 * 
@@ -178,4 +198,10 @@ public abstract class PlayerInventory {
 	 * @return True if the item is present, false otherwise
 	 */
 	public abstract boolean containsItem(String itemID);
+
+	/**
+	 * Writes unsaved inventory changes to storage, called on logout
+	 */
+	public void flush() {
+	}
 }
@@ -1,11 +1,11 @@
 package org.asf.emuferal.accounts.highlevel;
 
 import org.asf.emuferal.accounts.PlayerInventory;
-import org.asf.emuferal.accounts.highlevel.itemdata.item.ItemComponent;
+import org.asf.emuferal.accounts.highlevel.itemdata.item.CompactInventory;
 import org.asf.emuferal.networking.smartfox.SmartfoxClient;
 import org.asf.emuferal.packets.xt.gameserver.inventory.InventoryItemPacket;
 
-import com.google.gson.JsonObject;
+import com.google.gson.JsonArray;
 
 public class CurrencyAccessor {
 	private PlayerInventory inventory;
@@ -20,11 +20,7 @@ public class CurrencyAccessor {
 	 * @return Amount of likes
 	 */
 	public int getLikes() {
-		if (!inventory.getAccessor().hasInventoryObject("104", 2327))
-			return 2500;
-
-		return inventory.getAccessor().findInventoryObject("104", 2327).get("components").getAsJsonObject()
-				.get("Quantity").getAsJsonObject().get("quantity").getAsInt();
+		return getQuantity(2327, 2500);
 	}
 
 	/**
@@ -33,11 +29,7 @@ public class CurrencyAccessor {
 	 * @return Amount of star fragments
 	 */
 	public int getStarFragments() {
-		if (!inventory.getAccessor().hasInventoryObject("104", 14500))
-			return 0;
-
-		return inventory.getAccessor().findInventoryObject("104", 14500).get("components").getAsJsonObject()
-				.get("Quantity").getAsJsonObject().get("quantity").getAsInt();
+		return getQuantity(14500, 0);
 	}
 
 	/**
@@ -46,11 +38,7 @@ public class CurrencyAccessor {
 	 * @return Amount of lockpicks
 	 */
 	public int getLockpicks() {
-		if (!inventory.getAccessor().hasInventoryObject("104", 8372))
-			return 0;
-
-		return inventory.getAccessor().findInventoryObject("104", 8372).get("components").getAsJsonObject()
-				.get("Quantity").getAsJsonObject().get("quantity").getAsInt();
+		return getQuantity(8372, 0);
 	}
 
 	/**
@@ -92,21 +80,7 @@ public class CurrencyAccessor {
 	 * @param likes New amount of likes
 	 */
 	public void setLikesDirectly(int likes) {
-		if (likes <= 0) {
-			inventory.getAccessor().removeInventoryObject("104", 2327);
-			return;
-		}
-		if (!inventory.getAccessor().hasInventoryObject("104", 2327)) {
-			// Create object
-			JsonObject dq = new JsonObject();
-			dq.addProperty("quantity", 0);
-			inventory.getAccessor().createInventoryObject("104", 2327, new ItemComponent("Quantity", dq));
-		}
-		JsonObject q = inventory.getAccessor().findInventoryObject("104", 2327).get("components").getAsJsonObject()
-				.get("Quantity").getAsJsonObject();
-		q.remove("quantity");
-		q.addProperty("quantity", likes);
-		inventory.setItem("104", inventory.getItem("104"));
+		setQuantity(2327, likes);
 	}
 
 	/**
@@ -115,21 +89,7 @@ public class CurrencyAccessor {
 	 * @param starFrags New amount of star fragments
 	 */
 	public void setStarFragmentsDirectly(int starFrags) {
-		if (starFrags <= 0) {
-			inventory.getAccessor().removeInventoryObject("104", 14500);
-			return;
-		}
-		if (!inventory.getAccessor().hasInventoryObject("104", 14500)) {
-			// Create object
-			JsonObject dq = new JsonObject();
-			dq.addProperty("quantity", 0);
-			inventory.getAccessor().createInventoryObject("104", 14500, new ItemComponent("Quantity", dq));
-		}
-		JsonObject q = inventory.getAccessor().findInventoryObject("104", 14500).get("components").getAsJsonObject()
-				.get("Quantity").getAsJsonObject();
-		q.remove("quantity");
-		q.addProperty("quantity", starFrags);
-		inventory.setItem("104", inventory.getItem("104"));
+		setQuantity(14500, starFrags);
 	}
 
 	/**
@@ -138,21 +98,7 @@ public class CurrencyAccessor {
 	 * @param lockpicks New amount of lockpicks
 	 */
 	public void setLockpicksDirectly(int lockpicks) {
-		if (lockpicks <= 0) {
-			inventory.getAccessor().removeInventoryObject("104", 8372);
-			return;
-		}
-		if (!inventory.getAccessor().hasInventoryObject("104", 8372)) {
-			// Create object
-			JsonObject dq = new JsonObject();
-			dq.addProperty("quantity", 0);
-			inventory.getAccessor().createInventoryObject("104", 8372, new ItemComponent("Quantity", dq));
-		}
-		JsonObject q = inventory.getAccessor().findInventoryObject("104", 8372).get("components").getAsJsonObject()
-				.get("Quantity").getAsJsonObject();
-		q.remove("quantity");
-		q.addProperty("quantity", lockpicks);
-		inventory.setItem("104", inventory.getItem("104"));
+		setQuantity(8372, lockpicks);
 	}
 
 	/**
@@ -305,6 +251,29 @@ public class CurrencyAccessor {
 		return false;
 	}
 
+	// Retrieves the quantity of a currency item
+	private int getQuantity(int defId, int defaultValue) {
+		CompactInventory currency = inventory.getCompactInventory("104");
+		if (currency == null)
+			return defaultValue;
+		return currency.getQuantity(defId, defaultValue);
+	}
+
+	// Assigns the quantity of a currency item and saves the inventory
+	private void setQuantity(int defId, int quantity) {
+		if (!inventory.containsItem("104"))
+			inventory.setItem("104", new JsonArray());
+		CompactInventory currency = inventory.getCompactInventory("104");
+		if (quantity <= 0) {
+			String id = currency.remove(defId);
+			if (id == null)
+				return;
+			inventory.getAccessor().removeItemFromCache(id);
+		} else
+			inventory.getAccessor().cacheItem(currency.setQuantity(defId, quantity), "104");
+		currency.save();
+	}
+
 	// Called to update the player
 	private void updatePlayer(SmartfoxClient client) {
 		// Update currency object in client inventory
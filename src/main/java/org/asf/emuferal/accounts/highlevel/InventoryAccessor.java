@@ -14,12 +14,146 @@ import com.google.gson.JsonObject;
 public class InventoryAccessor {
 	private PlayerInventory inventory;
 	private HashMap<String, String> typeCache = new HashMap<String, String>();
+	private HashMap<String, ObjectIndex> indexes = new HashMap<String, ObjectIndex>();
 	ArrayList<String> itemsToSave = new ArrayList<String>();
 
+	// Positions of the objects in a inventory array by UUID and DefID. Found
+	// positions are checked against the array when used and the index is rebuilt
+	// if the size or the last element of the array changed, which catches direct
+	// add() and remove() calls on the array. Code replacing elements in place
+	// needs to call invalidateIndex.
+	private static class ObjectIndex {
+		JsonArray items;
+		int size;
+		JsonElement last;
+		HashMap<String, Integer> byId = new HashMap<String, Integer>();
+		HashMap<Integer, ArrayList<Integer>> byDefId = new HashMap<Integer, ArrayList<Integer>>();
+
+		void add(int pos, JsonObject obj) {
+			if (obj.has("id"))
+				byId.put(obj.get("id").getAsString(), pos);
+			if (obj.has("defId"))
+				byDefId.computeIfAbsent(obj.get("defId").getAsInt(), t -> new ArrayList<Integer>()).add(pos);
+		}
+	}
+
 	public InventoryAccessor(PlayerInventory inventory) {
 		this.inventory = inventory;
 	}
 
+	private JsonArray loadInventory(String inventoryId) {
+		if (!inventory.containsItem(inventoryId))
+			inventory.setItem(inventoryId, new JsonArray());
+		return inventory.getItem(inventoryId).getAsJsonArray();
+	}
+
+	private ObjectIndex getIndex(String inventoryId, JsonArray items) {
+		ObjectIndex index = indexes.get(inventoryId);
+		if (index == null || index.items != items || index.size != items.size()
+				|| (index.size != 0 && index.last != items.get(index.size - 1)))
+			index = buildIndex(inventoryId, items);
+		return index;
+	}
+
+	private ObjectIndex buildIndex(String inventoryId, JsonArray items) {
+		ObjectIndex index = new ObjectIndex();
+		index.items = items;
+		index.size = items.size();
+		if (index.size != 0)
+			index.last = items.get(index.size - 1);
+		for (int i = 0; i < index.size; i++) {
+			JsonElement ele = items.get(i);
+			if (ele.isJsonObject())
+				index.add(i, ele.getAsJsonObject());
+		}
+		indexes.put(inventoryId, index);
+		return index;
+	}
+
+	private int findPosition(String inventoryId, JsonArray items, String objectId) {
+		ObjectIndex index = getIndex(inventoryId, items);
+		Integer pos = index.byId.get(objectId);
+		if (pos != null && !objectIdMatches(items.get(pos), objectId)) {
+			// Out of date
+			pos = buildIndex(inventoryId, items).byId.get(objectId);
+		}
+		return pos == null ? -1 : pos;
+	}
+
+	private int findPosition(String inventoryId, JsonArray items, int defId) {
+		ObjectIndex index = getIndex(inventoryId, items);
+		ArrayList<Integer> positions = index.byDefId.get(defId);
+		if (positions != null && !defIdMatches(items.get(positions.get(0)), defId)) {
+			// Out of date
+			positions = buildIndex(inventoryId, items).byDefId.get(defId);
+		}
+		return positions == null ? -1 : positions.get(0);
+	}
+
+	private static boolean objectIdMatches(JsonElement ele, String objectId) {
+		return ele.isJsonObject() && ele.getAsJsonObject().has("id")
+				&& ele.getAsJsonObject().get("id").getAsString().equals(objectId);
+	}
+
+	private static boolean defIdMatches(JsonElement ele, int defId) {
+		return ele.isJsonObject() && ele.getAsJsonObject().has("defId")
+				&& ele.getAsJsonObject().get("defId").getAsInt() == defId;
+	}
+
+	/**
+	 * Indexes the objects of a inventory and adds them to the item cache, called
+	 * by the inventory implementation when a inventory is loaded or saved
+	 * 
+	 * @param inventoryId Inventory ID
+	 * @param items       Inventory object array
+	 */
+	public void indexInventory(String inventoryId, JsonArray items) {
+		synchronized (indexes) {
+			ObjectIndex index = buildIndex(inventoryId, items);
+			for (int i = 0; i < index.size; i++) {
+				JsonElement ele = items.get(i);
+				if (ele.isJsonObject()) {
+					JsonObject obj = ele.getAsJsonObject();
+					if (obj.has("id") && obj.has("type"))
+						cacheItem(obj.get("id").getAsString(), obj.get("type").getAsString());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the objects of a inventory to the item cache without indexing them,
+	 * called by the inventory implementation for inventories kept in compact form
+	 * 
+	 * @param inventoryId Inventory ID
+	 * @param items       Inventory object array
+	 */
+	public void cacheInventory(String inventoryId, JsonArray items) {
+		synchronized (indexes) {
+			indexes.remove(inventoryId);
+			for (JsonElement ele : items) {
+				if (ele.isJsonObject()) {
+					JsonObject obj = ele.getAsJsonObject();
+					if (obj.has("id") && obj.has("type"))
+						cacheItem(obj.get("id").getAsString(), obj.get("type").getAsString());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the object index of a inventory, called by the inventory
+	 * implementation when a inventory is deleted and by code that edits the
+	 * inventory array directly
+	 * 
+	 * @param inventoryId Inventory ID
+	 */
+	public void invalidateIndex(String inventoryId) {
+		synchronized (indexes) {
+			indexes.remove(inventoryId);
+		}
+	}
+
 	/**
 	 * Call this after saving items
 	 */
@@ -44,25 +178,7 @@ public class InventoryAccessor {
 	 * @return True if present, false otherwise
 	 */
 	public boolean hasInventoryObject(String inventoryId, String objectId) {
-		// Load the inventory object
-		if (!inventory.containsItem(inventoryId))
-			inventory.setItem(inventoryId, new JsonArray());
-		JsonArray items = inventory.getItem(inventoryId).getAsJsonArray();
-
-		// Find object
-		for (JsonElement ele : items) {
-			JsonObject itm = ele.getAsJsonObject();
-			if (!itm.has("id"))
-				continue;
-			String itID = itm.get("id").getAsString();
-			if (itID.equals(objectId)) {
-				// Found it
-				return true;
-			}
-		}
-
-		// Could not find it
-		return false;
+		return findInventoryObject(inventoryId, objectId) != null;
 	}
 
 	/**
@@ -73,25 +189,13 @@ public class InventoryAccessor {
 	 * @return JsonObject instance or null
 	 */
 	public JsonObject findInventoryObject(String inventoryId, String objectId) {
-		// Load the inventory object
-		if (!inventory.containsItem(inventoryId))
-			inventory.setItem(inventoryId, new JsonArray());
-		JsonArray items = inventory.getItem(inventoryId).getAsJsonArray();
-
-		// Find object
-		for (JsonElement ele : items) {
-			JsonObject itm = ele.getAsJsonObject();
-			if (!itm.has("id"))
-				continue;
-			String itID = itm.get("id").getAsString();
-			if (itID.equals(objectId)) {
-				// Found it
-				return itm;
-			}
+		JsonArray items = loadInventory(inventoryId);
+		synchronized (indexes) {
+			int pos = findPosition(inventoryId, items, objectId);
+			if (pos == -1)
+				return null;
+			return items.get(pos).getAsJsonObject();
 		}
-
-		// Could not find it
-		return null;
 	}
 
 	/**
@@ -102,25 +206,7 @@ public class InventoryAccessor {
 	 * @return True if present, false otherwise
 	 */
 	public boolean hasInventoryObject(String inventoryId, int defId) {
-		// Load the inventory object
-		if (!inventory.containsItem(inventoryId))
-			inventory.setItem(inventoryId, new JsonArray());
-		JsonArray items = inventory.getItem(inventoryId).getAsJsonArray();
-
-		// Find object
-		for (JsonElement ele : items) {
-			JsonObject itm = ele.getAsJsonObject();
-			if (!itm.has("defId"))
-				continue;
-			int itID = itm.get("defId").getAsInt();
-			if (itID == defId) {
-				// Found it
-				return true;
-			}
-		}
-
-		// Could not find it
-		return false;
+		return findInventoryObject(inventoryId, defId) != null;
 	}
 
 	/**
@@ -131,25 +217,30 @@ public class InventoryAccessor {
 	 * @return JsonObject instance or null
 	 */
 	public JsonObject findInventoryObject(String inventoryId, int defId) {
-		// Load the inventory object
-		if (!inventory.containsItem(inventoryId))
-			inventory.setItem(inventoryId, new JsonArray());
-		JsonArray items = inventory.getItem(inventoryId).getAsJsonArray();
-
-		// Find object
-		for (JsonElement ele : items) {
-			JsonObject itm = ele.getAsJsonObject();
-			if (!itm.has("defId"))
-				continue;
-			int itID = itm.get("defId").getAsInt();
-			if (itID == defId) {
-				// Found it
-				return itm;
-			}
+		JsonArray items = loadInventory(inventoryId);
+		synchronized (indexes) {
+			int pos = findPosition(inventoryId, items, defId);
+			if (pos == -1)
+				return null;
+			return items.get(pos).getAsJsonObject();
 		}
+	}
 
-		// Could not find it
-		return null;
+	/**
+	 * Counts the inventory objects of a specific type
+	 * 
+	 * @param inventoryId Inventory ID
+	 * @param defId       Object DefID
+	 * @return Amount of objects with the given DefID
+	 */
+	public int getInventoryObjectCount(String inventoryId, int defId) {
+		JsonArray items = loadInventory(inventoryId);
+		synchronized (indexes) {
+			ArrayList<Integer> positions = getIndex(inventoryId, items).byDefId.get(defId);
+			if (positions == null)
+				return 0;
+			return positions.size();
+		}
 	}
 
 	/**
@@ -160,37 +251,13 @@ public class InventoryAccessor {
 	 * @return JsonObject instance or null if deletion failed
 	 */
 	public JsonObject removeInventoryObject(String inventoryId, String objectId) {
-		// Load the inventory object
-		if (!inventory.containsItem(inventoryId))
-			inventory.setItem(inventoryId, new JsonArray());
-		JsonArray items = inventory.getItem(inventoryId).getAsJsonArray();
-
-		// Find object
-		for (JsonElement ele : items) {
-			JsonObject itm = ele.getAsJsonObject();
-			if (!itm.has("id"))
-				continue;
-			String itID = itm.get("id").getAsString();
-			if (itID.equals(objectId)) {
-				// Found it
-
-				// Remove item
-				items.remove(itm);
-
-				// Remove from cache
-				removeItemFromCache(objectId);
-
-				// Add changed file
-				if (!itemsToSave.contains(inventoryId))
-					itemsToSave.add(inventoryId);
-
-				// Return old item
-				return itm;
-			}
+		JsonArray items = loadInventory(inventoryId);
+		synchronized (indexes) {
+			int pos = findPosition(inventoryId, items, objectId);
+			if (pos == -1)
+				return null;
+			return removeObject(inventoryId, items, pos);
 		}
-
-		// Could not find it
-		return null;
 	}
 
 	/**
@@ -201,37 +268,29 @@ public class InventoryAccessor {
 	 * @return JsonObject instance or null if deletion failed
 	 */
 	public JsonObject removeInventoryObject(String inventoryId, int defId) {
-		// Load the inventory object
-		if (!inventory.containsItem(inventoryId))
-			inventory.setItem(inventoryId, new JsonArray());
-		JsonArray items = inventory.getItem(inventoryId).getAsJsonArray();
-
-		// Find object
-		for (JsonElement ele : items) {
-			JsonObject itm = ele.getAsJsonObject();
-			if (!itm.has("defId"))
-				continue;
-			int itID = itm.get("defId").getAsInt();
-			if (itID == defId) {
-				// Found it
-
-				// Remove item
-				items.remove(itm);
+		JsonArray items = loadInventory(inventoryId);
+		synchronized (indexes) {
+			int pos = findPosition(inventoryId, items, defId);
+			if (pos == -1)
+				return null;
+			return removeObject(inventoryId, items, pos);
+		}
+	}
 
-				// Remove from cache
-				removeItemFromCache(itm.get("id").getAsString());
+	private JsonObject removeObject(String inventoryId, JsonArray items, int pos) {
+		// Remove item, this shifts the positions so the index is rebuilt on next use
+		JsonObject itm = items.remove(pos).getAsJsonObject();
+		indexes.remove(inventoryId);
 
-				// Add changed file
-				if (!itemsToSave.contains(inventoryId))
-					itemsToSave.add(inventoryId);
+		// Remove from cache
+		removeItemFromCache(itm.get("id").getAsString());
 
-				// Return old item
-				return itm;
-			}
-		}
+		// Add changed file
+		if (!itemsToSave.contains(inventoryId))
+			itemsToSave.add(inventoryId);
 
-		// Could not find it
-		return null;
+		// Return old item
+		return itm;
 	}
 
 	/**
@@ -246,9 +305,7 @@ public class InventoryAccessor {
 	 */
 	public String createInventoryObject(String inventoryId, int itemType, int defId, ItemComponent... componentData) {
 		// Load the inventory object
-		if (!inventory.containsItem(inventoryId))
-			inventory.setItem(inventoryId, new JsonArray());
-		JsonArray items = inventory.getItem(inventoryId).getAsJsonArray();
+		JsonArray items = loadInventory(inventoryId);
 
 		// Generate item ID
 		String iID = UUID.randomUUID().toString();
@@ -277,7 +334,16 @@ public class InventoryAccessor {
 		obj.addProperty("type", itemType);
 
 		// Save to inventory
-		items.add(obj);
+		synchronized (indexes) {
+			items.add(obj);
+
+			// Add to the index if it is up to date
+			ObjectIndex index = indexes.get(inventoryId);
+			if (index != null && index.items == items && index.size == items.size() - 1) {
+				index.add(index.size, obj);
+				index.size++;
+			}
+		}
 
 		// Add changed file
 		if (!itemsToSave.contains(inventoryId))
@@ -19,6 +19,7 @@ import org.asf.emuferal.accounts.highlevel.itemdata.inventory.impl.GenericHelper
 import org.asf.emuferal.accounts.highlevel.itemdata.inventory.impl.SanctuaryClassHelper;
 import org.asf.emuferal.accounts.highlevel.itemdata.inventory.impl.SanctuaryHouseHelper;
 import org.asf.emuferal.accounts.highlevel.itemdata.inventory.impl.SanctuaryIslandHelper;
+import org.asf.emuferal.accounts.highlevel.itemdata.item.CompactInventory;
 import org.asf.emuferal.accounts.highlevel.itemdata.item.ItemComponent;
 import org.asf.emuferal.accounts.highlevel.itemdata.item.ItemInfo;
 import org.asf.emuferal.enums.inventory.InventoryStorageType;
@@ -28,7 +29,6 @@ import org.asf.emuferal.packets.xt.gameserver.inventory.InventoryItemRemovedPack
 import org.asf.emuferal.players.Player;
 
 import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
@@ -704,22 +704,18 @@ public class ItemAccessor {
 
 		// Object-based
 		case OBJECT_BASED: {
-			int count = 0;
-
-			// Find all items of this type
-			JsonArray items = inventory.getItem(info.inventory).getAsJsonArray();
-			for (JsonElement ele : items) {
-				JsonObject itm = ele.getAsJsonObject();
-				if (itm.get("defId").getAsInt() == defID) {
-					count++;
-				}
-			}
-
-			return count;
+			// Count all items of this type
+			return inventory.getAccessor().getInventoryObjectCount(info.inventory, defID);
 		}
 
 		// Quantity-based
 		case QUANTITY_BASED: {
+			// Read compact inventories without building their json
+			if (CompactInventory.isCompactInventory(info.inventory)) {
+				CompactInventory compact = inventory.getCompactInventory(info.inventory);
+				return compact == null ? 0 : compact.getQuantity(defID, 0);
+			}
+
 			// Find item
 			if (!inventory.getAccessor().hasInventoryObject(info.inventory, defID))
 				return 0; // Not present
@@ -62,6 +62,7 @@ public class DyeAccessorImpl extends DyeAccessor {
 		if (q - 1 <= 0) {
 			// Remove object
 			inventory.getItem("111").getAsJsonArray().remove(dye);
+			inventory.getAccessor().invalidateIndex("111");
 		}
 
 		// Mark what files to save
@@ -90,6 +91,7 @@ public class DyeAccessorImpl extends DyeAccessor {
 				if (q - 1 <= 0) {
 					// Remove object
 					inventory.getItem("111").getAsJsonArray().remove(dye);
+					inventory.getAccessor().invalidateIndex("111");
 				}
 
 				// Mark what files to save
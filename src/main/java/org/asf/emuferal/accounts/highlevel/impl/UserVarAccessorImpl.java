@@ -1,29 +1,23 @@
 package org.asf.emuferal.accounts.highlevel.impl;
 
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.UUID;
 
 import org.asf.emuferal.accounts.PlayerInventory;
 import org.asf.emuferal.accounts.highlevel.UserVarAccessor;
+import org.asf.emuferal.accounts.highlevel.itemdata.item.CompactInventory;
 import org.asf.emuferal.entities.uservars.SetUserVarResult;
 import org.asf.emuferal.entities.uservars.UserVarValue;
 import org.asf.emuferal.enums.uservars.UserVarType;
-import org.asf.emuferal.entities.components.uservars.*;
-import org.asf.emuferal.entities.inventoryitems.InventoryItem;
 import org.asf.emuferal.entities.inventoryitems.uservars.UserVarItem;
 
 import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
 
 public class UserVarAccessorImpl extends UserVarAccessor {
 
+	private static final String INV_ID = Integer.toString(UserVarItem.INV_TYPE.invTypeId);
 	private static JsonObject helper = null;
 
 	public UserVarAccessorImpl(PlayerInventory inventory) {
@@ -44,47 +38,6 @@ public class UserVarAccessorImpl extends UserVarAccessor {
 		}
 	}
 
-	private UserVarItem createNewUserVar(int defId, UserVarValue[] values)
-			throws JsonSyntaxException, UnsupportedEncodingException, IOException {
-		// create a new player var with the value specified
-
-		var type = getVarType(defId);
-		var userVarItem = new UserVarItem(defId, UUID.randomUUID().toString(), type);
-
-		UserVarComponent userVarComponent = null;
-
-		switch (type) {
-		case Any:
-			userVarComponent = new UserVarCustomComponent();
-			break;
-		case Bit:
-			userVarComponent = new UserVarBitComponent();
-			break;
-		case BitOnOnly:
-			userVarComponent = new UserVarBitOnOnlyComponent();
-			break;
-		case Counter:
-			userVarComponent = new UserVarCounterComponent();
-			break;
-		case Highest:
-			userVarComponent = new UserVarHighestComponent();
-			break;
-		case Lowest:
-			userVarComponent = new UserVarLowestComponent();
-			break;
-		default:
-			break;
-		}
-
-		for (var value : values) {
-			userVarComponent.setUserVarValue(value);
-		}
-
-		userVarItem.setUserVarComponent(userVarComponent);
-
-		return userVarItem;
-	}
-
 	private UserVarType getVarType(int defId) {
 		try {
 			// find var by def id
@@ -107,408 +60,130 @@ public class UserVarAccessorImpl extends UserVarAccessor {
 
 	}
 
-	@Override
-	public SetUserVarResult setPlayerVarValue(int defID, int[] values) {
+	// Creates the player var object if needed, assigns the values and saves the
+	// inventory
+	private SetUserVarResult setPlayerVarValue(int defID, UserVarValue[] values) {
 		try {
+			if (!inventory.containsItem(INV_ID))
+				inventory.setItem(INV_ID, new JsonArray());
+			CompactInventory vars = inventory.getCompactInventory(INV_ID);
 
-			if (!inventory.getAccessor().hasInventoryObject(Integer.toString(UserVarItem.INV_TYPE.invTypeId), defID)) {
-				// create the inventory object
-
-				UserVarValue[] userVarValues = new UserVarValue[values.length];
-
-				for (int i = 0; i < values.length; i++) {
-					userVarValues[i] = new UserVarValue();
-					userVarValues[i].index = i;
-					userVarValues[i].value = values[i];
-				}
-
-				var newVarObject = createNewUserVar(defID, userVarValues);
-
-				var inv = inventory.getItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId));
-				// UHH
-				inv.getAsJsonArray().add(newVarObject.toJsonObject());
-
-				inventory.setItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId), inv);
-
-				var output = new SetUserVarResult(true, new UserVarItem[] { newVarObject });
-
-				return output;
-			} else {
-				var inv = inventory.getItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId));
-
-				// find the item
-
-				JsonElement element = null;
-				int index = 0;
-
-				for (var item : inv.getAsJsonArray()) {
-					if (item.getAsJsonObject().get(InventoryItem.DEF_ID_PROPERTY_NAME).getAsInt() == defID) {
-						element = item;
-						break;
-					}
-					index++;
-				}
-
-				if (element == null) {
-					var output = new SetUserVarResult(false, null);
-
-					return output; // cannot find
-				}
-
-				var type = getVarType(defID);
-
-				UserVarItem userVarItem = new UserVarItem(type);
-				userVarItem.fromJsonObject(element.getAsJsonObject());
-
-				UserVarComponent userVarComponent = userVarItem.getUserVarComponent();
-				for (int i = 0; i < values.length; i++) {
-					var userVarValue = new UserVarValue();
-					userVarValue.index = i;
-					userVarValue.value = values[i];
-
-					userVarComponent.setUserVarValue(userVarValue);
-				}
-
-				userVarItem.setUserVarComponent(userVarComponent);
-
-				var object = userVarItem.toJsonObject();
-				inv.getAsJsonArray().set(index, object);
-
-				var outputVarInv = new JsonArray();
-				outputVarInv.add(object);
-
-				inventory.setItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId), inv);
+			// Update the values in place
+			var type = getVarType(defID);
+			String id = null;
+			for (UserVarValue value : values)
+				id = vars.setValue(defID, type.componentName, value.index, value.value);
+			if (id == null)
+				return new SetUserVarResult(vars.contains(defID), null); // nothing to set
+			inventory.getAccessor().cacheItem(id, INV_ID);
+			vars.save();
 
-				return null;
-			}
+			UserVarItem userVarItem = new UserVarItem(type);
+			userVarItem.fromJsonObject(vars.getObject(defID));
+			return new SetUserVarResult(true, new UserVarItem[] { userVarItem });
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
 
 	@Override
-	public SetUserVarResult setPlayerVarValue(int defID, int index, int value) {
-		try {
-			if (!inventory.getAccessor().hasInventoryObject(Integer.toString(UserVarItem.INV_TYPE.invTypeId), defID)) {
-				// create the inventory object
-
-				UserVarValue[] userVarValues = new UserVarValue[1];
-
-				userVarValues[0] = new UserVarValue();
-				userVarValues[0].index = index;
-				userVarValues[0].value = value;
-
-				var newVarObject = createNewUserVar(defID, userVarValues);
-
-				var inv = inventory.getItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId));
-				// UHH
-				inv.getAsJsonArray().add(newVarObject.toJsonObject());
-
-				inventory.setItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId), inv);
-
-				var output = new SetUserVarResult(true, new UserVarItem[] { newVarObject });
-
-				return output;
-			} else {
-				var inv = inventory.getItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId));
-
-				// find the item
-
-				JsonElement element = null;
-				int elementIndex = 0;
-
-				for (var item : inv.getAsJsonArray()) {
-					if (item.getAsJsonObject().get(InventoryItem.DEF_ID_PROPERTY_NAME).getAsInt() == defID) {
-						element = item;
-						break;
-					}
-					elementIndex++;
-				}
-
-				if (element == null) {
-					var output = new SetUserVarResult(false, null);
-
-					return output; // cannot find
-				}
-
-				var type = getVarType(defID);
-
-				UserVarItem userVarItem = new UserVarItem(type);
-				userVarItem.fromJsonObject(element.getAsJsonObject());
-
-				UserVarComponent userVarComponent = userVarItem.getUserVarComponent();
-
-				var userVarValue = new UserVarValue();
-				userVarValue.index = index;
-				userVarValue.value = value;
-
-				userVarComponent.setUserVarValue(userVarValue);
-
-				userVarItem.setUserVarComponent(userVarComponent);
-
-				var object = userVarItem.toJsonObject();
-				inv.getAsJsonArray().set(elementIndex, object);
-
-				inventory.setItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId), inv);
-
-				return new SetUserVarResult(true, new UserVarItem[] { userVarItem });
-			}
-		} catch (Exception e) {
-			throw new RuntimeException(e);
+	public SetUserVarResult setPlayerVarValue(int defID, int[] values) {
+		UserVarValue[] userVarValues = new UserVarValue[values.length];
+		for (int i = 0; i < values.length; i++) {
+			userVarValues[i] = new UserVarValue();
+			userVarValues[i].index = i;
+			userVarValues[i].value = values[i];
 		}
+		return setPlayerVarValue(defID, userVarValues);
 	}
 
 	@Override
-	public SetUserVarResult setPlayerVarValue(int defID, HashMap<Integer, Integer> indexToValueUpdateMap) {
-		try {
-			if (!inventory.getAccessor().hasInventoryObject(Integer.toString(UserVarItem.INV_TYPE.invTypeId), defID)) {
-				// create the inventory object
-
-				UserVarValue[] userVarValues = new UserVarValue[indexToValueUpdateMap.size()];
-
-				int index = 0;
-				for (var indexToValueUpdate : indexToValueUpdateMap.entrySet()) {
-					userVarValues[index] = new UserVarValue();
-					userVarValues[index].index = indexToValueUpdate.getKey();
-					userVarValues[index].value = indexToValueUpdate.getValue();
-
-					index++;
-				}
-
-				var newVarObject = createNewUserVar(defID, userVarValues);
-
-				var inv = inventory.getItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId));
-				// UHH
-				inv.getAsJsonArray().add(newVarObject.toJsonObject());
-
-				inventory.setItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId), inv);
-
-				var output = new SetUserVarResult(true, new UserVarItem[] { newVarObject });
-
-				return output;
-			} else {
-				var inv = inventory.getItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId));
-
-				// find the item
-
-				JsonElement element = null;
-				int elementIndex = 0;
-
-				for (var item : inv.getAsJsonArray()) {
-					if (item.getAsJsonObject().get(InventoryItem.DEF_ID_PROPERTY_NAME).getAsInt() == defID) {
-						element = item;
-						break;
-					}
-					elementIndex++;
-				}
-
-				if (element == null) {
-					var output = new SetUserVarResult(false, null);
-
-					return output; // cannot find
-				}
-
-				var type = getVarType(defID);
-
-				UserVarItem userVarItem = new UserVarItem(type);
-				userVarItem.fromJsonObject(element.getAsJsonObject());
-
-				UserVarComponent userVarComponent = userVarItem.getUserVarComponent();
-
-				for (var indexToValueUpdate : indexToValueUpdateMap.entrySet()) {
-					var userVarValue = new UserVarValue();
-					userVarValue.index = indexToValueUpdate.getKey();
-					userVarValue.value = indexToValueUpdate.getValue();
-
-					userVarComponent.setUserVarValue(userVarValue);
-				}
-
-				userVarItem.setUserVarComponent(userVarComponent);
-
-				var object = userVarItem.toJsonObject();
-				inv.getAsJsonArray().set(elementIndex, object);
-
-				inventory.setItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId), inv);
+	public SetUserVarResult setPlayerVarValue(int defID, int index, int value) {
+		UserVarValue[] userVarValues = new UserVarValue[1];
+		userVarValues[0] = new UserVarValue();
+		userVarValues[0].index = index;
+		userVarValues[0].value = value;
+		return setPlayerVarValue(defID, userVarValues);
+	}
 
-				return new SetUserVarResult(true, new UserVarItem[] { userVarItem });
-			}
-		} catch (Exception e) {
-			throw new RuntimeException(e);
+	@Override
+	public SetUserVarResult setPlayerVarValue(int defID, HashMap<Integer, Integer> indexToValueUpdateMap) {
+		UserVarValue[] userVarValues = new UserVarValue[indexToValueUpdateMap.size()];
+		int index = 0;
+		for (var indexToValueUpdate : indexToValueUpdateMap.entrySet()) {
+			userVarValues[index] = new UserVarValue();
+			userVarValues[index].index = indexToValueUpdate.getKey();
+			userVarValues[index].value = indexToValueUpdate.getValue();
+			index++;
 		}
+		return setPlayerVarValue(defID, userVarValues);
 	}
 
 	@Override
 	public UserVarValue[] getPlayerVarValue(int defID) {
-		try {
-			// Can't access anything if the inventory is null.
-			if (!inventory.getAccessor().hasInventoryObject(Integer.toString(UserVarItem.INV_TYPE.invTypeId), defID))
-				return null;
-
-			var inv = inventory.getItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId));
-
-			// find the item
-
-			JsonElement element = null;
-
-			for (var item : inv.getAsJsonArray()) {
-				if (item.getAsJsonObject().get(InventoryItem.DEF_ID_PROPERTY_NAME).getAsInt() == defID) {
-					element = item;
-					break;
-				}
-			}
-
-			if (element == null) {
-				return null; // cannot find
-			}
-
-			var type = getVarType(defID);
-
-			UserVarItem userVarItem = new UserVarItem(type);
-			userVarItem.fromJsonObject(element.getAsJsonObject());
-
-			UserVarComponent userVarComponent = userVarItem.getUserVarComponent();
-
-			return userVarComponent.getAllUserVarValues();
-		} catch (Exception exception) {
-			throw new RuntimeException(exception);
-		}
+		CompactInventory vars = inventory.getCompactInventory(INV_ID);
+		int[] values = vars == null ? null : vars.getValues(defID);
+		if (values == null)
+			return null; // cannot find
+
+		UserVarValue[] userVarValues = new UserVarValue[values.length];
+		for (int i = 0; i < userVarValues.length; i++)
+			userVarValues[i] = getValue(values, i);
+		return userVarValues;
 	}
 
 	@Override
 	public UserVarValue getPlayerVarValue(int defID, int index) {
-		try {
-			// Can't access anything if the inventory is null.
-			if (!inventory.getAccessor().hasInventoryObject(Integer.toString(UserVarItem.INV_TYPE.invTypeId), defID))
-				return null;
-
-			var inv = inventory.getItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId));
-
-			// find the item
-
-			JsonElement element = null;
-
-			for (var item : inv.getAsJsonArray()) {
-				if (item.getAsJsonObject().get(InventoryItem.DEF_ID_PROPERTY_NAME).getAsInt() == defID) {
-					element = item;
-					break;
-				}
-			}
-
-			if (element == null) {
-				return null; // cannot find
-			}
-
-			var type = getVarType(defID);
-
-			UserVarItem userVarItem = new UserVarItem(defID,
-					element.getAsJsonObject().get(InventoryItem.UUID_PROPERTY_NAME).getAsString(), type);
-			userVarItem.fromJsonObject(element.getAsJsonObject());
-
-			UserVarComponent userVarComponent = userVarItem.getUserVarComponent();
-
-			return userVarComponent.getUserVarValue(index);
-		} catch (Exception exception) {
-			throw new RuntimeException(exception);
-		}
+		CompactInventory vars = inventory.getCompactInventory(INV_ID);
+		int[] values = vars == null ? null : vars.getValues(defID);
+		if (values == null || index >= values.length)
+			return null; // cannot find
+		return getValue(values, index);
 	}
 
 	@Override
 	public UserVarValue[] getPlayerVarValue(int defID, int[] indexes) {
-		try {
-			// Can't access anything if the inventory is null.
-			if (!inventory.getAccessor().hasInventoryObject(Integer.toString(UserVarItem.INV_TYPE.invTypeId), defID))
-				return null;
-
-			var inv = inventory.getItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId));
-
-			// find the item
-
-			JsonElement element = null;
-
-			for (var item : inv.getAsJsonArray()) {
-				if (item.getAsJsonObject().get(InventoryItem.DEF_ID_PROPERTY_NAME).getAsInt() == defID) {
-					element = item;
-					break;
-				}
-			}
-
-			if (element == null) {
-				return null; // cannot find
-			}
-
-			var type = getVarType(defID);
-
-			UserVarItem userVarItem = new UserVarItem(defID,
-					element.getAsJsonObject().get(InventoryItem.UUID_PROPERTY_NAME).getAsString(), type);
-			userVarItem.fromJsonObject(element.getAsJsonObject());
-
-			UserVarComponent userVarComponent = userVarItem.getUserVarComponent();
-
-			var userVarValues = new ArrayList<UserVarValue>();
-
-			for (int index : indexes) {
-				userVarValues.add(userVarComponent.getUserVarValue(index));
-			}
+		CompactInventory vars = inventory.getCompactInventory(INV_ID);
+		int[] values = vars == null ? null : vars.getValues(defID);
+		if (values == null)
+			return null; // cannot find
+
+		UserVarValue[] userVarValues = new UserVarValue[indexes.length];
+		for (int i = 0; i < indexes.length; i++)
+			userVarValues[i] = getValue(values, indexes[i]);
+		return userVarValues;
+	}
 
-			return (UserVarValue[]) userVarValues.toArray();
-		} catch (Exception exception) {
-			throw new RuntimeException(exception);
-		}
+	private static UserVarValue getValue(int[] values, int index) {
+		UserVarValue value = new UserVarValue();
+		value.index = index;
+		value.value = values[index];
+		return value;
 	}
 
 	@Override
 	public boolean deletePlayerVar(int defID) {
-		try {
-			// Can't access anything if the inventory is null.
-			if (!inventory.getAccessor().hasInventoryObject(Integer.toString(UserVarItem.INV_TYPE.invTypeId), defID))
-				return false;
-
-			inventory.getAccessor().removeInventoryObject(Integer.toString(UserVarItem.INV_TYPE.invTypeId), defID);
-
-			return true;
-		} catch (Exception exception) {
-			throw new RuntimeException(exception);
-		}
+		// Can't access anything if the inventory is null.
+		CompactInventory vars = inventory.getCompactInventory(INV_ID);
+		if (vars == null)
+			return false;
+
+		String id = vars.remove(defID);
+		if (id == null)
+			return false;
+		inventory.getAccessor().removeItemFromCache(id);
+		vars.save();
+		return true;
 	}
 
 	@Override
 	public boolean deletePlayerVarValueAtIndex(int defID, int index) {
-		try {
-			// Can't access anything if the inventory is null.
-			if (!inventory.getAccessor().hasInventoryObject(Integer.toString(UserVarItem.INV_TYPE.invTypeId), defID))
-				return false;
+		CompactInventory vars = inventory.getCompactInventory(INV_ID);
+		if (vars == null || !vars.removeValue(defID, index))
+			return false; // cannot find
 
-			var inv = inventory.getItem(Integer.toString(UserVarItem.INV_TYPE.invTypeId));
-
-			// find the item
-
-			JsonElement element = null;
-
-			for (var item : inv.getAsJsonArray()) {
-				if (item.getAsJsonObject().get(InventoryItem.DEF_ID_PROPERTY_NAME).getAsInt() == defID) {
-					element = item;
-					break;
-				}
-			}
-
-			if (element == null) {
-				return false; // cannot find
-			}
-
-			var type = getVarType(defID);
-
-			UserVarItem userVarItem = new UserVarItem(defID,
-					element.getAsJsonObject().get(InventoryItem.UUID_PROPERTY_NAME).getAsString(), type);
-			userVarItem.fromJsonObject(element.getAsJsonObject());
-
-			UserVarComponent userVarComponent = userVarItem.getUserVarComponent();
-
-			userVarComponent.deleteUserVarValue(index);
-
-			return true;
-		} catch (Exception exception) {
-			throw new RuntimeException(exception);
-		}
+		vars.save();
+		return true;
 	}
 
 	@Override
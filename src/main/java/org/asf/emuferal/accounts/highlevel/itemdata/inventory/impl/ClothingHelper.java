@@ -26,6 +26,7 @@ public class ClothingHelper extends AbstractInventoryInteractionHelper {
 
 			// Add to inventory
 			inventory.getItem(INV_TYPE).getAsJsonArray().add(object);
+			inventory.getAccessor().invalidateIndex(INV_TYPE);
 
 			// Return object
 			return object;
@@ -0,0 +1,651 @@
+package org.asf.emuferal.accounts.highlevel.itemdata.item;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ *
+ * Typed in-memory form of the currency and user var inventories, the objects
+ * are kept as primitive fields instead of JSON trees. JSON is only built when
+ * the inventory is requested through getItem (to send it to the client) and
+ * saving writes the objects to a string directly.<br/>
+ * <br/>
+ * The JSON array returned by {@link #toJson()} or passed to
+ * {@link #load(JsonArray)} may be edited by the caller, it replaces the typed
+ * objects until the next typed call reads it back in.
+ *
+ */
+public class CompactInventory {
+
+	private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+	private static final int[] EMPTY = new int[0];
+
+	private int type;
+	private boolean quantityBased;
+	private Consumer<String> saver;
+
+	private int size;
+	private int[] defIds = new int[8];
+	private StoredObject[] objects = new StoredObject[8];
+	private JsonArray view;
+
+	/**
+	 * Creates a empty compact inventory
+	 *
+	 * @param inventoryId Inventory ID, see {@link #isCompactInventory(String)}
+	 * @param saver       Called with the inventory JSON when the inventory is
+	 *                    saved
+	 */
+	public CompactInventory(String inventoryId, Consumer<String> saver) {
+		this.type = Integer.parseInt(inventoryId);
+		this.quantityBased = inventoryId.equals("104");
+		this.saver = saver;
+	}
+
+	/**
+	 * Checks if a inventory is kept in compact form
+	 *
+	 * @param inventoryId Inventory ID
+	 * @return True for the currency and user var inventories, false otherwise
+	 */
+	public static boolean isCompactInventory(String inventoryId) {
+		return inventoryId.equals("104") || inventoryId.equals("303");
+	}
+
+	/**
+	 * Replaces the inventory contents, the array is kept as the JSON form of the
+	 * inventory until the first typed call reads it
+	 *
+	 * @param items Inventory object array
+	 */
+	public synchronized void load(JsonArray items) {
+		view = items;
+	}
+
+	/**
+	 * Retrieves the JSON form of the inventory, the same array is returned until
+	 * the next typed call
+	 *
+	 * @return JsonArray instance
+	 */
+	public synchronized JsonArray toJson() {
+		if (view == null) {
+			JsonArray items = new JsonArray(size);
+			for (int i = 0; i < size; i++)
+				items.add(objects[i].toJson(type));
+			view = items;
+		}
+		return view;
+	}
+
+	/**
+	 * Writes the inventory as a JSON string without building a JSON tree
+	 *
+	 * @return Inventory JSON string
+	 */
+	public synchronized String toJsonString() {
+		fold();
+		StringWriter str = new StringWriter();
+		try {
+			JsonWriter writer = new JsonWriter(str);
+			writer.beginArray();
+			for (int i = 0; i < size; i++)
+				objects[i].write(writer, type);
+			writer.endArray();
+			writer.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return str.toString();
+	}
+
+	/**
+	 * Saves the inventory
+	 */
+	public synchronized void save() {
+		saver.accept(toJsonString());
+	}
+
+	/**
+	 * Checks if a object is present
+	 *
+	 * @param defId Object DefID
+	 * @return True if present, false otherwise
+	 */
+	public synchronized boolean contains(int defId) {
+		fold();
+		return indexOf(defId) != -1;
+	}
+
+	/**
+	 * Retrieves the UUIDs of all objects
+	 *
+	 * @return Array of object UUIDs
+	 */
+	public synchronized String[] getObjectIds() {
+		fold();
+		String[] ids = new String[size];
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (objects[i].id != null)
+				ids[count++] = objects[i].id;
+		}
+		return count == size ? ids : Arrays.copyOf(ids, count);
+	}
+
+	/**
+	 * Retrieves a copy of a object in JSON form
+	 *
+	 * @param defId Object DefID
+	 * @return JsonObject instance or null if not present
+	 */
+	public synchronized JsonObject getObject(int defId) {
+		fold();
+		int i = indexOf(defId);
+		if (i == -1)
+			return null;
+		JsonElement ele = objects[i].toJson(type);
+		return ele.isJsonObject() ? ele.getAsJsonObject().deepCopy() : null;
+	}
+
+	/**
+	 * Removes a object
+	 *
+	 * @param defId Object DefID
+	 * @return UUID of the removed object or null if not present
+	 */
+	public synchronized String remove(int defId) {
+		fold();
+		int i = indexOf(defId);
+		if (i == -1)
+			return null;
+		String id = objects[i].id;
+		System.arraycopy(defIds, i + 1, defIds, i, size - i - 1);
+		System.arraycopy(objects, i + 1, objects, i, size - i - 1);
+		objects[--size] = null;
+		return id;
+	}
+
+	/**
+	 * Retrieves the quantity of a object
+	 *
+	 * @param defId        Object DefID
+	 * @param defaultValue Value to return if the object is not present
+	 * @return Object quantity
+	 */
+	public synchronized int getQuantity(int defId, int defaultValue) {
+		fold();
+		int i = indexOf(defId);
+		if (i == -1)
+			return defaultValue;
+		return objects[i].getQuantity();
+	}
+
+	/**
+	 * Assigns the quantity of a object, creates the object if not present
+	 *
+	 * @param defId    Object DefID
+	 * @param quantity New quantity
+	 * @return Object UUID
+	 */
+	public synchronized String setQuantity(int defId, int quantity) {
+		fold();
+		int i = indexOf(defId);
+		if (i == -1) {
+			QuantityObject obj = new QuantityObject();
+			obj.timestamp = System.currentTimeMillis();
+			i = add(defId, obj);
+		}
+		objects[i].setQuantity(quantity);
+		return objects[i].id;
+	}
+
+	/**
+	 * Retrieves the amount of values of a user var
+	 *
+	 * @param defId Object DefID
+	 * @return Value count or -1 if the object is not present
+	 */
+	public synchronized int getValueCount(int defId) {
+		fold();
+		int i = indexOf(defId);
+		if (i == -1)
+			return -1;
+		return objects[i].getValues().length;
+	}
+
+	/**
+	 * Retrieves the values of a user var
+	 *
+	 * @param defId Object DefID
+	 * @return Copy of the values or null if the object is not present
+	 */
+	public synchronized int[] getValues(int defId) {
+		fold();
+		int i = indexOf(defId);
+		if (i == -1)
+			return null;
+		return objects[i].getValues().clone();
+	}
+
+	/**
+	 * Assigns a value of a user var, creates the object if not present
+	 *
+	 * @param defId     Object DefID
+	 * @param component Component name to use if the object is created
+	 * @param index     Value index, the values are extended with zeros if needed
+	 * @param value     New value
+	 * @return Object UUID
+	 */
+	public synchronized String setValue(int defId, String component, int index, int value) {
+		fold();
+		int i = indexOf(defId);
+		if (i == -1) {
+			UserVarObject obj = new UserVarObject();
+			obj.component = component;
+			i = add(defId, obj);
+		}
+		int[] values = objects[i].getValues();
+		if (index >= values.length)
+			values = Arrays.copyOf(values, index + 1);
+		else
+			values = values.clone();
+		values[index] = value;
+		objects[i].setValues(values, component);
+		return objects[i].id;
+	}
+
+	/**
+	 * Removes a value of a user var
+	 *
+	 * @param defId Object DefID
+	 * @param index Value index, the values after it are moved down by one
+	 * @return True if removed, false if the object or value is not present
+	 */
+	public synchronized boolean removeValue(int defId, int index) {
+		fold();
+		int i = indexOf(defId);
+		if (i == -1)
+			return false;
+		int[] values = objects[i].getValues();
+		if (index < 0 || index >= values.length)
+			return false;
+		int[] newValues = new int[values.length - 1];
+		System.arraycopy(values, 0, newValues, 0, index);
+		System.arraycopy(values, index + 1, newValues, index, newValues.length - index);
+		objects[i].setValues(newValues, null);
+		return true;
+	}
+
+	// Reads the JSON form (including edits made to it) into the typed objects and
+	// releases it
+	private void fold() {
+		if (view == null)
+			return;
+		JsonArray items = view;
+		view = null;
+		size = 0;
+		ensureCapacity(items.size());
+		for (JsonElement ele : items) {
+			StoredObject obj = parseObject(ele);
+			defIds[size] = obj.defId;
+			objects[size++] = obj;
+		}
+		Arrays.fill(objects, size, objects.length, null);
+	}
+
+	private int indexOf(int defId) {
+		for (int i = 0; i < size; i++) {
+			if (defIds[i] == defId)
+				return i;
+		}
+		return -1;
+	}
+
+	private int add(int defId, StoredObject obj) {
+		// Generate a unique ID
+		String id = UUID.randomUUID().toString();
+		while (hasId(id))
+			id = UUID.randomUUID().toString();
+		obj.defId = defId;
+		obj.id = id;
+
+		ensureCapacity(size + 1);
+		defIds[size] = defId;
+		objects[size] = obj;
+		return size++;
+	}
+
+	private boolean hasId(String id) {
+		for (int i = 0; i < size; i++) {
+			if (id.equals(objects[i].id))
+				return true;
+		}
+		return false;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > objects.length) {
+			int newSize = Math.max(capacity, objects.length * 2);
+			defIds = Arrays.copyOf(defIds, newSize);
+			objects = Arrays.copyOf(objects, newSize);
+		}
+	}
+
+	// Parses a object, objects that don't have the exact expected layout are kept
+	// as JSON so nothing is lost
+	private StoredObject parseObject(JsonElement ele) {
+		try {
+			if (ele.isJsonObject()) {
+				JsonObject obj = ele.getAsJsonObject();
+				if (obj.size() == 4 && obj.has("defId") && obj.has("components") && obj.has("id") && obj.has("type")
+						&& obj.get("components").isJsonObject() && obj.get("id").isJsonPrimitive()
+						&& obj.get("id").getAsJsonPrimitive().isString() && integer(obj.get("type")) == type) {
+					JsonObject components = obj.get("components").getAsJsonObject();
+
+					// Timestamp component
+					long timestamp = NO_TIMESTAMP;
+					if (components.has("Timestamp")) {
+						JsonObject ts = components.get("Timestamp").getAsJsonObject();
+						if (ts.size() != 1 || !ts.has("ts"))
+							return new RawObject(ele);
+						timestamp = Long.parseLong(number(ts.get("ts")));
+					}
+
+					StoredObject stored = null;
+					if (components.size() == (timestamp == NO_TIMESTAMP ? 1 : 2)) {
+						if (quantityBased)
+							stored = QuantityObject.parse(components);
+						else
+							stored = UserVarObject.parse(components);
+					}
+					if (stored != null) {
+						stored.defId = integer(obj.get("defId"));
+						stored.id = obj.get("id").getAsString();
+						stored.timestamp = timestamp;
+						return stored;
+					}
+				}
+			}
+		} catch (RuntimeException e) {
+			// Unexpected layout
+		}
+		return new RawObject(ele);
+	}
+
+	private static int integer(JsonElement ele) {
+		return Integer.parseInt(number(ele));
+	}
+
+	private static String number(JsonElement ele) {
+		if (!ele.isJsonPrimitive() || !ele.getAsJsonPrimitive().isNumber())
+			throw new NumberFormatException("Not a number");
+		return ele.getAsString();
+	}
+
+	// Parses the values json string of a user var
+	private static int[] parseValues(String valuesJson) {
+		int[] values = EMPTY;
+		for (Map.Entry<String, JsonElement> ent : JsonParser.parseString(valuesJson).getAsJsonObject().entrySet()) {
+			int index = Integer.parseInt(ent.getKey());
+			if (index >= values.length)
+				values = Arrays.copyOf(values, index + 1);
+			values[index] = ent.getValue().getAsInt();
+		}
+		return values;
+	}
+
+	private static String formatValues(int[] values) {
+		StringBuilder str = new StringBuilder("{");
+		for (int i = 0; i < values.length; i++) {
+			if (i != 0)
+				str.append(',');
+			str.append('"').append(i).append("\":").append(values[i]);
+		}
+		return str.append('}').toString();
+	}
+
+	// Common object fields, type is the same for all objects in the inventory
+	private static abstract class StoredObject {
+		int defId = Integer.MIN_VALUE;
+		String id;
+		long timestamp = NO_TIMESTAMP;
+
+		abstract void writeComponents(JsonWriter writer) throws IOException;
+
+		abstract void addComponents(JsonObject components);
+
+		int getQuantity() {
+			throw new UnsupportedOperationException();
+		}
+
+		void setQuantity(int quantity) {
+			throw new UnsupportedOperationException();
+		}
+
+		int[] getValues() {
+			throw new UnsupportedOperationException();
+		}
+
+		void setValues(int[] values, String component) {
+			throw new UnsupportedOperationException();
+		}
+
+		void write(JsonWriter writer, int type) throws IOException {
+			writer.beginObject();
+			writer.name("defId").value(defId);
+			writer.name("components").beginObject();
+			writeComponents(writer);
+			if (timestamp != NO_TIMESTAMP)
+				writer.name("Timestamp").beginObject().name("ts").value(timestamp).endObject();
+			writer.endObject();
+			writer.name("id").value(id);
+			writer.name("type").value(type);
+			writer.endObject();
+		}
+
+		JsonElement toJson(int type) {
+			JsonObject components = new JsonObject();
+			addComponents(components);
+			if (timestamp != NO_TIMESTAMP) {
+				JsonObject ts = new JsonObject();
+				ts.addProperty("ts", timestamp);
+				components.add("Timestamp", ts);
+			}
+			JsonObject obj = new JsonObject();
+			obj.addProperty("defId", defId);
+			obj.add("components", components);
+			obj.addProperty("id", id);
+			obj.addProperty("type", type);
+			return obj;
+		}
+	}
+
+	private static class QuantityObject extends StoredObject {
+		int quantity;
+
+		static QuantityObject parse(JsonObject components) {
+			if (!components.has("Quantity"))
+				return null;
+			JsonObject q = components.get("Quantity").getAsJsonObject();
+			if (q.size() != 1 || !q.has("quantity"))
+				return null;
+			QuantityObject obj = new QuantityObject();
+			obj.quantity = integer(q.get("quantity"));
+			return obj;
+		}
+
+		@Override
+		int getQuantity() {
+			return quantity;
+		}
+
+		@Override
+		void setQuantity(int quantity) {
+			this.quantity = quantity;
+		}
+
+		@Override
+		void writeComponents(JsonWriter writer) throws IOException {
+			writer.name("Quantity").beginObject().name("quantity").value(quantity).endObject();
+		}
+
+		@Override
+		void addComponents(JsonObject components) {
+			JsonObject q = new JsonObject();
+			q.addProperty("quantity", quantity);
+			components.add("Quantity", q);
+		}
+	}
+
+	private static class UserVarObject extends StoredObject {
+		String component;
+		int[] values; // Null if the component has no values property
+
+		static UserVarObject parse(JsonObject components) {
+			for (Map.Entry<String, JsonElement> ent : components.entrySet()) {
+				if (ent.getKey().equals("Timestamp"))
+					continue;
+				JsonObject data = ent.getValue().getAsJsonObject();
+				UserVarObject obj = new UserVarObject();
+				obj.component = ent.getKey().intern();
+				if (data.size() == 0)
+					return obj;
+				if (data.size() != 1 || !data.has("values") || !data.get("values").isJsonPrimitive()
+						|| !data.get("values").getAsJsonPrimitive().isString())
+					return null;
+
+				// Only keep values that are written back the same way
+				String valuesJson = data.get("values").getAsString();
+				int[] values = parseValues(valuesJson);
+				if (!formatValues(values).equals(valuesJson))
+					return null;
+				obj.values = values;
+				return obj;
+			}
+			return null;
+		}
+
+		@Override
+		int[] getValues() {
+			return values == null ? EMPTY : values;
+		}
+
+		@Override
+		void setValues(int[] values, String component) {
+			this.values = values;
+		}
+
+		@Override
+		void writeComponents(JsonWriter writer) throws IOException {
+			writer.name(component).beginObject();
+			if (values != null)
+				writer.name("values").value(formatValues(values));
+			writer.endObject();
+		}
+
+		@Override
+		void addComponents(JsonObject components) {
+			JsonObject data = new JsonObject();
+			if (values != null)
+				data.addProperty("values", formatValues(values));
+			components.add(component, data);
+		}
+	}
+
+	// Object kept as JSON, reads and writes go through the JSON tree
+	private static class RawObject extends StoredObject {
+		JsonElement data;
+
+		RawObject(JsonElement data) {
+			this.data = data;
+			if (data.isJsonObject()) {
+				JsonObject obj = data.getAsJsonObject();
+				try {
+					if (obj.has("defId"))
+						defId = obj.get("defId").getAsInt();
+				} catch (RuntimeException e) {
+				}
+				if (obj.has("id") && obj.get("id").isJsonPrimitive())
+					id = obj.get("id").getAsString();
+			}
+		}
+
+		private JsonObject components() {
+			JsonObject obj = data.getAsJsonObject();
+			if (!obj.has("components"))
+				obj.add("components", new JsonObject());
+			return obj.get("components").getAsJsonObject();
+		}
+
+		@Override
+		int getQuantity() {
+			JsonObject components = components();
+			if (!components.has("Quantity") || !components.get("Quantity").getAsJsonObject().has("quantity"))
+				return 0;
+			return components.get("Quantity").getAsJsonObject().get("quantity").getAsInt();
+		}
+
+		@Override
+		void setQuantity(int quantity) {
+			JsonObject components = components();
+			if (!components.has("Quantity"))
+				components.add("Quantity", new JsonObject());
+			components.get("Quantity").getAsJsonObject().addProperty("quantity", quantity);
+		}
+
+		@Override
+		int[] getValues() {
+			for (Map.Entry<String, JsonElement> ent : components().entrySet()) {
+				if (ent.getValue().isJsonObject() && ent.getValue().getAsJsonObject().has("values"))
+					return parseValues(ent.getValue().getAsJsonObject().get("values").getAsString());
+			}
+			return EMPTY;
+		}
+
+		@Override
+		void setValues(int[] values, String component) {
+			JsonObject components = components();
+			for (Map.Entry<String, JsonElement> ent : components.entrySet()) {
+				if (ent.getValue().isJsonObject() && ent.getValue().getAsJsonObject().has("values")) {
+					ent.getValue().getAsJsonObject().addProperty("values", formatValues(values));
+					return;
+				}
+			}
+			if (component == null)
+				return;
+			JsonObject data = new JsonObject();
+			data.addProperty("values", formatValues(values));
+			components.add(component, data);
+		}
+
+		@Override
+		void write(JsonWriter writer, int type) throws IOException {
+			writer.jsonValue(data.toString());
+		}
+
+		@Override
+		JsonElement toJson(int type) {
+			return data;
+		}
+
+		@Override
+		void writeComponents(JsonWriter writer) {
+		}
+
+		@Override
+		void addComponents(JsonObject components) {
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package org.asf.emuferal.accounts.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.asf.emuferal.EmuFeral;
+import org.asf.emuferal.accounts.EmuFeralAccount;
+
+// Bounded cache of loaded accounts so all callers of getAccount share one
+// account and inventory object per account. Accounts of online players, of
+// players connected to chat and of logins in progress are never evicted, other
+// accounts are evicted least recently used first once the cache is full.
+class AccountCache<T extends EmuFeralAccount> {
+
+	private static final int MAX_SIZE = 2000;
+
+	private LinkedHashMap<String, T> accounts = new LinkedHashMap<String, T>(16, 0.75f, true);
+
+	/**
+	 * Retrieves a cached account
+	 *
+	 * @param accountID Account ID
+	 * @return Account instance or null if not cached
+	 */
+	T get(String accountID) {
+		synchronized (accounts) {
+			return accounts.get(accountID);
+		}
+	}
+
+	/**
+	 * Adds a loaded account to the cache
+	 *
+	 * @param accountID Account ID
+	 * @param account   Loaded account
+	 * @return Cached account instance, this is the instance added by another
+	 *         thread if the account was loaded twice
+	 */
+	T add(String accountID, T account) {
+		synchronized (accounts) {
+			T existing = accounts.get(accountID);
+			if (existing != null)
+				return existing;
+			accounts.put(accountID, account);
+
+			// Evict offline accounts
+			int excess = accounts.size() - MAX_SIZE;
+			Iterator<T> it = accounts.values().iterator();
+			while (excess > 0 && it.hasNext()) {
+				T acc = it.next();
+				if (acc == account || isOnline(acc))
+					continue;
+				it.remove();
+				excess--;
+			}
+		}
+		return account;
+	}
+
+	/**
+	 * Removes a account from the cache
+	 *
+	 * @param accountID Account ID
+	 */
+	void remove(String accountID) {
+		synchronized (accounts) {
+			accounts.remove(accountID);
+		}
+	}
+
+	private static boolean isOnline(EmuFeralAccount account) {
+		String id = account.getAccountID();
+		if (EmuFeral.gameServer != null
+				&& (EmuFeral.gameServer.getPlayer(id) != null || EmuFeral.gameServer.isLoggingIn(id)))
+			return true;
+		return EmuFeral.chatServer != null && EmuFeral.chatServer.getClient(id) != null;
+	}
+
+}
@@ -0,0 +1,351 @@
+package org.asf.emuferal.accounts.impl;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory index of login names and display names for the file-based account
+// manager. The index is built from disk once and saved to a snapshot file so
+// the next startup doesn't need to read every account file. The snapshot is
+// only used if the login and display name files it was built from have not
+// changed since it was written, this is checked by comparing the file count and
+// a hash of the file names, sizes and modification times.
+class AccountNameIndex {
+
+	private static final int SNAPSHOT_MAGIC = 0x45464e49; // EFNI
+	private static final int SNAPSHOT_VERSION = 2;
+	private static final String SNAPSHOT_FILE = "accounts.index";
+	private static final int SNAPSHOT_INTERVAL = 5000;
+
+	// Files modified this recently cannot be told apart from later changes on file
+	// systems with coarse timestamps, the snapshot is not trusted while they exist
+	private static final long TIMESTAMP_MARGIN = 2000;
+
+	private static AccountNameIndex instance;
+
+	// Login name -> account ID
+	private ConcurrentHashMap<String, String> loginNames = new ConcurrentHashMap<String, String>();
+
+	// Account ID -> login name
+	private ConcurrentHashMap<String, String> accounts = new ConcurrentHashMap<String, String>();
+
+	// Lowercase display name -> display name entry
+	private ConcurrentHashMap<String, DisplayNameEntry> displayNames = new ConcurrentHashMap<String, DisplayNameEntry>();
+
+	private volatile boolean dirty;
+
+	static class DisplayNameEntry {
+		final String name;
+		final String accountID;
+
+		DisplayNameEntry(String name, String accountID) {
+			this.name = name;
+			this.accountID = accountID;
+		}
+	}
+
+	static synchronized AccountNameIndex getInstance() {
+		if (instance == null) {
+			instance = new AccountNameIndex();
+			if (!instance.loadSnapshot()) {
+				instance.scan();
+				instance.dirty = true;
+			}
+			instance.start();
+		}
+		return instance;
+	}
+
+	/**
+	 * Finds a account by login name
+	 *
+	 * @param loginName Login name
+	 * @return Account ID or null
+	 */
+	String getUserByLoginName(String loginName) {
+		return loginNames.get(loginName);
+	}
+
+	/**
+	 * Finds a display name (case-insensitive)
+	 *
+	 * @param displayName Display name
+	 * @return DisplayNameEntry instance or null
+	 */
+	DisplayNameEntry getDisplayName(String displayName) {
+		return displayNames.get(fold(displayName));
+	}
+
+	/**
+	 * Checks if a account exists
+	 *
+	 * @param accountID Account ID
+	 * @return True if the account exists, false otherwise
+	 */
+	boolean accountExists(String accountID) {
+		return accounts.containsKey(accountID);
+	}
+
+	void addAccount(String loginName, String accountID) {
+		loginNames.put(loginName, accountID);
+		accounts.put(accountID, loginName);
+		dirty = true;
+	}
+
+	void removeAccount(String loginName, String accountID) {
+		loginNames.remove(loginName, accountID);
+		accounts.remove(accountID, loginName);
+		dirty = true;
+	}
+
+	void addDisplayName(String displayName, String accountID) {
+		displayNames.put(fold(displayName), new DisplayNameEntry(displayName, accountID));
+		dirty = true;
+	}
+
+	void removeDisplayName(DisplayNameEntry entry) {
+		displayNames.remove(fold(entry.name), entry);
+		dirty = true;
+	}
+
+	private void start() {
+		Thread th = new Thread(() -> {
+			while (true) {
+				try {
+					Thread.sleep(SNAPSHOT_INTERVAL);
+				} catch (InterruptedException e) {
+					break;
+				}
+				if (dirty)
+					saveSnapshot();
+			}
+		}, "Account Index Writer");
+		th.setDaemon(true);
+		th.start();
+
+		// Save on exit
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			if (dirty)
+				saveSnapshot();
+		}, "Account Index Shutdown"));
+	}
+
+	// Builds the index from the account files
+	private void scan() {
+		File accountDir = new File("accounts");
+		if (accountDir.exists()) {
+			for (File file : accountDir.listFiles(t -> t.isFile() && !t.getName().contains("."))) {
+				// Login files contain the account ID followed by the login name, the account
+				// file itself starts with its own ID
+				try {
+					List<String> lines = Files.readAllLines(file.toPath());
+					if (lines.size() < 2 || lines.get(0).equals(file.getName()))
+						continue;
+					if (new File(accountDir, lines.get(0)).isFile())
+						addAccount(file.getName(), lines.get(0));
+				} catch (IOException e) {
+				}
+			}
+			for (File file : accountDir.listFiles(t -> t.isFile() && t.getName().contains(".")
+					&& !t.getName().contains(".cred") && !t.getName().endsWith(".privacy")
+					&& !t.getName().endsWith(".requirechangename"))) {
+				// Login names may contain dots
+				try {
+					List<String> lines = Files.readAllLines(file.toPath());
+					if (lines.size() == 2 && new File(accountDir, lines.get(0)).isFile())
+						addAccount(file.getName(), lines.get(0));
+				} catch (IOException e) {
+				}
+			}
+		}
+
+		File displayNameDir = new File("displaynames");
+		if (displayNameDir.exists()) {
+			for (File file : displayNameDir.listFiles(t -> t.isFile())) {
+				try {
+					List<String> lines = Files.readAllLines(file.toPath());
+					if (lines.size() >= 1)
+						addDisplayName(file.getName(), lines.get(0));
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	// Display names are compared the same way regardless of the system locale,
+	// also used for the display name keys of the account store
+	static String fold(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	// Fingerprint of the files the index is built from, account files are only
+	// included by name as their content is not indexed. Returns null if a file
+	// changed too recently for its timestamp to be reliable.
+	private static Fingerprint fingerprint(Set<String> accountIDs) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		long recent = System.currentTimeMillis() - TIMESTAMP_MARGIN;
+		int count = 0;
+
+		for (String dir : new String[] { "accounts", "displaynames" }) {
+			String[] files = new File(dir).list();
+			if (files == null)
+				continue;
+			Arrays.sort(files);
+			digest.update(dir.getBytes(StandardCharsets.UTF_8));
+			for (String name : files) {
+				// Account data
+				int sep = name.indexOf('.');
+				String owner = sep == -1 ? name : name.substring(0, sep);
+				if (dir.equals("accounts") && accountIDs.contains(owner)) {
+					if (sep == -1) {
+						digest.update(name.getBytes(StandardCharsets.UTF_8));
+						digest.update((byte) 0);
+						count++;
+					}
+					continue;
+				}
+
+				// Login or display name file
+				BasicFileAttributes attrs = Files.readAttributes(Path.of(dir, name), BasicFileAttributes.class);
+				if (!attrs.isRegularFile())
+					continue;
+				long modified = attrs.lastModifiedTime().toMillis();
+				if (modified > recent)
+					return null;
+				digest.update(name.getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) 0);
+				digest.update(longBytes(attrs.size()));
+				digest.update(longBytes(modified));
+				count++;
+			}
+		}
+
+		Fingerprint fp = new Fingerprint();
+		fp.count = count;
+		fp.hash = digest.digest();
+		return fp;
+	}
+
+	private static byte[] longBytes(long value) {
+		byte[] data = new byte[8];
+		for (int i = 0; i < 8; i++)
+			data[i] = (byte) (value >>> (56 - i * 8));
+		return data;
+	}
+
+	private static class Fingerprint {
+		int count;
+		byte[] hash;
+	}
+
+	private boolean loadSnapshot() {
+		File snapshot = new File(SNAPSHOT_FILE);
+		if (!snapshot.exists())
+			return false;
+
+		try (DataInputStream in = new DataInputStream(new FileInputStream(snapshot))) {
+			if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION)
+				return false;
+
+			int fileCount = in.readInt();
+			byte[] hash = new byte[in.readInt()];
+			in.readFully(hash);
+
+			// Read entries
+			int count = in.readInt();
+			for (int i = 0; i < count; i++)
+				addAccount(in.readUTF(), in.readUTF());
+			count = in.readInt();
+			for (int i = 0; i < count; i++)
+				addDisplayName(in.readUTF(), in.readUTF());
+
+			// Check if the files changed since the snapshot was saved, rebuild if that
+			// cannot be determined
+			Fingerprint current = fingerprint(accounts.keySet());
+			if (current == null || current.count != fileCount || !Arrays.equals(current.hash, hash)) {
+				clear();
+				return false;
+			}
+			dirty = false;
+			return true;
+		} catch (IOException e) {
+			clear();
+			return false;
+		}
+	}
+
+	private void clear() {
+		loginNames.clear();
+		accounts.clear();
+		displayNames.clear();
+	}
+
+	private synchronized void saveSnapshot() {
+		dirty = false;
+		try {
+			// Take the fingerprint first, changes made while saving will invalidate the
+			// snapshot
+			Map<String, String> logins = Map.copyOf(loginNames);
+			Fingerprint fp = fingerprint(Set.copyOf(logins.values()));
+			if (fp == null) {
+				// Files changed too recently, try again later
+				dirty = true;
+				return;
+			}
+
+			File tmp = new File(SNAPSHOT_FILE + ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+				out.writeInt(SNAPSHOT_MAGIC);
+				out.writeInt(SNAPSHOT_VERSION);
+				out.writeInt(fp.count);
+				out.writeInt(fp.hash.length);
+				out.write(fp.hash);
+
+				out.writeInt(logins.size());
+				for (Map.Entry<String, String> entry : logins.entrySet()) {
+					out.writeUTF(entry.getKey());
+					out.writeUTF(entry.getValue());
+				}
+
+				Map<String, DisplayNameEntry> names = Map.copyOf(displayNames);
+				out.writeInt(names.size());
+				for (DisplayNameEntry entry : names.values()) {
+					out.writeUTF(entry.name);
+					out.writeUTF(entry.accountID);
+				}
+			}
+
+			try {
+				Files.move(tmp.toPath(), Path.of(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), Path.of(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			dirty = true;
+		}
+	}
+
+}
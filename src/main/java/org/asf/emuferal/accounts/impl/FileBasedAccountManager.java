@@ -4,7 +4,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -12,7 +11,6 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.KeySpec;
-import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.UUID;
@@ -24,61 +22,19 @@ import org.asf.emuferal.accounts.AccountManager;
 import org.asf.emuferal.accounts.EmuFeralAccount;
 import org.asf.emuferal.modules.eventbus.EventBus;
 import org.asf.emuferal.modules.events.accounts.AccountRegistrationEvent;
-import org.asf.emuferal.packets.xt.gameserver.inventory.InventoryItemDownloadPacket;
+import org.asf.emuferal.textfilter.FilterResult;
+import org.asf.emuferal.textfilter.TextFilter;
 
 public class FileBasedAccountManager extends AccountManager {
 
 	private static String[] nameBlacklist = new String[] { "kit", "kitsendragn", "kitsendragon", "fera", "fero",
 			"wwadmin", "ayli", "komodorihero", "wwsam", "blinky", "fer.ocity" };
 
-	private static ArrayList<String> banWords = new ArrayList<String>();
-	private static ArrayList<String> filterWords = new ArrayList<String>();
-
-	static {
-		// Load filter
-		try {
-			InputStream strm = InventoryItemDownloadPacket.class.getClassLoader()
-					.getResourceAsStream("textfilter/filter.txt");
-			String lines = new String(strm.readAllBytes(), "UTF-8").replace("\r", "");
-			for (String line : lines.split("\n")) {
-				if (line.isEmpty() || line.startsWith("#"))
-					continue;
-
-				String data = line.trim();
-				while (data.contains("  "))
-					data = data.replace("  ", "");
-
-				for (String word : data.split(" "))
-					filterWords.add(word.toLowerCase());
-			}
-			strm.close();
-		} catch (IOException e) {
-		}
-
-		// Load ban words
-		try {
-			InputStream strm = InventoryItemDownloadPacket.class.getClassLoader()
-					.getResourceAsStream("textfilter/instaban.txt");
-			String lines = new String(strm.readAllBytes(), "UTF-8").replace("\r", "");
-			for (String line : lines.split("\n")) {
-				if (line.isEmpty() || line.startsWith("#"))
-					continue;
-
-				String data = line.trim();
-				while (data.contains("  "))
-					data = data.replace("  ", "");
-
-				for (String word : data.split(" "))
-					banWords.add(word.toLowerCase());
-			}
-			strm.close();
-		} catch (IOException e) {
-		}
-	}
-
 	private static SecureRandom rnd = new SecureRandom();
 	private static HashMap<String, Integer> passswordLock = new HashMap<String, Integer>();
 	private int lastAccountID = 0;
+	private volatile AccountNameIndex index;
+	private AccountCache<FileBasedAccountObject> accounts = new AccountCache<FileBasedAccountObject>();
 
 	public FileBasedAccountManager() {
 		File idTrackFile = new File("account.lastid.info");
@@ -96,6 +52,14 @@ public class FileBasedAccountManager extends AccountManager {
 			}
 	}
 
+	private AccountNameIndex index() {
+		// Loaded on first use, it is not needed if another account manager is active
+		AccountNameIndex index = this.index;
+		if (index == null)
+			index = this.index = AccountNameIndex.getInstance();
+		return index;
+	}
+
 	static {
 		Thread th = new Thread(() -> {
 			while (true) {
@@ -135,16 +99,8 @@ public class FileBasedAccountManager extends AccountManager {
 			return null;
 
 		// Find the account
-		String id = null;
-		if (!new File("accounts").exists())
-			new File("accounts").mkdirs();
-		File uf = new File("accounts/" + username);
-		if (uf.exists()) {
-			try {
-				id = Files.readAllLines(uf.toPath()).get(0);
-			} catch (IOException e) {
-			}
-		} else
+		String id = index().getUserByLoginName(username);
+		if (id == null)
 			return null;
 
 		// Return null if the password is on cooldown
@@ -254,22 +210,9 @@ public class FileBasedAccountManager extends AccountManager {
 				|| !username.matches(".*[A-Za-z0-9]+.*") || username.isBlank() || username.length() > 320)
 			return null;
 
-		// Prevent banned and filtered words
-		for (String word : username.split(" ")) {
-			if (banWords.contains(word.replaceAll("[^A-Za-z0-9]", "").toLowerCase())) {
-				return null;
-			}
-
-			if (filterWords.contains(word.replaceAll("[^A-Za-z0-9]", "").toLowerCase())) {
-				return null;
-			}
-		}
-
-		// Prevent blacklisted names from being used
-		for (String name : nameBlacklist) {
-			if (username.equalsIgnoreCase(name))
-				return null;
-		}
+		// Prevent banned, filtered and blacklisted names
+		if (isNameBlocked(username))
+			return null;
 
 		try {
 			// Create folder
@@ -292,9 +235,16 @@ public class FileBasedAccountManager extends AccountManager {
 			lastAccountID++;
 			Files.writeString(Path.of("account.lastid.info"), Integer.toString(lastAccountID));
 
-			Files.writeString(uf.toPath(), id + "\n" + username);
-			Files.writeString(new File("accounts/" + id).toPath(),
-					id + "\n" + username + "\ntrue\n" + username + "\n" + lastAccountID);
+			// Index before writing so the index snapshot is never older than the files
+			index().addAccount(username, id);
+			try {
+				Files.writeString(uf.toPath(), id + "\n" + username);
+				Files.writeString(new File("accounts/" + id).toPath(),
+						id + "\n" + username + "\ntrue\n" + username + "\n" + lastAccountID);
+			} catch (IOException e) {
+				index().removeAccount(username, id);
+				throw e;
+			}
 
 			// Dispatch event
 			EventBus.getInstance().dispatchEvent(new AccountRegistrationEvent(getAccount(id)));
@@ -311,18 +261,60 @@ public class FileBasedAccountManager extends AccountManager {
 	public EmuFeralAccount getAccount(String userID) {
 		// Find the account
 		File uf = new File("accounts/" + userID);
-		if (uf.exists())
+		if (uf.exists()) {
+			// Find loaded account
+			FileBasedAccountObject account = accounts.get(userID);
+			if (account != null)
+				return account;
+
+			// Load the account
 			try {
-				return new FileBasedAccountObject(uf);
+				return accounts.add(userID, new FileBasedAccountObject(uf));
 			} catch (IOException e) {
 				return null;
 			}
-		else
+		} else
 			return null;
 	}
 
+	/**
+	 * Removes a account from the account cache, called when the account is deleted
+	 *
+	 * @param userID Account ID
+	 */
+	void removeCachedAccount(String userID) {
+		accounts.remove(userID);
+	}
+
+	/**
+	 * Checks if a name is blacklisted
+	 *
+	 * @param name Login or display name
+	 * @return True if blacklisted, false otherwise
+	 */
+	static boolean isNameBlacklisted(String name) {
+		for (String nm : nameBlacklist) {
+			if (name.equalsIgnoreCase(nm))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if a name is blacklisted or contains banned or filtered words
+	 *
+	 * @param name Login or display name
+	 * @return True if the name may not be used, false otherwise
+	 */
+	static boolean isNameBlocked(String name) {
+		FilterResult filter = TextFilter.getInstance().scan(name);
+		if (filter.isBanned() || filter.isFiltered())
+			return true;
+		return isNameBlacklisted(name);
+	}
+
 	// Salt and hash
-	private static byte[] salt() {
+	static byte[] salt() {
 		byte[] salt = new byte[32];
 		rnd.nextBytes(salt);
 		return salt;
@@ -346,19 +338,9 @@ public class FileBasedAccountManager extends AccountManager {
 			return null;
 
 		// Find the account
-		if (!new File("accounts").exists())
-			new File("accounts").mkdirs();
-		File uf = new File("accounts/" + loginName);
-		if (uf.exists()) {
-			try {
-				String userID = Files.readAllLines(uf.toPath()).get(0);
-
-				// Check existence
-				if (new File("accounts/" + userID).exists())
-					return userID; // Account found
-			} catch (IOException e) {
-			}
-		}
+		String userID = index().getUserByLoginName(loginName);
+		if (userID != null && index().accountExists(userID))
+			return userID; // Account found
 
 		// Account not found
 		return null;
@@ -370,85 +352,50 @@ public class FileBasedAccountManager extends AccountManager {
 		if (!displayName.matches("^[0-9A-Za-z\\-_. ]+") || displayName.length() > 16 || displayName.length() < 2)
 			return null;
 
-		// Find file
-		if (new File("displaynames/" + displayName).exists()) {
-			try {
-				String userID = Files.readAllLines(Path.of("displaynames/" + displayName)).get(0);
-
-				// Check existence
-				if (new File("accounts/" + userID).exists())
-					return userID; // Account found
-			} catch (IOException e) {
-			}
-		}
-
-		// Attempt to find using a case-insensitive method
-		if (new File("displaynames").exists())
-			for (File dsp : new File("displaynames").listFiles(t -> !t.isDirectory())) {
-				if (dsp.getName().equalsIgnoreCase(displayName))
-					try {
-						String userID = Files.readAllLines(dsp.toPath()).get(0);
-
-						// Check existence
-						if (new File("accounts/" + userID).exists())
-							return userID; // Account found
-					} catch (IOException e) {
-					}
-			}
+		// Find the name (case-insensitive)
+		AccountNameIndex.DisplayNameEntry entry = index().getDisplayName(displayName);
+		if (entry != null && index().accountExists(entry.accountID))
+			return entry.accountID; // Account found
 
 		return null;
 	}
 
 	@Override
 	public boolean isDisplayNameInUse(String displayName) {
-		if (new File("displaynames/" + displayName).exists())
-			return true;
-
 		// Prevent blacklisted names from being used
-		for (String name : nameBlacklist) {
-			if (displayName.equalsIgnoreCase(name))
-				return true;
-		}
-
-		// Attempt to find using a case-insensitive method
-		if (new File("displaynames").exists())
-			for (File dsp : new File("displaynames").listFiles(t -> !t.isDirectory())) {
-				if (dsp.getName().equalsIgnoreCase(displayName))
-					return true;
-			}
+		if (isNameBlacklisted(displayName))
+			return true;
 
-		return false;
+		return index().getDisplayName(displayName) != null;
 	}
 
 	@Override
 	public boolean releaseDisplayName(String displayName) {
-		if (new File("displaynames/" + displayName).exists()) {
-			new File("displaynames/" + displayName).delete();
-			return true;
-		}
-
-		// Attempt to find using a case-insensitive method
-		if (new File("displaynames").exists())
-			for (File dsp : new File("displaynames").listFiles(t -> !t.isDirectory())) {
-				if (dsp.getName().equalsIgnoreCase(displayName)) {
-					dsp.delete();
-					return true;
-				}
-			}
-
-		return false;
+		AccountNameIndex.DisplayNameEntry entry = index().getDisplayName(displayName);
+		if (entry == null)
+			return false;
+
+		// Remove from the index first so the index snapshot is never older than the
+		// files
+		index().removeDisplayName(entry);
+		new File("displaynames/" + entry.name).delete();
+		return true;
 	}
 
 	@Override
-	public boolean lockDisplayName(String displayName, String userID) {
-		if (!isDisplayNameInUse(displayName)) {
+	public synchronized boolean lockDisplayName(String displayName, String userID) {
+		if (userID != null && !isDisplayNameInUse(displayName)) {
 			if (!new File("displaynames").exists())
 				new File("displaynames").mkdirs();
 
+			index().addDisplayName(displayName, userID);
 			try {
 				Files.writeString(Path.of("displaynames/" + displayName), userID);
 				return true;
 			} catch (IOException e) {
+				AccountNameIndex.DisplayNameEntry entry = index().getDisplayName(displayName);
+				if (entry != null)
+					index().removeDisplayName(entry);
 			}
 		}
 
@@ -2,9 +2,7 @@ package org.asf.emuferal.accounts.impl;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
-import java.util.ArrayList;
 import java.util.UUID;
 
 import org.asf.emuferal.EmuFeral;
@@ -15,10 +13,11 @@ import org.asf.emuferal.accounts.PlayerInventory;
 import org.asf.emuferal.dms.DMManager;
 import org.asf.emuferal.modules.eventbus.EventBus;
 import org.asf.emuferal.modules.events.accounts.AccountDeletionEvent;
-import org.asf.emuferal.packets.xt.gameserver.inventory.InventoryItemDownloadPacket;
 import org.asf.emuferal.players.Player;
 import org.asf.emuferal.social.SocialEntry;
 import org.asf.emuferal.social.SocialManager;
+import org.asf.emuferal.textfilter.FilterResult;
+import org.asf.emuferal.textfilter.TextFilter;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -27,64 +26,19 @@ import com.google.gson.JsonSyntaxException;
 public class FileBasedAccountObject extends EmuFeralAccount {
 
 	private int userID;
-	private boolean isNew;
+	private volatile boolean isNew;
 	private String userUUID;
 	private String loginName;
-	private String displayName;
-	private FileBasedPlayerInventory inv;
-	private JsonObject privacy;
+	private volatile String displayName;
+	private PlayerInventory inv;
+	private volatile JsonObject privacy;
 	private LevelInfo level;
-	private long lastLogin = -1;
+	private volatile long lastLogin = -1;
 	private File userFile;
 
 	private static String[] nameBlacklist = new String[] { "kit", "kitsendragn", "kitsendragon", "fera", "fero",
 			"wwadmin", "ayli", "komodorihero", "wwsam", "blinky", "fer.ocity" };
 
-	private static ArrayList<String> banWords = new ArrayList<String>();
-	private static ArrayList<String> filterWords = new ArrayList<String>();
-
-	static {
-		// Load filter
-		try {
-			InputStream strm = InventoryItemDownloadPacket.class.getClassLoader()
-					.getResourceAsStream("textfilter/filter.txt");
-			String lines = new String(strm.readAllBytes(), "UTF-8").replace("\r", "");
-			for (String line : lines.split("\n")) {
-				if (line.isEmpty() || line.startsWith("#"))
-					continue;
-
-				String data = line.trim();
-				while (data.contains("  "))
-					data = data.replace("  ", "");
-
-				for (String word : data.split(" "))
-					filterWords.add(word.toLowerCase());
-			}
-			strm.close();
-		} catch (IOException e) {
-		}
-
-		// Load ban words
-		try {
-			InputStream strm = InventoryItemDownloadPacket.class.getClassLoader()
-					.getResourceAsStream("textfilter/instaban.txt");
-			String lines = new String(strm.readAllBytes(), "UTF-8").replace("\r", "");
-			for (String line : lines.split("\n")) {
-				if (line.isEmpty() || line.startsWith("#"))
-					continue;
-
-				String data = line.trim();
-				while (data.contains("  "))
-					data = data.replace("  ", "");
-
-				for (String word : data.split(" "))
-					banWords.add(word.toLowerCase());
-			}
-			strm.close();
-		} catch (IOException e) {
-		}
-	}
-
 	public FileBasedAccountObject(File uf) throws IOException {
 		// Parse account file
 		userUUID = Files.readAllLines(uf.toPath()).get(0);
@@ -93,15 +47,8 @@ public class FileBasedAccountObject extends EmuFeralAccount {
 		displayName = Files.readAllLines(uf.toPath()).get(3);
 		userID = Integer.parseInt(Files.readAllLines(uf.toPath()).get(4));
 
-		// Find existing inventory
-		Player old = getOnlinePlayerInstance();
-		if (old == null || !(old.account.getPlayerInventory() instanceof FileBasedPlayerInventory)) {
-			// Load inventory
-			inv = new FileBasedPlayerInventory(userUUID);
-		} else {
-			// Use the existing inventory object
-			inv = (FileBasedPlayerInventory) old.account.getPlayerInventory();
-		}
+		// Load inventory
+		inv = openInventory(this);
 
 		// Load login timestamp
 		lastLogin = uf.lastModified() / 1000;
@@ -158,15 +105,9 @@ public class FileBasedAccountObject extends EmuFeralAccount {
 		}
 
 		// Prevent banned and filtered words
-		for (String word : name.split(" ")) {
-			if (banWords.contains(word.replaceAll("[^A-Za-z0-9]", "").toLowerCase())) {
-				return false;
-			}
-
-			if (filterWords.contains(word.replaceAll("[^A-Za-z0-9]", "").toLowerCase())) {
-				return false;
-			}
-		}
+		FilterResult filter = TextFilter.getInstance().scan(name);
+		if (filter.isBanned() || filter.isFiltered())
+			return false;
 
 		// Remove lockout
 		if (isRenameRequired())
@@ -364,6 +305,7 @@ public class FileBasedAccountObject extends EmuFeralAccount {
 		EventBus.getInstance().dispatchEvent(new AccountDeletionEvent(this));
 
 		// Delete login file
+		AccountNameIndex.getInstance().removeAccount(loginName, userUUID);
 		new File("accounts/" + loginName).delete();
 
 		// Kick online player first
@@ -371,6 +313,8 @@ public class FileBasedAccountObject extends EmuFeralAccount {
 
 		// Delete account file
 		new File("accounts/" + userUUID).delete();
+		if (AccountManager.getInstance() instanceof FileBasedAccountManager)
+			((FileBasedAccountManager) AccountManager.getInstance()).removeCachedAccount(userUUID);
 
 		// Delete account password file
 		if (new File("accounts/" + userUUID + ".cred").exists())
@@ -383,28 +327,78 @@ public class FileBasedAccountObject extends EmuFeralAccount {
 		// Release display name
 		AccountManager.getInstance().releaseDisplayName(displayName);
 
+		// Delete social lists and DMs
+		deleteAccountData(this);
+
+		// Log
+		System.out.println("Account deleted: " + getLoginName());
+
+		// Delete inventory
+		deleteInventory(inv);
+	}
+
+	/**
+	 * Opens the inventory of a account, the inventory of the online player is
+	 * reused if present
+	 *
+	 * @param account Account to load the inventory of
+	 * @return PlayerInventory instance
+	 */
+	static PlayerInventory openInventory(EmuFeralAccount account) {
+		// Find existing inventory
+		Player old = account.getOnlinePlayerInstance();
+		if (old != null && (old.account.getPlayerInventory() instanceof FileBasedPlayerInventory
+				|| old.account.getPlayerInventory() instanceof KeyValuePlayerInventory)) {
+			// Use the existing inventory object
+			return old.account.getPlayerInventory();
+		}
+
+		// Load inventory
+		if (KeyValuePlayerInventory.getStore() != null)
+			return new KeyValuePlayerInventory(KeyValuePlayerInventory.getStore(), account.getAccountID());
+		return new FileBasedPlayerInventory(account.getAccountID());
+	}
+
+	/**
+	 * Deletes a inventory from storage
+	 *
+	 * @param inv Inventory to delete
+	 */
+	static void deleteInventory(PlayerInventory inv) {
+		if (inv instanceof KeyValuePlayerInventory)
+			((KeyValuePlayerInventory) inv).delete();
+		else if (inv instanceof FileBasedPlayerInventory)
+			((FileBasedPlayerInventory) inv).delete();
+	}
+
+	/**
+	 * Removes a account from the social system and closes its DMs
+	 *
+	 * @param account Account being deleted
+	 */
+	static void deleteAccountData(EmuFeralAccount account) {
 		// Delete account from the social system
-		if (SocialManager.getInstance().socialListExists(userUUID)) {
-			SocialEntry[] followers = SocialManager.getInstance().getFollowerPlayers(userUUID);
-			SocialEntry[] followings = SocialManager.getInstance().getFollowingPlayers(userUUID);
+		if (SocialManager.getInstance().socialListExists(account.getAccountID())) {
+			SocialEntry[] followers = SocialManager.getInstance().getFollowerPlayers(account.getAccountID());
+			SocialEntry[] followings = SocialManager.getInstance().getFollowingPlayers(account.getAccountID());
 			for (SocialEntry user : followers) {
-				SocialManager.getInstance().setBlockedPlayer(user.playerID, userUUID, false);
-				SocialManager.getInstance().setFollowerPlayer(user.playerID, userUUID, false);
-				SocialManager.getInstance().setFollowingPlayer(user.playerID, userUUID, false);
+				SocialManager.getInstance().setBlockedPlayer(user.playerID, account.getAccountID(), false);
+				SocialManager.getInstance().setFollowerPlayer(user.playerID, account.getAccountID(), false);
+				SocialManager.getInstance().setFollowingPlayer(user.playerID, account.getAccountID(), false);
 			}
 			for (SocialEntry user : followings) {
-				SocialManager.getInstance().setBlockedPlayer(user.playerID, userUUID, false);
-				SocialManager.getInstance().setFollowerPlayer(user.playerID, userUUID, false);
-				SocialManager.getInstance().setFollowingPlayer(user.playerID, userUUID, false);
+				SocialManager.getInstance().setBlockedPlayer(user.playerID, account.getAccountID(), false);
+				SocialManager.getInstance().setFollowerPlayer(user.playerID, account.getAccountID(), false);
+				SocialManager.getInstance().setFollowingPlayer(user.playerID, account.getAccountID(), false);
 			}
-			SocialManager.getInstance().deleteSocialList(userUUID);
+			SocialManager.getInstance().deleteSocialList(account.getAccountID());
 		}
 
 		// Delete DMs
 		DMManager manager = DMManager.getInstance();
-		if (getPlayerInventory().containsItem("dms")) {
+		if (account.getPlayerInventory().containsItem("dms")) {
 			// Loop through all DMs and close them
-			JsonObject dms = getPlayerInventory().getItem("dms").getAsJsonObject();
+			JsonObject dms = account.getPlayerInventory().getItem("dms").getAsJsonObject();
 			for (String userID : dms.keySet()) {
 				// Load DM id
 				String dmID = dms.get(userID).getAsString();
@@ -438,14 +432,8 @@ public class FileBasedAccountObject extends EmuFeralAccount {
 				// Delete DM
 				manager.deleteDM(dmID);
 			}
-			getPlayerInventory().setItem("dms", dms);
+			account.getPlayerInventory().setItem("dms", dms);
 		}
-
-		// Log
-		System.out.println("Account deleted: " + getLoginName());
-
-		// Delete inventory
-		inv.delete();
 	}
 
 	private void deleteDir(File dir) {
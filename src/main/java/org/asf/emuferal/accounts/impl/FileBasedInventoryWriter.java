@@ -0,0 +1,231 @@
+package org.asf.emuferal.accounts.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+/**
+ *
+ * Write-behind persistence for file-based inventories, changed inventory
+ * objects are serialized when they are saved and written to disk by a
+ * background thread. Objects are also written when the player logs out and
+ * when the server shuts down.
+ *
+ */
+public class FileBasedInventoryWriter {
+
+	private static final int FLUSH_INTERVAL = 5000;
+
+	private static FileBasedInventoryWriter instance;
+
+	// Pending writes, account ID -> item ID -> pending item
+	private ConcurrentHashMap<String, ConcurrentHashMap<String, PendingItem>> pending = new ConcurrentHashMap<String, ConcurrentHashMap<String, PendingItem>>();
+
+	private static class PendingItem {
+		String json; // Null if the item was deleted
+
+		PendingItem(String json) {
+			this.json = json;
+		}
+	}
+
+	/**
+	 * Retrieves the inventory writer
+	 *
+	 * @return FileBasedInventoryWriter instance
+	 */
+	public static synchronized FileBasedInventoryWriter getInstance() {
+		if (instance == null) {
+			instance = new FileBasedInventoryWriter();
+			instance.start();
+		}
+		return instance;
+	}
+
+	private void start() {
+		Thread th = new Thread(() -> {
+			while (true) {
+				try {
+					Thread.sleep(FLUSH_INTERVAL);
+				} catch (InterruptedException e) {
+					break;
+				}
+				try {
+					flushAll();
+				} catch (RuntimeException e) {
+					System.err.println("Inventory writer error: " + e);
+					e.printStackTrace();
+				}
+			}
+		}, "Inventory Writer");
+		th.setDaemon(true);
+		th.start();
+
+		// Save everything on exit
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> flushAll(), "Inventory Writer Shutdown"));
+	}
+
+	/**
+	 * Queues a inventory object for saving, the object is serialized on the calling
+	 * thread so later changes to it don't race with the writer
+	 *
+	 * @param userID Account ID
+	 * @param itemID Inventory object ID
+	 * @param data   Object data
+	 */
+	public void write(String userID, String itemID, JsonElement data) {
+		queue(userID, itemID, new PendingItem(data.toString()));
+	}
+
+	/**
+	 * Queues a inventory object for saving
+	 *
+	 * @param userID Account ID
+	 * @param itemID Inventory object ID
+	 * @param json   Object JSON string
+	 */
+	public void write(String userID, String itemID, String json) {
+		queue(userID, itemID, new PendingItem(json));
+	}
+
+	/**
+	 * Queues a inventory object for deletion
+	 *
+	 * @param userID Account ID
+	 * @param itemID Inventory object ID
+	 */
+	public void delete(String userID, String itemID) {
+		queue(userID, itemID, new PendingItem(null));
+	}
+
+	private void queue(String userID, String itemID, PendingItem item) {
+		// Atomic with the removal of empty inventories in flush()
+		pending.compute(userID, (id, items) -> {
+			if (items == null)
+				items = new ConcurrentHashMap<String, PendingItem>();
+			items.put(itemID, item);
+			return items;
+		});
+	}
+
+	/**
+	 * Checks if a inventory object has a pending write or deletion
+	 *
+	 * @param userID Account ID
+	 * @param itemID Inventory object ID
+	 * @return True if a change is pending, false otherwise
+	 */
+	public boolean isPending(String userID, String itemID) {
+		Map<String, PendingItem> items = pending.get(userID);
+		return items != null && items.containsKey(itemID);
+	}
+
+	/**
+	 * Checks if a inventory object has a pending deletion, unlike
+	 * {@link #getPending(String, String)} this does not parse the pending data
+	 *
+	 * @param userID Account ID
+	 * @param itemID Inventory object ID
+	 * @return True if the object is pending deletion, false otherwise
+	 */
+	public boolean isPendingDelete(String userID, String itemID) {
+		Map<String, PendingItem> items = pending.get(userID);
+		if (items == null)
+			return false;
+		PendingItem item = items.get(itemID);
+		return item != null && item.json == null;
+	}
+
+	/**
+	 * Retrieves the pending data of a inventory object
+	 *
+	 * @param userID Account ID
+	 * @param itemID Inventory object ID
+	 * @return Pending object data, null if the object is not pending or has been
+	 *         deleted
+	 */
+	public JsonElement getPending(String userID, String itemID) {
+		Map<String, PendingItem> items = pending.get(userID);
+		if (items == null)
+			return null;
+		PendingItem item = items.get(itemID);
+		return item == null || item.json == null ? null : JsonParser.parseString(item.json);
+	}
+
+	/**
+	 * Drops all pending changes of a inventory, used when a inventory is deleted
+	 *
+	 * @param userID Account ID
+	 */
+	public void discard(String userID) {
+		ConcurrentHashMap<String, PendingItem> items = pending.remove(userID);
+		if (items != null) {
+			synchronized (items) {
+				items.clear();
+			}
+		}
+	}
+
+	/**
+	 * Writes all pending changes to disk
+	 */
+	public void flushAll() {
+		for (String userID : pending.keySet())
+			flush(userID);
+	}
+
+	/**
+	 * Writes all pending changes of a inventory to disk
+	 *
+	 * @param userID Account ID
+	 */
+	public void flush(String userID) {
+		ConcurrentHashMap<String, PendingItem> items = pending.get(userID);
+		if (items == null)
+			return;
+
+		synchronized (items) {
+			for (String itemID : items.keySet()) {
+				PendingItem item = items.get(itemID);
+				if (item == null)
+					continue;
+
+				try {
+					File file = new File("inventories/" + userID + "/" + itemID + ".json");
+					if (item.json == null) {
+						file.delete();
+					} else {
+						// Write atomically
+						file.getParentFile().mkdirs();
+						Path tmp = Path.of(file.getPath() + ".tmp");
+						Files.writeString(tmp, item.json);
+						try {
+							Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+									StandardCopyOption.ATOMIC_MOVE);
+						} catch (AtomicMoveNotSupportedException e) {
+							Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+						}
+					}
+
+					// Only remove if nothing changed in the meantime
+					items.remove(itemID, item);
+				} catch (IOException | RuntimeException e) {
+					// Kept pending, retried on the next flush
+					System.err.println("Failed to save inventory object " + itemID + " of " + userID + ": " + e);
+				}
+			}
+
+			// Remove empty inventories
+			pending.computeIfPresent(userID, (id, current) -> current == items && items.isEmpty() ? null : current);
+		}
+	}
+
+}
@@ -5,8 +5,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.asf.emuferal.accounts.PlayerInventory;
+import org.asf.emuferal.accounts.highlevel.itemdata.item.CompactInventory;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -16,7 +18,9 @@ import com.google.gson.JsonParser;
 public class FileBasedPlayerInventory extends PlayerInventory {
 
 	private String id;
-	private HashMap<String, JsonElement> cache = new HashMap<String, JsonElement>();
+	private ConcurrentHashMap<String, JsonElement> cache = new ConcurrentHashMap<String, JsonElement>();
+	private ConcurrentHashMap<String, CompactInventory> compactCache = new ConcurrentHashMap<String, CompactInventory>();
+	private FileBasedInventoryWriter writer = FileBasedInventoryWriter.getInstance();
 
 	public FileBasedPlayerInventory(String userID) {
 		id = userID;
@@ -74,7 +78,13 @@ public class FileBasedPlayerInventory extends PlayerInventory {
 		if (!itemID.matches("^[A-Za-z0-9]+"))
 			return false;
 
-		if (cache.containsKey(itemID))
+		if (cache.containsKey(itemID) || compactCache.containsKey(itemID))
+			return true;
+
+		// Check unsaved changes, changes are written before they stop being pending
+		if (writer.isPendingDelete(id, itemID))
+			return false;
+		if (writer.isPending(id, itemID))
 			return true;
 
 		return new File("inventories/" + id + "/" + itemID + ".json").exists();
@@ -85,27 +95,26 @@ public class FileBasedPlayerInventory extends PlayerInventory {
 		if (!itemID.matches("^[A-Za-z0-9]+"))
 			return null;
 
+		CompactInventory compact = compactCache.get(itemID);
+		if (compact != null)
+			return compact.toJson();
 		if (cache.containsKey(itemID))
 			return cache.get(itemID);
 
+		// Check unsaved changes
+		if (writer.isPending(id, itemID)) {
+			JsonElement ele = writer.getPending(id, itemID);
+			if (ele != null)
+				loadItem(itemID, ele);
+			return ele;
+		}
+
 		if (new File("inventories/" + id + "/" + itemID + ".json").exists()) {
 			try {
 				String json = Files.readString(Path.of("inventories/" + id + "/" + itemID + ".json"));
 				JsonElement ele = JsonParser.parseString(json);
-				cache.put(itemID, ele);
-
-				// Load into accessor cache
-				if (ele.isJsonArray()) {
-					ele.getAsJsonArray().forEach(t -> {
-						if (t.isJsonObject()) {
-							JsonObject obj = t.getAsJsonObject();
-							if (obj.has("id") && obj.has("type")) {
-								getAccessor().cacheItem(obj.get("id").getAsString(), obj.get("type").getAsString());
-							}
-						}
-					});
-				}
-				return cache.get(itemID);
+				loadItem(itemID, ele);
+				return ele;
 			} catch (IOException e) {
 			}
 		}
@@ -117,26 +126,35 @@ public class FileBasedPlayerInventory extends PlayerInventory {
 		if (!itemID.matches("^[A-Za-z0-9]+"))
 			return;
 
-		cache.put(itemID, itemData);
-		try {
-			if (!new File("inventories/" + id).exists()) {
-				new File("inventories/" + id).mkdirs();
-			}
-			Files.writeString(Path.of("inventories/" + id + "/" + itemID + ".json"), itemData.toString());
+		// Saved in the background
+		loadItem(itemID, itemData);
+		writer.write(id, itemID, itemData);
+	}
 
-			// Load into accessor cache
-			if (itemData.isJsonArray()) {
-				itemData.getAsJsonArray().forEach(t -> {
-					if (t.isJsonObject()) {
-						JsonObject obj = t.getAsJsonObject();
-						if (obj.has("id") && obj.has("type")) {
-							getAccessor().cacheItem(obj.get("id").getAsString(), obj.get("type").getAsString());
-						}
-					}
-				});
-			}
-		} catch (IOException e) {
+	private void loadItem(String itemID, JsonElement itemData) {
+		// Currency and user vars are kept in typed form
+		if (itemData.isJsonArray() && CompactInventory.isCompactInventory(itemID)) {
+			CompactInventory compact = compactCache.computeIfAbsent(itemID,
+					t -> new CompactInventory(itemID, json -> writer.write(id, itemID, json)));
+			compact.load(itemData.getAsJsonArray());
+			cache.remove(itemID);
+			getAccessor().cacheInventory(itemID, itemData.getAsJsonArray());
+			return;
 		}
+		compactCache.remove(itemID);
+		cache.put(itemID, itemData);
+
+		// Load into accessor cache
+		if (itemData.isJsonArray())
+			getAccessor().indexInventory(itemID, itemData.getAsJsonArray());
+	}
+
+	@Override
+	public CompactInventory getCompactInventory(String itemID) {
+		CompactInventory compact = compactCache.get(itemID);
+		if (compact == null && CompactInventory.isCompactInventory(itemID) && getItem(itemID) != null)
+			compact = compactCache.get(itemID);
+		return compact;
 	}
 
 	@Override
@@ -144,6 +162,12 @@ public class FileBasedPlayerInventory extends PlayerInventory {
 		if (!itemID.matches("^[A-Za-z0-9]+"))
 			return;
 
+		CompactInventory compact = compactCache.remove(itemID);
+		if (compact != null) {
+			for (String objectId : compact.getObjectIds())
+				getAccessor().removeItemFromCache(objectId);
+		}
+
 		if (cache.containsKey(itemID)) {
 			JsonElement itemData = cache.remove(itemID);
 
@@ -159,14 +183,20 @@ public class FileBasedPlayerInventory extends PlayerInventory {
 				});
 			}
 		}
-		if (new File("inventories/" + id + "/" + itemID + ".json").exists())
-			new File("inventories/" + id + "/" + itemID + ".json").delete();
+		getAccessor().invalidateIndex(itemID);
+		writer.delete(id, itemID);
+	}
+
+	@Override
+	public void flush() {
+		writer.flush(id);
 	}
 
 	/**
 	 * Deletes the inventory from disk
 	 */
 	public void delete() {
+		writer.discard(id);
 		deleteDir(new File("inventories/" + id));
 	}
 
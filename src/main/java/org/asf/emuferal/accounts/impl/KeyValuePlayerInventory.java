@@ -0,0 +1,177 @@
+package org.asf.emuferal.accounts.impl;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.asf.emuferal.accounts.PlayerInventory;
+import org.asf.emuferal.accounts.highlevel.itemdata.item.CompactInventory;
+import org.asf.emuferal.storage.KeyValueStore;
+import org.asf.emuferal.storage.RecordBatch;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ *
+ * Player inventory stored in a key-value store, each inventory object is a
+ * record keyed by <code>inventory/&lt;account id&gt;/&lt;object id&gt;</code>
+ *
+ */
+public class KeyValuePlayerInventory extends PlayerInventory {
+
+	private static KeyValueStore activeStore;
+
+	private KeyValueStore store;
+	private String id;
+	private ConcurrentHashMap<String, JsonElement> cache = new ConcurrentHashMap<String, JsonElement>();
+	private ConcurrentHashMap<String, CompactInventory> compactCache = new ConcurrentHashMap<String, CompactInventory>();
+
+	/**
+	 * Selects the store used for new inventories, null to use file-based
+	 * inventories
+	 *
+	 * @param store Inventory store
+	 */
+	public static void setStore(KeyValueStore store) {
+		activeStore = store;
+	}
+
+	/**
+	 * Retrieves the store used for new inventories
+	 *
+	 * @return KeyValueStore instance or null if inventories are file-based
+	 */
+	public static KeyValueStore getStore() {
+		return activeStore;
+	}
+
+	public KeyValuePlayerInventory(KeyValueStore store, String userID) {
+		this.store = store;
+		id = userID;
+	}
+
+	@Override
+	public boolean containsItem(String itemID) {
+		if (!itemID.matches("^[A-Za-z0-9]+"))
+			return false;
+
+		if (cache.containsKey(itemID) || compactCache.containsKey(itemID))
+			return true;
+
+		return store.contains("inventory/" + id + "/" + itemID);
+	}
+
+	@Override
+	public JsonElement getItem(String itemID) {
+		if (!itemID.matches("^[A-Za-z0-9]+"))
+			return null;
+
+		CompactInventory compact = compactCache.get(itemID);
+		if (compact != null)
+			return compact.toJson();
+		if (cache.containsKey(itemID))
+			return cache.get(itemID);
+
+		String json = store.getString("inventory/" + id + "/" + itemID);
+		if (json == null)
+			return null;
+		JsonElement ele = JsonParser.parseString(json);
+		loadItem(itemID, ele);
+		return ele;
+	}
+
+	@Override
+	public void setItem(String itemID, JsonElement itemData) {
+		if (!itemID.matches("^[A-Za-z0-9]+"))
+			return;
+
+		loadItem(itemID, itemData);
+		save(itemID, itemData.toString());
+	}
+
+	private void save(String itemID, String json) {
+		try {
+			store.putString("inventory/" + id + "/" + itemID, json);
+		} catch (IOException e) {
+			System.err.println("Failed to save inventory object " + itemID + " of " + id + ": " + e);
+		}
+	}
+
+	private void loadItem(String itemID, JsonElement itemData) {
+		// Currency and user vars are kept in typed form
+		if (itemData.isJsonArray() && CompactInventory.isCompactInventory(itemID)) {
+			CompactInventory compact = compactCache.computeIfAbsent(itemID,
+					t -> new CompactInventory(itemID, json -> save(itemID, json)));
+			compact.load(itemData.getAsJsonArray());
+			cache.remove(itemID);
+			getAccessor().cacheInventory(itemID, itemData.getAsJsonArray());
+			return;
+		}
+		compactCache.remove(itemID);
+		cache.put(itemID, itemData);
+
+		// Load into accessor cache
+		if (itemData.isJsonArray())
+			getAccessor().indexInventory(itemID, itemData.getAsJsonArray());
+	}
+
+	@Override
+	public CompactInventory getCompactInventory(String itemID) {
+		CompactInventory compact = compactCache.get(itemID);
+		if (compact == null && CompactInventory.isCompactInventory(itemID) && getItem(itemID) != null)
+			compact = compactCache.get(itemID);
+		return compact;
+	}
+
+	@Override
+	public void deleteItem(String itemID) {
+		if (!itemID.matches("^[A-Za-z0-9]+"))
+			return;
+
+		CompactInventory compact = compactCache.remove(itemID);
+		if (compact != null) {
+			for (String objectId : compact.getObjectIds())
+				getAccessor().removeItemFromCache(objectId);
+		}
+
+		if (cache.containsKey(itemID)) {
+			JsonElement itemData = cache.remove(itemID);
+
+			// Remove accessor cache
+			if (itemData.isJsonArray()) {
+				itemData.getAsJsonArray().forEach(t -> {
+					if (t.isJsonObject()) {
+						JsonObject obj = t.getAsJsonObject();
+						if (obj.has("id") && obj.has("type")) {
+							getAccessor().removeItemFromCache(obj.get("id").getAsString());
+						}
+					}
+				});
+			}
+		}
+		getAccessor().invalidateIndex(itemID);
+		try {
+			store.delete("inventory/" + id + "/" + itemID);
+		} catch (IOException e) {
+			System.err.println("Failed to delete inventory object " + itemID + " of " + id + ": " + e);
+		}
+	}
+
+	/**
+	 * Deletes the inventory from the store
+	 */
+	public void delete() {
+		cache.clear();
+		compactCache.clear();
+		RecordBatch batch = new RecordBatch();
+		for (String key : store.keys("inventory/" + id + "/"))
+			batch.delete(key);
+		try {
+			store.write(batch);
+		} catch (IOException e) {
+			System.err.println("Failed to delete inventory of " + id + ": " + e);
+		}
+	}
+
+}
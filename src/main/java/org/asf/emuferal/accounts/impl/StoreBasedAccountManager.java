@@ -0,0 +1,396 @@
+package org.asf.emuferal.accounts.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.asf.emuferal.accounts.AccountManager;
+import org.asf.emuferal.accounts.EmuFeralAccount;
+import org.asf.emuferal.modules.eventbus.EventBus;
+import org.asf.emuferal.modules.events.accounts.AccountRegistrationEvent;
+import org.asf.emuferal.storage.KeyValueStore;
+import org.asf.emuferal.storage.RecordBatch;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ *
+ * Account manager backed by a single key-value store (the accounts store of
+ * the storage provider) instead of one file per account field. Inventories
+ * are still stored in the inventories folder.<br/>
+ * <br/>
+ * Record layout:<br/>
+ * <code>account/&lt;id&gt;</code> - account details (json)<br/>
+ * <code>login/&lt;login name&gt;</code> - account ID<br/>
+ * <code>displayname/&lt;lowercase display name&gt;</code> - account ID<br/>
+ * <code>cred/&lt;id&gt;</code> - password salt and hash<br/>
+ * <code>meta/lastid</code> - last numeric account ID
+ *
+ */
+public class StoreBasedAccountManager extends AccountManager {
+
+	private KeyValueStore store;
+	private int lastAccountID;
+
+	// Account ID -> time the password lock expires
+	private ConcurrentHashMap<String, Long> passwordLock = new ConcurrentHashMap<String, Long>();
+
+	private AccountCache<StoreBasedAccountObject> accounts = new AccountCache<StoreBasedAccountObject>();
+
+	/**
+	 * Creates the account manager, the store is opened through the
+	 * {@link org.asf.emuferal.storage.StorageProvider StorageProvider}, which
+	 * also syncs it to disk
+	 *
+	 * @param store Account store
+	 */
+	public StoreBasedAccountManager(KeyValueStore store) {
+		this.store = store;
+		String lastID = store.getString("meta/lastid");
+		if (lastID != null)
+			lastAccountID = Integer.parseInt(lastID);
+	}
+
+	@Override
+	public String authenticate(String username, char[] password) {
+		// Check name validity
+		if (!username.matches("^[A-Za-z0-9@._#]+$") || username.contains(".cred")
+				|| !username.matches(".*[A-Za-z0-9]+.*") || username.isBlank())
+			return null;
+
+		// Find the account
+		String id = store.getString("login/" + username);
+		if (id == null)
+			return null;
+
+		// Return null if the password is on cooldown
+		Long lock = passwordLock.get(id);
+		if (lock != null) {
+			if (lock > System.currentTimeMillis())
+				return null;
+			passwordLock.remove(id, lock);
+		}
+
+		// If it has one, check password
+		byte[] credentials = store.get("cred/" + id);
+		if (credentials != null && !isPasswordUpdateRequested(id)) {
+			// Load credentials
+			ByteBuffer buf = ByteBuffer.wrap(credentials);
+			byte[] salt = new byte[buf.getInt()];
+			buf.get(salt);
+			byte[] hash = new byte[buf.getInt()];
+			buf.get(hash);
+
+			// Get current hash
+			byte[] cHash = FileBasedAccountManager.getHash(salt, password);
+
+			// Compare hashes
+			boolean valid = hash.length == cHash.length;
+			for (int i = 0; valid && i < hash.length; i++) {
+				if (hash[i] != cHash[i])
+					valid = false;
+			}
+			if (!valid) {
+				passwordLock.put(id, System.currentTimeMillis() + 8000);
+				try {
+					Thread.sleep(8000);
+				} catch (InterruptedException e) {
+				}
+				return null;
+			}
+		}
+
+		// Login is valid
+		return id;
+	}
+
+	@Override
+	public boolean isPasswordUpdateRequested(String userID) {
+		JsonObject account = getAccountRecord(userID);
+		return account != null && account.has("passwordUpdate") && account.get("passwordUpdate").getAsBoolean();
+	}
+
+	@Override
+	public void makePasswordUpdateRequested(String userID) {
+		updateAccountRecord(userID, t -> t.addProperty("passwordUpdate", true));
+	}
+
+	@Override
+	public boolean hasPassword(String userID) {
+		return store.contains("cred/" + userID);
+	}
+
+	@Override
+	public boolean updatePassword(String userID, char[] password) {
+		// Generate salt and hash
+		byte[] salt = FileBasedAccountManager.salt();
+		byte[] hash = FileBasedAccountManager.getHash(salt, password);
+		if (hash == null)
+			return false;
+
+		// Save the credentials and delete the request in one write
+		synchronized (this) {
+			JsonObject account = getAccountRecord(userID);
+			if (account == null)
+				return false;
+			account.addProperty("passwordUpdate", false);
+			try {
+				store.write(new RecordBatch().put("cred/" + userID, encodeCredentials(salt, hash))
+						.putString("account/" + userID, account.toString()));
+				return true;
+			} catch (IOException e) {
+				return false;
+			}
+		}
+	}
+
+	@Override
+	public String register(String username) {
+		// Check name validity
+		if (!username.matches("^[A-Za-z0-9@._#]+$") || username.contains(".cred")
+				|| !username.matches(".*[A-Za-z0-9]+.*") || username.isBlank() || username.length() > 320)
+			return null;
+
+		// Prevent banned, filtered and blacklisted names
+		if (FileBasedAccountManager.isNameBlocked(username))
+			return null;
+
+		String id;
+		synchronized (this) {
+			// Check if the account exists
+			if (store.contains("login/" + username))
+				return null;
+
+			// Find a ID that isn't in use
+			id = UUID.randomUUID().toString();
+			while (store.contains("account/" + id))
+				id = UUID.randomUUID().toString();
+
+			// Save account details
+			JsonObject account = new JsonObject();
+			account.addProperty("id", id);
+			account.addProperty("login", username);
+			account.addProperty("displayName", username);
+			account.addProperty("isNew", true);
+			account.addProperty("numericId", lastAccountID + 1);
+			account.addProperty("lastLogin", System.currentTimeMillis() / 1000);
+			try {
+				store.write(new RecordBatch().putString("meta/lastid", Integer.toString(lastAccountID + 1))
+						.putString("login/" + username, id).putString("account/" + id, account.toString()));
+			} catch (IOException e) {
+				return null; // Failure
+			}
+			lastAccountID++;
+		}
+
+		// Dispatch event
+		EventBus.getInstance().dispatchEvent(new AccountRegistrationEvent(getAccount(id)));
+
+		// Return account ID
+		return id;
+	}
+
+	@Override
+	public EmuFeralAccount getAccount(String userID) {
+		// Find loaded account
+		if (!store.contains("account/" + userID))
+			return null;
+		StoreBasedAccountObject cached = accounts.get(userID);
+		if (cached != null)
+			return cached;
+
+		// Load the account
+		JsonObject account = getAccountRecord(userID);
+		if (account == null)
+			return null;
+		return accounts.add(userID, new StoreBasedAccountObject(this, account));
+	}
+
+	@Override
+	public String getUserByLoginName(String loginName) {
+		// Check name validity
+		if (!loginName.matches("^[A-Za-z0-9@._#]+$") || loginName.contains(".cred")
+				|| !loginName.matches(".*[A-Za-z0-9]+.*") || loginName.isBlank())
+			return null;
+
+		// Find the account
+		String userID = store.getString("login/" + loginName);
+		if (userID != null && store.contains("account/" + userID))
+			return userID; // Account found
+
+		// Account not found
+		return null;
+	}
+
+	@Override
+	public String getUserByDisplayName(String displayName) {
+		// Check validity
+		if (!displayName.matches("^[0-9A-Za-z\\-_. ]+") || displayName.length() > 16 || displayName.length() < 2)
+			return null;
+
+		// Find the name (case-insensitive)
+		String userID = store.getString(displayNameKey(displayName));
+		if (userID != null && store.contains("account/" + userID))
+			return userID; // Account found
+
+		return null;
+	}
+
+	@Override
+	public boolean isDisplayNameInUse(String displayName) {
+		// Prevent blacklisted names from being used
+		if (FileBasedAccountManager.isNameBlacklisted(displayName))
+			return true;
+
+		return store.contains(displayNameKey(displayName));
+	}
+
+	@Override
+	public synchronized boolean releaseDisplayName(String displayName) {
+		if (!store.contains(displayNameKey(displayName)))
+			return false;
+
+		try {
+			store.delete(displayNameKey(displayName));
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public synchronized boolean lockDisplayName(String displayName, String userID) {
+		if (userID != null && !isDisplayNameInUse(displayName)) {
+			try {
+				store.putString(displayNameKey(displayName), userID);
+				return true;
+			} catch (IOException e) {
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Imports a account from another account storage, used by the migration tool
+	 *
+	 * @param accountID               Account ID
+	 * @param loginName               Login name
+	 * @param displayName             Display name
+	 * @param numericID               Numeric account ID
+	 * @param isNew                   True if the player has not finished the
+	 *                                tutorial
+	 * @param lastLogin               Last login time (seconds)
+	 * @param privacy                 Privacy settings or null
+	 * @param activeLook              Active look ID or null
+	 * @param activeSanctuaryLook     Active sanctuary look ID or null
+	 * @param renameRequired          True if the player needs to change their
+	 *                                name
+	 * @param passwordUpdateRequested True if the password is saved on next login
+	 * @param credentials             Password salt and hash as stored by
+	 *                                FileBasedAccountManager, or null
+	 * @throws IOException If writing fails
+	 */
+	public synchronized void importAccount(String accountID, String loginName, String displayName, int numericID,
+			boolean isNew, long lastLogin, JsonObject privacy, String activeLook, String activeSanctuaryLook,
+			boolean renameRequired, boolean passwordUpdateRequested, byte[] credentials) throws IOException {
+		JsonObject account = new JsonObject();
+		account.addProperty("id", accountID);
+		account.addProperty("login", loginName);
+		account.addProperty("displayName", displayName);
+		account.addProperty("isNew", isNew);
+		account.addProperty("numericId", numericID);
+		account.addProperty("lastLogin", lastLogin);
+		if (privacy != null)
+			account.add("privacy", privacy);
+		if (activeLook != null)
+			account.addProperty("activeLook", activeLook);
+		if (activeSanctuaryLook != null)
+			account.addProperty("activeSanctuaryLook", activeSanctuaryLook);
+		if (renameRequired)
+			account.addProperty("requireChangeName", true);
+		if (passwordUpdateRequested)
+			account.addProperty("passwordUpdate", true);
+
+		RecordBatch batch = new RecordBatch().putString("login/" + loginName, accountID)
+				.putString("account/" + accountID, account.toString());
+		if (credentials != null)
+			batch.put("cred/" + accountID, credentials);
+		if (numericID > lastAccountID)
+			batch.putString("meta/lastid", Integer.toString(numericID));
+		store.write(batch);
+		if (numericID > lastAccountID)
+			lastAccountID = numericID;
+	}
+
+	/**
+	 * Sets the last numeric account ID, used by the migration tool
+	 *
+	 * @param lastID Last numeric account ID
+	 * @throws IOException If writing fails
+	 */
+	public synchronized void importLastAccountID(int lastID) throws IOException {
+		if (lastID <= lastAccountID)
+			return;
+		store.putString("meta/lastid", Integer.toString(lastID));
+		lastAccountID = lastID;
+	}
+
+	/**
+	 * Writes all changes to disk and closes the account store
+	 *
+	 * @throws IOException If closing fails
+	 */
+	public void close() throws IOException {
+		store.close();
+	}
+
+	JsonObject getAccountRecord(String userID) {
+		String data = store.getString("account/" + userID);
+		if (data == null)
+			return null;
+		return JsonParser.parseString(data).getAsJsonObject();
+	}
+
+	boolean updateAccountRecord(String userID, Consumer<JsonObject> update) {
+		synchronized (this) {
+			JsonObject account = getAccountRecord(userID);
+			if (account == null)
+				return false;
+			update.accept(account);
+			try {
+				store.putString("account/" + userID, account.toString());
+				return true;
+			} catch (IOException e) {
+				return false;
+			}
+		}
+	}
+
+	synchronized void deleteAccountRecords(String loginName, String userID) {
+		accounts.remove(userID);
+		try {
+			store.write(new RecordBatch().delete("login/" + loginName).delete("account/" + userID)
+					.delete("cred/" + userID));
+		} catch (IOException e) {
+		}
+	}
+
+	private static byte[] encodeCredentials(byte[] salt, byte[] hash) {
+		ByteBuffer buf = ByteBuffer.allocate(8 + salt.length + hash.length);
+		buf.putInt(salt.length);
+		buf.put(salt);
+		buf.putInt(hash.length);
+		buf.put(hash);
+		return buf.array();
+	}
+
+	// Record key of a display name, case-insensitive
+	private static String displayNameKey(String displayName) {
+		return "displayname/" + AccountNameIndex.fold(displayName);
+	}
+
+}
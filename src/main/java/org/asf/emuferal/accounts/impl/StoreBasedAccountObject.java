@@ -0,0 +1,253 @@
+package org.asf.emuferal.accounts.impl;
+
+import java.util.UUID;
+
+import org.asf.emuferal.EmuFeral;
+import org.asf.emuferal.accounts.AccountManager;
+import org.asf.emuferal.accounts.EmuFeralAccount;
+import org.asf.emuferal.accounts.LevelInfo;
+import org.asf.emuferal.accounts.PlayerInventory;
+import org.asf.emuferal.modules.eventbus.EventBus;
+import org.asf.emuferal.modules.events.accounts.AccountDeletionEvent;
+import org.asf.emuferal.players.Player;
+
+import com.google.gson.JsonObject;
+
+public class StoreBasedAccountObject extends EmuFeralAccount {
+
+	private StoreBasedAccountManager manager;
+
+	private int userID;
+	private volatile boolean isNew;
+	private String userUUID;
+	private String loginName;
+	private volatile String displayName;
+	private PlayerInventory inv;
+	private volatile JsonObject privacy;
+	private LevelInfo level;
+	private volatile long lastLogin;
+
+	StoreBasedAccountObject(StoreBasedAccountManager manager, JsonObject account) {
+		this.manager = manager;
+
+		// Parse account record
+		userUUID = account.get("id").getAsString();
+		loginName = account.get("login").getAsString();
+		isNew = account.get("isNew").getAsBoolean();
+		displayName = account.get("displayName").getAsString();
+		userID = account.get("numericId").getAsInt();
+		lastLogin = account.get("lastLogin").getAsLong();
+		if (account.has("privacy"))
+			privacy = account.get("privacy").getAsJsonObject();
+
+		// Load inventory
+		inv = FileBasedAccountObject.openInventory(this);
+	}
+
+	@Override
+	public String getLoginName() {
+		return loginName;
+	}
+
+	@Override
+	public String getDisplayName() {
+		return displayName;
+	}
+
+	@Override
+	public String getAccountID() {
+		return userUUID;
+	}
+
+	@Override
+	public int getAccountNumericID() {
+		return userID;
+	}
+
+	@Override
+	public boolean isPlayerNew() {
+		return isNew;
+	}
+
+	@Override
+	public void finishedTutorial() {
+		isNew = false;
+		manager.updateAccountRecord(userUUID, t -> t.addProperty("isNew", false));
+	}
+
+	@Override
+	public boolean updateDisplayName(String name) {
+		// Check validity
+		if (!name.matches("^[0-9A-Za-z\\-_. ]+") || name.length() > 16 || name.length() < 2)
+			return false;
+
+		// Prevent banned, filtered and blacklisted names
+		if (FileBasedAccountManager.isNameBlocked(name))
+			return false;
+
+		// Store the name and remove the lockout
+		if (!manager.updateAccountRecord(userUUID, t -> {
+			t.addProperty("displayName", name);
+			t.remove("requireChangeName");
+		}))
+			return false;
+		displayName = name;
+		return true;
+	}
+
+	@Override
+	public PlayerInventory getPlayerInventory() {
+		return inv;
+	}
+
+	@Override
+	public JsonObject getPrivacySettings() {
+		if (privacy != null)
+			return privacy;
+
+		privacy = new JsonObject();
+		privacy.addProperty("voice_chat", "following");
+		savePrivacySettings(privacy);
+		return privacy;
+	}
+
+	@Override
+	public void savePrivacySettings(JsonObject settings) {
+		privacy = settings;
+		manager.updateAccountRecord(userUUID, t -> t.add("privacy", settings.deepCopy()));
+	}
+
+	@Override
+	public String getActiveLook() {
+		return getLook("activeLook");
+	}
+
+	@Override
+	public String getActiveSanctuaryLook() {
+		return getLook("activeSanctuaryLook");
+	}
+
+	private String getLook(String key) {
+		JsonObject account = manager.getAccountRecord(userUUID);
+		if (account != null && account.has(key))
+			return account.get(key).getAsString();
+
+		// Assign a new look ID
+		String look = UUID.randomUUID().toString();
+		manager.updateAccountRecord(userUUID, t -> {
+			if (!t.has(key))
+				t.addProperty(key, look);
+		});
+		account = manager.getAccountRecord(userUUID);
+		if (account != null && account.has(key))
+			return account.get(key).getAsString();
+		return look;
+	}
+
+	@Override
+	public void setActiveLook(String lookID) {
+		manager.updateAccountRecord(userUUID, t -> t.addProperty("activeLook", lookID));
+	}
+
+	@Override
+	public void setActiveSanctuaryLook(String lookID) {
+		manager.updateAccountRecord(userUUID, t -> t.addProperty("activeSanctuaryLook", lookID));
+	}
+
+	@Override
+	public boolean isRenameRequired() {
+		JsonObject account = manager.getAccountRecord(userUUID);
+		return account != null && account.has("requireChangeName")
+				&& account.get("requireChangeName").getAsBoolean();
+	}
+
+	@Override
+	public void forceNameChange() {
+		manager.updateAccountRecord(userUUID, t -> t.addProperty("requireChangeName", true));
+	}
+
+	@Override
+	public LevelInfo getLevel() {
+		if (level == null)
+			level = new LevelInfo() {
+
+				@Override
+				public boolean isLevelAvailable() {
+					return false;
+				}
+
+				@Override
+				public int getLevel() {
+					return -1;
+				}
+
+				@Override
+				public int getTotalXP() {
+					return -1;
+				}
+
+				@Override
+				public int getCurrentXP() {
+					return -1;
+				}
+
+				@Override
+				public int getLevelupXPCount() {
+					return -1;
+				}
+
+				@Override
+				public void addXP(int xp) {
+				}
+			};
+
+		return level;
+	}
+
+	@Override
+	public long getLastLoginTime() {
+		return lastLogin;
+	}
+
+	@Override
+	public void login() {
+		long time = System.currentTimeMillis() / 1000;
+		manager.updateAccountRecord(userUUID, t -> t.addProperty("lastLogin", time));
+		lastLogin = time;
+	}
+
+	@Override
+	public Player getOnlinePlayerInstance() {
+		return EmuFeral.gameServer.getPlayer(getAccountID());
+	}
+
+	@Override
+	public void deleteAccount() {
+		if (manager.getAccountRecord(userUUID) == null) {
+			// Account does not exist
+			return;
+		}
+
+		// Dispatch event
+		EventBus.getInstance().dispatchEvent(new AccountDeletionEvent(this));
+
+		// Delete login, account and password records
+		manager.deleteAccountRecords(loginName, userUUID);
+
+		// Kick online player
+		kick("Account deletion");
+
+		// Release display name
+		AccountManager.getInstance().releaseDisplayName(displayName);
+
+		// Delete social lists and DMs
+		FileBasedAccountObject.deleteAccountData(this);
+
+		// Log
+		System.out.println("Account deleted: " + getLoginName());
+
+		// Delete inventory
+		FileBasedAccountObject.deleteInventory(inv);
+	}
+
+}
@@ -0,0 +1,79 @@
+package org.asf.emuferal.data;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ *
+ * Streaming encoder for gzip-compressed base64 json payloads, the json is
+ * serialized straight into the compressor so only the buffers of the pipeline
+ * are held in memory instead of the full json, compressed and base64 copies.
+ * The output is identical to compressing and encoding
+ * {@link JsonElement#toString()}.
+ *
+ */
+public class JsonPayloadEncoder {
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final TypeAdapter<JsonElement> ADAPTER = new Gson().getAdapter(JsonElement.class);
+
+	/**
+	 * Writes the gzip-compressed base64 payload of a json element, the output
+	 * stream is not closed
+	 *
+	 * @param element Json element to encode
+	 * @param output  Output stream to write to
+	 * @throws IOException If writing fails
+	 */
+	public static void encode(JsonElement element, OutputStream output) throws IOException {
+		OutputStream base64 = Base64.getEncoder().wrap(new NonClosingOutputStream(output));
+		serialize(element, new GZIPOutputStream(base64, BUFFER_SIZE));
+	}
+
+	/**
+	 * Writes the UTF-8 json of a json element and closes the output stream
+	 *
+	 * @param element Json element to serialize
+	 * @param output  Output stream to write to
+	 * @throws IOException If writing fails
+	 */
+	public static void serialize(JsonElement element, OutputStream output) throws IOException {
+		// Same writer settings as JsonElement.toString()
+		JsonWriter writer = new JsonWriter(
+				new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE));
+		writer.setLenient(true);
+		ADAPTER.write(writer, element);
+		writer.close();
+	}
+
+	// Keeps the underlying stream open when the pipeline is closed
+	private static class NonClosingOutputStream extends FilterOutputStream {
+
+		public NonClosingOutputStream(OutputStream output) {
+			super(output);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+
+	}
+
+}
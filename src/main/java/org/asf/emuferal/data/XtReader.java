@@ -3,49 +3,93 @@ package org.asf.emuferal.data;
 import java.util.Base64;
 
 public class XtReader {
-	private String[] objects;
+	private CharSequence data;
 	private int position = 0;
+	private int limit;
+	private int mark = 0;
 
 	public XtReader(String data) {
-		objects = parseXT(data);
+		this((CharSequence) data);
 	}
 
-	private String[] parseXT(String packet) {
-		if (packet.startsWith("%xt%"))
-			return packet.substring(4).split("%");
-		else
-			return packet.split("%");
+	public XtReader(CharSequence data) {
+		this.data = data;
+
+		// Skip the XT header
+		if (startsWith(data, "%xt%"))
+			position = 4;
+
+		// Trailing separators do not create objects
+		limit = data.length();
+		while (limit > position && data.charAt(limit - 1) == '%')
+			limit--;
+		if (limit == position && limit != data.length())
+			position = limit + 1; // Only separators, no objects
+		mark = position;
+	}
+
+	private static boolean startsWith(CharSequence data, String prefix) {
+		if (data.length() < prefix.length())
+			return false;
+		for (int i = 0; i < prefix.length(); i++) {
+			if (data.charAt(i) != prefix.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	// Finds the end of the current object
+	private int objectEnd() {
+		int end = position;
+		while (end < limit && data.charAt(end) != '%')
+			end++;
+		return end;
 	}
 
 	public boolean hasNext() {
-		return position < objects.length;
+		return position <= limit;
 	}
 
 	public String read() {
 		if (!hasNext())
 			return null;
-		return objects[position++];
+		int end = objectEnd();
+		String res = data.subSequence(position, end).toString();
+		position = end + 1;
+		return res;
 	}
 
 	public int readInt() {
-		String data = read();
-		if (data == null)
+		if (!hasNext())
 			return 0;
-		return Integer.parseInt(data);
+		int end = objectEnd();
+		long res = parseLong(position, end);
+		if (res == Long.MIN_VALUE || res < Integer.MIN_VALUE || res > Integer.MAX_VALUE)
+			return Integer.parseInt(read()); // Let the JDK throw the error
+		position = end + 1;
+		return (int) res;
 	}
 
 	public long readLong() {
-		String data = read();
-		if (data == null)
+		if (!hasNext())
 			return 0;
-		return Long.parseLong(data);
+		int end = objectEnd();
+		long res = parseLong(position, end);
+		if (res == Long.MIN_VALUE)
+			return Long.parseLong(read()); // Not a simple number, use the JDK parser
+		position = end + 1;
+		return res;
 	}
 
 	public double readDouble() {
-		String data = read();
-		if (data == null)
+		if (!hasNext())
 			return 0;
-		return Double.parseDouble(data);
+		int end = objectEnd();
+		double res = parseDouble(position, end);
+		if (Double.isNaN(res))
+			return Double.parseDouble(read()); // Not a simple number, use the JDK parser
+		position = end + 1;
+		return res;
 	}
 
 	public float readFloat() {
@@ -69,15 +113,93 @@ public class XtReader {
 		return Base64.getDecoder().decode(data);
 	}
 
+	/**
+	 * Marks the current read position
+	 */
+	public void mark() {
+		mark = position;
+	}
+
+	/**
+	 * Returns to the last marked read position
+	 */
+	public void reset() {
+		position = mark;
+	}
+
 	public String readRemaining() {
-		String rest = "";
-		while (hasNext()) {
-			if (rest.isEmpty())
-				rest = read();
-			else
-				rest += "%" + read();
-		}
+		if (!hasNext())
+			return "";
+
+		// Leading empty objects are skipped
+		while (position < limit && data.charAt(position) == '%')
+			position++;
+		String rest = data.subSequence(position, limit).toString();
+		position = limit + 1;
 		return rest;
 	}
 
+	// Parses plain decimal integers without allocating, returns Long.MIN_VALUE if
+	// the JDK parser needs to handle it
+	private long parseLong(int start, int end) {
+		boolean negative = false;
+		if (start < end && (data.charAt(start) == '-' || data.charAt(start) == '+')) {
+			negative = data.charAt(start) == '-';
+			start++;
+		}
+		if (start == end || end - start > 18)
+			return Long.MIN_VALUE;
+		long res = 0;
+		for (int i = start; i < end; i++) {
+			char ch = data.charAt(i);
+			if (ch < '0' || ch > '9')
+				return Long.MIN_VALUE;
+			res = res * 10 + (ch - '0');
+		}
+		return negative ? -res : res;
+	}
+
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// Parses plain decimals without allocating, returns NaN if the JDK parser needs
+	// to handle it. Only exact cases are handled here (mantissa below 2^53 and at
+	// most 22 fraction digits) so the result is identical to Double.parseDouble.
+	private double parseDouble(int start, int end) {
+		boolean negative = false;
+		if (start < end && (data.charAt(start) == '-' || data.charAt(start) == '+')) {
+			negative = data.charAt(start) == '-';
+			start++;
+		}
+		if (start == end)
+			return Double.NaN;
+
+		long mantissa = 0;
+		int digits = 0;
+		int fraction = -1;
+		for (int i = start; i < end; i++) {
+			char ch = data.charAt(i);
+			if (ch == '.' && fraction == -1) {
+				fraction = 0;
+				continue;
+			}
+			if (ch < '0' || ch > '9')
+				return Double.NaN;
+			if (mantissa != 0 || ch != '0')
+				digits++;
+			if (digits > 15)
+				return Double.NaN;
+			mantissa = mantissa * 10 + (ch - '0');
+			if (fraction != -1)
+				fraction++;
+		}
+		if (fraction == 0 || fraction > 22)
+			return Double.NaN;
+
+		double res = mantissa;
+		if (fraction > 0)
+			res /= POWERS_OF_TEN[fraction];
+		return negative ? -res : res;
+	}
+
 }
@@ -1,25 +1,80 @@
 package org.asf.emuferal.data;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
 public class XtWriter {
 
-	private ArrayList<String> objects = new ArrayList<String>();
+	private static final int POOLED_CAPACITY = 16 * 1024;
+	private static final ThreadLocal<StringBuilder> pool = new ThreadLocal<StringBuilder>();
+
+	private StringBuilder builder;
+
+	public XtWriter() {
+		// Reuse a builder released on this thread if possible
+		builder = pool.get();
+		if (builder != null)
+			pool.set(null);
+		else
+			builder = new StringBuilder(128);
+		builder.append("%xt%");
+	}
 
 	public String encode() {
-		String d = "%xt%";
-		for (String t : objects) {
-			if (d.length() != 4)
-				d += "%";
-			d += t;
+		return builder.toString();
+	}
+
+	/**
+	 * Writes the encoded packet as UTF-8 without building a intermediate string
+	 *
+	 * @param output Output stream to write to
+	 * @throws IOException If writing fails
+	 */
+	public void encodeTo(OutputStream output) throws IOException {
+		CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer chars = CharBuffer.wrap(builder);
+		ByteBuffer buffer = ByteBuffer.allocate(Math.min(8192, builder.length() * 3));
+		while (true) {
+			boolean done = !encoder.encode(chars, buffer, true).isOverflow();
+			if (done)
+				encoder.flush(buffer);
+			output.write(buffer.array(), 0, buffer.position());
+			buffer.clear();
+			if (done)
+				break;
 		}
-		return d;
+	}
+
+	/**
+	 * Releases the writer, allowing the next writer on this thread to reuse its
+	 * buffer. The writer must not be used after this call.
+	 */
+	public void release() {
+		if (builder == null)
+			return;
+		if (builder.capacity() <= POOLED_CAPACITY) {
+			builder.setLength(0);
+			pool.set(builder);
+		}
+		builder = null;
+	}
 
+	// Starts a new object
+	private StringBuilder next() {
+		if (builder.length() != 4)
+			builder.append('%');
+		return builder;
 	}
 
 	public void add(String object) {
-		objects.add(object);
+		next().append(object);
 	}
 
 	public void writeString(String data) {
@@ -27,23 +82,23 @@ public class XtWriter {
 	}
 
 	public void writeInt(int num) {
-		add(Integer.toString(num));
+		next().append(num);
 	}
 
 	public void writeLong(long num) {
-		add(Long.toString(num));
+		next().append(num);
 	}
 
 	public void writeFloat(float num) {
-		add(Float.toString(num));
+		next().append(num);
 	}
 
 	public void writeDouble(double num) {
-		add(Double.toString(num));
+		next().append(num);
 	}
 
 	public void writeBoolean(boolean v) {
-		add(Boolean.toString(v));
+		next().append(v);
 	}
 
 	public void writeBytes(byte[] bytes) {
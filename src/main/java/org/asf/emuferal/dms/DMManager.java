@@ -1,9 +1,16 @@
 package org.asf.emuferal.dms;
 
+import java.util.Arrays;
+
 import org.asf.emuferal.dms.impl.FileBasedDMManager;
 
 public abstract class DMManager {
 
+	/**
+	 * Amount of messages kept per conversation, older messages are discarded
+	 */
+	public static final int MAX_HISTORY = 500;
+
 	protected static DMManager implementation = new FileBasedDMManager();
 
 	/**
@@ -15,6 +22,15 @@ public abstract class DMManager {
 		return implementation;
 	}
 
+	/**
+	 * Assigns the DM manager implementation
+	 * 
+	 * @param manager DMManager to use
+	 */
+	public static void setInstance(DMManager manager) {
+		implementation = manager;
+	}
+
 	/**
 	 * Creates a new DM on disk
 	 * 
@@ -48,6 +64,22 @@ public abstract class DMManager {
 	 */
 	public abstract PrivateChatMessage[] getDMHistory(String dmID, String requester);
 
+	/**
+	 * Retrieves a page of the messages sent in a DM, counting back from the most
+	 * recent message
+	 * 
+	 * @param dmID      Conversation ID
+	 * @param requester Player requesting the history
+	 * @param offset    Amount of recent messages to skip
+	 * @param count     Maximum amount of messages to retrieve
+	 * @return Array of PrivateChatMessage instances, oldest first
+	 */
+	public PrivateChatMessage[] getDMHistory(String dmID, String requester, int offset, int count) {
+		PrivateChatMessage[] messages = getDMHistory(dmID, requester);
+		int end = Math.max(0, messages.length - offset);
+		return Arrays.copyOfRange(messages, Math.max(0, end - count), end);
+	}
+
 	/**
 	 * Saves a DM message to disk or memory
 	 * 
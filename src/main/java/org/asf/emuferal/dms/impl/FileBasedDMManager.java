@@ -1,12 +1,16 @@
 package org.asf.emuferal.dms.impl;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.asf.emuferal.dms.DMManager;
 import org.asf.emuferal.dms.PrivateChatMessage;
@@ -15,25 +19,47 @@ import org.asf.emuferal.social.SocialManager;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 
+/**
+ *
+ * File-based DM manager, each conversation is a folder holding the
+ * participants and a append-only message log split into segments. Segments
+ * older than the history limit are removed in the background.
+ *
+ */
 public class FileBasedDMManager extends DMManager {
 
-	private ArrayList<String> activeIDs = new ArrayList<String>();
+	private static final int SEGMENT_SIZE = 100;
+	private static final int COMPACTION_INTERVAL = 60000;
+
+	// Conversation ID -> log index
+	private ConcurrentHashMap<String, DMLog> logs = new ConcurrentHashMap<String, DMLog>();
+	private Set<DMLog> compactionQueue = ConcurrentHashMap.newKeySet();
+	private Thread compactionThread;
+
+	private static class DMLog {
+		File dir;
+		String[] participants;
+		int firstSegment;
+		int lastSegment;
+		int lastSegmentSize;
+		boolean deleted;
+	}
 
 	@Override
 	public void openDM(String dmID, String[] participants) {
 		try {
-			if (!new File("dms").exists())
-				new File("dms").mkdirs();
 			if (!dmExists(dmID)) {
-				JsonObject dm = new JsonObject();
+				String id = UUID.fromString(dmID).toString();
+				File dir = new File("dms/" + id);
+				dir.mkdirs();
+
 				JsonArray participantObjects = new JsonArray();
 				for (String p : participants)
 					participantObjects.add(p);
-				dm.add("participants", participantObjects);
-				dm.add("messages", new JsonArray());
-				Files.writeString(Path.of("dms/" + UUID.fromString(dmID) + ".json"), dm.toString());
+				Files.writeString(new File(dir, "participants.json").toPath(), participantObjects.toString());
 			}
 		} catch (Exception e) {
 		}
@@ -42,7 +68,9 @@ public class FileBasedDMManager extends DMManager {
 	@Override
 	public boolean dmExists(String dmID) {
 		try {
-			return new File("dms/" + UUID.fromString(dmID) + ".json").exists();
+			String id = UUID.fromString(dmID).toString();
+			return logs.containsKey(id) || new File("dms/" + id + "/participants.json").exists()
+					|| new File("dms/" + id + ".json").exists();
 		} catch (Exception e) {
 			return false;
 		}
@@ -50,101 +78,246 @@ public class FileBasedDMManager extends DMManager {
 
 	@Override
 	public PrivateChatMessage[] getDMHistory(String dmID, String requester) {
-		if (!dmExists(dmID))
-			throw new IllegalArgumentException("DM not found");
+		return getDMHistory(dmID, requester, 0, MAX_HISTORY);
+	}
 
-		try {
-			// Parse DM
-			FileReader reader = new FileReader("dms/" + UUID.fromString(dmID) + ".json");
-			JsonObject dm = JsonParser.parseReader(reader).getAsJsonObject();
-			JsonArray data = dm.get("messages").getAsJsonArray();
-			reader.close();
-
-			ArrayList<PrivateChatMessage> messages = new ArrayList<PrivateChatMessage>();
-			for (JsonElement ele : data) {
-				JsonObject msg = ele.getAsJsonObject();
-				String source = msg.get("source").getAsString();
-
-				if (SocialManager.getInstance().socialListExists(requester)
-						&& SocialManager.getInstance().getPlayerIsBlocked(requester, source))
-					continue;
-
-				PrivateChatMessage message = new PrivateChatMessage();
-				message.content = msg.get("content").getAsString();
-				message.source = source;
-				message.sentAt = msg.get("sentAt").getAsString();
-				messages.add(message);
+	@Override
+	public PrivateChatMessage[] getDMHistory(String dmID, String requester, int offset, int count) {
+		DMLog log = getLog(dmID);
+
+		// Read segments from newest to oldest until the page is complete
+		ArrayList<PrivateChatMessage> messages = new ArrayList<PrivateChatMessage>();
+		int skipped = 0;
+		synchronized (log) {
+			for (int segment = log.lastSegment; segment >= log.firstSegment
+					&& messages.size() < count; segment--) {
+				List<String> lines = readSegment(log, segment);
+				for (int i = lines.size() - 1; i >= 0 && messages.size() < count; i--) {
+					JsonObject msg = parseMessage(lines.get(i));
+					if (msg == null)
+						continue;
+					String source = msg.get("source").getAsString();
+
+					if (SocialManager.getInstance().socialListExists(requester)
+							&& SocialManager.getInstance().getPlayerIsBlocked(requester, source))
+						continue;
+					if (skipped < offset) {
+						skipped++;
+						continue;
+					}
+
+					PrivateChatMessage message = new PrivateChatMessage();
+					message.content = msg.get("content").getAsString();
+					message.source = source;
+					message.sentAt = msg.get("sentAt").getAsString();
+					messages.add(message);
+				}
 			}
-			return messages.toArray(t -> new PrivateChatMessage[t]);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
 		}
+
+		// Oldest first
+		Collections.reverse(messages);
+		return messages.toArray(t -> new PrivateChatMessage[t]);
 	}
 
 	@Override
 	public void saveDMMessge(String dmID, PrivateChatMessage message) {
+		DMLog log = getLog(dmID);
+
+		// Build message
+		JsonObject msg = new JsonObject();
+		msg.addProperty("content", message.content);
+		msg.addProperty("source", message.source);
+		msg.addProperty("sentAt", message.sentAt);
+
+		synchronized (log) {
+			if (log.deleted)
+				throw new IllegalArgumentException("DM not found");
+
+			// Start a new segment if the current one is full
+			if (log.lastSegmentSize >= SEGMENT_SIZE) {
+				log.lastSegment++;
+				log.lastSegmentSize = 0;
+			}
+
+			// Append to the log
+			try {
+				Files.writeString(segmentFile(log, log.lastSegment).toPath(), msg.toString() + "\n",
+						StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			log.lastSegmentSize++;
+
+			// Old segments are removed in the background
+			if (canCompact(log))
+				scheduleCompaction(log);
+		}
+	}
+
+	@Override
+	public String[] getDMParticipants(String dmID) {
+		return getLog(dmID).participants.clone();
+	}
+
+	@Override
+	public void deleteDM(String dmID) {
+		if (!dmExists(dmID))
+			return;
+
+		String id = UUID.fromString(dmID).toString();
+		DMLog log = logs.remove(id);
+		if (log != null) {
+			synchronized (log) {
+				log.deleted = true;
+			}
+		}
+		deleteDir(new File("dms/" + id));
+		new File("dms/" + id + ".json").delete();
+	}
+
+	private DMLog getLog(String dmID) {
 		if (!dmExists(dmID))
 			throw new IllegalArgumentException("DM not found");
 
+		String id = UUID.fromString(dmID).toString();
+		DMLog log = logs.get(id);
+		if (log != null)
+			return log;
+		synchronized (logs) {
+			log = logs.get(id);
+			if (log != null)
+				return log;
+			try {
+				log = loadLog(id);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			logs.put(id, log);
+			return log;
+		}
+	}
+
+	private DMLog loadLog(String id) throws IOException {
+		DMLog log = new DMLog();
+		log.dir = new File("dms/" + id);
+
+		// Convert conversations saved in a single file
+		File legacyFile = new File("dms/" + id + ".json");
+		if (legacyFile.exists() && !new File(log.dir, "participants.json").exists()) {
+			JsonObject dm = JsonParser.parseString(Files.readString(legacyFile.toPath())).getAsJsonObject();
+			log.dir.mkdirs();
+			StringBuilder segment = new StringBuilder();
+			for (JsonElement msg : dm.get("messages").getAsJsonArray())
+				segment.append(msg.toString()).append("\n");
+			Files.writeString(segmentFile(log, 0).toPath(), segment.toString());
+			Files.writeString(new File(log.dir, "participants.json").toPath(), dm.get("participants").toString());
+			legacyFile.delete();
+		}
+
+		// Load participants
+		ArrayList<String> participants = new ArrayList<String>();
+		for (JsonElement ele : JsonParser
+				.parseString(Files.readString(new File(log.dir, "participants.json").toPath())).getAsJsonArray()) {
+			participants.add(ele.getAsString());
+		}
+		log.participants = participants.toArray(t -> new String[t]);
+
+		// Index segments
+		log.firstSegment = Integer.MAX_VALUE;
+		log.lastSegment = -1;
+		for (File file : log.dir.listFiles(t -> t.isFile() && t.getName().matches("^[0-9]+\\.log$"))) {
+			int segment = Integer.parseInt(file.getName().substring(0, file.getName().length() - 4));
+			log.firstSegment = Math.min(log.firstSegment, segment);
+			log.lastSegment = Math.max(log.lastSegment, segment);
+		}
+		if (log.lastSegment == -1) {
+			log.firstSegment = 0;
+			log.lastSegment = 0;
+		} else {
+			// Cut off a line left unterminated by a crash, the next message would be
+			// appended to it otherwise
+			Path last = segmentFile(log, log.lastSegment).toPath();
+			String data = Files.readString(last);
+			if (!data.isEmpty() && !data.endsWith("\n"))
+				Files.writeString(last, data.substring(0, data.lastIndexOf('\n') + 1));
+			log.lastSegmentSize = readSegment(log, log.lastSegment).size();
+		}
+		return log;
+	}
+
+	private static File segmentFile(DMLog log, int segment) {
+		return new File(log.dir, segment + ".log");
+	}
+
+	private static List<String> readSegment(DMLog log, int segment) {
+		Path file = segmentFile(log, segment).toPath();
 		try {
-			// Parse DM
-			FileReader reader = new FileReader("dms/" + UUID.fromString(dmID) + ".json");
-			JsonObject dm = JsonParser.parseReader(reader).getAsJsonObject();
-			JsonArray data = dm.get("messages").getAsJsonArray();
-			reader.close();
-
-			// Remove first message if the chat is too long
-			if (data.size() >= 20)
-				data.remove(0);
-
-			// Add message
-			JsonObject msg = new JsonObject();
-			msg.addProperty("content", message.content);
-			msg.addProperty("source", message.source);
-			msg.addProperty("sentAt", message.sentAt);
-			data.add(msg);
-
-			// Save to disk
-			while (activeIDs.contains(dmID))
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					break;
-				}
-			activeIDs.add(dmID);
-			Files.writeString(Path.of("dms/" + UUID.fromString(dmID) + ".json"), dm.toString());
-			activeIDs.remove(dmID);
+			if (!Files.exists(file))
+				return List.of();
+			return Files.readAllLines(file);
 		} catch (IOException e) {
-			if (activeIDs.contains(dmID))
-				activeIDs.remove(dmID);
 			throw new RuntimeException(e);
 		}
 	}
 
-	@Override
-	public String[] getDMParticipants(String dmID) {
-		ArrayList<String> participants = new ArrayList<String>();
+	private static JsonObject parseMessage(String line) {
+		// Lines cut off by a crash are skipped
 		try {
-			// Parse DM
-			FileReader reader = new FileReader("dms/" + UUID.fromString(dmID) + ".json");
-			JsonObject dm = JsonParser.parseReader(reader).getAsJsonObject();
-			JsonArray data = dm.get("participants").getAsJsonArray();
-			reader.close();
-
-			// Add participants
-			for (JsonElement ele : data) {
-				participants.add(ele.getAsString());
+			return JsonParser.parseString(line).getAsJsonObject();
+		} catch (JsonParseException | IllegalStateException e) {
+			return null;
+		}
+	}
+
+	private void scheduleCompaction(DMLog log) {
+		compactionQueue.add(log);
+		synchronized (compactionQueue) {
+			if (compactionThread != null)
+				return;
+			compactionThread = new Thread(() -> {
+				while (true) {
+					try {
+						Thread.sleep(COMPACTION_INTERVAL);
+					} catch (InterruptedException e) {
+						break;
+					}
+					for (DMLog pending : compactionQueue) {
+						compactionQueue.remove(pending);
+						compact(pending);
+					}
+				}
+			}, "DM Compaction");
+			compactionThread.setDaemon(true);
+			compactionThread.start();
+		}
+	}
+
+	// Checks if the oldest segment is no longer needed to fill the history
+	private static boolean canCompact(DMLog log) {
+		return (log.lastSegment - log.firstSegment - 1) * SEGMENT_SIZE + log.lastSegmentSize >= MAX_HISTORY;
+	}
+
+	// Removes the segments that only hold messages past the history limit
+	private void compact(DMLog log) {
+		synchronized (log) {
+			if (log.deleted)
+				return;
+			while (canCompact(log)) {
+				segmentFile(log, log.firstSegment).delete();
+				log.firstSegment++;
 			}
-		} catch (IOException e) {
-			throw new RuntimeException(e);
 		}
-		return participants.toArray(t -> new String[t]);
 	}
 
-	@Override
-	public void deleteDM(String dmID) {
-		if (dmExists(dmID))
-			new File("dms/" + UUID.fromString(dmID) + ".json").delete();
+	private void deleteDir(File dir) {
+		if (!dir.exists())
+			return;
+
+		for (File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
 	}
 
 }
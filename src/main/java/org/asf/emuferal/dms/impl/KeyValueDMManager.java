@@ -0,0 +1,144 @@
+package org.asf.emuferal.dms.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import org.asf.emuferal.dms.DMManager;
+import org.asf.emuferal.dms.PrivateChatMessage;
+import org.asf.emuferal.social.SocialManager;
+import org.asf.emuferal.storage.KeyValueStore;
+import org.asf.emuferal.storage.RecordBatch;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ *
+ * DM manager backed by a key-value store, the participants are stored in
+ * <code>dm/&lt;id&gt;</code> and each message in
+ * <code>dm/&lt;id&gt;/&lt;sequence number&gt;</code> so saving a message does
+ * not rewrite the conversation
+ *
+ */
+public class KeyValueDMManager extends DMManager {
+
+	private KeyValueStore store;
+
+	public KeyValueDMManager(KeyValueStore store) {
+		this.store = store;
+	}
+
+	@Override
+	public synchronized void openDM(String dmID, String[] participants) {
+		try {
+			if (!dmExists(dmID)) {
+				JsonArray participantObjects = new JsonArray();
+				for (String p : participants)
+					participantObjects.add(p);
+				store.putString("dm/" + UUID.fromString(dmID), participantObjects.toString());
+			}
+		} catch (Exception e) {
+		}
+	}
+
+	@Override
+	public boolean dmExists(String dmID) {
+		try {
+			return store.contains("dm/" + UUID.fromString(dmID));
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	@Override
+	public PrivateChatMessage[] getDMHistory(String dmID, String requester) {
+		if (!dmExists(dmID))
+			throw new IllegalArgumentException("DM not found");
+
+		ArrayList<PrivateChatMessage> messages = new ArrayList<PrivateChatMessage>();
+		for (String key : store.keys("dm/" + UUID.fromString(dmID) + "/")) {
+			String data = store.getString(key);
+			if (data == null)
+				continue;
+			JsonObject msg = JsonParser.parseString(data).getAsJsonObject();
+			String source = msg.get("source").getAsString();
+
+			if (SocialManager.getInstance().socialListExists(requester)
+					&& SocialManager.getInstance().getPlayerIsBlocked(requester, source))
+				continue;
+
+			PrivateChatMessage message = new PrivateChatMessage();
+			message.content = msg.get("content").getAsString();
+			message.source = source;
+			message.sentAt = msg.get("sentAt").getAsString();
+			messages.add(message);
+		}
+		return messages.toArray(t -> new PrivateChatMessage[t]);
+	}
+
+	@Override
+	public synchronized void saveDMMessge(String dmID, PrivateChatMessage message) {
+		if (!dmExists(dmID))
+			throw new IllegalArgumentException("DM not found");
+
+		String prefix = "dm/" + UUID.fromString(dmID) + "/";
+		String[] keys = store.keys(prefix);
+
+		// Find the next sequence number, keys are sorted
+		long sequence = 0;
+		if (keys.length != 0)
+			sequence = Long.parseLong(keys[keys.length - 1].substring(prefix.length())) + 1;
+
+		// Add message
+		JsonObject msg = new JsonObject();
+		msg.addProperty("content", message.content);
+		msg.addProperty("source", message.source);
+		msg.addProperty("sentAt", message.sentAt);
+		RecordBatch batch = new RecordBatch().putString(prefix + String.format("%016d", sequence), msg.toString());
+
+		// Remove the oldest messages if the chat is too long
+		for (int i = 0; i <= keys.length - MAX_HISTORY; i++)
+			batch.delete(keys[i]);
+
+		try {
+			store.write(batch);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public String[] getDMParticipants(String dmID) {
+		String data = store.getString("dm/" + UUID.fromString(dmID));
+		if (data == null)
+			throw new RuntimeException(new IOException("DM not found: " + dmID));
+
+		// Add participants
+		ArrayList<String> participants = new ArrayList<String>();
+		for (JsonElement ele : JsonParser.parseString(data).getAsJsonArray()) {
+			participants.add(ele.getAsString());
+		}
+		return participants.toArray(t -> new String[t]);
+	}
+
+	@Override
+	public synchronized void deleteDM(String dmID) {
+		if (!dmExists(dmID))
+			return;
+
+		// Delete the participants and all messages at once
+		String id = UUID.fromString(dmID).toString();
+		RecordBatch batch = new RecordBatch().delete("dm/" + id);
+		for (String key : store.keys("dm/" + id + "/"))
+			batch.delete(key);
+		try {
+			store.write(batch);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
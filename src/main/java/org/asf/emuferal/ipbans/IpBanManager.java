@@ -15,6 +15,15 @@ public abstract class IpBanManager {
 		return implementation;
 	}
 
+	/**
+	 * Overrides the active IP ban manager
+	 * 
+	 * @param manager New IpBanManager instance
+	 */
+	public static void setInstance(IpBanManager manager) {
+		implementation = manager;
+	}
+
 	/**
 	 * Bans a IP address
 	 * 
@@ -0,0 +1,46 @@
+package org.asf.emuferal.ipbans.impl;
+
+import java.io.IOException;
+
+import org.asf.emuferal.ipbans.IpBanManager;
+import org.asf.emuferal.storage.KeyValueStore;
+
+/**
+ *
+ * IP ban manager backed by a key-value store, each ban is a record keyed by
+ * <code>ipban/&lt;lowercase ip&gt;</code>
+ *
+ */
+public class KeyValueIpBanManager extends IpBanManager {
+
+	private KeyValueStore store;
+
+	public KeyValueIpBanManager(KeyValueStore store) {
+		this.store = store;
+	}
+
+	@Override
+	public void banIP(String ip) {
+		try {
+			store.putString("ipban/" + ip.toLowerCase(), ip);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void unbanIP(String ip) {
+		try {
+			if (isIPBanned(ip))
+				store.delete("ipban/" + ip.toLowerCase());
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public boolean isIPBanned(String ip) {
+		return store.contains("ipban/" + ip.toLowerCase());
+	}
+
+}
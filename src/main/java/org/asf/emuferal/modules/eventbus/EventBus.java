@@ -36,4 +36,11 @@ public abstract class EventBus {
 	 */
 	public abstract void dispatchEvent(EventObject event);
 
+	/**
+	 * Retrieves the latency metrics of all registered listeners
+	 * 
+	 * @return Array of EventListenerMetrics instances
+	 */
+	public abstract EventListenerMetrics[] getListenerMetrics();
+
 }
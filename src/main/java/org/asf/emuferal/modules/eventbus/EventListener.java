@@ -17,4 +17,19 @@ import java.lang.annotation.Target;
 @Retention(RUNTIME)
 @Target(METHOD)
 public @interface EventListener {
+
+	/**
+	 * Defines the listener priority, listeners with a higher priority are called
+	 * first
+	 */
+	public int priority() default 0;
+
+	/**
+	 * Defines if the event should be delivered on a event dispatch thread instead
+	 * of the thread dispatching the event, only used for events annotated with
+	 * {@link NonCancellable}. Use this for slow listeners (such as listeners
+	 * calling external services) so they don't delay packet handling.
+	 */
+	public boolean async() default false;
+
 }
@@ -0,0 +1,107 @@
+package org.asf.emuferal.modules.eventbus;
+
+/**
+ * 
+ * Latency metrics of a registered event listener
+ * 
+ * @see EventBus#getListenerMetrics()
+ *
+ */
+public class EventListenerMetrics {
+
+	private String listener;
+	private String eventPath;
+	private int priority;
+	private boolean async;
+	private long calls;
+	private long averageTime;
+	private long maxTime;
+	private long callerRuns;
+
+	public EventListenerMetrics(String listener, String eventPath, int priority, boolean async, long calls,
+			long averageTime, long maxTime, long callerRuns) {
+		this.listener = listener;
+		this.eventPath = eventPath;
+		this.priority = priority;
+		this.async = async;
+		this.calls = calls;
+		this.averageTime = averageTime;
+		this.maxTime = maxTime;
+		this.callerRuns = callerRuns;
+	}
+
+	/**
+	 * Retrieves the listener name
+	 * 
+	 * @return Listener name (class name and method name)
+	 */
+	public String getListener() {
+		return listener;
+	}
+
+	/**
+	 * Retrieves the event path the listener is registered for
+	 * 
+	 * @return Event path string
+	 */
+	public String getEventPath() {
+		return eventPath;
+	}
+
+	/**
+	 * Retrieves the listener priority
+	 * 
+	 * @return Listener priority
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Checks if the listener receives events asynchronously
+	 * 
+	 * @return True if asynchronous, false otherwise
+	 */
+	public boolean isAsync() {
+		return async;
+	}
+
+	/**
+	 * Retrieves the amount of times the listener was called
+	 * 
+	 * @return Call count
+	 */
+	public long getCalls() {
+		return calls;
+	}
+
+	/**
+	 * Retrieves the average time spent in the listener, synchronous listeners are
+	 * only timed for a sample of the calls
+	 * 
+	 * @return Time in nanoseconds
+	 */
+	public long getAverageTime() {
+		return averageTime;
+	}
+
+	/**
+	 * Retrieves the longest measured time spent in the listener
+	 * 
+	 * @return Time in nanoseconds
+	 */
+	public long getMaxTime() {
+		return maxTime;
+	}
+
+	/**
+	 * Retrieves the amount of times a asynchronous event was delivered on the
+	 * dispatching thread because the event dispatch queue was full
+	 * 
+	 * @return Caller run count
+	 */
+	public long getCallerRuns() {
+		return callerRuns;
+	}
+
+}
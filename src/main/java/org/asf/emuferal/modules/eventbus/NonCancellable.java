@@ -0,0 +1,20 @@
+package org.asf.emuferal.modules.eventbus;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * 
+ * Marks a event as non-cancellable, the code dispatching it does not use the
+ * result of the listeners so listeners may receive it asynchronously.
+ * 
+ * @see EventListener#async()
+ *
+ */
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface NonCancellable {
+}
@@ -1,19 +1,73 @@
 package org.asf.emuferal.modules.eventbus.impl;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 import org.asf.emuferal.modules.eventbus.EventBus;
 import org.asf.emuferal.modules.eventbus.EventListener;
+import org.asf.emuferal.modules.eventbus.EventListenerMetrics;
 import org.asf.emuferal.modules.eventbus.EventObject;
 import org.asf.emuferal.modules.eventbus.EventPath;
 import org.asf.emuferal.modules.eventbus.IEventReceiver;
+import org.asf.emuferal.modules.eventbus.NonCancellable;
 
 public class EventBusImpl extends EventBus {
 
-	private HashMap<String, HashMap<Method, IEventReceiver>> listeners = new HashMap<String, HashMap<Method, IEventReceiver>>();
+	private static final RegisteredListener[] NO_LISTENERS = new RegisteredListener[0];
+
+	private static final int ASYNC_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+	private static final int ASYNC_QUEUE_SIZE = 4096;
+	private static final int SAMPLE_RATE = 16;
+
+	// Listener method -> factory creating direct callers for a receiver
+	private static ConcurrentHashMap<Method, MethodHandle> factories = new ConcurrentHashMap<Method, MethodHandle>();
+
+	// Event path -> listeners, the arrays are replaced when listeners are added so
+	// dispatching never needs to lock
+	private ConcurrentHashMap<String, RegisteredListener[]> listeners = new ConcurrentHashMap<String, RegisteredListener[]>();
+
+	// Executor for asynchronous listeners, created when the first asynchronous
+	// listener is registered
+	private volatile ThreadPoolExecutor asyncExecutor;
+
+	private static class RegisteredListener {
+		Consumer<EventObject> invoker;
+		String name;
+		String eventPath;
+		int priority;
+		boolean async;
+
+		// Synchronous listeners are timed once every SAMPLE_RATE calls, the call
+		// counter is not synchronized as it is only used for sampling and statistics
+		long calls;
+		LongAdder samples = new LongAdder();
+		LongAdder totalTime = new LongAdder();
+		AtomicLong maxTime = new AtomicLong();
+		LongAdder callerRuns = new LongAdder();
+
+		void record(long time) {
+			samples.increment();
+			totalTime.add(time);
+			long max = maxTime.get();
+			while (time > max && !maxTime.compareAndSet(max, time))
+				max = maxTime.get();
+		}
+	}
 
 	@Override
 	public void addEventReceiver(IEventReceiver receiver) {
@@ -32,12 +86,37 @@ public class EventBusImpl extends EventBus {
 					if (eventType.isAnnotationPresent(EventPath.class)) {
 						EventPath info = eventType.getAnnotation(EventPath.class);
 
+						EventListener options = meth.getAnnotation(EventListener.class);
+
 						// Add listener
-						meth.setAccessible(true);
-						String path = info.value();
-						if (!listeners.containsKey(path))
-							listeners.put(path, new HashMap<Method, IEventReceiver>());
-						listeners.get(path).put(meth, receiver);
+						RegisteredListener listener = new RegisteredListener();
+						listener.invoker = compile(meth, receiver);
+						listener.name = receiver.getClass().getTypeName() + "." + meth.getName();
+						listener.eventPath = info.value();
+						listener.priority = options.priority();
+						listener.async = options.async();
+						if (listener.async && !eventType.isAnnotationPresent(NonCancellable.class)) {
+							// The dispatcher uses the result of this event
+							System.err.println("Warning: event " + info.value() + " is cancellable, listener "
+									+ listener.name + " will receive it synchronously");
+							listener.async = false;
+						}
+						if (listener.async)
+							startAsyncExecutor();
+						listeners.compute(info.value(), (path, current) -> {
+							if (current == null)
+								current = NO_LISTENERS;
+
+							// Insert after all listeners with the same or a higher priority
+							int index = current.length;
+							while (index > 0 && current[index - 1].priority < listener.priority)
+								index--;
+							RegisteredListener[] newListeners = new RegisteredListener[current.length + 1];
+							System.arraycopy(current, 0, newListeners, 0, index);
+							newListeners[index] = listener;
+							System.arraycopy(current, index, newListeners, index + 1, current.length - index);
+							return newListeners;
+						});
 					}
 
 				}
@@ -47,19 +126,148 @@ public class EventBusImpl extends EventBus {
 
 	@Override
 	public void dispatchEvent(EventObject event) {
-		if (listeners.containsKey(event.eventPath())) {
-			// Dispatch event
-			HashMap<Method, IEventReceiver> listeners = this.listeners.get(event.eventPath());
-			for (Method mth : listeners.keySet()) {
-				if (event.isHandled())
-					return; // End loop, event was handled
+		RegisteredListener[] listeners = this.listeners.get(event.eventPath());
+		if (listeners == null)
+			return;
+
+		// Dispatch event
+		for (RegisteredListener listener : listeners) {
+			if (event.isHandled())
+				return; // End loop, event was handled
 
+			if (listener.async) {
+				dispatchAsync(listener, event);
+				continue;
+			}
+
+			if (listener.calls++ % SAMPLE_RATE != 0) {
 				try {
-					mth.invoke(listeners.get(mth), event);
-				} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+					listener.invoker.accept(event);
+				} catch (Exception e) {
 					throw new RuntimeException(e);
 				}
+				continue;
+			}
+
+			long start = System.nanoTime();
+			try {
+				listener.invoker.accept(event);
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			} finally {
+				listener.record(System.nanoTime() - start);
 			}
 		}
 	}
+
+	@Override
+	public EventListenerMetrics[] getListenerMetrics() {
+		ArrayList<EventListenerMetrics> metrics = new ArrayList<EventListenerMetrics>();
+		for (RegisteredListener[] eventListeners : listeners.values()) {
+			for (RegisteredListener listener : eventListeners) {
+				long samples = listener.samples.sum();
+				metrics.add(new EventListenerMetrics(listener.name, listener.eventPath, listener.priority,
+						listener.async, listener.async ? samples : listener.calls,
+						samples == 0 ? 0 : listener.totalTime.sum() / samples, listener.maxTime.get(),
+						listener.callerRuns.sum()));
+			}
+		}
+		return metrics.toArray(t -> new EventListenerMetrics[t]);
+	}
+
+	private void dispatchAsync(RegisteredListener listener, EventObject event) {
+		Runnable task = () -> {
+			long start = System.nanoTime();
+			try {
+				listener.invoker.accept(event);
+			} catch (Throwable e) {
+				// Nothing to report the error to
+				System.err.println("Exception in asynchronous event listener " + listener.name + ":");
+				e.printStackTrace();
+			} finally {
+				listener.record(System.nanoTime() - start);
+			}
+		};
+		try {
+			asyncExecutor.execute(task);
+		} catch (RejectedExecutionException e) {
+			// Queue is full, deliver on this thread so slow listeners slow down the
+			// dispatcher instead of growing the queue
+			listener.callerRuns.increment();
+			task.run();
+		}
+	}
+
+	private synchronized void startAsyncExecutor() {
+		if (asyncExecutor != null)
+			return;
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(ASYNC_THREADS, ASYNC_THREADS, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(ASYNC_QUEUE_SIZE), r -> {
+					Thread th = new Thread(r, "Event Dispatch Thread");
+					th.setDaemon(true);
+					return th;
+				}, new ThreadPoolExecutor.AbortPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		asyncExecutor = executor;
+	}
+
+	// Creates a direct caller for a listener method, listeners that cannot be
+	// accessed with full privileges (such as module classes, which are in a
+	// different class loader) are called through a method handle instead
+	@SuppressWarnings("unchecked")
+	private static Consumer<EventObject> compile(Method meth, IEventReceiver receiver) {
+		try {
+			MethodHandle factory = factories.get(meth);
+			if (factory == null) {
+				Class<?> owner = meth.getDeclaringClass();
+				MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+				if (!lookup.hasFullPrivilegeAccess()) {
+					System.out.println("Listener " + owner.getTypeName() + "." + meth.getName()
+							+ " cannot be compiled from this class loader, using a method handle");
+					return bind(meth, receiver);
+				}
+
+				// Generate the caller class, this is done once per method
+				MethodHandle handle = lookup.unreflect(meth);
+				CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+						MethodType.methodType(Consumer.class, owner), MethodType.methodType(void.class, Object.class),
+						handle, MethodType.methodType(void.class, meth.getParameterTypes()[0]));
+				factory = site.getTarget();
+				factories.put(meth, factory);
+			}
+			return (Consumer<EventObject>) factory.invoke(receiver);
+		} catch (Throwable e) {
+			System.err.println("Warning: failed to compile listener " + meth.getDeclaringClass().getTypeName() + "."
+					+ meth.getName() + ", using a method handle: " + e);
+			return bind(meth, receiver);
+		}
+	}
+
+	// Creates a caller using a method handle bound to the receiver, only falls
+	// back to reflection if the method cannot be unreflected at all
+	private static Consumer<EventObject> bind(Method meth, IEventReceiver receiver) {
+		meth.setAccessible(true);
+		MethodHandle handle;
+		try {
+			handle = MethodHandles.lookup().unreflect(meth).bindTo(receiver)
+					.asType(MethodType.methodType(void.class, Object.class));
+		} catch (IllegalAccessException e) {
+			return event -> {
+				try {
+					meth.invoke(receiver, event);
+				} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e2) {
+					throw new RuntimeException(e2);
+				}
+			};
+		}
+		return event -> {
+			try {
+				handle.invokeExact((Object) event);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new RuntimeException(e);
+			}
+		};
+	}
 }
@@ -3,6 +3,7 @@ package org.asf.emuferal.modules.events.accounts;
 import org.asf.emuferal.accounts.EmuFeralAccount;
 import org.asf.emuferal.modules.eventbus.EventObject;
 import org.asf.emuferal.modules.eventbus.EventPath;
+import org.asf.emuferal.modules.eventbus.NonCancellable;
 
 /**
  * 
@@ -11,6 +12,7 @@ import org.asf.emuferal.modules.eventbus.EventPath;
  * @author Sky Swimmer - AerialWorks Software Foundation
  *
  */
+@NonCancellable
 @EventPath("accounts.pardon")
 public class AccountPardonEvent extends EventObject {
 
@@ -3,6 +3,7 @@ package org.asf.emuferal.modules.events.interactions;
 import org.asf.emuferal.interactions.dataobjects.NetworkedObject;
 import org.asf.emuferal.modules.eventbus.EventObject;
 import org.asf.emuferal.modules.eventbus.EventPath;
+import org.asf.emuferal.modules.eventbus.NonCancellable;
 import org.asf.emuferal.players.Player;
 
 /**
@@ -13,6 +14,7 @@ import org.asf.emuferal.players.Player;
  * @author Sky Swimmer - AerialWorks Software Foundation
  *
  */
+@NonCancellable
 @EventPath("interaction.cancel")
 public class InteractionCancelEvent extends EventObject {
 
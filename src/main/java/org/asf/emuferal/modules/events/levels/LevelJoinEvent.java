@@ -2,6 +2,7 @@ package org.asf.emuferal.modules.events.levels;
 
 import org.asf.emuferal.modules.eventbus.EventObject;
 import org.asf.emuferal.modules.eventbus.EventPath;
+import org.asf.emuferal.modules.eventbus.NonCancellable;
 import org.asf.emuferal.players.Player;
 
 /**
@@ -11,6 +12,7 @@ import org.asf.emuferal.players.Player;
  * @author Sky Swimmer - AerialWorks Software Foundation
  *
  */
+@NonCancellable
 @EventPath("level.join")
 public class LevelJoinEvent extends EventObject {
 
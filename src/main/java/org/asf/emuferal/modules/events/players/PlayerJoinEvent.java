@@ -3,6 +3,7 @@ package org.asf.emuferal.modules.events.players;
 import org.asf.emuferal.accounts.EmuFeralAccount;
 import org.asf.emuferal.modules.eventbus.EventObject;
 import org.asf.emuferal.modules.eventbus.EventPath;
+import org.asf.emuferal.modules.eventbus.NonCancellable;
 import org.asf.emuferal.networking.gameserver.GameServer;
 import org.asf.emuferal.networking.smartfox.SmartfoxClient;
 import org.asf.emuferal.players.Player;
@@ -14,6 +15,7 @@ import org.asf.emuferal.players.Player;
  * @author Sky Swimmer - AerialWorks Software Foundation
  *
  */
+@NonCancellable
 @EventPath("players.join")
 public class PlayerJoinEvent extends EventObject {
 
@@ -4,7 +4,6 @@ import java.io.IOException;
 import java.io.Reader;
 import java.net.Socket;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 
@@ -14,7 +13,10 @@ import org.asf.emuferal.accounts.EmuFeralAccount;
 import org.asf.emuferal.networking.chatserver.networking.AbstractChatPacket;
 import org.asf.emuferal.networking.gameserver.GameServer;
 import org.asf.emuferal.players.Player;
+import org.asf.emuferal.security.TokenClaims;
+import org.asf.emuferal.security.TokenValidator;
 import org.asf.emuferal.util.TaskThread;
+import org.asf.emuferal.util.ThreadUtil;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -29,6 +31,10 @@ public class ChatClient {
 	private ArrayList<String> rooms = new ArrayList<String>();
 	private HashMap<String, Boolean> privateChat = new HashMap<String, Boolean>();
 
+	// Room index state, guarded by the room list
+	private boolean indexed = false;
+	private boolean stopped = false;
+
 	// Anti-hack
 	public int banCounter = 0;
 
@@ -62,7 +68,7 @@ public class ChatClient {
 
 		});
 
-		Thread th = new Thread(() -> {
+		Thread th = ThreadUtil.createClientThread(() -> {
 			while (isConnected()) {
 				try {
 					Thread.sleep(1000);
@@ -71,14 +77,31 @@ public class ChatClient {
 				banCounter = 0;
 			}
 		}, "Anti-hack thread: " + client);
-		th.setDaemon(true);
 		th.start();
 	}
 
 	void stop() {
 		taskThread.stopCleanly();
-		rooms.clear();
-		privateChat.clear();
+		synchronized (rooms) {
+			stopped = true;
+			indexed = false;
+			for (String room : rooms)
+				server.removeFromRoom(this, room);
+			rooms.clear();
+			privateChat.clear();
+		}
+	}
+
+	// Adds the client to the room index of the server, called once the client has
+	// logged in so half-connected clients don't receive room messages
+	void addToRoomIndex() {
+		synchronized (rooms) {
+			if (stopped)
+				return;
+			indexed = true;
+			for (String room : rooms)
+				server.addToRoom(this, room);
+		}
 	}
 
 	// Client init
@@ -96,30 +119,15 @@ public class ChatClient {
 		// Parse payload
 		String token = handshakeStart.get("auth_token").getAsString();
 
-		// Verify signature
-		String verifyD = token.split("\\.")[0] + "." + token.split("\\.")[1];
-		String sig = token.split("\\.")[2];
-		if (!EmuFeral.verify(verifyD.getBytes("UTF-8"), Base64.getUrlDecoder().decode(sig))) {
+		// Verify token
+		TokenClaims claims = TokenValidator.validate(token);
+		if (claims == null) {
 			disconnect();
 			return;
 		}
 
-		// Verify expiry
-		JsonObject jwtPl = JsonParser
-				.parseString(new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), "UTF-8"))
-				.getAsJsonObject();
-		if (!jwtPl.has("exp") || jwtPl.get("exp").getAsLong() < System.currentTimeMillis() / 1000) {
-			disconnect();
-			return;
-		}
-
-		// Parse JWT
-		JsonObject payload = JsonParser
-				.parseString(new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), "UTF-8"))
-				.getAsJsonObject();
-
 		// Locate account
-		EmuFeralAccount acc = AccountManager.getInstance().getAccount(payload.get("uuid").getAsString());
+		EmuFeralAccount acc = AccountManager.getInstance().getAccount(claims.getAccountID());
 		if (acc == null) {
 			disconnect();
 			return;
@@ -376,14 +384,11 @@ public class ChatClient {
 	 * @param room Room to leave
 	 */
 	public void leaveRoom(String room) {
-		while (true) {
-			try {
-				if (rooms.contains(room)) {
-					rooms.remove(room);
-					privateChat.remove(room);
-				}
-				break;
-			} catch (ConcurrentModificationException e) {
+		synchronized (rooms) {
+			if (rooms.contains(room)) {
+				rooms.remove(room);
+				privateChat.remove(room);
+				server.removeFromRoom(this, room);
 			}
 		}
 	}
@@ -395,14 +400,14 @@ public class ChatClient {
 	 * @param isPrivate True if the room is a private room, false otherwise
 	 */
 	public void joinRoom(String room, boolean isPrivate) {
-		while (true) {
-			try {
-				if (!rooms.contains(room)) {
-					rooms.add(room);
-					privateChat.put(room, isPrivate);
-				}
-				break;
-			} catch (ConcurrentModificationException e) {
+		synchronized (rooms) {
+			if (stopped)
+				return;
+			if (!rooms.contains(room)) {
+				rooms.add(room);
+				privateChat.put(room, isPrivate);
+				if (indexed)
+					server.addToRoom(this, room);
 			}
 		}
 	}
@@ -6,6 +6,8 @@ import java.net.Socket;
 import java.net.SocketException;
 import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.asf.emuferal.dms.DMManager;
 import org.asf.emuferal.dms.PrivateChatMessage;
@@ -20,6 +22,7 @@ import org.asf.emuferal.networking.chatserver.networking.OpenDMPacket;
 import org.asf.emuferal.networking.chatserver.networking.PingPacket;
 import org.asf.emuferal.networking.chatserver.networking.SendMessage;
 import org.asf.emuferal.networking.chatserver.networking.UserConversations;
+import org.asf.emuferal.util.ThreadUtil;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonIOException;
@@ -29,6 +32,8 @@ public class ChatServer {
 
 	private ServerSocket server;
 	private ArrayList<ChatClient> clients = new ArrayList<ChatClient>();
+	private ConcurrentHashMap<String, Set<ChatClient>> rooms = new ConcurrentHashMap<String, Set<ChatClient>>();
+	private ConcurrentHashMap<String, ChatClient> accountClients = new ConcurrentHashMap<String, ChatClient>();
 	ArrayList<AbstractChatPacket> registry = new ArrayList<AbstractChatPacket>();
 
 	public ChatServer(ServerSocket socket) {
@@ -61,6 +66,46 @@ public class ChatServer {
 		}
 	}
 
+	/**
+	 * Retrieves all clients in a chat room
+	 * 
+	 * @param room Room ID
+	 * @return Array of ChatClient instances
+	 */
+	public ChatClient[] getClientsInRoom(String room) {
+		Set<ChatClient> members = rooms.get(room);
+		if (members == null)
+			return new ChatClient[0];
+		return members.toArray(t -> new ChatClient[t]);
+	}
+
+	/**
+	 * Retrieves the chat client of a player
+	 * 
+	 * @param accountID Account ID
+	 * @return ChatClient instance or null if the player is not connected to chat
+	 */
+	public ChatClient getClient(String accountID) {
+		return accountClients.get(accountID);
+	}
+
+	// Room index, maintained by ChatClient when joining and leaving rooms
+	void addToRoom(ChatClient client, String room) {
+		rooms.compute(room, (id, members) -> {
+			if (members == null)
+				members = ConcurrentHashMap.newKeySet();
+			members.add(client);
+			return members;
+		});
+	}
+
+	void removeFromRoom(ChatClient client, String room) {
+		rooms.computeIfPresent(room, (id, members) -> {
+			members.remove(client);
+			return members.isEmpty() ? null : members;
+		});
+	}
+
 	/**
 	 * Runs the server
 	 */
@@ -91,14 +136,17 @@ public class ChatServer {
 		ChatClient client = new ChatClient(clientSocket, this);
 
 		// Start the client thread
-		Thread th = new Thread(() -> {
+		Thread th = ThreadUtil.createClientThread(() -> {
 			try {
 				// Run start code
 				client.runClient();
 
 				// Add client
-				if (client.isConnected())
+				if (client.isConnected()) {
 					clients.add(client);
+					accountClients.put(client.getPlayer().getAccountID(), client);
+					client.addToRoomIndex();
+				}
 
 				// Client loop
 				while (client.getSocket() != null) {
@@ -120,6 +168,7 @@ public class ChatServer {
 					System.out.println(
 							"Player " + client.getPlayer().getDisplayName() + " disconnected from the chat server.");
 					clients.remove(client);
+					accountClients.remove(client.getPlayer().getAccountID(), client);
 				}
 
 				// Mark disconnected
@@ -138,6 +187,7 @@ public class ChatServer {
 					System.out.println(
 							"Player " + client.getPlayer().getDisplayName() + " disconnected from the chat server.");
 					clients.remove(client);
+					accountClients.remove(client.getPlayer().getAccountID(), client);
 				}
 
 				// Log disconnect
@@ -152,7 +202,6 @@ public class ChatServer {
 					client.disconnect();
 			}
 		}, "Chat Client Thread: " + client);
-		th.setDaemon(true);
 		th.start();
 	}
 
@@ -197,9 +246,8 @@ public class ChatServer {
 		if (!isPrivate || !manager.dmExists(room)) {
 			// Build participants object
 			JsonArray members = new JsonArray();
-			for (ChatClient cl : getClients()) {
-				if (cl.isInRoom(room))
-					members.add(cl.getPlayer().getAccountID());
+			for (ChatClient cl : getClientsInRoom(room)) {
+				members.add(cl.getPlayer().getAccountID());
 			}
 			roomData.add("participants", members);
 		} else {
@@ -211,7 +259,7 @@ public class ChatServer {
 			roomData.add("participants", members);
 
 			// Find recent message
-			PrivateChatMessage[] msgs = manager.getDMHistory(room, requester);
+			PrivateChatMessage[] msgs = manager.getDMHistory(room, requester, 0, 1);
 			if (msgs.length != 0) {
 				// Add most recent
 				PrivateChatMessage recent = msgs[msgs.length - 1];
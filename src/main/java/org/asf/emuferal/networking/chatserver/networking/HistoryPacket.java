@@ -12,6 +12,8 @@ import com.google.gson.JsonObject;
 
 public class HistoryPacket extends AbstractChatPacket {
 
+	private static final int HISTORY_LENGTH = 20;
+
 	private String convo;
 
 	@Override
@@ -42,10 +44,12 @@ public class HistoryPacket extends AbstractChatPacket {
 		DMManager manager = DMManager.getInstance();
 		if (client.isInRoom(convo) && client.isRoomPrivate(convo) && manager.dmExists(convo)) {
 			JsonArray msgs = new JsonArray();
-			for (PrivateChatMessage msg : manager.getDMHistory(convo, client.getPlayer().getAccountID())) {
+			String[] participants = manager.getDMParticipants(convo);
+			for (PrivateChatMessage msg : manager.getDMHistory(convo, client.getPlayer().getAccountID(), 0,
+					HISTORY_LENGTH)) {
 				// Build participant list
 				JsonArray members = new JsonArray();
-				for (String participant : manager.getDMParticipants(convo)) {
+				for (String participant : participants) {
 					if (!participant.equals(msg.source))
 						members.add(participant);
 				}
@@ -1,6 +1,5 @@
 package org.asf.emuferal.networking.chatserver.networking;
 
-import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -30,81 +29,14 @@ import org.asf.emuferal.packets.xt.gameserver.inventory.InventoryItemDownloadPac
 import org.asf.emuferal.packets.xt.gameserver.world.JoinRoom;
 import org.asf.emuferal.players.Player;
 import org.asf.emuferal.social.SocialManager;
+import org.asf.emuferal.textfilter.FilterResult;
+import org.asf.emuferal.textfilter.TextFilter;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 public class SendMessage extends AbstractChatPacket {
 
-	private static ArrayList<String> banWords = new ArrayList<String>();
-	private static ArrayList<String> filterWords = new ArrayList<String>();
-	private static ArrayList<String> alwaysfilterWords = new ArrayList<String>();
-
-	static {
-		// Load filter
-		try {
-			InputStream strm = InventoryItemDownloadPacket.class.getClassLoader()
-					.getResourceAsStream("textfilter/filter.txt");
-			String lines = new String(strm.readAllBytes(), "UTF-8").replace("\r", "");
-			for (String line : lines.split("\n")) {
-				if (line.isEmpty() || line.startsWith("#"))
-					continue;
-
-				String data = line.trim();
-				while (data.contains("  "))
-					data = data.replace("  ", "");
-
-				for (String word : data.split(";"))
-					filterWords.add(word.toLowerCase());
-			}
-			strm.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-
-		// Load ban words
-		try {
-			InputStream strm = InventoryItemDownloadPacket.class.getClassLoader()
-					.getResourceAsStream("textfilter/instaban.txt");
-			String lines = new String(strm.readAllBytes(), "UTF-8").replace("\r", "");
-			for (String line : lines.split("\n")) {
-				if (line.isEmpty() || line.startsWith("#"))
-					continue;
-
-				String data = line.trim();
-				while (data.contains("  "))
-					data = data.replace("  ", "");
-
-				for (String word : data.split(";"))
-					banWords.add(word.toLowerCase());
-			}
-			strm.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-
-		// Load always filtered words
-		try {
-			InputStream strm = InventoryItemDownloadPacket.class.getClassLoader()
-					.getResourceAsStream("textfilter/alwaysfilter.txt");
-			String lines = new String(strm.readAllBytes(), "UTF-8").replace("\r", "");
-			for (String line : lines.split("\n")) {
-				if (line.isEmpty() || line.startsWith("#"))
-					continue;
-
-				String data = line.trim();
-				while (data.contains("  "))
-					data = data.replace("  ", "");
-
-				for (String word : data.split(";"))
-					alwaysfilterWords.add(word.toLowerCase());
-			}
-			strm.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-	}
-
 	private String message;
 	private String room;
 
@@ -161,20 +93,12 @@ public class SendMessage extends AbstractChatPacket {
 		System.out.println("Chat: " + client.getPlayer().getDisplayName() + ": " + message);
 
 		// Check filter
-		String newMessage = "";
-		for (String word : message.split(" ")) {
-			if (banWords.contains(word.replaceAll("[^A-Za-z0-9]", "").toLowerCase())) {
-				// Ban
-				client.getPlayer().ban("Illegal word in chat");
-				return true;
-			}
-
-			if (!newMessage.isEmpty())
-				newMessage += " " + word;
-			else
-				newMessage = word;
+		FilterResult filter = TextFilter.getInstance().scan(message);
+		if (filter.isBanned()) {
+			// Ban
+			client.getPlayer().ban("Illegal word in chat");
+			return true;
 		}
-		message = newMessage;
 
 		// Increase ban counter
 		client.banCounter++;
@@ -214,83 +138,35 @@ public class SendMessage extends AbstractChatPacket {
 
 			// Send to all in room
 			SocialManager socialManager = SocialManager.getInstance();
-			for (ChatClient cl : client.getServer().getClients()) {
-				if (cl.isInRoom(room)) {
-					if (!socialManager.socialListExists(cl.getPlayer().getAccountID()) || !socialManager
-							.getPlayerIsBlocked(cl.getPlayer().getAccountID(), client.getPlayer().getAccountID())) {
-						// Check limbo player
-						gameClient = cl.getPlayer().getOnlinePlayerInstance();
-						if (gameClient == null || !gameClient.roomReady || gameClient.room == null)
-							continue;
-
-						// Filter
-						String filteredMessage = "";
-
-						// Load filter settings
-						int filterSetting = 0;
-						UserVarValue val = cl.getPlayer().getPlayerInventory().getUserVarAccesor()
-								.getPlayerVarValue(9362, 0);
-						if (val != null)
-							filterSetting = val.value;
-
-						// Check filter
-						for (String word : message.split(" ")) {
-							if (filterSetting != 0) {
-								if (filterWords.contains(word.replaceAll("[^A-Za-z0-9]", "").toLowerCase())) {
-									// Filter it
-									for (String filter : filterWords) {
-										while (word.toLowerCase().contains(filter.toLowerCase())) {
-											String start = word.substring(0,
-													word.toLowerCase().indexOf(filter.toLowerCase()));
-											String rest = word.substring(
-													word.toLowerCase().indexOf(filter.toLowerCase()) + filter.length());
-											String tag = "";
-											for (int i = 0; i < filter.length(); i++) {
-												tag += "#";
-											}
-											word = start + tag + rest;
-										}
-									}
-								}
-							}
-
-							// check always filtered
-							if (alwaysfilterWords.contains(word.replaceAll("[^A-Za-z0-9]", "").toLowerCase())) {
-								// Filter it
-								for (String filter : alwaysfilterWords) {
-									while (word.toLowerCase().contains(filter.toLowerCase())) {
-										String start = word.substring(0,
-												word.toLowerCase().indexOf(filter.toLowerCase()));
-										String rest = word.substring(
-												word.toLowerCase().indexOf(filter.toLowerCase()) + filter.length());
-										String tag = "";
-										for (int i = 0; i < filter.length(); i++) {
-											tag += "#";
-										}
-										word = start + tag + rest;
-									}
-								}
-							}
-
-							if (!filteredMessage.isEmpty())
-								filteredMessage += " " + word;
-							else
-								filteredMessage = word;
-						}
-
-						// Send response
-						JsonObject res = new JsonObject();
-						res.addProperty("conversationType", client.isRoomPrivate(room) ? "private" : "room");
-						res.addProperty("conversationId", room);
-						res.addProperty("message", filteredMessage);
-						res.addProperty("source", client.getPlayer().getAccountID());
-						res.addProperty("sentAt", fmt.format(new Date()));
-						res.addProperty("eventId", "chat.postMessage");
-						res.addProperty("success", true);
-
-						// Send message
-						cl.sendPacket(res);
-					}
+			for (ChatClient cl : client.getServer().getClientsInRoom(room)) {
+				if (!socialManager.socialListExists(cl.getPlayer().getAccountID()) || !socialManager
+						.getPlayerIsBlocked(cl.getPlayer().getAccountID(), client.getPlayer().getAccountID())) {
+					// Check limbo player
+					gameClient = cl.getPlayer().getOnlinePlayerInstance();
+					if (gameClient == null || !gameClient.roomReady || gameClient.room == null)
+						continue;
+
+					// Load filter settings
+					int filterSetting = 0;
+					UserVarValue val = cl.getPlayer().getPlayerInventory().getUserVarAccesor().getPlayerVarValue(9362, 0);
+					if (val != null)
+						filterSetting = val.value;
+
+					// Filter
+					String filteredMessage = filter.getText(filterSetting != 0);
+
+					// Send response
+					JsonObject res = new JsonObject();
+					res.addProperty("conversationType", client.isRoomPrivate(room) ? "private" : "room");
+					res.addProperty("conversationId", room);
+					res.addProperty("message", filteredMessage);
+					res.addProperty("source", client.getPlayer().getAccountID());
+					res.addProperty("sentAt", fmt.format(new Date()));
+					res.addProperty("eventId", "chat.postMessage");
+					res.addProperty("success", true);
+
+					// Send message
+					cl.sendPacket(res);
 				}
 			}
 		}
@@ -364,6 +240,7 @@ public class SendMessage extends AbstractChatPacket {
 				commandMessages.add("removeperms \"<player>\"");
 				commandMessages.add("startmaintenance");
 				commandMessages.add("endmaintenance");
+				commandMessages.add("reloadfilter");
 				commandMessages.add("updatewarning <minutes-remaining>");
 				commandMessages.add("updateshutdown");
 				commandMessages.add("update <60|30|15|10|5|3|1>");
@@ -737,9 +614,8 @@ public class SendMessage extends AbstractChatPacket {
 
 								// Sync
 								GameServer srv = (GameServer) plr.client.getServer();
-								for (Player player : srv.getPlayers()) {
-									if (plr.room != null && player.room != null && player.room.equals(plr.room)
-											&& player != plr) {
+								for (Player player : srv.getPlayersInRoom(plr.room)) {
+									if (player != plr) {
 										plr.destroyAt(player);
 									}
 								}
@@ -1300,6 +1176,18 @@ public class SendMessage extends AbstractChatPacket {
 							break;
 						}
 					}
+					case "reloadfilter": {
+						// Check perms
+						if (GameServer.hasPerm(permLevel, "admin")) {
+							// Reload the chat and name filter
+							TextFilter filter = TextFilter.reload();
+							systemMessage("Text filter reloaded, " + filter.getWordCount() + " words loaded.", cmd,
+									client);
+							return true;
+						} else {
+							break;
+						}
+					}
 
 					//
 					// Developer commands below..
@@ -6,12 +6,13 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.ConcurrentModificationException;
-import java.util.HashMap;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.asf.emuferal.EmuFeral;
 import org.asf.emuferal.accounts.AccountManager;
@@ -28,6 +29,7 @@ import org.asf.emuferal.modules.events.players.PlayerLeaveEvent;
 import org.asf.emuferal.modules.events.servers.GameServerStartupEvent;
 import org.asf.emuferal.networking.chatserver.ChatClient;
 import org.asf.emuferal.networking.smartfox.BaseSmartfoxServer;
+import org.asf.emuferal.networking.smartfox.EncodedPacket;
 import org.asf.emuferal.networking.smartfox.SmartfoxClient;
 import org.asf.emuferal.packets.smartfox.ISmartfoxPacket;
 import org.asf.emuferal.packets.xml.handshake.auth.ClientToServerAuthPacket;
@@ -75,12 +77,14 @@ import org.asf.emuferal.packets.xt.gameserver.world.WorldReadyPacket;
 import org.asf.emuferal.players.Player;
 import org.asf.emuferal.security.AddressChecker;
 import org.asf.emuferal.security.IpAddressMatcher;
+import org.asf.emuferal.security.TokenClaims;
+import org.asf.emuferal.security.TokenValidator;
 import org.asf.emuferal.social.SocialEntry;
 import org.asf.emuferal.social.SocialManager;
+import org.asf.emuferal.util.ThreadUtil;
 
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 
 public class GameServer extends BaseSmartfoxServer {
 
@@ -88,26 +92,164 @@ public class GameServer extends BaseSmartfoxServer {
 		super(socket);
 	}
 
+	public GameServer(ServerSocketChannel socket, int ioThreads) throws IOException {
+		super(socket, ioThreads);
+	}
+
+	public GameServer(ServerSocketChannel socket, int ioThreads, int workerThreads) throws IOException {
+		super(socket, ioThreads, workerThreads);
+	}
+
 	public boolean maintenance = false;
 	public boolean shutdown = false;
 	private Random rnd = new Random();
 	private XmlMapper mapper = new XmlMapper();
-	private HashMap<String, Player> players = new HashMap<String, Player>();
+	private ConcurrentHashMap<String, Player> players = new ConcurrentHashMap<String, Player>();
+	private ConcurrentHashMap<String, Set<Player>> rooms = new ConcurrentHashMap<String, Set<Player>>();
+	private ConcurrentHashMap<String, Integer> pendingLogins = new ConcurrentHashMap<String, Integer>();
 
 	public ArrayList<String> vpnIpsV4 = new ArrayList<String>();
 	public ArrayList<String> vpnIpsV6 = new ArrayList<String>();
 
 	public String whitelistFile = null;
 
+	/**
+	 * Movement relay tick rate in updates per second, 0 relays every update
+	 * directly
+	 */
+	public int movementTickRate = 0;
+
+	/**
+	 * Distance beyond which avatars receive movement updates at a reduced rate, 0
+	 * to disable
+	 */
+	public double movementInterestRadius = 0;
+
+	private MovementScheduler movementScheduler;
+
 	public Player[] getPlayers() {
-		while (true) {
-			try {
-				return players.values().toArray(t -> new Player[t]);
-			} catch (ConcurrentModificationException e) {
+		return players.values().toArray(t -> new Player[t]);
+	}
+
+	/**
+	 * Retrieves all players in a room
+	 * 
+	 * @param room Room identifier
+	 * @return Array of Player instances
+	 */
+	public Player[] getPlayersInRoom(String room) {
+		if (room == null)
+			return new Player[0];
+		Set<Player> members = rooms.get(room);
+		if (members == null)
+			return new Player[0];
+		return members.toArray(t -> new Player[t]);
+	}
+
+	/**
+	 * Moves a player to a different room, use this instead of assigning
+	 * <code>Player.room</code> directly so the room index stays up to date
+	 * 
+	 * @param player Player to move
+	 * @param room   New room identifier (null to remove the player from all rooms)
+	 */
+	public void setPlayerRoom(Player player, String room) {
+		String oldRoom = player.room;
+		player.room = room;
+		if (oldRoom != null && !oldRoom.equals(room))
+			removeFromRoom(player, oldRoom);
+		if (room != null && players.get(player.account.getAccountID()) == player) {
+			rooms.compute(room, (id, members) -> {
+				if (members == null)
+					members = ConcurrentHashMap.newKeySet();
+				members.add(player);
+				return members;
+			});
+		}
+	}
+
+	private void removeFromRoom(Player player, String room) {
+		rooms.computeIfPresent(room, (id, members) -> {
+			members.remove(player);
+			return members.isEmpty() ? null : members;
+		});
+	}
+
+	/**
+	 * Relays a movement update to the room of a player, updates are coalesced
+	 * per tick if movement throttling is enabled
+	 * 
+	 * @param player Player that moved
+	 * @param mode   Movement update mode
+	 * @param packet Update packet
+	 */
+	public void queueMovementUpdate(Player player, int mode, String packet) {
+		MovementScheduler scheduler = movementScheduler;
+		if (scheduler == null) {
+			broadcastToRoom(player.room, packet, player);
+			return;
+		}
+		scheduler.submit(player, mode, packet);
+	}
+
+	/**
+	 * Sends a movement update to the room of a player immediately, drops pending
+	 * coalesced updates of the player
+	 * 
+	 * @param player Player that moved
+	 * @param packet Update packet
+	 */
+	public void sendMovementUpdate(Player player, String packet) {
+		MovementScheduler scheduler = movementScheduler;
+		if (scheduler != null)
+			scheduler.discard(player);
+		broadcastToRoom(player.room, packet, player);
+	}
+
+	/**
+	 * Sends a packet to all players in a room
+	 * 
+	 * @param room   Room identifier
+	 * @param packet Packet to send
+	 * @param except Player to skip (usually the sender, may be null)
+	 */
+	public void broadcastToRoom(String room, String packet, Player except) {
+		if (room == null)
+			return;
+		Set<Player> members = rooms.get(room);
+		if (members == null)
+			return;
+
+		// Encode once for all recipients
+		EncodedPacket encoded = null;
+		for (Player player : members) {
+			if (player != except) {
+				if (encoded == null)
+					encoded = new EncodedPacket(packet);
+				player.client.sendPacket(encoded);
 			}
 		}
 	}
 
+	/**
+	 * Sends a packet to all players in a room, the packet is only built once
+	 * 
+	 * @param room   Room identifier
+	 * @param packet Packet to send
+	 * @param except Player to skip (usually the sender, may be null)
+	 */
+	public void broadcastToRoom(String room, ISmartfoxPacket packet, Player except) {
+		if (room == null || !rooms.containsKey(room))
+			return;
+		String msg;
+		try {
+			msg = packet.build();
+		} catch (IOException e) {
+			return;
+		}
+		broadcastToRoom(room, msg, except);
+	}
+
 	@Override
 	protected void registerPackets() {
 		mapper = new XmlMapper();
@@ -162,55 +304,75 @@ public class GameServer extends BaseSmartfoxServer {
 		EventBus.getInstance().dispatchEvent(ev);
 	}
 
+	// Handshake progress, kept in the client container until the player logged in
+	private static class HandshakeState {
+		int stage;
+		boolean badClient;
+	}
+
 	@Override
-	protected void startClient(SmartfoxClient client) throws IOException {
-		// Read first handshake packet
-		ClientToServerHandshake pk = client.readPacket(ClientToServerHandshake.class);
-
-		// Check version
-		boolean badClient = false;
-		if (!pk.actionField.equals("verChk") || !pk.clientBuild.equals("165")) {
-			badClient = true; // Ok, bad version, lets make sure the client disconnects
+	protected boolean handleHandshake(SmartfoxClient client, String packet) throws IOException {
+		HandshakeState state;
+		if (client.container instanceof HandshakeState)
+			state = (HandshakeState) client.container;
+		else {
+			state = new HandshakeState();
+			client.container = state;
 		}
 
-		// Send response so that the client moves on
-		client.sendPacket(new ServerToClientOK(mapper));
+		switch (state.stage++) {
+		case 0:
+			// Read first handshake packet
+			ClientToServerHandshake pk = parsePacket(packet, ClientToServerHandshake.class);
+
+			// Check version
+			if (!pk.actionField.equals("verChk") || !pk.clientBuild.equals("165")) {
+				state.badClient = true; // Ok, bad version, lets make sure the client disconnects
+			}
 
-		// Random key
-		client.readPacket(ISmartfoxPacket.class);
-		String key = Long.toString(rnd.nextLong(), 16);
-		client.sendPacket("<msg t='sys'><body action='rndK' r='-1'><k>" + key + "</k></body></msg>");
+			// Send response so that the client moves on
+			client.sendPacket(new ServerToClientOK(mapper));
+			return false;
 
-		// Authenticate the player
-		ClientToServerAuthPacket auth = client.readPacket(ClientToServerAuthPacket.class);
+		case 1:
+			// Random key
+			String key = Long.toString(rnd.nextLong(), 16);
+			client.sendPacket("<msg t='sys'><body action='rndK' r='-1'><k>" + key + "</k></body></msg>");
+			return false;
 
+		default:
+			// Authenticate the player
+			client.container = null;
+			login(client, parsePacket(packet, ClientToServerAuthPacket.class), state.badClient);
+			return true;
+		}
+	}
+
+	private void login(SmartfoxClient client, ClientToServerAuthPacket auth, boolean badClient) throws IOException {
 		// Load token
 		String token = auth.pword;
 
-		// Verify signature
-		String verifyD = token.split("\\.")[0] + "." + token.split("\\.")[1];
-		String sig = token.split("\\.")[2];
-		if (!EmuFeral.verify(verifyD.getBytes("UTF-8"), Base64.getUrlDecoder().decode(sig))) {
+		// Verify token
+		TokenClaims claims = TokenValidator.validate(token);
+		if (claims == null) {
 			client.disconnect();
 			return;
 		}
 
-		// Verify expiry
-		JsonObject jwtPl = JsonParser
-				.parseString(new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), "UTF-8"))
-				.getAsJsonObject();
-		if (!jwtPl.has("exp") || jwtPl.get("exp").getAsLong() < System.currentTimeMillis() / 1000) {
-			client.disconnect();
-			return;
+		// Track the login until the player is added so the account stays cached
+		String accountID = claims.getAccountID();
+		pendingLogins.merge(accountID, 1, Integer::sum);
+		try {
+			login(client, auth, badClient, accountID);
+		} finally {
+			pendingLogins.computeIfPresent(accountID, (id, count) -> count == 1 ? null : count - 1);
 		}
+	}
 
-		// Parse JWT
-		JsonObject payload = JsonParser
-				.parseString(new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), "UTF-8"))
-				.getAsJsonObject();
-
+	private void login(SmartfoxClient client, ClientToServerAuthPacket auth, boolean badClient, String accountID)
+			throws IOException {
 		// Locate account
-		EmuFeralAccount acc = AccountManager.getInstance().getAccount(payload.get("uuid").getAsString());
+		EmuFeralAccount acc = AccountManager.getInstance().getAccount(accountID);
 		if (acc == null) {
 			client.disconnect();
 			return;
@@ -532,20 +694,29 @@ public class GameServer extends BaseSmartfoxServer {
 				EventBus.getInstance().dispatchEvent(new PlayerLeaveEvent(this, plr, plr.account, client));
 			}
 
+			// Save inventory
+			plr.account.getPlayerInventory().flush();
+
+			// Drop pending movement
+			if (movementScheduler != null)
+				movementScheduler.discard(plr);
+
 			// Clear objects
 			plr.respawnItems.clear();
 
 			// Remove player character from all clients
-			for (Player player : getPlayers()) {
-				if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
-					plr.destroyAt(player);
+			if (plr.room != null) {
+				removeFromRoom(plr, plr.room);
+				for (Player player : getPlayersInRoom(plr.room)) {
+					if (player != plr)
+						plr.destroyAt(player);
 				}
 			}
 
 			// Disconnect from chat server
 			for (ChatClient cl : EmuFeral.chatServer.getClients()) {
 				if (cl.getPlayer().getAccountID().equals(plr.account.getAccountID())) {
-					Thread th = new Thread(() -> {
+					Thread th = ThreadUtil.createClientThread(() -> {
 						int i = 0;
 						while (cl.isConnected()) {
 							if (i == 3)
@@ -560,7 +731,6 @@ public class GameServer extends BaseSmartfoxServer {
 						if (cl.isConnected())
 							cl.disconnect();
 					}, "Chat Client Cleanup: " + cl.getPlayer().getAccountID());
-					th.setDaemon(true);
 					th.start();
 					break;
 				}
@@ -599,6 +769,12 @@ public class GameServer extends BaseSmartfoxServer {
 
 	@Override
 	protected void onStart() {
+		// Movement relay
+		if (movementTickRate > 0) {
+			movementScheduler = new MovementScheduler(this, movementTickRate, movementInterestRadius);
+			movementScheduler.start();
+		}
+
 		// Anti-expiry (kicks players who go past token expiry)
 		Thread th = new Thread(() -> {
 			while (EmuFeral.directorServer.isActive()) {
@@ -690,6 +866,10 @@ public class GameServer extends BaseSmartfoxServer {
 
 	@Override
 	protected void onStop() {
+		if (movementScheduler != null) {
+			movementScheduler.stop();
+			movementScheduler = null;
+		}
 	}
 
 	// Used to check permissions
@@ -731,9 +911,17 @@ public class GameServer extends BaseSmartfoxServer {
 	 * @return Player instance or null if offline
 	 */
 	public Player getPlayer(String accountID) {
-		if (players.containsKey(accountID))
-			return players.get(accountID);
-		return null;
+		return players.get(accountID);
+	}
+
+	/**
+	 * Checks if a player is currently logging in
+	 * 
+	 * @param accountID Player ID
+	 * @return True if a login for the account is in progress, false otherwise
+	 */
+	public boolean isLoggingIn(String accountID) {
+		return pendingLogins.containsKey(accountID);
 	}
 
 }
@@ -0,0 +1,202 @@
+package org.asf.emuferal.networking.gameserver;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.asf.emuferal.networking.smartfox.EncodedPacket;
+import org.asf.emuferal.players.Player;
+
+// Relays movement updates on a fixed tick, only the latest update of each
+// player is kept and it is sent to the players in the same room once per tick.
+// Viewers outside the interest radius receive updates at a reduced rate.
+class MovementScheduler {
+
+	private static final int FAR_TICK_INTERVAL = 4;
+
+	private GameServer server;
+	private long tickLength;
+	private double interestRadiusSq;
+
+	private ConcurrentHashMap<Player, MovementState> states = new ConcurrentHashMap<Player, MovementState>();
+	private Thread thread;
+	private volatile boolean running;
+	private long tick;
+
+	private static class MovementState {
+		String room;
+		String packet;
+		int mode;
+		double x;
+		double y;
+		double z;
+
+		boolean nearDirty;
+		boolean farDirty;
+	}
+
+	MovementScheduler(GameServer server, int tickRate, double interestRadius) {
+		this.server = server;
+		tickLength = Math.max(1, 1000 / tickRate);
+		interestRadiusSq = interestRadius * interestRadius;
+	}
+
+	void start() {
+		running = true;
+		thread = new Thread(() -> {
+			long next = System.currentTimeMillis();
+			while (running) {
+				try {
+					tick();
+				} catch (Exception e) {
+					System.err.println("Exception in movement tick: " + e.getClass().getTypeName()
+							+ (e.getMessage() != null ? ": " + e.getMessage() : ""));
+				}
+
+				// Wait for the next tick
+				next += tickLength;
+				long wait = next - System.currentTimeMillis();
+				if (wait <= 0) {
+					next = System.currentTimeMillis(); // Running behind, don't try to catch up
+					continue;
+				}
+				try {
+					Thread.sleep(wait);
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+		}, "Movement Relay");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	void stop() {
+		running = false;
+		if (thread != null)
+			thread.interrupt();
+		states.clear();
+	}
+
+	/**
+	 * Queues a movement update, replaces the pending update of the player
+	 *
+	 * @param plr    Player that moved
+	 * @param mode   Update mode
+	 * @param packet Update packet
+	 */
+	void submit(Player plr, int mode, String packet) {
+		MovementState state = states.computeIfAbsent(plr, t -> new MovementState());
+		synchronized (state) {
+			// Skip unchanged updates, the pending packet is still replaced so the
+			// newest timestamp is sent
+			boolean unchanged = state.packet != null && plr.room != null && plr.room.equals(state.room)
+					&& state.mode == mode && samePayload(state.packet, packet);
+			state.packet = packet;
+			if (unchanged)
+				return;
+
+			state.room = plr.room;
+			state.mode = mode;
+			state.x = plr.lastPosX;
+			state.y = plr.lastPosY;
+			state.z = plr.lastPosZ;
+			state.nearDirty = true;
+			state.farDirty = interestRadiusSq > 0;
+		}
+	}
+
+	// Compares the transform and movement data of two update packets, everything
+	// after the timestamp field (%xt%ou%-1%id%mode%time%...) is compared
+	private static boolean samePayload(String packet1, String packet2) {
+		int start1 = payloadStart(packet1);
+		int start2 = payloadStart(packet2);
+		int length = packet1.length() - start1;
+		return start1 != -1 && start2 != -1 && length == packet2.length() - start2
+				&& packet1.regionMatches(start1, packet2, start2, length);
+	}
+
+	private static int payloadStart(String packet) {
+		int index = -1;
+		for (int i = 0; i < 7; i++) {
+			index = packet.indexOf('%', index + 1);
+			if (index == -1)
+				return -1;
+		}
+		return index + 1;
+	}
+
+	/**
+	 * Drops the pending update of a player, used when a update is sent directly
+	 * or the player leaves
+	 *
+	 * @param plr Player to remove
+	 */
+	void discard(Player plr) {
+		states.remove(plr);
+	}
+
+	private void tick() {
+		tick++;
+		boolean farTick = tick % FAR_TICK_INTERVAL == 0;
+
+		for (Map.Entry<Player, MovementState> entry : states.entrySet()) {
+			Player plr = entry.getKey();
+			MovementState state = entry.getValue();
+
+			// Remove players that went offline
+			if (server.getPlayer(plr.account.getAccountID()) != plr) {
+				states.remove(plr, state);
+				continue;
+			}
+
+			// Take the pending update
+			String room;
+			String packet;
+			boolean near;
+			boolean far;
+			double x;
+			double y;
+			double z;
+			synchronized (state) {
+				near = state.nearDirty;
+				far = farTick && state.farDirty;
+				if (!near && !far)
+					continue;
+				state.nearDirty = false;
+				if (far)
+					state.farDirty = false;
+
+				// Updates from a previous room are dropped
+				if (state.room == null || !state.room.equals(plr.room)) {
+					state.farDirty = false;
+					continue;
+				}
+				room = state.room;
+				packet = state.packet;
+				x = state.x;
+				y = state.y;
+				z = state.z;
+			}
+
+			// Send to the room, the packet is encoded once for all viewers
+			EncodedPacket encoded = null;
+			for (Player viewer : server.getPlayersInRoom(room)) {
+				if (viewer == plr)
+					continue;
+				boolean isFar = false;
+				if (interestRadiusSq > 0) {
+					double dx = viewer.lastPosX - x;
+					double dy = viewer.lastPosY - y;
+					double dz = viewer.lastPosZ - z;
+					isFar = dx * dx + dy * dy + dz * dz > interestRadiusSq;
+				}
+				if (isFar ? far : near) {
+					if (encoded == null)
+						encoded = new EncodedPacket(packet);
+					viewer.client.sendPacket(encoded);
+				}
+			}
+		}
+	}
+
+}
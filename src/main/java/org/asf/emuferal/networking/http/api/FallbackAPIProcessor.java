@@ -1,7 +1,6 @@
 package org.asf.emuferal.networking.http.api;
 
 import java.io.ByteArrayOutputStream;
-import java.io.UnsupportedEncodingException;
 import java.net.Socket;
 import java.text.SimpleDateFormat;
 import java.util.Base64;
@@ -13,6 +12,8 @@ import org.asf.emuferal.EmuFeral;
 import org.asf.emuferal.accounts.AccountManager;
 import org.asf.emuferal.accounts.EmuFeralAccount;
 import org.asf.emuferal.players.Player;
+import org.asf.emuferal.security.TokenClaims;
+import org.asf.emuferal.security.TokenValidator;
 import org.asf.emuferal.social.SocialEntry;
 import org.asf.emuferal.social.SocialManager;
 import org.asf.rats.ConnectiveHTTPServer;
@@ -20,8 +21,6 @@ import org.asf.rats.processors.HttpUploadProcessor;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
 
 public class FallbackAPIProcessor extends HttpUploadProcessor {
 
@@ -443,32 +442,18 @@ public class FallbackAPIProcessor extends HttpUploadProcessor {
 		return true;
 	}
 
-	private EmuFeralAccount verifyAndGetAcc(AccountManager manager)
-			throws JsonSyntaxException, UnsupportedEncodingException {
+	private EmuFeralAccount verifyAndGetAcc(AccountManager manager) {
 		// Parse JWT payload
 		String token = this.getHeader("Authorization").substring("Bearer ".length());
 
-		// Verify signature
-		String verifyD = token.split("\\.")[0] + "." + token.split("\\.")[1];
-		String sig = token.split("\\.")[2];
-		if (!EmuFeral.verify(verifyD.getBytes("UTF-8"), Base64.getUrlDecoder().decode(sig))) {
+		// Verify token
+		TokenClaims claims = TokenValidator.validate(token);
+		if (claims == null) {
 			return null;
 		}
 
-		// Verify expiry
-		JsonObject jwtPl = JsonParser
-				.parseString(new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), "UTF-8"))
-				.getAsJsonObject();
-		if (!jwtPl.has("exp") || jwtPl.get("exp").getAsLong() < System.currentTimeMillis() / 1000) {
-			return null;
-		}
-
-		JsonObject payload = JsonParser
-				.parseString(new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), "UTF-8"))
-				.getAsJsonObject();
-
 		// Find account
-		EmuFeralAccount acc = manager.getAccount(payload.get("uuid").getAsString());
+		EmuFeralAccount acc = manager.getAccount(claims.getAccountID());
 
 		return acc;
 	}
@@ -2,11 +2,11 @@ package org.asf.emuferal.networking.http.api;
 
 import java.io.ByteArrayOutputStream;
 import java.net.Socket;
-import java.util.Base64;
 
-import org.asf.emuferal.EmuFeral;
 import org.asf.emuferal.accounts.AccountManager;
 import org.asf.emuferal.accounts.EmuFeralAccount;
+import org.asf.emuferal.security.TokenClaims;
+import org.asf.emuferal.security.TokenValidator;
 import org.asf.rats.ConnectiveHTTPServer;
 import org.asf.rats.processors.HttpUploadProcessor;
 
@@ -30,31 +30,16 @@ public class SettingsHandler extends HttpUploadProcessor {
 			// Parse JWT payload
 			String token = this.getHeader("Authorization").substring("Bearer ".length());
 
-			// Verify signature
-			String verifyD = token.split("\\.")[0] + "." + token.split("\\.")[1];
-			String sig = token.split("\\.")[2];
-			if (!EmuFeral.verify(verifyD.getBytes("UTF-8"), Base64.getUrlDecoder().decode(sig))) {
+			// Verify token
+			TokenClaims claims = TokenValidator.validate(token);
+			if (claims == null) {
 				this.setResponseCode(401);
 				this.setResponseMessage("Access denied");
 				return;
 			}
 
-			// Verify expiry
-			JsonObject jwtPl = JsonParser
-					.parseString(new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), "UTF-8"))
-					.getAsJsonObject();
-			if (!jwtPl.has("exp") || jwtPl.get("exp").getAsLong() < System.currentTimeMillis() / 1000) {
-				this.setResponseCode(401);
-				this.setResponseMessage("Access denied");
-				return;
-			}
-
-			JsonObject payload = JsonParser
-					.parseString(new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), "UTF-8"))
-					.getAsJsonObject();
-
 			// Find account
-			EmuFeralAccount acc = manager.getAccount(payload.get("uuid").getAsString());
+			EmuFeralAccount acc = manager.getAccount(claims.getAccountID());
 			if (acc == null) {
 				this.setResponseCode(401);
 				this.setResponseMessage("Access denied");
@@ -1,14 +1,24 @@
 package org.asf.emuferal.networking.smartfox;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
-import java.util.Base64;
-import java.util.zip.GZIPInputStream;
-
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.asf.emuferal.data.XtReader;
 import org.asf.emuferal.packets.smartfox.ISmartfoxPacket;
+import org.asf.emuferal.packets.xt.IXtPacket;
+import org.asf.emuferal.util.ThreadUtil;
 
 public abstract class BaseSmartfoxServer {
 
@@ -16,6 +26,17 @@ public abstract class BaseSmartfoxServer {
 	private ArrayList<ISmartfoxPacket> packets = new ArrayList<ISmartfoxPacket>();
 	private boolean setupComplete = false;
 
+	// Dispatch tables, XT packets are indexed by ID, other packets (eg. XML
+	// handshake packets) are checked one by one
+	private HashMap<String, ArrayList<IXtPacket<?>>> xtPackets = new HashMap<String, ArrayList<IXtPacket<?>>>();
+	private ArrayList<ISmartfoxPacket> otherPackets = new ArrayList<ISmartfoxPacket>();
+
+	// Non-blocking transport
+	private ServerSocketChannel serverChannel;
+	private NioSelectorThread[] selectorThreads;
+	private ThreadPoolExecutor workers;
+	private ScheduledExecutorService delayedTasks;
+
 	public BaseSmartfoxServer(ServerSocket socket) {
 		server = socket;
 
@@ -26,15 +47,76 @@ public abstract class BaseSmartfoxServer {
 		setupComplete = true;
 	}
 
+	/**
+	 * Creates a server using the non-blocking transport, client connections are
+	 * served by a small pool of selector threads instead of a thread per client
+	 *
+	 * @param channel   Server socket channel
+	 * @param ioThreads Amount of selector threads to use
+	 * @throws IOException If creating the selectors fails
+	 */
+	public BaseSmartfoxServer(ServerSocketChannel channel, int ioThreads) throws IOException {
+		this(channel, ioThreads, Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	/**
+	 * Creates a server using the non-blocking transport, client connections are
+	 * served by a small pool of selector threads instead of a thread per client
+	 *
+	 * @param channel       Server socket channel
+	 * @param ioThreads     Amount of selector threads to use
+	 * @param workerThreads Amount of threads handling packets
+	 * @throws IOException If creating the selectors fails
+	 */
+	public BaseSmartfoxServer(ServerSocketChannel channel, int ioThreads, int workerThreads) throws IOException {
+		serverChannel = channel;
+
+		// Create selector threads
+		selectorThreads = new NioSelectorThread[Math.max(1, ioThreads)];
+		for (int i = 0; i < selectorThreads.length; i++)
+			selectorThreads[i] = new NioSelectorThread(this,
+					"Smartfox I/O Thread " + (i + 1) + ": " + this.getClass().getSimpleName());
+
+		// Create the worker pool, connections only use a worker while they have
+		// packets to handle so the pool size does not depend on the player count
+		AtomicInteger workerID = new AtomicInteger();
+		int poolSize = Math.max(1, workerThreads);
+		workers = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), r -> {
+					Thread th = new Thread(r,
+							"Smartfox Worker " + workerID.incrementAndGet() + ": " + this.getClass().getSimpleName());
+					th.setDaemon(true);
+					return th;
+				});
+		workers.allowCoreThreadTimeOut(true);
+		delayedTasks = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread th = new Thread(r, "Smartfox Scheduler: " + this.getClass().getSimpleName());
+			th.setDaemon(true);
+			return th;
+		});
+
+		// Register packets
+		registerPackets();
+
+		// Lock the registry
+		setupComplete = true;
+	}
+
 	/**
 	 * Registers the server packets (internal)
 	 */
 	protected abstract void registerPackets();
 
 	/**
-	 * Client start event (internal)
+	 * Client handshake event (internal), called for each packet received before
+	 * the handshake has completed
+	 *
+	 * @param client Smartfox client
+	 * @param packet Packet content
+	 * @return True if the handshake has completed, false if more packets are
+	 *         expected
 	 */
-	protected abstract void startClient(SmartfoxClient client) throws IOException;
+	protected abstract boolean handleHandshake(SmartfoxClient client, String packet) throws IOException;
 
 	/**
 	 * Client disconnect event (internal)
@@ -60,12 +142,34 @@ public abstract class BaseSmartfoxServer {
 		if (setupComplete)
 			throw new IllegalStateException("Registry has been locked");
 		packets.add(packet);
+
+		// Index the packet
+		if (packet instanceof IXtPacket && !overridesParsing(packet)) {
+			IXtPacket<?> xt = (IXtPacket<?>) packet;
+			xtPackets.computeIfAbsent(xt.id(), t -> new ArrayList<IXtPacket<?>>()).add(xt);
+		} else
+			otherPackets.add(packet);
+	}
+
+	// Checks if a XT packet uses its own parsing, those cannot be dispatched by ID
+	private static boolean overridesParsing(ISmartfoxPacket packet) {
+		try {
+			return packet.getClass().getMethod("canParse", String.class).getDeclaringClass() != IXtPacket.class
+					|| packet.getClass().getMethod("parse", String.class).getDeclaringClass() != IXtPacket.class;
+		} catch (NoSuchMethodException e) {
+			return true;
+		}
 	}
 
 	/**
 	 * Runs the server
 	 */
 	public void start() {
+		if (serverChannel != null) {
+			startNio();
+			return;
+		}
+
 		Thread serverProcessor = new Thread(() -> {
 			// Run start code
 			onStart();
@@ -88,10 +192,122 @@ public abstract class BaseSmartfoxServer {
 		serverProcessor.start();
 	}
 
+	private void startNio() {
+		for (NioSelectorThread th : selectorThreads)
+			th.start();
+
+		Thread serverProcessor = new Thread(() -> {
+			// Run start code
+			onStart();
+
+			// Server loop
+			int next = 0;
+			while (serverChannel != null) {
+				try {
+					SocketChannel client = serverChannel.accept();
+					try {
+						selectorThreads[next++ % selectorThreads.length].register(client);
+					} catch (IOException e) {
+						client.close();
+					}
+				} catch (IOException ex) {
+					serverChannel = null;
+					break;
+				}
+			}
+
+			// Shutdown
+			for (NioSelectorThread th : selectorThreads)
+				th.shutdown();
+			workers.shutdown();
+			delayedTasks.shutdown();
+			onStop();
+		}, "Smartfox Server Thread: " + this.getClass().getSimpleName());
+		serverProcessor.setDaemon(true);
+		serverProcessor.start();
+	}
+
+	// Runs a task on the worker pool of the non-blocking transport
+	void executeWorker(Runnable task) {
+		try {
+			workers.execute(task);
+		} catch (RejectedExecutionException e) {
+			// Server has been stopped
+		}
+	}
+
+	// Runs a task on the worker pool of the non-blocking transport after a delay
+	void executeWorkerDelayed(Runnable task, long delay) {
+		try {
+			delayedTasks.schedule(() -> executeWorker(task), delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// Server has been stopped
+		}
+	}
+
+	// Handles a handshake packet for the non-blocking transport, returns true once
+	// the handshake has completed
+	boolean handleNioHandshake(String data, SmartfoxClient client) {
+		try {
+			return handleHandshake(client, data);
+		} catch (Exception e) {
+			closeClient(client, e);
+			return false;
+		}
+	}
+
+	// Runs a delayed client task for the non-blocking transport
+	boolean runNioTask(Runnable task, SmartfoxClient client) {
+		if (client.getSocket() == null)
+			return false;
+		try {
+			task.run();
+			return client.getSocket() != null;
+		} catch (Exception e) {
+			closeClient(client, e);
+			return false;
+		}
+	}
+
+	// Runs the client handshake for the blocking transport
+	private void startClient(SmartfoxClient client) throws IOException {
+		boolean done = false;
+		while (!done && client.getSocket() != null)
+			done = handleHandshake(client, readRawPacket(client));
+	}
+
+	// Handles a packet for the non-blocking transport
+	boolean handleNioPacket(String data, SmartfoxClient client) {
+		try {
+			handle(data, client);
+			return client.getSocket() != null;
+		} catch (Exception e) {
+			closeClient(client, e);
+			return false;
+		}
+	}
+
+	// Closes a client and runs the disconnect code if needed
+	void closeClient(SmartfoxClient client, Exception e) {
+		if (e != null && !(e instanceof IOException)) {
+			System.err.println("Connection died! Error: " + e.getClass().getName()
+					+ (e.getMessage() != null ? ": " + e.getMessage() : ""));
+			e.printStackTrace();
+		}
+		try {
+			client.getSocket().close();
+		} catch (Exception e2) {
+		}
+		if (client.getSocket() != null) {
+			clientDisconnect(client);
+			client.stop();
+		}
+	}
+
 	// Client system
 	private void runClient(Socket clientSocket) {
 		// Start the client thread
-		Thread th = new Thread(() -> {
+		Thread th = ThreadUtil.createClientThread(() -> {
 			SmartfoxClient client = new SmartfoxClient(clientSocket, this);
 
 			// Non-debug
@@ -192,7 +408,6 @@ public abstract class BaseSmartfoxServer {
 				}
 			}
 		}, "Smartfox Client Thread: " + clientSocket);
-		th.setDaemon(true);
 		th.start();
 	}
 
@@ -201,6 +416,8 @@ public abstract class BaseSmartfoxServer {
 			// Allow debug mode to re-register packets
 			if (System.getProperty("debugMode") != null) {
 				packets.clear();
+				xtPackets.clear();
+				otherPackets.clear();
 				setupComplete = false;
 				registerPackets();
 				setupComplete = true;
@@ -215,10 +432,14 @@ public abstract class BaseSmartfoxServer {
 	 */
 	public void stop() {
 		try {
-			server.close();
+			if (serverChannel != null)
+				serverChannel.close();
+			else
+				server.close();
 		} catch (IOException e) {
 		}
 		server = null;
+		serverChannel = null;
 	}
 
 	/**
@@ -227,6 +448,8 @@ public abstract class BaseSmartfoxServer {
 	 * @return ServerSocket instance or null
 	 */
 	public ServerSocket getServerSocket() {
+		if (serverChannel != null)
+			return serverChannel.socket();
 		return server;
 	}
 
@@ -267,10 +490,19 @@ public abstract class BaseSmartfoxServer {
 		String data = readRawPacket(smartfoxClient);
 
 		// Parse packet
-		return parsePacketPayload(data, packetType);
+		return parsePacket(data, packetType);
 	}
 
-	private <T extends ISmartfoxPacket> T parsePacketPayload(String packet, Class<T> packetType) throws IOException {
+	/**
+	 * Parses a packet
+	 *
+	 * @param <T>        Packet return type
+	 * @param packet     Packet content
+	 * @param packetType Expected packet class
+	 * @return ISmartfoxPacket instance or null
+	 * @throws IOException If parsing fails
+	 */
+	protected <T extends ISmartfoxPacket> T parsePacket(String packet, Class<T> packetType) throws IOException {
 		// Find a packet
 		for (ISmartfoxPacket pkt : packets) {
 			if (pkt.canParse(packet) && packetType.isAssignableFrom(pkt.getClass())) {
@@ -296,8 +528,21 @@ public abstract class BaseSmartfoxServer {
 	 * @return True if handled successfully, false otherwise
 	 */
 	public boolean handlePacket(String packet, SmartfoxClient client) throws IOException {
-		// Find a packet
-		for (ISmartfoxPacket pkt : packets) {
+		// Find XT packets by ID
+		if (packet.startsWith("%xt%")) {
+			int end = packet.indexOf('%', 4);
+			ArrayList<IXtPacket<?>> candidates = xtPackets
+					.get(end == -1 ? packet.substring(4) : packet.substring(4, end));
+			if (candidates != null) {
+				XtReader reader = new XtReader(packet);
+				reader.read();
+				if (handleXtPacket(candidates, reader, client))
+					return true;
+			}
+		}
+
+		// Find other packets
+		for (ISmartfoxPacket pkt : otherPackets) {
 			if (pkt.canParse(packet)) {
 				// Found a compatible packet, instantiate it and parse
 				ISmartfoxPacket res = pkt.instantiate();
@@ -313,6 +558,46 @@ public abstract class BaseSmartfoxServer {
 		return false;
 	}
 
+	/**
+	 * Handles a XT packet that has already been read up to the packet ID, used to
+	 * re-dispatch packets without parsing them again
+	 *
+	 * @param packetID Packet ID
+	 * @param reader   Packet reader, positioned after the packet ID
+	 * @param client   Smartfox client
+	 * @return True if handled successfully, false otherwise
+	 */
+	public boolean handlePacket(String packetID, XtReader reader, SmartfoxClient client) throws IOException {
+		reader.mark();
+
+		// Find XT packets by ID
+		ArrayList<IXtPacket<?>> candidates = xtPackets.get(packetID);
+		if (candidates != null && handleXtPacket(candidates, reader, client))
+			return true;
+
+		// Fall back to the other packets
+		if (otherPackets.isEmpty())
+			return false;
+		reader.reset();
+		return handlePacket("%xt%" + packetID + "%" + reader.readRemaining() + "%", client);
+	}
+
+	private boolean handleXtPacket(ArrayList<IXtPacket<?>> candidates, XtReader reader, SmartfoxClient client)
+			throws IOException {
+		reader.mark();
+		for (IXtPacket<?> pkt : candidates) {
+			// Found a compatible packet, instantiate it and parse
+			IXtPacket<?> res = pkt.instantiate();
+			reader.reset();
+			res.parse(reader);
+
+			// Handle it
+			if (res.handle(client))
+				return true; // It was handled, lets return true and end the loop
+		}
+		return false;
+	}
+
 	/**
 	 * Reads a single raw packet
 	 *
@@ -321,29 +606,10 @@ public abstract class BaseSmartfoxServer {
 	 * @throws IOException If reading fails
 	 */
 	public String readRawPacket(SmartfoxClient smartfoxClient) throws IOException {
-		String payload = new String();
-		while (true) {
-			int b = smartfoxClient.input.read();
-			if (b == -1) {
-				throw new IOException("Stream closed");
-			} else if (b == 0) {
-				// Solve for the XT issue
-				if (payload.startsWith("%xt|n%"))
-					payload = "%xt%" + payload.substring("%xt|n%".length());
-
-				// Compression
-				if (payload.startsWith("$")) {
-					// Decompress packet
-					byte[] compressedData = Base64.getDecoder().decode(payload.substring(1));
-					GZIPInputStream dc = new GZIPInputStream(new ByteArrayInputStream(compressedData));
-					byte[] newData = dc.readAllBytes();
-					dc.close();
-					payload = new String(newData, "UTF-8");
-				}
+		// Non-blocking transport, packets are framed by the selector thread
+		if (smartfoxClient.connection != null)
+			return smartfoxClient.connection.take();
 
-				return payload;
-			} else
-				payload += (char) b;
-		}
+		return smartfoxClient.decoder.readPacket(smartfoxClient.input);
 	}
 }
@@ -0,0 +1,114 @@
+package org.asf.emuferal.networking.smartfox;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.asf.emuferal.packets.smartfox.IStreamedPacket;
+import org.asf.emuferal.util.TaskThread;
+
+// Batches queued packets into as few socket writes as possible, packets queued
+// while a flush is pending are written together in the next flush cycle,
+// streamed packets are written on the calling thread through a bounded buffer
+class CoalescingPacketWriter {
+
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	private SmartfoxClient client;
+	private OutputStream output;
+	private TaskThread taskThread;
+
+	private ConcurrentLinkedQueue<byte[]> queue = new ConcurrentLinkedQueue<byte[]>();
+	private AtomicBoolean flushScheduled = new AtomicBoolean();
+	private byte[] buffer = new byte[BUFFER_SIZE];
+	private BufferedOutputStream streamOutput;
+
+	CoalescingPacketWriter(SmartfoxClient client, OutputStream output, TaskThread taskThread) {
+		this.client = client;
+		this.output = output;
+		this.taskThread = taskThread;
+	}
+
+	/**
+	 * Queues a encoded packet, the data must include the null terminator and must
+	 * not be modified afterwards
+	 *
+	 * @param data Packet data
+	 */
+	void send(byte[] data) {
+		queue.add(data);
+		if (flushScheduled.compareAndSet(false, true))
+			taskThread.schedule(this::flushQueue);
+	}
+
+	/**
+	 * Writes a streamed packet on the calling thread, packets queued before it are
+	 * written first
+	 *
+	 * @param packet Packet to write
+	 * @throws IOException If writing fails
+	 */
+	void send(IStreamedPacket packet) throws IOException {
+		synchronized (this) {
+			if (client.getSocket() == null) {
+				queue.clear();
+				return;
+			}
+
+			try {
+				writeQueue();
+				if (streamOutput == null)
+					streamOutput = new BufferedOutputStream(output, BUFFER_SIZE);
+				packet.writeTo(streamOutput);
+				streamOutput.write(0);
+				streamOutput.flush();
+			} catch (IOException e) {
+				queue.clear();
+				throw e;
+			}
+		}
+	}
+
+	// Runs on the task thread
+	private void flushQueue() {
+		// Packets queued from here on schedule another flush
+		flushScheduled.set(false);
+		synchronized (this) {
+			if (client.getSocket() == null) {
+				queue.clear();
+				return;
+			}
+
+			try {
+				writeQueue();
+			} catch (Exception e) {
+				queue.clear();
+			}
+		}
+	}
+
+	private void writeQueue() throws IOException {
+		int length = 0;
+		byte[] data;
+		while ((data = queue.poll()) != null) {
+			if (length + data.length > buffer.length) {
+				// Write what is buffered, large packets are written directly
+				if (length != 0)
+					output.write(buffer, 0, length);
+				length = 0;
+				if (data.length > buffer.length) {
+					output.write(data);
+					continue;
+				}
+			}
+			System.arraycopy(data, 0, buffer, length, data.length);
+			length += data.length;
+		}
+		if (length != 0)
+			output.write(buffer, 0, length);
+		output.flush();
+	}
+
+}
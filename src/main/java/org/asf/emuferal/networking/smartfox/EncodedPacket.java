@@ -0,0 +1,77 @@
+package org.asf.emuferal.networking.smartfox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.asf.emuferal.packets.smartfox.ISmartfoxPacket;
+
+/**
+ *
+ * Pre-encoded packet, holds the UTF-8 bytes of a packet including the null
+ * terminator so the same packet can be sent to many clients without encoding
+ * it again for every recipient.
+ *
+ */
+public final class EncodedPacket {
+
+	private final String packet;
+	private final byte[] data;
+
+	/**
+	 * Encodes a raw packet
+	 *
+	 * @param packet Raw packet content
+	 */
+	public EncodedPacket(String packet) {
+		this.packet = packet;
+		byte[] payload = packet.getBytes(StandardCharsets.UTF_8);
+		data = new byte[payload.length + 1];
+		System.arraycopy(payload, 0, data, 0, payload.length);
+	}
+
+	/**
+	 * Builds and encodes a packet
+	 *
+	 * @param packet Packet to encode
+	 * @return EncodedPacket instance
+	 * @throws IOException If building the packet fails
+	 */
+	public static EncodedPacket of(ISmartfoxPacket packet) throws IOException {
+		return new EncodedPacket(packet.build());
+	}
+
+	/**
+	 * Retrieves the raw packet content
+	 *
+	 * @return Packet string
+	 */
+	public String getPacket() {
+		return packet;
+	}
+
+	/**
+	 * Retrieves the encoded length, including the null terminator
+	 *
+	 * @return Byte count
+	 */
+	public int getLength() {
+		return data.length;
+	}
+
+	// Shared bytes, callers must not modify the array
+	byte[] data() {
+		return data;
+	}
+
+	// Creates a read view for a single write, the bytes are not copied
+	ByteBuffer buffer() {
+		return ByteBuffer.wrap(data).asReadOnlyBuffer();
+	}
+
+	@Override
+	public String toString() {
+		return packet;
+	}
+
+}
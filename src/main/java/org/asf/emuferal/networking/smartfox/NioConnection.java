@@ -0,0 +1,390 @@
+package org.asf.emuferal.networking.smartfox;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.asf.emuferal.packets.smartfox.IStreamedPacket;
+
+// Non-blocking smartfox connection, packets are framed on the selector thread
+// and handled on the server worker pool
+class NioConnection {
+
+	private static final Object CLOSED = new Object();
+	private static final int CHUNK_SIZE = 16 * 1024;
+
+	// Reading is paused once this many packets are waiting to be handled, and
+	// resumed when the worker has handled half of them
+	private static final int MAX_QUEUED = 256;
+	private static final int RESUME_QUEUED = MAX_QUEUED / 2;
+
+	private SocketChannel channel;
+	private BaseSmartfoxServer server;
+	private NioSelectorThread selectorThread;
+	private SelectionKey key;
+	private SmartfoxClient client;
+
+	private ByteBuffer readBuffer = ByteBuffer.allocate(8192);
+	private PacketFrameDecoder decoder = new PacketFrameDecoder();
+
+	private LinkedBlockingQueue<Object> inbound = new LinkedBlockingQueue<Object>();
+	private ConcurrentLinkedQueue<ByteBuffer> outbound = new ConcurrentLinkedQueue<ByteBuffer>();
+	private ByteBuffer[] writeBatch = new ByteBuffer[64];
+
+	private AtomicBoolean processing = new AtomicBoolean(false);
+	private volatile boolean readPaused = false;
+	private volatile boolean closed = false;
+
+	// Handshake and delayed task state, only used by the worker handling packets
+	private boolean started = false;
+	private Runnable delayedTask;
+	private long delay;
+
+	NioConnection(SocketChannel channel, BaseSmartfoxServer server, NioSelectorThread selectorThread) {
+		this.channel = channel;
+		this.server = server;
+		this.selectorThread = selectorThread;
+		client = new SmartfoxClient(this, server);
+	}
+
+	SocketChannel getChannel() {
+		return channel;
+	}
+
+	SmartfoxClient getClient() {
+		return client;
+	}
+
+	// Called by the selector thread after registration
+	void registered(SelectionKey key) {
+		synchronized (this) {
+			this.key = key;
+			updateInterest();
+		}
+	}
+
+	// Called by the selector thread when data is available
+	void read() {
+		if (readPaused)
+			return;
+		int read;
+		try {
+			read = channel.read(readBuffer);
+		} catch (IOException e) {
+			close();
+			return;
+		}
+		if (read == -1) {
+			close();
+			return;
+		}
+
+		// Frame packets
+		if (!decode())
+			return;
+
+		// Schedule handling
+		schedule();
+	}
+
+	// Frames received packets, stops reading if the client sends faster than its
+	// packets are handled. Unframed data is kept in the read buffer until the
+	// worker caught up.
+	private boolean decode() {
+		readBuffer.flip();
+		try {
+			decoder.feed(readBuffer, inbound::add, MAX_QUEUED - inbound.size());
+		} catch (IOException | IllegalArgumentException e) {
+			close();
+			return false;
+		}
+		readBuffer.compact();
+		if (inbound.size() >= MAX_QUEUED) {
+			synchronized (this) {
+				readPaused = true;
+				updateInterest();
+			}
+		}
+		return true;
+	}
+
+	// Called by the selector thread when the channel can be written to
+	void write() {
+		synchronized (this) {
+			try {
+				while (!outbound.isEmpty()) {
+					// Gather queued packets into a single write
+					int count = 0;
+					for (ByteBuffer buf : outbound) {
+						writeBatch[count++] = buf;
+						if (count == writeBatch.length)
+							break;
+					}
+					channel.write(writeBatch, 0, count);
+
+					// Remove written packets
+					for (int i = 0; i < count; i++) {
+						boolean done = !writeBatch[i].hasRemaining();
+						writeBatch[i] = null;
+						if (!done) {
+							for (int i2 = i + 1; i2 < count; i2++)
+								writeBatch[i2] = null;
+							return;
+						}
+						outbound.poll();
+					}
+				}
+				updateInterest();
+			} catch (IOException e) {
+				outbound.clear();
+				close();
+			}
+		}
+	}
+
+	/**
+	 * Queues raw packet data for sending
+	 *
+	 * @param packet Packet content
+	 */
+	void send(String packet) {
+		if (closed)
+			return;
+		send(new EncodedPacket(packet));
+	}
+
+	/**
+	 * Queues a encoded packet for sending
+	 *
+	 * @param packet Encoded packet
+	 */
+	void send(EncodedPacket packet) {
+		if (closed)
+			return;
+
+		// Queue it, the packet bytes are shared between all recipients
+		synchronized (this) {
+			outbound.add(packet.buffer());
+			updateInterest();
+		}
+		selectorThread.wakeup();
+	}
+
+	/**
+	 * Writes a streamed packet into buffer chunks and queues them for sending, the
+	 * chunks are queued together so other packets cannot end up between them
+	 *
+	 * @param packet Packet to send
+	 * @throws IOException If writing the packet fails
+	 */
+	void send(IStreamedPacket packet) throws IOException {
+		if (closed)
+			return;
+
+		// Write the packet
+		ChunkedOutputStream output = new ChunkedOutputStream();
+		packet.writeTo(output);
+		output.write(0);
+		output.close();
+
+		// Queue it
+		synchronized (this) {
+			outbound.addAll(output.chunks);
+			updateInterest();
+		}
+		selectorThread.wakeup();
+	}
+
+	/**
+	 * Reads a single packet, blocks until one is available
+	 *
+	 * @return Packet string
+	 * @throws IOException If the connection was closed
+	 */
+	String take() throws IOException {
+		Object packet;
+		try {
+			packet = inbound.take();
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted", e);
+		}
+		if (packet == CLOSED) {
+			inbound.add(CLOSED);
+			throw new IOException("Stream closed");
+		}
+		checkResume();
+		return (String) packet;
+	}
+
+	/**
+	 * Runs a task after a delay, no other packets are handled until it has run.
+	 * Must be called by a packet handler of this connection.
+	 *
+	 * @param delay Delay in milliseconds
+	 * @param task  Task to run
+	 */
+	void runDelayed(long delay, Runnable task) {
+		this.delay = delay;
+		delayedTask = task;
+	}
+
+	/**
+	 * Waits for all queued packets to be written
+	 *
+	 * @param timeout Wait timeout length in seconds
+	 */
+	void flush(int timeout) {
+		int i = 0;
+		while (!outbound.isEmpty() && !closed) {
+			if (i < timeout * 100)
+				i++;
+			else
+				break;
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Closes the connection
+	 */
+	void close() {
+		if (closed)
+			return;
+		closed = true;
+		try {
+			channel.close();
+		} catch (IOException e) {
+		}
+		inbound.add(CLOSED);
+		schedule();
+	}
+
+	// Sets the selector interest from the connection state, must be called while
+	// holding the connection lock
+	private void updateInterest() {
+		if (key == null || !key.isValid())
+			return;
+		int ops = readPaused ? 0 : SelectionKey.OP_READ;
+		if (!outbound.isEmpty())
+			ops |= SelectionKey.OP_WRITE;
+		try {
+			key.interestOps(ops);
+		} catch (CancelledKeyException e) {
+		}
+	}
+
+	// Resumes reading once the worker caught up, the selector thread does not
+	// touch the read buffer while reading is paused
+	private void checkResume() {
+		if (readPaused && inbound.size() <= RESUME_QUEUED) {
+			// Frame the packets still in the read buffer first
+			if (!decode() || inbound.size() >= MAX_QUEUED)
+				return;
+			synchronized (this) {
+				readPaused = false;
+				updateInterest();
+			}
+			selectorThread.wakeup();
+		}
+	}
+
+	private void schedule() {
+		if (processing.compareAndSet(false, true))
+			server.executeWorker(this::process);
+	}
+
+	// Handles queued packets on a worker thread, only one worker per connection
+	private void process() {
+		while (true) {
+			Object packet = inbound.poll();
+			if (packet == null) {
+				processing.set(false);
+				if (inbound.isEmpty() || !processing.compareAndSet(false, true))
+					return;
+				continue;
+			}
+			checkResume();
+
+			// Check connection
+			if (packet == CLOSED || client.getSocket() == null) {
+				server.closeClient(client, null);
+				return;
+			}
+
+			// Handle packet, packets are handshake packets until the client has been
+			// started
+			if (!started) {
+				started = server.handleNioHandshake((String) packet, client);
+				if (client.getSocket() == null)
+					return;
+			} else if (!server.handleNioPacket((String) packet, client))
+				return;
+
+			// Run delayed tasks, the connection stays marked as processing so no other
+			// packets are handled in the meantime
+			if (delayedTask != null) {
+				Runnable task = delayedTask;
+				delayedTask = null;
+				server.executeWorkerDelayed(() -> {
+					if (server.runNioTask(task, client))
+						process();
+				}, delay);
+				return;
+			}
+		}
+	}
+
+	// Collects written data in fixed-size buffers so large packets are never
+	// copied into a single array
+	private static class ChunkedOutputStream extends OutputStream {
+
+		private ArrayList<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+		private ByteBuffer current;
+
+		@Override
+		public void write(int b) throws IOException {
+			if (current == null || !current.hasRemaining())
+				next();
+			current.put((byte) b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (current == null || !current.hasRemaining())
+					next();
+				int count = Math.min(len, current.remaining());
+				current.put(b, off, count);
+				off += count;
+				len -= count;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (current != null)
+				current.flip();
+			current = null;
+		}
+
+		private void next() {
+			if (current != null)
+				current.flip();
+			current = ByteBuffer.allocate(CHUNK_SIZE);
+			chunks.add(current);
+		}
+
+	}
+
+}
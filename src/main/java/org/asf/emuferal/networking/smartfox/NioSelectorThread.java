@@ -0,0 +1,93 @@
+package org.asf.emuferal.networking.smartfox;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// I/O thread for the non-blocking smartfox transport
+class NioSelectorThread extends Thread {
+
+	private Selector selector;
+	private BaseSmartfoxServer server;
+	private ConcurrentLinkedQueue<NioConnection> pending = new ConcurrentLinkedQueue<NioConnection>();
+	private volatile boolean running = true;
+
+	NioSelectorThread(BaseSmartfoxServer server, String name) throws IOException {
+		super(name);
+		this.server = server;
+		selector = Selector.open();
+		setDaemon(true);
+	}
+
+	/**
+	 * Adds a client channel to this selector
+	 *
+	 * @param channel Client channel
+	 */
+	void register(SocketChannel channel) throws IOException {
+		channel.configureBlocking(false);
+		pending.add(new NioConnection(channel, server, this));
+		selector.wakeup();
+	}
+
+	void wakeup() {
+		selector.wakeup();
+	}
+
+	void shutdown() {
+		running = false;
+		selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				selector.select();
+			} catch (IOException e) {
+				break;
+			}
+
+			// Register new connections
+			NioConnection conn;
+			while ((conn = pending.poll()) != null) {
+				try {
+					conn.registered(conn.getChannel().register(selector, SelectionKey.OP_READ, conn));
+				} catch (ClosedChannelException e) {
+					conn.close();
+				}
+			}
+
+			// Handle I/O
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				NioConnection connection = (NioConnection) key.attachment();
+				try {
+					if (key.isValid() && key.isReadable())
+						connection.read();
+					if (key.isValid() && key.isWritable())
+						connection.write();
+				} catch (CancelledKeyException e) {
+					connection.close();
+				}
+			}
+		}
+
+		// Close all connections
+		for (SelectionKey key : selector.keys()) {
+			((NioConnection) key.attachment()).close();
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+		}
+	}
+
+}
@@ -0,0 +1,162 @@
+package org.asf.emuferal.networking.smartfox;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+// Frames null-terminated smartfox packets using reusable byte buffers
+class PacketFrameDecoder {
+
+	private static final byte[] XT_PREFIX_N = "%xt|n%".getBytes(StandardCharsets.UTF_8);
+	private static final int FRAME_SIZE = 1024;
+	private static final int FRAME_KEEP_SIZE = 64 * 1024;
+
+	// Frame buffer
+	private byte[] frame = new byte[FRAME_SIZE];
+	private int frameLength;
+
+	// Stream buffer
+	private byte[] readBuffer;
+	private int readPos;
+	private int readLimit;
+
+	/**
+	 * Reads a single packet from a stream, blocks until a full packet has been
+	 * received
+	 *
+	 * @param input Input stream to read from
+	 * @return Packet string
+	 * @throws IOException If reading fails
+	 */
+	String readPacket(InputStream input) throws IOException {
+		if (readBuffer == null)
+			readBuffer = new byte[8192];
+
+		while (true) {
+			// Fill buffer
+			if (readPos == readLimit) {
+				int read = input.read(readBuffer);
+				if (read == -1)
+					throw new IOException("Stream closed");
+				readPos = 0;
+				readLimit = read;
+			}
+
+			// Find terminator
+			int start = readPos;
+			int end = start;
+			while (end < readLimit && readBuffer[end] != 0)
+				end++;
+			append(readBuffer, start, end - start);
+			if (end < readLimit) {
+				readPos = end + 1;
+				return completeFrame();
+			}
+			readPos = readLimit;
+		}
+	}
+
+	/**
+	 * Frames all packets in the given buffer, incomplete packets are kept until
+	 * more data arrives
+	 *
+	 * @param data    Received data
+	 * @param packets Packet consumer
+	 * @throws IOException If decoding fails
+	 */
+	void feed(ByteBuffer data, Consumer<String> packets) throws IOException {
+		feed(data, packets, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Frames packets in the given buffer until the limit is reached, the buffer
+	 * position is left at the first byte that has not been framed
+	 *
+	 * @param data       Received data
+	 * @param packets    Packet consumer
+	 * @param maxPackets Maximum amount of packets to frame
+	 * @return Amount of framed packets
+	 * @throws IOException If decoding fails
+	 */
+	int feed(ByteBuffer data, Consumer<String> packets, int maxPackets) throws IOException {
+		byte[] array = data.array();
+		int pos = data.arrayOffset() + data.position();
+		int limit = data.arrayOffset() + data.limit();
+		int count = 0;
+		while (pos < limit && count < maxPackets) {
+			int end = pos;
+			while (end < limit && array[end] != 0)
+				end++;
+			append(array, pos, end - pos);
+			if (end < limit) {
+				packets.accept(completeFrame());
+				count++;
+			}
+			pos = end + 1;
+		}
+		data.position(Math.min(pos, limit) - data.arrayOffset());
+		return count;
+	}
+
+	private void append(byte[] data, int offset, int length) {
+		if (length == 0)
+			return;
+		if (frameLength + length > frame.length)
+			frame = Arrays.copyOf(frame, Math.max(frame.length * 2, frameLength + length));
+		System.arraycopy(data, offset, frame, frameLength, length);
+		frameLength += length;
+	}
+
+	private String completeFrame() throws IOException {
+		String payload = decode(frame, frameLength);
+		frameLength = 0;
+
+		// Release large buffers after big packets
+		if (frame.length > FRAME_KEEP_SIZE)
+			frame = new byte[FRAME_SIZE];
+		return payload;
+	}
+
+	/**
+	 * Decodes a packet frame, handles the XT prefix fix and compressed payloads
+	 *
+	 * @param data   Frame bytes
+	 * @param length Frame length
+	 * @return Packet string
+	 * @throws IOException If decompression fails
+	 */
+	static String decode(byte[] data, int length) throws IOException {
+		// Compression
+		if (length > 0 && data[0] == '$') {
+			// Decompress packet
+			ByteBuffer compressedData = Base64.getDecoder().decode(ByteBuffer.wrap(data, 1, length - 1));
+			GZIPInputStream dc = new GZIPInputStream(new ByteArrayInputStream(compressedData.array(),
+					compressedData.arrayOffset() + compressedData.position(), compressedData.remaining()));
+			byte[] newData = dc.readAllBytes();
+			dc.close();
+			return new String(newData, StandardCharsets.UTF_8);
+		}
+
+		// Solve for the XT issue
+		if (startsWith(data, length, XT_PREFIX_N))
+			return "%xt%" + new String(data, XT_PREFIX_N.length, length - XT_PREFIX_N.length, StandardCharsets.UTF_8);
+		return new String(data, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private static boolean startsWith(byte[] data, int length, byte[] prefix) {
+		if (length < prefix.length)
+			return false;
+		for (int i = 0; i < prefix.length; i++) {
+			if (data[i] != prefix[i])
+				return false;
+		}
+		return true;
+	}
+
+}
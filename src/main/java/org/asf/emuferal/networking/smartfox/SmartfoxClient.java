@@ -6,6 +6,7 @@ import java.io.OutputStream;
 import java.net.Socket;
 
 import org.asf.emuferal.packets.smartfox.ISmartfoxPacket;
+import org.asf.emuferal.packets.smartfox.IStreamedPacket;
 import org.asf.emuferal.util.TaskThread;
 
 public class SmartfoxClient {
@@ -14,8 +15,11 @@ public class SmartfoxClient {
 	private BaseSmartfoxServer server;
 	InputStream input;
 	OutputStream output;
+	PacketFrameDecoder decoder = new PacketFrameDecoder();
 
 	private TaskThread taskThread;
+	private CoalescingPacketWriter writer;
+	NioConnection connection;
 
 	/**
 	 * Field for storing, eg. a player instance object
@@ -34,10 +38,18 @@ public class SmartfoxClient {
 			output = client.getOutputStream();
 		} catch (IOException e) {
 		}
+		writer = new CoalescingPacketWriter(this, output, taskThread);
+	}
+
+	SmartfoxClient(NioConnection connection, BaseSmartfoxServer server) {
+		this.connection = connection;
+		this.client = connection.getChannel().socket();
+		this.server = server;
 	}
 
 	void stop() {
-		taskThread.stopCleanly();
+		if (taskThread != null)
+			taskThread.stopCleanly();
 		client = null;
 	}
 
@@ -63,6 +75,15 @@ public class SmartfoxClient {
 	 * Disconnects the client
 	 */
 	public void disconnect() {
+		if (connection != null) {
+			// Non-blocking transport, close the channel after the disconnect code ran
+			connection.flush(3);
+			server.clientDisconnect(this);
+			stop();
+			connection.close();
+			return;
+		}
+
 		taskThread.flush(3);
 		try {
 			if (client != null)
@@ -79,19 +100,20 @@ public class SmartfoxClient {
 	 * @param packet Packet to send
 	 */
 	public void sendPacket(ISmartfoxPacket packet) {
-		taskThread.schedule(() -> {
-			try {
-				// Instantiate the packet and build
-				String content = packet.build();
-
-				// Send packet
-				byte[] payload = content.getBytes("UTF-8");
-				output.write(payload);
-				output.write(0);
-				output.flush();
-			} catch (Exception e) {
+		try {
+			// Large packets are written without building the packet string
+			if (packet instanceof IStreamedPacket && ((IStreamedPacket) packet).isStreamed()) {
+				if (connection != null)
+					connection.send((IStreamedPacket) packet);
+				else
+					writer.send((IStreamedPacket) packet);
+				return;
 			}
-		});
+
+			// Build the packet on the calling thread so it is queued in order
+			sendPacket(packet.build());
+		} catch (Exception e) {
+		}
 	}
 
 	/**
@@ -100,18 +122,47 @@ public class SmartfoxClient {
 	 * @param packet Raw packet to send
 	 */
 	public void sendPacket(String packet) {
-		taskThread.schedule(() -> {
-			try {
-				// Send packet
-				byte[] payload = packet.getBytes("UTF-8");
-				if (getSocket() == null)
-					return;
-				output.write(payload);
-				output.write(0);
-				output.flush();
-			} catch (Exception e) {
-			}
-		});
+		if (connection != null) {
+			connection.send(packet);
+			return;
+		}
+		sendPacket(new EncodedPacket(packet));
+	}
+
+	/**
+	 * Sends a pre-encoded packet to the client, use this to send the same packet
+	 * to many clients
+	 * 
+	 * @param packet Encoded packet to send
+	 */
+	public void sendPacket(EncodedPacket packet) {
+		if (connection != null) {
+			connection.send(packet);
+			return;
+		}
+		writer.send(packet.data());
+	}
+
+	/**
+	 * Runs a task after a delay, no other packets from this client are handled
+	 * until the task has run. Use this instead of sleeping in packet handlers, the
+	 * non-blocking transport does not keep a thread waiting during the delay.
+	 * 
+	 * @param delay Delay in milliseconds
+	 * @param task  Task to run
+	 */
+	public void runDelayed(long delay, Runnable task) {
+		if (connection != null) {
+			connection.runDelayed(delay, task);
+			return;
+		}
+
+		// Blocking transport, wait on the client thread
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+		}
+		task.run();
 	}
 
 	/**
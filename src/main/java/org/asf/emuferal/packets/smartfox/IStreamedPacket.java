@@ -0,0 +1,31 @@
+package org.asf.emuferal.packets.smartfox;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ *
+ * Packet that can be written to the client directly instead of being built as
+ * a string first, used for large payloads
+ *
+ */
+public interface IStreamedPacket extends ISmartfoxPacket {
+
+	/**
+	 * Checks if the packet should be streamed, packets that are not streamed are
+	 * sent using {@link #build()}
+	 *
+	 * @return True if the packet should be streamed, false otherwise
+	 */
+	public boolean isStreamed();
+
+	/**
+	 * Writes the packet content as UTF-8, the output must be identical to the
+	 * result of {@link #build()} (without null terminator)
+	 *
+	 * @param output Output stream to write to
+	 * @throws IOException If writing fails
+	 */
+	public void writeTo(OutputStream output) throws IOException;
+
+}
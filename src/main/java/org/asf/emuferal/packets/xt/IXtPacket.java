@@ -15,11 +15,10 @@ public interface IXtPacket<T extends IXtPacket<T>> extends ISmartfoxPacket {
 		if (!content.startsWith("%xt%"))
 			return false;
 		
-		XtReader rd = new XtReader(content);
-		String packetID = rd.read();
-		if (!packetID.equals(id()))
-			return false;
-		return true;
+		// Compare the ID without parsing the packet
+		String id = id();
+		return content.startsWith(id, 4) && (content.length() == 4 + id.length()
+				|| content.charAt(4 + id.length()) == '%');
 	}
 
 	public default boolean parse(String content) throws IOException {
@@ -43,7 +42,9 @@ public interface IXtPacket<T extends IXtPacket<T>> extends ISmartfoxPacket {
 		XtWriter writer = new XtWriter();
 		writer.writeString(id());
 		build(writer);
-		return writer.encode();
+		String packet = writer.encode();
+		writer.release();
+		return packet;
 	}
 
 	/**
@@ -10,7 +10,7 @@ import org.asf.emuferal.packets.xt.IXtPacket;
 public class PrefixedPacket implements IXtPacket<PrefixedPacket> {
 
 	private String packetID;
-	private String subPacket;
+	private XtReader subPacket;
 
 	@Override
 	public PrefixedPacket instantiate() {
@@ -28,7 +28,7 @@ public class PrefixedPacket implements IXtPacket<PrefixedPacket> {
 		reader.read(); // data prefix (always -1)
 
 		// For followup content
-		subPacket = reader.readRemaining();
+		subPacket = reader;
 	}
 
 	@Override
@@ -39,8 +39,7 @@ public class PrefixedPacket implements IXtPacket<PrefixedPacket> {
 
 	@Override
 	public boolean handle(SmartfoxClient client) throws IOException {
-		String data = "%xt%" + packetID + "%" + subPacket + "%";
-		return client.getServer().handlePacket(data, client);
+		return client.getServer().handlePacket(packetID, subPacket, client);
 	}
 
 }
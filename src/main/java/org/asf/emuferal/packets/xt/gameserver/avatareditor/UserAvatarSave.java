@@ -111,8 +111,8 @@ public class UserAvatarSave implements IXtPacket<UserAvatarSave> {
 	
 			// Sync
 			GameServer srv = (GameServer) client.getServer();
-			for (Player player : srv.getPlayers()) {
-				if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
+			for (Player player : srv.getPlayersInRoom(plr.room)) {
+				if (player != plr) {
 					plr.syncTo(player);
 				}
 			}
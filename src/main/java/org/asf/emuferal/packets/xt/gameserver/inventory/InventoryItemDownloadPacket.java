@@ -26,6 +26,24 @@ public class InventoryItemDownloadPacket implements IXtPacket<InventoryItemDownl
 
 	private String slot = "";
 
+	// Default item sets, shared by all players so the same payload is sent
+	private static final JsonArray emotes = new JsonArray();
+	private static String[] defaultClothing;
+	private static String[] defaultFurniture;
+
+	static {
+		// Add all emotes
+		long timestamp = System.currentTimeMillis();
+		addEmote(emotes, "9122", timestamp);
+		addEmote(emotes, "9151", timestamp);
+		addEmote(emotes, "9108", timestamp);
+		addEmote(emotes, "9121", timestamp);
+		addEmote(emotes, "9143", timestamp);
+		addEmote(emotes, "9190", timestamp);
+		addEmote(emotes, "8930", timestamp);
+		addEmote(emotes, "9116", timestamp);
+	}
+
 	@Override
 	public InventoryItemDownloadPacket instantiate() {
 		return new InventoryItemDownloadPacket();
@@ -182,14 +200,11 @@ public class InventoryItemDownloadPacket implements IXtPacket<InventoryItemDownl
 				// Scan clothinghelper and give all clothes
 				try {
 					// Load helper
-					InputStream strm = InventoryItemDownloadPacket.class.getClassLoader()
-							.getResourceAsStream("defaultitems/clothinghelper.json");
-					JsonObject helper = JsonParser.parseString(new String(strm.readAllBytes(), "UTF-8"))
-							.getAsJsonObject().get("Clothing").getAsJsonObject();
-					strm.close();
+					if (defaultClothing == null)
+						defaultClothing = loadDefaultItems("defaultitems/clothinghelper.json", "Clothing");
 
 					// Add all clothes (3 of each)
-					for (String id : helper.keySet()) {
+					for (String id : defaultClothing) {
 						if (inv.getClothingAccessor().getClothingCount(Integer.valueOf(id)) < 3) {
 							for (int i = inv.getClothingAccessor().getClothingCount(Integer.valueOf(id)); i < 3; i++) {
 								inv.getClothingAccessor().addClothing(Integer.valueOf(id), false);
@@ -223,14 +238,11 @@ public class InventoryItemDownloadPacket implements IXtPacket<InventoryItemDownl
 			// Scan furniturehelper and give all clothes
 			try {
 				// Load helper
-				InputStream strm = InventoryItemDownloadPacket.class.getClassLoader()
-						.getResourceAsStream("defaultitems/furniturehelper.json");
-				JsonObject helper = JsonParser.parseString(new String(strm.readAllBytes(), "UTF-8")).getAsJsonObject()
-						.get("Furniture").getAsJsonObject();
-				strm.close();
+				if (defaultFurniture == null)
+					defaultFurniture = loadDefaultItems("defaultitems/furniturehelper.json", "Furniture");
 
 				// Add all furniture (6 of each)
-				for (String id : helper.keySet()) {
+				for (String id : defaultFurniture) {
 					if (inv.getFurnitureAccessor().getFurnitureCount(Integer.valueOf(id)) < 6) {
 						for (int i = inv.getFurnitureAccessor().getFurnitureCount(Integer.valueOf(id)); i < 6; i++) {
 							inv.getFurnitureAccessor().addFurniture(Integer.valueOf(id), false);
@@ -248,21 +260,9 @@ public class InventoryItemDownloadPacket implements IXtPacket<InventoryItemDownl
 
 		// Emotes
 		if (slot.equals("9")) {
-			JsonArray item = new JsonArray();
-
-			// Add all emotes
-			addEmote(item, "9122");
-			addEmote(item, "9151");
-			addEmote(item, "9108");
-			addEmote(item, "9121");
-			addEmote(item, "9143");
-			addEmote(item, "9190");
-			addEmote(item, "8930");
-			addEmote(item, "9116");
-
 			// Send the item to the client
 			InventoryItemPacket pkt = new InventoryItemPacket();
-			pkt.item = item;
+			pkt.item = emotes;
 			client.sendPacket(pkt);
 
 			return true;
@@ -351,6 +351,11 @@ public class InventoryItemDownloadPacket implements IXtPacket<InventoryItemDownl
 				changed = true;
 			}
 
+			if (changed) {
+				// Save item
+				inv.setItem(slot, itm);
+			}
+
 			// Creative mode
 			if (EmuFeral.giveAllCurrency) {
 				// Add 10k if 0
@@ -365,11 +370,8 @@ public class InventoryItemDownloadPacket implements IXtPacket<InventoryItemDownl
 				}
 			}
 
-			if (changed) {
-				// Save item
-				item = itm;
-				inv.setItem(slot, item);
-			}
+			// Reload the currency, the accessor keeps it in typed form
+			item = inv.getItem(slot);
 		}
 
 		// Quest progression items
@@ -489,13 +491,13 @@ public class InventoryItemDownloadPacket implements IXtPacket<InventoryItemDownl
 		return true;
 	}
 
-	private void addEmote(JsonArray item, String emote) {
+	private static void addEmote(JsonArray item, String emote, long timestamp) {
 		// Create emote json
 		JsonObject obj = new JsonObject();
 		obj.addProperty("defId", emote);
 		JsonObject components = new JsonObject();
 		JsonObject ts = new JsonObject();
-		ts.addProperty("ts", System.currentTimeMillis());
+		ts.addProperty("ts", timestamp);
 		components.add("Timestamp", ts);
 		obj.add("components", components);
 		obj.addProperty("id", UUID.nameUUIDFromBytes(emote.getBytes()).toString());
@@ -503,6 +505,15 @@ public class InventoryItemDownloadPacket implements IXtPacket<InventoryItemDownl
 		item.add(obj);
 	}
 
+	// Loads the item IDs of a default item helper
+	private static String[] loadDefaultItems(String resource, String container) throws IOException {
+		InputStream strm = InventoryItemDownloadPacket.class.getClassLoader().getResourceAsStream(resource);
+		JsonObject helper = JsonParser.parseString(new String(strm.readAllBytes(), "UTF-8")).getAsJsonObject()
+				.get(container).getAsJsonObject();
+		strm.close();
+		return helper.keySet().toArray(t -> new String[t]);
+	}
+
 	private void buildInventory(Player plr, PlayerInventory inv) {
 		// Check if wings, mods and clothing is disabled
 		if (!EmuFeral.giveAllMods && !EmuFeral.giveAllWings) {
@@ -1,21 +1,23 @@
 package org.asf.emuferal.packets.xt.gameserver.inventory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.Base64;
-import java.util.zip.GZIPOutputStream;
+import java.io.OutputStream;
 
 import org.asf.emuferal.data.XtReader;
 import org.asf.emuferal.data.XtWriter;
 import org.asf.emuferal.networking.smartfox.SmartfoxClient;
+import org.asf.emuferal.packets.smartfox.IStreamedPacket;
 import org.asf.emuferal.packets.xt.IXtPacket;
 
 import com.google.gson.JsonElement;
 
-public class InventoryItemPacket implements IXtPacket<InventoryItemPacket> {
+public class InventoryItemPacket implements IXtPacket<InventoryItemPacket>, IStreamedPacket {
 
 	private static final String PACKET_ID = "il";
 
+	// Inventories with this many objects are streamed to the client
+	private static final int STREAM_THRESHOLD = 100;
+
 	public JsonElement item;
 
 	@Override
@@ -39,17 +41,33 @@ public class InventoryItemPacket implements IXtPacket<InventoryItemPacket> {
 			System.out.println("[INVENTORY] [UPDATE]  Server to client: " + item);
 		}
 
-		ByteArrayOutputStream op = new ByteArrayOutputStream();
-		GZIPOutputStream gz = new GZIPOutputStream(op);
-		gz.write(item.toString().getBytes("UTF-8"));
-		gz.close();
-		op.close();
-
 		writer.writeInt(-1); // Data prefix
-		writer.writeString(Base64.getEncoder().encodeToString(op.toByteArray()));
+		writer.writeString(InventoryPayloadCache.getPayload(item.toString()));
 		writer.writeString(""); // Empty suffix
 	}
 
+	@Override
+	public boolean isStreamed() {
+		return item.isJsonArray() && item.getAsJsonArray().size() >= STREAM_THRESHOLD;
+	}
+
+	@Override
+	public void writeTo(OutputStream output) throws IOException {
+		// Log
+		if (System.getProperty("debugMode") != null) {
+			System.out.println("[INVENTORY] [UPDATE]  Server to client: " + item);
+		}
+
+		XtWriter writer = new XtWriter();
+		writer.writeString(id());
+		writer.writeInt(-1); // Data prefix
+		writer.writeString(""); // Payload is written after the separator
+		writer.encodeTo(output);
+		writer.release();
+		InventoryPayloadCache.writePayload(item, output);
+		output.write('%'); // Empty suffix
+	}
+
 	@Override
 	public boolean handle(SmartfoxClient client) throws IOException {
 		return false;
@@ -0,0 +1,177 @@
+package org.asf.emuferal.packets.xt.gameserver.inventory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.asf.emuferal.data.JsonPayloadEncoder;
+
+import com.google.gson.JsonElement;
+
+/**
+ *
+ * Content-addressed cache of compressed inventory payloads, payloads are keyed
+ * by the hash of the inventory json so identical slots (unchanged inventories,
+ * empty slots and shared default items) are only compressed once
+ *
+ */
+public class InventoryPayloadCache {
+
+	private static final long MAX_SIZE = 32 * 1024 * 1024;
+	private static final int MIN_LENGTH = 256;
+	private static final int MAX_STREAMED_ENTRY = 256 * 1024;
+
+	private static long size;
+	private static LinkedHashMap<String, String> payloads = new LinkedHashMap<String, String>(16, 0.75f, true);
+
+	/**
+	 * Retrieves the gzip-compressed base64 payload of a inventory item
+	 *
+	 * @param json Inventory item json
+	 * @return Base64-encoded gzip payload
+	 * @throws IOException If compressing fails
+	 */
+	public static String getPayload(String json) throws IOException {
+		byte[] data = json.getBytes(StandardCharsets.UTF_8);
+
+		// Small payloads are cheaper to compress than to hash
+		if (data.length < MIN_LENGTH)
+			return compress(data);
+
+		// Find cached payload
+		String key = hash(data);
+		synchronized (payloads) {
+			String payload = payloads.get(key);
+			if (payload != null)
+				return payload;
+		}
+
+		// Compress and add to cache
+		String payload = compress(data);
+		add(key, payload);
+		return payload;
+	}
+
+	private static void add(String key, String payload) {
+		synchronized (payloads) {
+			if (payloads.put(key, payload) == null)
+				size += payload.length();
+
+			// Remove least recently used payloads
+			Iterator<Map.Entry<String, String>> it = payloads.entrySet().iterator();
+			while (size > MAX_SIZE && it.hasNext()) {
+				size -= it.next().getValue().length();
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Writes the gzip-compressed base64 payload of a inventory item without
+	 * building the full json, compressed or base64 copies in memory. Cached
+	 * payloads are written directly, payloads that are not cached are compressed
+	 * while writing and only kept if they are small enough.
+	 *
+	 * @param item   Inventory item json
+	 * @param output Output stream to write to
+	 * @throws IOException If compressing or writing fails
+	 */
+	public static void writePayload(JsonElement item, OutputStream output) throws IOException {
+		// Find cached payload
+		String key = hash(item);
+		String payload;
+		synchronized (payloads) {
+			payload = payloads.get(key);
+		}
+		if (payload != null) {
+			output.write(payload.getBytes(StandardCharsets.ISO_8859_1));
+			return;
+		}
+
+		// Compress while writing
+		CapturingOutputStream capture = new CapturingOutputStream(output);
+		JsonPayloadEncoder.encode(item, capture);
+		if (capture.data != null)
+			add(key, new String(capture.data.toByteArray(), StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Removes all cached payloads
+	 */
+	public static void clear() {
+		synchronized (payloads) {
+			payloads.clear();
+			size = 0;
+		}
+	}
+
+	private static String compress(byte[] data) throws IOException {
+		ByteArrayOutputStream op = new ByteArrayOutputStream();
+		GZIPOutputStream gz = new GZIPOutputStream(op);
+		gz.write(data);
+		gz.close();
+		return Base64.getEncoder().encodeToString(op.toByteArray());
+	}
+
+	private static String hash(byte[] data) {
+		return Base64.getEncoder().encodeToString(digest().digest(data));
+	}
+
+	// Hashes the same bytes as the json string without building it
+	private static String hash(JsonElement item) throws IOException {
+		MessageDigest digest = digest();
+		JsonPayloadEncoder.serialize(item, new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+		return Base64.getEncoder().encodeToString(digest.digest());
+	}
+
+	private static MessageDigest digest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	// Copies written data until it grows too large to cache
+	private static class CapturingOutputStream extends OutputStream {
+
+		private OutputStream output;
+		private ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+		public CapturingOutputStream(OutputStream output) {
+			this.output = output;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			output.write(b, off, len);
+			if (data != null) {
+				if (data.size() + len > MAX_STREAMED_ENTRY)
+					data = null;
+				else
+					data.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			output.flush();
+		}
+
+	}
+
+}
@@ -5,6 +5,7 @@ import java.io.IOException;
 import org.asf.emuferal.data.XtReader;
 import org.asf.emuferal.data.XtWriter;
 import org.asf.emuferal.minigames.TwiggleBuilders;
+import org.asf.emuferal.networking.gameserver.GameServer;
 import org.asf.emuferal.networking.smartfox.SmartfoxClient;
 import org.asf.emuferal.packets.xt.IXtPacket;
 import org.asf.emuferal.players.Player;
@@ -66,7 +67,7 @@ public class MinigameJoin implements IXtPacket<MinigameJoin> {
 			// Assign room
 			plr.roomReady = true;
 			plr.levelID = MinigameID;
-			plr.room = "room_" + MinigameID;
+			((GameServer) client.getServer()).setPlayerRoom(plr, "room_" + MinigameID);
 			plr.levelType = 1;
 		}
 		
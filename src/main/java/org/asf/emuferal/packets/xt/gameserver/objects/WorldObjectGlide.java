@@ -47,11 +47,7 @@ public class WorldObjectGlide implements IXtPacket<WorldObjectGlide> {
 
 		// Broadcast packet
 		GameServer srv = (GameServer) client.getServer();
-		for (Player player : srv.getPlayers()) {
-			if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
-				player.client.sendPacket(this);
-			}
-		}
+		srv.broadcastToRoom(plr.room, this, plr);
 
 		return true;
 	}
@@ -65,11 +65,7 @@ public class WorldObjectRespawn implements IXtPacket<WorldObjectRespawn> {
 
 		// Broadcast respawn
 		GameServer srv = (GameServer) client.getServer();
-		for (Player player : srv.getPlayers()) {
-			if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
-				player.client.sendPacket(pk.encode());
-			}
-		}
+		srv.broadcastToRoom(plr.room, pk.encode(), plr);
 
 		return true;
 	}
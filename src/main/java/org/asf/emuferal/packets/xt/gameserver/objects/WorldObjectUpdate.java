@@ -193,14 +193,13 @@ public class WorldObjectUpdate implements IXtPacket<WorldObjectUpdate> {
 		plr.lastLocation = plr.lastPosX + "%" + plr.lastPosY + "%" + plr.lastPosZ + "%" + plr.lastRotX + "%"
 				+ plr.lastRotY + "%" + plr.lastRotZ + "%" + plr.lastRotW;
 
-		// Broadcast sync
+		// Broadcast sync, regular movement is coalesced
 		String msg = pk.encode();
 		GameServer srv = (GameServer) client.getServer();
-		for (Player player : srv.getPlayers()) {
-			if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
-				player.client.sendPacket(msg);
-			}
-		}
+		if (mode == 0 || mode == 2 || mode == 4)
+			srv.queueMovementUpdate(plr, mode, msg);
+		else
+			srv.sendMovementUpdate(plr, msg);
 
 		return true;
 	}
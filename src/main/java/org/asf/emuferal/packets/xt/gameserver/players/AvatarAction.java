@@ -110,11 +110,7 @@ public class AvatarAction implements IXtPacket<AvatarAction> {
 
 		// Broadcast sync
 		GameServer srv = (GameServer) client.getServer();
-		for (Player player : srv.getPlayers()) {
-			if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
-				player.client.sendPacket(pk.encode());
-			}
-		}
+		srv.broadcastToRoom(plr.room, pk.encode(), plr);
 
 		return true;
 	}
@@ -60,33 +60,31 @@ public class SanctuaryLookLoadPacket implements IXtPacket<SanctuaryLookLoadPacke
 		plr.client.sendPacket(this);
 
 		// Sync
-		for (Player player : ((GameServer) client.getServer()).getPlayers()) {
-			if (player.room != null && player.room.equals("sanctuary_" + plr.account.getAccountID())) {
-				// Build room join
-				JoinRoom join = new JoinRoom();
-				join.levelType = 2;
-				join.levelID = 1689;
-				join.roomIdentifier = "sanctuary_" + plr.account.getAccountID();
-				join.teleport = plr.account.getAccountID();
-
-				// Sync
-				GameServer srv = (GameServer) client.getServer();
-				for (Player plr2 : srv.getPlayers()) {
-					if (plr2.room != null && player.room != null && player.room != null && plr2.room.equals(player.room)
-							&& plr2 != player) {
-						player.destroyAt(plr2);
-					}
+		for (Player player : ((GameServer) client.getServer())
+				.getPlayersInRoom("sanctuary_" + plr.account.getAccountID())) {
+			// Build room join
+			JoinRoom join = new JoinRoom();
+			join.levelType = 2;
+			join.levelID = 1689;
+			join.roomIdentifier = "sanctuary_" + plr.account.getAccountID();
+			join.teleport = plr.account.getAccountID();
+
+			// Sync
+			GameServer srv = (GameServer) client.getServer();
+			for (Player plr2 : srv.getPlayersInRoom(player.room)) {
+				if (plr2 != player) {
+					player.destroyAt(plr2);
 				}
+			}
 
-				// Assign room
-				player.roomReady = false;
-				player.pendingLevelID = 1689;
-				player.pendingRoom = "sanctuary_" + plr.account.getAccountID();
-				player.levelType = join.levelType;
+			// Assign room
+			player.roomReady = false;
+			player.pendingLevelID = 1689;
+			player.pendingRoom = "sanctuary_" + plr.account.getAccountID();
+			player.levelType = join.levelType;
 
-				// Send packet
-				player.client.sendPacket(join);
-			}
+			// Send packet
+			player.client.sendPacket(join);
 		}
 
 		return true;
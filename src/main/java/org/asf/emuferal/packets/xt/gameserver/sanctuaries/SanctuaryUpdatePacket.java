@@ -205,41 +205,40 @@ public class SanctuaryUpdatePacket implements IXtPacket<SanctuaryUpdatePacket> {
 						.getFurnitureData(update.objectId);
 
 				// now do an OI packet
-				for (Player player : ((GameServer) client.getServer()).getPlayers()) {
-					if (player.room != null && player.room.equals("sanctuary_" + owner.account.getAccountID())) {
-						// Send packet
-						SanctuaryWorldObjectInfoPacket packet = new SanctuaryWorldObjectInfoPacket();
-
-						// Object creation parameters
-						packet.id = update.objectId; // World object ID
-						packet.defId = 1751; // Sanctuary Actor Def Id.
-						packet.ownerId = player.room.substring("sanctuary_".length()); // Owner ID
-
-						// Object info
-						packet.lastMove = new WorldObjectMoveNodeData();
-						packet.lastMove.positionInfo = new WorldObjectPositionInfo(
-								update.objectInfo.positionInfo.position.x, update.objectInfo.positionInfo.position.y,
-								update.objectInfo.positionInfo.position.z, update.objectInfo.positionInfo.rotation.x,
-								update.objectInfo.positionInfo.rotation.y, update.objectInfo.positionInfo.rotation.z,
-								update.objectInfo.positionInfo.rotation.w);
-						packet.lastMove.velocity = new Velocity();
-						packet.lastMove.serverTime = System.currentTimeMillis() / 1000;
-						packet.lastMove.actorActionType = ActorActionType.None;
-						packet.lastMove.nodeType = WorldObjectMoverNodeType.InitPosition;
-
-						packet.objectType = SanctuaryObjectType.Furniture;
-						// Only send json if its not the owner
-						packet.writeFurnitureInfo = !player.account.getAccountID().equals(owner.account.getAccountID());
-						packet.funitureObject = furnItem;
-						packet.sancObjectInfo = update.objectInfo;
-
-						player.client.sendPacket(packet);
-
-						// Log
-						if (System.getProperty("debugMode") != null) {
-							System.out.println(
-									"[SANCTUARY] [UPDATE] Server to client: load object (" + packet.build() + ")");
-						}
+				for (Player player : ((GameServer) client.getServer())
+						.getPlayersInRoom("sanctuary_" + owner.account.getAccountID())) {
+					// Send packet
+					SanctuaryWorldObjectInfoPacket packet = new SanctuaryWorldObjectInfoPacket();
+
+					// Object creation parameters
+					packet.id = update.objectId; // World object ID
+					packet.defId = 1751; // Sanctuary Actor Def Id.
+					packet.ownerId = player.room.substring("sanctuary_".length()); // Owner ID
+
+					// Object info
+					packet.lastMove = new WorldObjectMoveNodeData();
+					packet.lastMove.positionInfo = new WorldObjectPositionInfo(
+							update.objectInfo.positionInfo.position.x, update.objectInfo.positionInfo.position.y,
+							update.objectInfo.positionInfo.position.z, update.objectInfo.positionInfo.rotation.x,
+							update.objectInfo.positionInfo.rotation.y, update.objectInfo.positionInfo.rotation.z,
+							update.objectInfo.positionInfo.rotation.w);
+					packet.lastMove.velocity = new Velocity();
+					packet.lastMove.serverTime = System.currentTimeMillis() / 1000;
+					packet.lastMove.actorActionType = ActorActionType.None;
+					packet.lastMove.nodeType = WorldObjectMoverNodeType.InitPosition;
+
+					packet.objectType = SanctuaryObjectType.Furniture;
+					// Only send json if its not the owner
+					packet.writeFurnitureInfo = !player.account.getAccountID().equals(owner.account.getAccountID());
+					packet.funitureObject = furnItem;
+					packet.sancObjectInfo = update.objectInfo;
+
+					player.client.sendPacket(packet);
+
+					// Log
+					if (System.getProperty("debugMode") != null) {
+						System.out.println(
+								"[SANCTUARY] [UPDATE] Server to client: load object (" + packet.build() + ")");
 					}
 				}
 			}
@@ -248,23 +247,22 @@ public class SanctuaryUpdatePacket implements IXtPacket<SanctuaryUpdatePacket> {
 				var owner = (Player) client.container;
 
 				// now do an OD packet
-				for (Player player : ((GameServer) client.getServer()).getPlayers()) {
-					if (player.room != null && player.room.equals("sanctuary_" + owner.account.getAccountID())) {
-						// Send packet
-						XtWriter wr = new XtWriter();
-						wr.writeString("od");
-						wr.writeInt(-1); // data prefix
-
-						// Object creation parameters
-						wr.writeString(removedItemId); // World object ID
-						wr.writeString(""); // data suffix
-						String pk = wr.encode();
-						player.client.sendPacket(pk);
-
-						// Log
-						if (System.getProperty("debugMode") != null) {
-							System.out.println("[SANCTUARY] [UPDATE] Server to client: Delete object (" + pk + ")");
-						}
+				for (Player player : ((GameServer) client.getServer())
+						.getPlayersInRoom("sanctuary_" + owner.account.getAccountID())) {
+					// Send packet
+					XtWriter wr = new XtWriter();
+					wr.writeString("od");
+					wr.writeInt(-1); // data prefix
+
+					// Object creation parameters
+					wr.writeString(removedItemId); // World object ID
+					wr.writeString(""); // data suffix
+					String pk = wr.encode();
+					player.client.sendPacket(pk);
+
+					// Log
+					if (System.getProperty("debugMode") != null) {
+						System.out.println("[SANCTUARY] [UPDATE] Server to client: Delete object (" + pk + ")");
 					}
 				}
 			}
@@ -273,42 +271,41 @@ public class SanctuaryUpdatePacket implements IXtPacket<SanctuaryUpdatePacket> {
 				var owner = (Player) client.container;
 
 				// now do an OI packet
-				for (Player player : ((GameServer) client.getServer()).getPlayers()) {
-					if (player.room != null && player.room.equals("sanctuary_" + owner.account.getAccountID())) {
-						// Send packet
-						SanctuaryWorldObjectInfoPacket packet = new SanctuaryWorldObjectInfoPacket();
-
-						// Object creation parameters
-						packet.id = houseInv.get(InventoryItem.UUID_PROPERTY_NAME).getAsString(); // World object ID
-						packet.defId = 1751; // Sanctuary Actor Def Id.
-						packet.ownerId = player.room.substring("sanctuary_".length()); // Owner ID
-
-						// Object info
-						packet.lastMove = new WorldObjectMoveNodeData();
-						packet.lastMove.positionInfo = new WorldObjectPositionInfo(0, 0, 0, 0, 0, 0, 0);
-						packet.lastMove.velocity = new Velocity();
-						packet.lastMove.serverTime = System.currentTimeMillis() / 1000;
-						packet.lastMove.actorActionType = ActorActionType.None;
-						packet.lastMove.nodeType = WorldObjectMoverNodeType.InitPosition;
-
-						packet.objectType = SanctuaryObjectType.House;
-						// Only send json if its not the owner
-						packet.writeFurnitureInfo = !player.account.getAccountID().equals(owner.account.getAccountID());
-						packet.funitureObject = houseInv;
-						packet.sancObjectInfo = new SanctuaryObjectData(
-								packet.lastMove.positionInfo, houseInv.get(InventoryItem.COMPONENTS_PROPERTY_NAME)
-										.getAsJsonObject().get("House").getAsJsonObject().get("gridId").getAsInt(),
-								"", 0);
-
-						player.client.sendPacket(packet);
-
-						// Log
-						if (System.getProperty("debugMode") != null) {
-							System.out.println(
-									"[SANCTUARY] [UPDATE] Server to client: update house (" + packet.build() + ")");
-						}
-
+				for (Player player : ((GameServer) client.getServer())
+						.getPlayersInRoom("sanctuary_" + owner.account.getAccountID())) {
+					// Send packet
+					SanctuaryWorldObjectInfoPacket packet = new SanctuaryWorldObjectInfoPacket();
+
+					// Object creation parameters
+					packet.id = houseInv.get(InventoryItem.UUID_PROPERTY_NAME).getAsString(); // World object ID
+					packet.defId = 1751; // Sanctuary Actor Def Id.
+					packet.ownerId = player.room.substring("sanctuary_".length()); // Owner ID
+
+					// Object info
+					packet.lastMove = new WorldObjectMoveNodeData();
+					packet.lastMove.positionInfo = new WorldObjectPositionInfo(0, 0, 0, 0, 0, 0, 0);
+					packet.lastMove.velocity = new Velocity();
+					packet.lastMove.serverTime = System.currentTimeMillis() / 1000;
+					packet.lastMove.actorActionType = ActorActionType.None;
+					packet.lastMove.nodeType = WorldObjectMoverNodeType.InitPosition;
+
+					packet.objectType = SanctuaryObjectType.House;
+					// Only send json if its not the owner
+					packet.writeFurnitureInfo = !player.account.getAccountID().equals(owner.account.getAccountID());
+					packet.funitureObject = houseInv;
+					packet.sancObjectInfo = new SanctuaryObjectData(
+							packet.lastMove.positionInfo, houseInv.get(InventoryItem.COMPONENTS_PROPERTY_NAME)
+									.getAsJsonObject().get("House").getAsJsonObject().get("gridId").getAsInt(),
+							"", 0);
+
+					player.client.sendPacket(packet);
+
+					// Log
+					if (System.getProperty("debugMode") != null) {
+						System.out.println(
+								"[SANCTUARY] [UPDATE] Server to client: update house (" + packet.build() + ")");
 					}
+
 				}
 			}
 		} catch (Exception e) {
@@ -249,9 +249,8 @@ public class SanctuaryUpgradeCompletePacket implements IXtPacket<SanctuaryUpgrad
 		if (isAllowed == true) {
 			// Sync
 			GameServer srv = (GameServer) client.getServer();
-			for (Player plr2 : srv.getPlayers()) {
-				if (plr2.room != null && player.room != null && player.room != null && plr2.room.equals(player.room)
-						&& plr2 != player) {
+			for (Player plr2 : srv.getPlayersInRoom(player.room)) {
+				if (plr2 != player) {
 					player.destroyAt(plr2);
 				}
 			}
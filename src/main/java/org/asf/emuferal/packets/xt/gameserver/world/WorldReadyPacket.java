@@ -101,20 +101,20 @@ public class WorldReadyPacket implements IXtPacket<WorldReadyPacket> {
 
 		// Sync
 		GameServer srv = (GameServer) client.getServer();
-		for (Player player : srv.getPlayers()) {
-			if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
+		for (Player player : srv.getPlayersInRoom(plr.room)) {
+			if (player != plr) {
 				plr.destroyAt(player);
 			}
 		}
 
 		// Assign info
-		plr.room = plr.pendingRoom;
+		srv.setPlayerRoom(plr, plr.pendingRoom);
 		plr.levelID = plr.pendingLevelID;
 
 		// Send all other players to the current player
 		GameServer server = (GameServer) client.getServer();
-		for (Player player : server.getPlayers()) {
-			if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
+		for (Player player : server.getPlayersInRoom(plr.room)) {
+			if (player != plr) {
 				player.syncTo(plr);
 
 				if (System.getProperty("debugMode") != null) {
@@ -125,11 +125,20 @@ public class WorldReadyPacket implements IXtPacket<WorldReadyPacket> {
 			}
 		}
 
-		try {
-			Thread.sleep(5000); // Temporary wait
-		} catch (InterruptedException e) {
-		}
+		// Finish joining after a delay, sleeping here would block a worker thread on
+		// the non-blocking transport
+		client.runDelayed(5000, () -> {
+			try {
+				finishJoin(plr, server, client);
+			} catch (IOException e) {
+				client.disconnect();
+			}
+		});
+
+		return true;
+	}
 
+	private void finishJoin(Player plr, GameServer server, SmartfoxClient client) throws IOException {
 		// Find spawn
 		handleSpawn(teleportUUID, plr, client);
 
@@ -138,8 +147,8 @@ public class WorldReadyPacket implements IXtPacket<WorldReadyPacket> {
 		plr.targetRot = null;
 
 		// Sync spawn
-		for (Player player : server.getPlayers()) {
-			if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
+		for (Player player : server.getPlayersInRoom(plr.room)) {
+			if (player != plr) {
 				plr.syncTo(player);
 
 				if (System.getProperty("debugMode") != null) {
@@ -182,8 +191,6 @@ public class WorldReadyPacket implements IXtPacket<WorldReadyPacket> {
 
 		// Mark as ready (for teleports etc)
 		plr.roomReady = true;
-
-		return true;
 	}
 
 	private void loadSanctuary(String id, JsonObject info, Player player, EmuFeralAccount acc, PlayerInventory inv,
@@ -181,9 +181,8 @@ public class Player {
 			if (isAllowed == true) {
 				// Sync
 				GameServer srv = (GameServer) client.getServer();
-				for (Player plr2 : srv.getPlayers()) {
-					if (plr2.room != null && player.room != null && player.room != null && plr2.room.equals(player.room)
-							&& plr2 != player) {
+				for (Player plr2 : srv.getPlayersInRoom(player.room)) {
+					if (plr2 != player) {
 						player.destroyAt(plr2);
 					}
 				}
@@ -269,9 +268,8 @@ public class Player {
 			if (isAllowed == true) {
 				// Sync
 				GameServer srv = (GameServer) client.getServer();
-				for (Player plr2 : srv.getPlayers()) {
-					if (plr2.room != null && player.room != null && player.room != null && plr2.room.equals(player.room)
-							&& plr2 != player) {
+				for (Player plr2 : srv.getPlayersInRoom(player.room)) {
+					if (plr2 != player) {
 						player.destroyAt(plr2);
 					}
 				}
@@ -320,8 +318,8 @@ public class Player {
 
 			// Sync
 			GameServer srv = (GameServer) client.getServer();
-			for (Player player : srv.getPlayers()) {
-				if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
+			for (Player player : srv.getPlayersInRoom(plr.room)) {
+				if (player != plr) {
 					plr.destroyAt(player);
 				}
 			}
@@ -377,8 +375,8 @@ public class Player {
 
 			// Sync
 			GameServer srv = (GameServer) client.getServer();
-			for (Player player : srv.getPlayers()) {
-				if (plr.room != null && player.room != null && player.room.equals(plr.room) && player != plr) {
+			for (Player player : srv.getPlayersInRoom(plr.room)) {
+				if (player != plr) {
 					plr.destroyAt(player);
 				}
 			}
@@ -0,0 +1,96 @@
+package org.asf.emuferal.security;
+
+import com.google.gson.JsonObject;
+
+/**
+ *
+ * Claims of a verified session token
+ *
+ */
+public class TokenClaims {
+
+	private String accountID;
+	private String tokenID;
+	private String issuer;
+	private String subject;
+	private long issuedAt;
+	private long expiry;
+
+	TokenClaims(JsonObject payload) {
+		if (payload.has("uuid"))
+			accountID = payload.get("uuid").getAsString();
+		if (payload.has("jti"))
+			tokenID = payload.get("jti").getAsString();
+		if (payload.has("iss"))
+			issuer = payload.get("iss").getAsString();
+		if (payload.has("sub"))
+			subject = payload.get("sub").getAsString();
+		if (payload.has("iat"))
+			issuedAt = payload.get("iat").getAsLong();
+		expiry = payload.get("exp").getAsLong();
+	}
+
+	/**
+	 * Retrieves the account ID the token was issued to
+	 *
+	 * @return Account ID or null if the token is not bound to a account
+	 */
+	public String getAccountID() {
+		return accountID;
+	}
+
+	/**
+	 * Retrieves the unique token ID
+	 *
+	 * @return Token ID or null
+	 */
+	public String getTokenID() {
+		return tokenID;
+	}
+
+	/**
+	 * Retrieves the token issuer
+	 *
+	 * @return Issuer string or null
+	 */
+	public String getIssuer() {
+		return issuer;
+	}
+
+	/**
+	 * Retrieves the token subject
+	 *
+	 * @return Subject string or null
+	 */
+	public String getSubject() {
+		return subject;
+	}
+
+	/**
+	 * Retrieves the time the token was issued
+	 *
+	 * @return Unix timestamp in seconds
+	 */
+	public long getIssuedAt() {
+		return issuedAt;
+	}
+
+	/**
+	 * Retrieves the time the token expires
+	 *
+	 * @return Unix timestamp in seconds
+	 */
+	public long getExpiry() {
+		return expiry;
+	}
+
+	/**
+	 * Checks if the token has expired
+	 *
+	 * @return True if expired, false otherwise
+	 */
+	public boolean isExpired() {
+		return expiry < System.currentTimeMillis() / 1000;
+	}
+
+}
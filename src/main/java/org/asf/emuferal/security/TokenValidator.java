@@ -0,0 +1,100 @@
+package org.asf.emuferal.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.asf.emuferal.EmuFeral;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ *
+ * Validates session tokens issued by the server. Verified tokens are cached by
+ * signature until they expire so clients polling the API don't need a RSA
+ * signature check on every request.
+ *
+ */
+public class TokenValidator {
+
+	private static final int MAX_CACHED = 10000;
+
+	private static LinkedHashMap<String, VerifiedToken> verified = new LinkedHashMap<String, VerifiedToken>(16,
+			0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+			return size() > MAX_CACHED;
+		}
+	};
+
+	private static class VerifiedToken {
+		String data;
+		TokenClaims claims;
+	}
+
+	/**
+	 * Validates a session token
+	 *
+	 * @param token Token string
+	 * @return TokenClaims instance or null if the token is invalid or expired
+	 */
+	public static TokenClaims validate(String token) {
+		// Split token
+		int headerEnd = token.indexOf('.');
+		int payloadEnd = headerEnd == -1 ? -1 : token.indexOf('.', headerEnd + 1);
+		if (payloadEnd == -1 || token.indexOf('.', payloadEnd + 1) != -1)
+			return null;
+		String data = token.substring(0, payloadEnd);
+		String sig = token.substring(payloadEnd + 1);
+
+		// Find verified token
+		VerifiedToken cached;
+		synchronized (verified) {
+			cached = verified.get(sig);
+		}
+		if (cached != null && cached.data.equals(data)) {
+			if (!cached.claims.isExpired())
+				return cached.claims;
+			synchronized (verified) {
+				verified.remove(sig);
+			}
+			return null;
+		}
+
+		// Verify signature
+		TokenClaims claims;
+		try {
+			if (!EmuFeral.verify(data.getBytes(StandardCharsets.UTF_8), Base64.getUrlDecoder().decode(sig)))
+				return null;
+
+			// Parse payload
+			JsonObject payload = JsonParser.parseString(new String(
+					Base64.getUrlDecoder().decode(data.substring(headerEnd + 1)), StandardCharsets.UTF_8))
+					.getAsJsonObject();
+			if (!payload.has("exp"))
+				return null;
+			claims = new TokenClaims(payload);
+		} catch (RuntimeException e) {
+			// Malformed token
+			return null;
+		}
+
+		// Verify expiry
+		if (claims.isExpired())
+			return null;
+
+		// Add to cache
+		VerifiedToken entry = new VerifiedToken();
+		entry.data = data;
+		entry.claims = claims;
+		synchronized (verified) {
+			verified.put(sig, entry);
+		}
+		return claims;
+	}
+
+}
@@ -15,6 +15,15 @@ public abstract class SocialManager {
 		return implementation;
 	}
 
+	/**
+	 * Assigns the social list manager implementation
+	 * 
+	 * @param manager SocialManager to use
+	 */
+	public static void setInstance(SocialManager manager) {
+		implementation = manager;
+	}
+
 	/**
 	 * Creates a new friend list on disk
 	 * 
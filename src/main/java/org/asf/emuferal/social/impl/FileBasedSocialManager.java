@@ -1,14 +1,19 @@
 package org.asf.emuferal.social.impl;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.asf.emuferal.social.SocialEntry;
 import org.asf.emuferal.social.SocialManager;
@@ -19,7 +24,8 @@ import com.google.gson.JsonParser;
 
 public class FileBasedSocialManager extends SocialManager {
 
-	private ArrayList<String> activeIDs = new ArrayList<String>();
+	private static final int MAX_CACHED_LISTS = 4096;
+	private static final int WRITE_INTERVAL = 2000;
 
 	// TODO: Make this to be able to be configured, so larger servers can put files
 	// on different drives
@@ -33,484 +39,385 @@ public class FileBasedSocialManager extends SocialManager {
 	private static String playerEntryFollowingPropertyName = "isFollowing";
 	private static String playerEntryFollowerPropertyName = "isFollower";
 
-	@Override
-	public void openSocialList(String playerID) {
-		try {
-			if (!new File(socialListPath).exists())
-				new File(socialListPath).mkdirs();
+	// Parsed social lists, least recently used lists are evicted
+	private LinkedHashMap<String, SocialList> cache = new LinkedHashMap<String, SocialList>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
 
-			if (!socialListExists(playerID)) {
-				// construct new social list object
-				JsonObject friendList = new JsonObject();
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, SocialList> eldest) {
+			return size() > MAX_CACHED_LISTS;
+		}
+	};
 
-				Files.writeString(Path.of(socialListPath + "/" + playerID + ".json"), friendList.toString());
-			}
-		} catch (Exception e) {
+	// Lists waiting to be written to disk, player ID -> json (null if deleted)
+	private ConcurrentHashMap<String, PendingWrite> pending = new ConcurrentHashMap<String, PendingWrite>();
+	private Object writeLock = new Object();
+	private Thread writer;
+
+	private static class PendingWrite {
+		String json;
+
+		PendingWrite(String json) {
+			this.json = json;
+		}
+	}
+
+	private static class SocialList {
+		LinkedHashMap<String, SocialListEntry> entries = new LinkedHashMap<String, SocialListEntry>();
+		HashSet<String> blocked = new HashSet<String>();
+		HashSet<String> followers = new HashSet<String>();
+	}
+
+	private static class SocialListEntry {
+		String addedAt;
+		String updatedAt;
+		boolean favorite;
+		boolean blocked;
+		boolean following;
+		boolean follower;
+
+		boolean isEmpty() {
+			return !favorite && !blocked && !following && !follower;
+		}
+
+		SocialEntry toSocialEntry(String playerID) {
+			SocialEntry socialEntry = new SocialEntry();
+			socialEntry.playerID = playerID;
+			socialEntry.addedAt = addedAt;
+			socialEntry.updatedAt = updatedAt;
+			socialEntry.favorite = favorite;
+			socialEntry.isFollowing = following;
+			socialEntry.isFollower = follower;
+			socialEntry.isBlocked = blocked;
+			return socialEntry;
 		}
 	}
 
 	@Override
-	public void deleteSocialList(String playerID) {
-		try {
-			if (!new File(socialListPath).exists())
-				new File(socialListPath).mkdirs();
+	public void openSocialList(String playerID) {
+		if (socialListExists(playerID))
+			return;
+
+		// construct new social list object
+		SocialList list = new SocialList();
+		synchronized (cache) {
+			if (cache.containsKey(playerID))
+				return;
+			cache.put(playerID, list);
+		}
+		save(playerID, list);
+	}
 
-			if (socialListExists(playerID)) {
-				// delete social list object
-				new File(socialListPath).delete();
-			}
-		} catch (Exception e) {
+	@Override
+	public void deleteSocialList(String playerID) {
+		synchronized (cache) {
+			cache.remove(playerID);
 		}
+		queueWrite(playerID, new PendingWrite(null));
 	}
 
 	@Override
 	public boolean socialListExists(String playerID) {
-		try {
-			return new File(socialListPath + "/" + playerID + ".json").exists();
-		} catch (Exception e) {
-			if (System.getProperty("debugMode") != null) {
-				System.err.println("[FRIENDLIST] ERROR IN RETRIEVING SOCIAL LIST : " + e.getMessage() + " | "
-						+ e.getStackTrace() + " )");
-			}
-			return false;
+		synchronized (cache) {
+			if (cache.containsKey(playerID))
+				return true;
 		}
+		PendingWrite write = pending.get(playerID);
+		if (write != null)
+			return write.json != null;
+		return new File(socialListPath + "/" + playerID + ".json").exists();
 	}
 
 	@Override
 	public SocialEntry[] getSocialList(String playerID) {
-		if (!socialListExists(playerID))
-			throw new IllegalArgumentException("Social list not found");
-
-		try {
-			// Parse following list
-			JsonObject socialList = parseFriendList(playerID);
-
+		SocialList list = getList(playerID, "Social list not found");
+		synchronized (list) {
 			ArrayList<SocialEntry> socialEntries = new ArrayList<SocialEntry>();
-
-			// get a list of entries
-			for (var ele : socialList.entrySet()) {
-
-				JsonObject entry = ele.getValue().getAsJsonObject();
-				SocialEntry socialEntry = new SocialEntry();
-				socialEntry.playerID = ele.getKey();
-				socialEntry.addedAt = entry.get(playerEntryAddedAtPropertyName).getAsString();
-				socialEntry.updatedAt = entry.get(playerEntryUpdatedAtPropertyName).getAsString();
-				socialEntry.favorite = entry.get(playerEntryFavouritedPropertyName).getAsBoolean();
-				socialEntry.isFollowing = entry.get(playerEntryFollowingPropertyName).getAsBoolean();
-				socialEntry.isFollower = entry.get(playerEntryFollowingPropertyName).getAsBoolean();
-				socialEntry.isBlocked = entry.get(playerEntryBlockedPropertyName).getAsBoolean();
-				socialEntries.add(socialEntry);
-			}
-
+			list.entries.forEach((id, entry) -> socialEntries.add(entry.toSocialEntry(id)));
 			return socialEntries.toArray(t -> new SocialEntry[t]);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
 		}
 	}
 
 	@Override
 	public SocialEntry[] getFollowingPlayers(String playerID) {
-		if (!socialListExists(playerID))
-			throw new IllegalArgumentException("Social list not found");
-
-		try {
-			// Parse following list
-			JsonObject socialList = parseFriendList(playerID);
-
+		SocialList list = getList(playerID, "Social list not found");
+		synchronized (list) {
 			ArrayList<SocialEntry> socialEntries = new ArrayList<SocialEntry>();
-
-			// get a list of entries
-			for (var ele : socialList.entrySet()) {
-
-				// only add if the following property is true
-				if (ele.getValue().getAsJsonObject().get(playerEntryFollowingPropertyName).getAsBoolean()) {
-					JsonObject entry = ele.getValue().getAsJsonObject();
-					SocialEntry socialEntry = new SocialEntry();
-					socialEntry.playerID = ele.getKey();
-					socialEntry.addedAt = entry.get(playerEntryAddedAtPropertyName).getAsString();
-					socialEntry.updatedAt = entry.get(playerEntryUpdatedAtPropertyName).getAsString();
-					socialEntry.favorite = entry.get(playerEntryFavouritedPropertyName).getAsBoolean();
-					socialEntry.isFollowing = entry.get(playerEntryFollowingPropertyName).getAsBoolean();
-					socialEntry.isFollower = entry.get(playerEntryFollowingPropertyName).getAsBoolean();
-					socialEntry.isBlocked = entry.get(playerEntryBlockedPropertyName).getAsBoolean();
-					socialEntries.add(socialEntry);
-				}
-
-			}
-
+			list.entries.forEach((id, entry) -> {
+				if (entry.following)
+					socialEntries.add(entry.toSocialEntry(id));
+			});
 			return socialEntries.toArray(t -> new SocialEntry[t]);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
 		}
 	}
 
 	@Override
 	public SocialEntry[] getFollowerPlayers(String playerID) {
-		if (!socialListExists(playerID))
-			throw new IllegalArgumentException("Social list not found");
-
-		try {
-			// Parse following list
-			JsonObject socialList = parseFriendList(playerID);
-
-			ArrayList<SocialEntry> socialEntries = new ArrayList<SocialEntry>();
-
-			// get a list of entries
-			for (var ele : socialList.entrySet()) {
-
-				// only add if the follower property is true
-				if (ele.getValue().getAsJsonObject().get(playerEntryFollowerPropertyName).getAsBoolean()) {
-					JsonObject entry = ele.getValue().getAsJsonObject();
-					SocialEntry socialEntry = new SocialEntry();
-					socialEntry.playerID = ele.getKey();
-					socialEntry.addedAt = entry.get(playerEntryAddedAtPropertyName).getAsString();
-					socialEntry.updatedAt = entry.get(playerEntryUpdatedAtPropertyName).getAsString();
-					socialEntry.favorite = entry.get(playerEntryFavouritedPropertyName).getAsBoolean();
-					socialEntry.isFollowing = entry.get(playerEntryFollowingPropertyName).getAsBoolean();
-					socialEntry.isFollower = entry.get(playerEntryFollowingPropertyName).getAsBoolean();
-					socialEntry.isBlocked = entry.get(playerEntryBlockedPropertyName).getAsBoolean();
-					socialEntries.add(socialEntry);
-				}
-			}
-
-			return socialEntries.toArray(t -> new SocialEntry[t]);
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+		SocialList list = getList(playerID, "Social list not found");
+		synchronized (list) {
+			SocialEntry[] socialEntries = new SocialEntry[list.followers.size()];
+			int i = 0;
+			for (String id : list.followers)
+				socialEntries[i++] = list.entries.get(id).toSocialEntry(id);
+			return socialEntries;
 		}
 	}
 
 	@Override
 	public void setFollowingPlayer(String sourcePlayerID, String targetPlayerID, boolean following) {
-		if (!socialListExists(sourcePlayerID))
-			throw new IllegalArgumentException("Social list not found");
-
-		try {
-			// Parse social list
-			JsonObject socialList = parseFriendList(sourcePlayerID);
-
-			// does the player exist in the list?
-			JsonElement playerElement = socialList.get(targetPlayerID);
-
-			if (playerElement != null) {
-				// just use the existing element
-				JsonObject playerObject = playerElement.getAsJsonObject();
-				playerObject.remove(playerEntryFollowingPropertyName);
-				playerObject.addProperty(playerEntryFollowingPropertyName, following);
-
-				// update the updated at too
-				SimpleDateFormat fmt = new SimpleDateFormat("YYYY-MM-dd'T'HH:mm:ss.'0Z'");
-				fmt.setTimeZone(TimeZone.getTimeZone("UTC"));
-				String updatedAt = fmt.format(new Date());
-
-				playerObject.remove(playerEntryUpdatedAtPropertyName);
-				playerObject.addProperty(playerEntryUpdatedAtPropertyName, updatedAt);
-
-				// check if the entry is empty
-				if (!playerObject.get(playerEntryBlockedPropertyName).getAsBoolean()
-						&& !playerObject.get(playerEntryFavouritedPropertyName).getAsBoolean()
-						&& !playerObject.get(playerEntryFollowingPropertyName).getAsBoolean()
-						&& !playerObject.get(playerEntryFollowerPropertyName).getAsBoolean()) {
-					// Delete the entry
-					socialList.remove(targetPlayerID);
-				}
-			} else {
-				// create a new entry for this player
-				socialList.add(targetPlayerID, createNewPlayerEntry(following, false, false, false));
-			}
-
-			saveToDisk(sourcePlayerID, socialList);
-		} catch (IOException e) {
-			if (activeIDs.contains(sourcePlayerID))
-				activeIDs.remove(sourcePlayerID);
-			throw new RuntimeException(e);
+		SocialList list = getList(sourcePlayerID, "Social list not found");
+		synchronized (list) {
+			SocialListEntry entry = getOrCreateEntry(list, targetPlayerID);
+			entry.following = following;
+			updateEntry(list, targetPlayerID, entry);
 		}
+		save(sourcePlayerID, list);
 	}
 
 	@Override
 	public void setFollowerPlayer(String sourcePlayerID, String targetPlayerID, boolean follower) {
-		if (!socialListExists(sourcePlayerID))
-			throw new IllegalArgumentException("Social list not found");
-
-		try {
-			// Parse social list
-			JsonObject socialList = parseFriendList(sourcePlayerID);
-
-			// does the player exist in the list?
-			JsonElement playerElement = socialList.get(targetPlayerID);
-
-			if (playerElement != null) {
-				// just use the existing element
-				JsonObject playerObject = playerElement.getAsJsonObject();
-				playerObject.remove(playerEntryFollowerPropertyName);
-				playerObject.addProperty(playerEntryFollowerPropertyName, follower);
-
-				// update the updated at too
-				SimpleDateFormat fmt = new SimpleDateFormat("YYYY-MM-dd'T'HH:mm:ss.'0Z'");
-				fmt.setTimeZone(TimeZone.getTimeZone("UTC"));
-				String updatedAt = fmt.format(new Date());
-
-				playerObject.remove(playerEntryUpdatedAtPropertyName);
-				playerObject.addProperty(playerEntryUpdatedAtPropertyName, updatedAt);
-
-				// check if the entry is empty
-				if (!playerObject.get(playerEntryBlockedPropertyName).getAsBoolean()
-						&& !playerObject.get(playerEntryFavouritedPropertyName).getAsBoolean()
-						&& !playerObject.get(playerEntryFollowingPropertyName).getAsBoolean()
-						&& !playerObject.get(playerEntryFollowerPropertyName).getAsBoolean()) {
-					// Delete the entry
-					socialList.remove(targetPlayerID);
-				}
-			} else {
-				// create a new entry for this player
-				socialList.add(targetPlayerID, createNewPlayerEntry(false, follower, false, false));
-			}
-
-			saveToDisk(sourcePlayerID, socialList);
-		} catch (IOException e) {
-			if (activeIDs.contains(sourcePlayerID))
-				activeIDs.remove(sourcePlayerID);
-			throw new RuntimeException(e);
+		SocialList list = getList(sourcePlayerID, "Social list not found");
+		synchronized (list) {
+			SocialListEntry entry = getOrCreateEntry(list, targetPlayerID);
+			entry.follower = follower;
+			updateEntry(list, targetPlayerID, entry);
 		}
+		save(sourcePlayerID, list);
 	}
 
 	@Override
 	public void setBlockedPlayer(String sourcePlayerID, String targetPlayerID, boolean blocked) {
-		if (!socialListExists(sourcePlayerID))
-			throw new IllegalArgumentException("Social list not found");
-
-		try {
-			// Parse social list
-			JsonObject socialList = parseFriendList(sourcePlayerID);
-
-			// does the player exist in the list?
-			JsonElement playerElement = socialList.get(targetPlayerID);
-
-			if (playerElement != null) {
-				// just use the existing element
-				JsonObject playerObject = playerElement.getAsJsonObject();
-				playerObject.remove(playerEntryBlockedPropertyName);
-				playerObject.addProperty(playerEntryBlockedPropertyName, blocked);
-
-				// update the updated at too
-				SimpleDateFormat fmt = new SimpleDateFormat("YYYY-MM-dd'T'HH:mm:ss.'0Z'");
-				fmt.setTimeZone(TimeZone.getTimeZone("UTC"));
-				String updatedAt = fmt.format(new Date());
-
-				playerObject.remove(playerEntryUpdatedAtPropertyName);
-				playerObject.addProperty(playerEntryUpdatedAtPropertyName, updatedAt);
-
-				// check if the entry is empty
-				if (!playerObject.get(playerEntryBlockedPropertyName).getAsBoolean()
-						&& !playerObject.get(playerEntryFavouritedPropertyName).getAsBoolean()
-						&& !playerObject.get(playerEntryFollowingPropertyName).getAsBoolean()
-						&& !playerObject.get(playerEntryFollowerPropertyName).getAsBoolean()) {
-					// Delete the entry
-					socialList.remove(targetPlayerID);
-				}
-			} else {
-				// create a new entry for this player
-				socialList.add(targetPlayerID, createNewPlayerEntry(false, false, blocked, false));
-			}
-
-			saveToDisk(sourcePlayerID, socialList);
-		} catch (IOException e) {
-			if (activeIDs.contains(sourcePlayerID))
-				activeIDs.remove(sourcePlayerID);
-			throw new RuntimeException(e);
+		SocialList list = getList(sourcePlayerID, "Social list not found");
+		synchronized (list) {
+			SocialListEntry entry = getOrCreateEntry(list, targetPlayerID);
+			entry.blocked = blocked;
+			updateEntry(list, targetPlayerID, entry);
 		}
+		save(sourcePlayerID, list);
 	}
 
 	@Override
 	public void setFavoritePlayer(String sourcePlayerID, String targetPlayerID, boolean favorite) {
-		if (!socialListExists(sourcePlayerID))
-			throw new IllegalArgumentException("Social list not found");
-
-		try {
-			// Parse social list
-			JsonObject socialList = parseFriendList(sourcePlayerID);
-
-			// does the player exist in the list?
-			JsonElement playerElement = socialList.get(targetPlayerID);
-
-			if (playerElement != null) {
-				// just use the existing element
-				JsonObject playerObject = playerElement.getAsJsonObject();
-				playerObject.remove(playerEntryFavouritedPropertyName);
-				playerObject.addProperty(playerEntryFavouritedPropertyName, favorite);
-
-				// update the updated at too
-				SimpleDateFormat fmt = new SimpleDateFormat("YYYY-MM-dd'T'HH:mm:ss.'0Z'");
-				fmt.setTimeZone(TimeZone.getTimeZone("UTC"));
-				String updatedAt = fmt.format(new Date());
-
-				playerObject.remove(playerEntryUpdatedAtPropertyName);
-				playerObject.addProperty(playerEntryUpdatedAtPropertyName, updatedAt);
-
-				// check if the entry is empty
-				if (!playerObject.get(playerEntryBlockedPropertyName).getAsBoolean()
-						&& !playerObject.get(playerEntryFavouritedPropertyName).getAsBoolean()
-						&& !playerObject.get(playerEntryFollowingPropertyName).getAsBoolean()
-						&& !playerObject.get(playerEntryFollowerPropertyName).getAsBoolean()) {
-					// Delete the entry
-					socialList.remove(targetPlayerID);
-				}
-			} else {
-				// create a new entry for this player (should never happen for favorite but a
-				// fallback)
-				socialList.add(targetPlayerID, createNewPlayerEntry(false, false, false, favorite));
-			}
-
-			saveToDisk(sourcePlayerID, socialList);
-		} catch (IOException e) {
-			if (activeIDs.contains(sourcePlayerID))
-				activeIDs.remove(sourcePlayerID);
-			throw new RuntimeException(e);
+		SocialList list = getList(sourcePlayerID, "Social list not found");
+		synchronized (list) {
+			SocialListEntry entry = getOrCreateEntry(list, targetPlayerID);
+			entry.favorite = favorite;
+			updateEntry(list, targetPlayerID, entry);
 		}
+		save(sourcePlayerID, list);
 	}
 
 	@Override
 	public boolean getPlayerIsFollowing(String sourcePlayerID, String targetPlayerID) {
-		if (!socialListExists(sourcePlayerID))
-			throw new IllegalArgumentException("Friend list not found");
-
-		try {
-
-			// Parse social list
-			JsonObject socialList = parseFriendList(sourcePlayerID);
-
-			// does the player exist in the list?
-			JsonElement playerElement = socialList.get(targetPlayerID);
-
-			if (playerElement != null) {
-				// read the property
-
-				return playerElement.getAsJsonObject().get(playerEntryFollowingPropertyName).getAsBoolean();
-			} else {
-				// auto no
-				return false;
-			}
-
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+		SocialList list = getList(sourcePlayerID, "Friend list not found");
+		synchronized (list) {
+			SocialListEntry entry = list.entries.get(targetPlayerID);
+			return entry != null && entry.following;
 		}
 	}
 
 	@Override
 	public boolean getPlayerIsFollower(String sourcePlayerID, String targetPlayerID) {
-		if (!socialListExists(sourcePlayerID))
-			throw new IllegalArgumentException("Friend list not found");
-
-		try {
-
-			// Parse social list
-			JsonObject socialList = parseFriendList(sourcePlayerID);
-
-			// does the player exist in the list?
-			JsonElement playerElement = socialList.get(targetPlayerID);
-
-			if (playerElement != null) {
-				// read the property
-
-				return playerElement.getAsJsonObject().get(playerEntryFollowerPropertyName).getAsBoolean();
-			} else {
-				// auto no
-				return false;
-			}
-
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+		SocialList list = getList(sourcePlayerID, "Friend list not found");
+		synchronized (list) {
+			return list.followers.contains(targetPlayerID);
 		}
 	}
 
 	@Override
 	public boolean getPlayerIsBlocked(String sourcePlayerID, String targetPlayerID) {
-		if (!socialListExists(sourcePlayerID))
-			throw new IllegalArgumentException("Friend list not found");
-
-		try {
+		SocialList list = getList(sourcePlayerID, "Friend list not found");
+		synchronized (list) {
+			return list.blocked.contains(targetPlayerID);
+		}
+	}
 
-			// Parse social list
-			JsonObject socialList = parseFriendList(sourcePlayerID);
+	@Override
+	public boolean getPlayerIsFavorite(String sourcePlayerID, String targetPlayerID) {
+		SocialList list = getList(sourcePlayerID, "Friend list not found");
+		synchronized (list) {
+			SocialListEntry entry = list.entries.get(targetPlayerID);
+			return entry != null && entry.favorite;
+		}
+	}
 
-			// does the player exist in the list?
-			JsonElement playerElement = socialList.get(targetPlayerID);
+	private SocialList getList(String playerID, String notFoundMessage) {
+		synchronized (cache) {
+			SocialList list = cache.get(playerID);
+			if (list != null)
+				return list;
+		}
 
-			if (playerElement != null) {
-				// read the property
-				return playerElement.getAsJsonObject().get(playerEntryBlockedPropertyName).getAsBoolean();
-			} else {
-				// auto no
-				return false;
+		// Load the list, unsaved changes take priority over the file
+		String json;
+		PendingWrite write = pending.get(playerID);
+		if (write != null) {
+			json = write.json;
+		} else {
+			try {
+				File file = new File(socialListPath + "/" + playerID + ".json");
+				json = file.exists() ? Files.readString(file.toPath()) : null;
+			} catch (IOException e) {
+				throw new RuntimeException(e);
 			}
-
-		} catch (IOException e) {
-			throw new RuntimeException(e);
 		}
+		if (json == null)
+			throw new IllegalArgumentException(notFoundMessage);
+		SocialList list = parseFriendList(json);
+
+		// Another thread may have loaded it first
+		synchronized (cache) {
+			SocialList current = cache.get(playerID);
+			if (current != null)
+				return current;
+			cache.put(playerID, list);
+		}
+		return list;
 	}
 
-	@Override
-	public boolean getPlayerIsFavorite(String sourcePlayerID, String targetPlayerID) {
-		if (!socialListExists(sourcePlayerID))
-			throw new IllegalArgumentException("Friend list not found");
+	private SocialListEntry getOrCreateEntry(SocialList list, String targetPlayerID) {
+		SocialListEntry entry = list.entries.get(targetPlayerID);
+		if (entry == null) {
+			// create a new entry for this player
+			entry = new SocialListEntry();
+			entry.addedAt = timestamp();
+			entry.updatedAt = entry.addedAt;
+		} else
+			entry.updatedAt = timestamp();
+		return entry;
+	}
 
-		try {
+	// Updates the entry and the blocked and follower sets
+	private void updateEntry(SocialList list, String targetPlayerID, SocialListEntry entry) {
+		if (entry.isEmpty())
+			list.entries.remove(targetPlayerID);
+		else
+			list.entries.put(targetPlayerID, entry);
+		if (entry.blocked)
+			list.blocked.add(targetPlayerID);
+		else
+			list.blocked.remove(targetPlayerID);
+		if (entry.follower)
+			list.followers.add(targetPlayerID);
+		else
+			list.followers.remove(targetPlayerID);
+	}
 
-			// Parse social list
-			JsonObject socialList = parseFriendList(sourcePlayerID);
+	private static SocialList parseFriendList(String json) {
+		// Parse friend list
+		JsonObject friendList = JsonParser.parseString(json).getAsJsonObject();
+		SocialList list = new SocialList();
+		for (Map.Entry<String, JsonElement> ele : friendList.entrySet()) {
+			JsonObject obj = ele.getValue().getAsJsonObject();
+			SocialListEntry entry = new SocialListEntry();
+			entry.addedAt = getString(obj, playerEntryAddedAtPropertyName);
+			entry.updatedAt = getString(obj, playerEntryUpdatedAtPropertyName);
+			entry.favorite = getBoolean(obj, playerEntryFavouritedPropertyName);
+			entry.blocked = getBoolean(obj, playerEntryBlockedPropertyName);
+			entry.following = getBoolean(obj, playerEntryFollowingPropertyName);
+			entry.follower = getBoolean(obj, playerEntryFollowerPropertyName);
+			list.entries.put(ele.getKey(), entry);
+			if (entry.blocked)
+				list.blocked.add(ele.getKey());
+			if (entry.follower)
+				list.followers.add(ele.getKey());
+		}
+		return list;
+	}
 
-			// does the player exist in the list?
-			JsonElement playerElement = socialList.get(targetPlayerID);
+	private static String getString(JsonObject obj, String property) {
+		return obj.has(property) ? obj.get(property).getAsString() : null;
+	}
 
-			if (playerElement != null) {
-				// read the property
-				return playerElement.getAsJsonObject().get(playerEntryFavouritedPropertyName).getAsBoolean();
-			} else {
-				// auto no
-				return false;
-			}
+	private static boolean getBoolean(JsonObject obj, String property) {
+		return obj.has(property) && obj.get(property).getAsBoolean();
+	}
 
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+	private void save(String playerID, SocialList list) {
+		// Serialize now, the file is written in the background
+		JsonObject friendList = new JsonObject();
+		synchronized (list) {
+			list.entries.forEach((id, entry) -> {
+				JsonObject obj = new JsonObject();
+				obj.addProperty(playerEntryAddedAtPropertyName, entry.addedAt);
+				obj.addProperty(playerEntryUpdatedAtPropertyName, entry.updatedAt);
+				obj.addProperty(playerEntryFavouritedPropertyName, entry.favorite);
+				obj.addProperty(playerEntryFollowingPropertyName, entry.following);
+				obj.addProperty(playerEntryFollowerPropertyName, entry.follower);
+				obj.addProperty(playerEntryBlockedPropertyName, entry.blocked);
+				friendList.add(id, obj);
+			});
+
+			// Queued while locked so an older state never replaces a newer one
+			queueWrite(playerID, new PendingWrite(friendList.toString()));
 		}
 	}
 
-	private JsonObject parseFriendList(String playerID) throws IOException {
-		// Parse friend list
-		FileReader reader = new FileReader(socialListPath + "/" + playerID + ".json");
-		JsonObject friendList = JsonParser.parseReader(reader).getAsJsonObject();
-		reader.close();
+	private void queueWrite(String playerID, PendingWrite write) {
+		pending.put(playerID, write);
+		synchronized (this) {
+			if (writer == null) {
+				writer = new Thread(() -> {
+					while (true) {
+						try {
+							Thread.sleep(WRITE_INTERVAL);
+						} catch (InterruptedException e) {
+							break;
+						}
+						writePending();
+					}
+				}, "Social List Writer");
+				writer.setDaemon(true);
+				writer.start();
+
+				// Save on exit
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> writePending(), "Social List Shutdown"));
+			}
+		}
+	}
 
-		return friendList;
+	private void writePending() {
+		synchronized (writeLock) {
+			writeAll();
+		}
 	}
 
-	private void saveToDisk(String sourcePlayerID, JsonObject socialList) throws IOException {
-		// Save to disk
-		while (activeIDs.contains(sourcePlayerID))
+	private void writeAll() {
+		for (String playerID : pending.keySet()) {
+			PendingWrite write = pending.get(playerID);
+			if (write == null)
+				continue;
+
 			try {
-				Thread.sleep(100);
-			} catch (InterruptedException e) {
-				break;
+				File file = new File(socialListPath + "/" + playerID + ".json");
+				if (write.json == null) {
+					file.delete();
+				} else {
+					// Write atomically
+					if (!new File(socialListPath).exists())
+						new File(socialListPath).mkdirs();
+					Path tmp = Path.of(file.getPath() + ".tmp");
+					Files.writeString(tmp, write.json);
+					try {
+						Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+								StandardCopyOption.ATOMIC_MOVE);
+					} catch (AtomicMoveNotSupportedException e) {
+						Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+					}
+				}
+
+				// Only remove if nothing changed in the meantime
+				pending.remove(playerID, write);
+			} catch (IOException e) {
+				System.err.println("Failed to save social list of " + playerID + ": " + e);
 			}
-		activeIDs.add(sourcePlayerID);
-		Files.writeString(Path.of(socialListPath + "/" + sourcePlayerID + ".json"), socialList.toString());
-		activeIDs.remove(sourcePlayerID);
+		}
 	}
 
-	private JsonObject createNewPlayerEntry(boolean following, boolean follower, boolean blocked, boolean favorite) {
-		JsonObject newEntry = new JsonObject();
-
+	private static String timestamp() {
 		SimpleDateFormat fmt = new SimpleDateFormat("YYYY-MM-dd'T'HH:mm:ss.'0Z'");
 		fmt.setTimeZone(TimeZone.getTimeZone("UTC"));
-		String addedAt = fmt.format(new Date());
-
-		newEntry.addProperty(playerEntryAddedAtPropertyName, addedAt);
-		newEntry.addProperty(playerEntryUpdatedAtPropertyName, addedAt);
-		newEntry.addProperty(playerEntryFavouritedPropertyName, false);
-		newEntry.addProperty(playerEntryFollowingPropertyName, following);
-		newEntry.addProperty(playerEntryFollowerPropertyName, follower);
-		newEntry.addProperty(playerEntryBlockedPropertyName, blocked);
-
-		return newEntry;
+		return fmt.format(new Date());
 	}
 
 }
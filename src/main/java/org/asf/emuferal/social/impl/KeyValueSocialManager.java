@@ -0,0 +1,207 @@
+package org.asf.emuferal.social.impl;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.function.Predicate;
+
+import org.asf.emuferal.social.SocialEntry;
+import org.asf.emuferal.social.SocialManager;
+import org.asf.emuferal.storage.KeyValueStore;
+import org.asf.emuferal.storage.RecordBatch;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ *
+ * Social manager backed by a key-value store, each social list entry is a
+ * record keyed by <code>social/&lt;player id&gt;/&lt;target id&gt;</code> so a
+ * single relation can be read without loading the whole list
+ *
+ */
+public class KeyValueSocialManager extends SocialManager {
+
+	private KeyValueStore store;
+
+	// constants for easy coding and best practice.
+	private static String playerEntryAddedAtPropertyName = "addedAt";
+	private static String playerEntryUpdatedAtPropertyName = "updatedAt";
+	private static String playerEntryFavouritedPropertyName = "favourite";
+	private static String playerEntryBlockedPropertyName = "isBlocked";
+	private static String playerEntryFollowingPropertyName = "isFollowing";
+	private static String playerEntryFollowerPropertyName = "isFollower";
+
+	public KeyValueSocialManager(KeyValueStore store) {
+		this.store = store;
+	}
+
+	@Override
+	public synchronized void openSocialList(String playerID) {
+		try {
+			if (!socialListExists(playerID))
+				store.putString("social/" + playerID, "");
+		} catch (IOException e) {
+		}
+	}
+
+	@Override
+	public synchronized void deleteSocialList(String playerID) {
+		if (!socialListExists(playerID))
+			return;
+
+		// Delete the list and all entries at once
+		RecordBatch batch = new RecordBatch().delete("social/" + playerID);
+		for (String key : store.keys("social/" + playerID + "/"))
+			batch.delete(key);
+		try {
+			store.write(batch);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public boolean socialListExists(String playerID) {
+		return store.contains("social/" + playerID);
+	}
+
+	@Override
+	public SocialEntry[] getSocialList(String playerID) {
+		return getEntries(playerID, t -> true);
+	}
+
+	@Override
+	public SocialEntry[] getFollowingPlayers(String playerID) {
+		return getEntries(playerID, t -> t.get(playerEntryFollowingPropertyName).getAsBoolean());
+	}
+
+	@Override
+	public SocialEntry[] getFollowerPlayers(String playerID) {
+		return getEntries(playerID, t -> t.get(playerEntryFollowerPropertyName).getAsBoolean());
+	}
+
+	private SocialEntry[] getEntries(String playerID, Predicate<JsonObject> filter) {
+		if (!socialListExists(playerID))
+			throw new IllegalArgumentException("Social list not found");
+
+		// Scan the entries of the player
+		String prefix = "social/" + playerID + "/";
+		ArrayList<SocialEntry> socialEntries = new ArrayList<SocialEntry>();
+		for (String key : store.keys(prefix)) {
+			JsonObject entry = getEntry(key);
+			if (entry == null || !filter.test(entry))
+				continue;
+
+			SocialEntry socialEntry = new SocialEntry();
+			socialEntry.playerID = key.substring(prefix.length());
+			socialEntry.addedAt = entry.get(playerEntryAddedAtPropertyName).getAsString();
+			socialEntry.updatedAt = entry.get(playerEntryUpdatedAtPropertyName).getAsString();
+			socialEntry.favorite = entry.get(playerEntryFavouritedPropertyName).getAsBoolean();
+			socialEntry.isFollowing = entry.get(playerEntryFollowingPropertyName).getAsBoolean();
+			socialEntry.isFollower = entry.get(playerEntryFollowerPropertyName).getAsBoolean();
+			socialEntry.isBlocked = entry.get(playerEntryBlockedPropertyName).getAsBoolean();
+			socialEntries.add(socialEntry);
+		}
+		return socialEntries.toArray(t -> new SocialEntry[t]);
+	}
+
+	@Override
+	public boolean getPlayerIsFollowing(String sourcePlayerID, String targetPlayerID) {
+		return getProperty(sourcePlayerID, targetPlayerID, playerEntryFollowingPropertyName);
+	}
+
+	@Override
+	public boolean getPlayerIsFollower(String sourcePlayerID, String targetPlayerID) {
+		return getProperty(sourcePlayerID, targetPlayerID, playerEntryFollowerPropertyName);
+	}
+
+	@Override
+	public boolean getPlayerIsBlocked(String sourcePlayerID, String targetPlayerID) {
+		return getProperty(sourcePlayerID, targetPlayerID, playerEntryBlockedPropertyName);
+	}
+
+	@Override
+	public boolean getPlayerIsFavorite(String sourcePlayerID, String targetPlayerID) {
+		return getProperty(sourcePlayerID, targetPlayerID, playerEntryFavouritedPropertyName);
+	}
+
+	private boolean getProperty(String sourcePlayerID, String targetPlayerID, String property) {
+		if (!socialListExists(sourcePlayerID))
+			throw new IllegalArgumentException("Friend list not found");
+
+		JsonObject entry = getEntry("social/" + sourcePlayerID + "/" + targetPlayerID);
+		return entry != null && entry.get(property).getAsBoolean();
+	}
+
+	@Override
+	public void setFollowingPlayer(String sourcePlayerID, String targetPlayerID, boolean following) {
+		setProperty(sourcePlayerID, targetPlayerID, playerEntryFollowingPropertyName, following);
+	}
+
+	@Override
+	public void setFollowerPlayer(String sourcePlayerID, String targetPlayerID, boolean follower) {
+		setProperty(sourcePlayerID, targetPlayerID, playerEntryFollowerPropertyName, follower);
+	}
+
+	@Override
+	public void setBlockedPlayer(String sourcePlayerID, String targetPlayerID, boolean blocked) {
+		setProperty(sourcePlayerID, targetPlayerID, playerEntryBlockedPropertyName, blocked);
+	}
+
+	@Override
+	public void setFavoritePlayer(String sourcePlayerID, String targetPlayerID, boolean favorite) {
+		setProperty(sourcePlayerID, targetPlayerID, playerEntryFavouritedPropertyName, favorite);
+	}
+
+	private synchronized void setProperty(String sourcePlayerID, String targetPlayerID, String property,
+			boolean value) {
+		if (!socialListExists(sourcePlayerID))
+			throw new IllegalArgumentException("Social list not found");
+
+		String key = "social/" + sourcePlayerID + "/" + targetPlayerID;
+		JsonObject entry = getEntry(key);
+		String now = timestamp();
+		if (entry == null) {
+			// create a new entry for this player
+			entry = new JsonObject();
+			entry.addProperty(playerEntryAddedAtPropertyName, now);
+			entry.addProperty(playerEntryFavouritedPropertyName, false);
+			entry.addProperty(playerEntryFollowingPropertyName, false);
+			entry.addProperty(playerEntryFollowerPropertyName, false);
+			entry.addProperty(playerEntryBlockedPropertyName, false);
+		}
+		entry.addProperty(property, value);
+		entry.addProperty(playerEntryUpdatedAtPropertyName, now);
+
+		try {
+			// Delete empty entries
+			if (!entry.get(playerEntryBlockedPropertyName).getAsBoolean()
+					&& !entry.get(playerEntryFavouritedPropertyName).getAsBoolean()
+					&& !entry.get(playerEntryFollowingPropertyName).getAsBoolean()
+					&& !entry.get(playerEntryFollowerPropertyName).getAsBoolean()) {
+				if (store.contains(key))
+					store.delete(key);
+			} else
+				store.putString(key, entry.toString());
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private JsonObject getEntry(String key) {
+		String data = store.getString(key);
+		if (data == null)
+			return null;
+		return JsonParser.parseString(data).getAsJsonObject();
+	}
+
+	private static String timestamp() {
+		SimpleDateFormat fmt = new SimpleDateFormat("YYYY-MM-dd'T'HH:mm:ss.'0Z'");
+		fmt.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return fmt.format(new Date());
+	}
+
+}
@@ -0,0 +1,93 @@
+package org.asf.emuferal.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * Key-value store interface, keys are sorted so that records of one owner can
+ * be found with a prefix scan
+ *
+ */
+public interface KeyValueStore extends Closeable {
+
+	/**
+	 * Retrieves a value
+	 *
+	 * @param key Record key
+	 * @return Value bytes or null if not present
+	 */
+	public byte[] get(String key);
+
+	/**
+	 * Retrieves a UTF-8 string value
+	 *
+	 * @param key Record key
+	 * @return Value string or null if not present
+	 */
+	public default String getString(String key) {
+		byte[] value = get(key);
+		if (value == null)
+			return null;
+		return new String(value, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Checks if a key is present
+	 *
+	 * @param key Record key
+	 * @return True if present, false otherwise
+	 */
+	public boolean contains(String key);
+
+	/**
+	 * Lists all keys starting with a prefix, in sorted order
+	 *
+	 * @param prefix Key prefix
+	 * @return Array of keys
+	 */
+	public String[] keys(String prefix);
+
+	/**
+	 * Stores a value
+	 *
+	 * @param key   Record key
+	 * @param value Value bytes
+	 * @throws IOException If writing fails
+	 */
+	public void put(String key, byte[] value) throws IOException;
+
+	/**
+	 * Stores a UTF-8 string value
+	 *
+	 * @param key   Record key
+	 * @param value Value string
+	 * @throws IOException If writing fails
+	 */
+	public default void putString(String key, String value) throws IOException {
+		put(key, value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Deletes a value
+	 *
+	 * @param key Record key
+	 * @throws IOException If writing fails
+	 */
+	public void delete(String key) throws IOException;
+
+	/**
+	 * Writes a batch of changes, the batch is applied atomically
+	 *
+	 * @param batch Batch to write
+	 * @throws IOException If writing fails
+	 */
+	public void write(RecordBatch batch) throws IOException;
+
+	/**
+	 * Writes all changes to the storage device
+	 */
+	public void sync();
+
+}
@@ -0,0 +1,91 @@
+package org.asf.emuferal.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ *
+ * Batch of record changes, written atomically by
+ * {@link KeyValueStore#write(RecordBatch)}
+ *
+ */
+public class RecordBatch {
+
+	private ArrayList<String> keys = new ArrayList<String>();
+	private ArrayList<byte[]> values = new ArrayList<byte[]>();
+
+	/**
+	 * Adds a value to the batch
+	 *
+	 * @param key   Record key
+	 * @param value Value bytes
+	 * @return Self
+	 */
+	public RecordBatch put(String key, byte[] value) {
+		keys.add(key);
+		values.add(value);
+		return this;
+	}
+
+	/**
+	 * Adds a UTF-8 string value to the batch
+	 *
+	 * @param key   Record key
+	 * @param value Value string
+	 * @return Self
+	 */
+	public RecordBatch putString(String key, String value) {
+		return put(key, value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Adds a deletion to the batch
+	 *
+	 * @param key Record key
+	 * @return Self
+	 */
+	public RecordBatch delete(String key) {
+		keys.add(key);
+		values.add(null);
+		return this;
+	}
+
+	/**
+	 * Retrieves the amount of operations in the batch
+	 *
+	 * @return Operation count
+	 */
+	public int size() {
+		return keys.size();
+	}
+
+	/**
+	 * Checks if the batch is empty
+	 *
+	 * @return True if empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return keys.isEmpty();
+	}
+
+	/**
+	 * Retrieves the key of a operation
+	 *
+	 * @param index Operation index
+	 * @return Record key
+	 */
+	public String getKey(int index) {
+		return keys.get(index);
+	}
+
+	/**
+	 * Retrieves the value of a operation
+	 *
+	 * @param index Operation index
+	 * @return Value bytes or null if the operation is a deletion
+	 */
+	public byte[] getValue(int index) {
+		return values.get(index);
+	}
+
+}
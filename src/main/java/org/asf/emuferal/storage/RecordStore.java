@@ -0,0 +1,425 @@
+package org.asf.emuferal.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ *
+ * Append-only, memory-mapped key-value record store. Every change is appended
+ * to a single file as a checksummed frame and an in-memory index holds the
+ * location of the latest value of each key. Frames are written in one piece,
+ * so a batch is either applied completely or not at all after a crash.
+ *
+ * The file is mapped in one region, which limits a store to 2GB. Old values
+ * are reclaimed by {@link #compact()}, which writes the live values to the
+ * next generation file (store.db.1, store.db.2, ...) and switches to it. The
+ * mapped file is never renamed or replaced, so this also works on systems that
+ * lock mapped files. The newest generation is used when the store is opened.
+ *
+ */
+public class RecordStore implements KeyValueStore {
+
+	private static final int MAGIC = 0x45465253; // EFRS
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+	private static final int FRAME_HEADER_SIZE = 8;
+	private static final int INITIAL_SIZE = 1024 * 1024;
+	private static final long MAX_SIZE = Integer.MAX_VALUE;
+
+	private static final byte TYPE_PUT = 1;
+	private static final byte TYPE_DELETE = 2;
+
+	private File file;
+	private File current;
+	private int generation;
+	private FileChannel channel;
+	private MappedByteBuffer map;
+	private int end;
+	private long garbageBytes;
+
+	// Key -> value location, offset in the upper and length in the lower 32 bits
+	private TreeMap<String, Long> index = new TreeMap<String, Long>();
+	private ArrayList<File> staleFiles = new ArrayList<File>();
+	private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Opens or creates a record store
+	 *
+	 * @param file Store file
+	 * @throws IOException If the file cannot be opened or is not a record store
+	 */
+	public RecordStore(File file) throws IOException {
+		this.file = file;
+		open();
+	}
+
+	private void open() throws IOException {
+		if (file.getParentFile() != null)
+			file.getParentFile().mkdirs();
+		findGeneration();
+		deleteStaleFiles();
+		channel = FileChannel.open(current.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE);
+		long size = channel.size();
+		map = channel.map(MapMode.READ_WRITE, 0, Math.max(size, INITIAL_SIZE));
+
+		// Header
+		if (size == 0) {
+			map.putInt(0, MAGIC);
+			map.putInt(4, VERSION);
+		} else if (size < HEADER_SIZE || map.getInt(0) != MAGIC) {
+			channel.close();
+			throw new IOException("Not a record store: " + current);
+		} else if (map.getInt(4) != VERSION) {
+			channel.close();
+			throw new IOException("Unsupported record store version " + map.getInt(4) + ": " + current);
+		}
+
+		// Replay the log
+		index.clear();
+		garbageBytes = 0;
+		end = HEADER_SIZE;
+		while (true) {
+			int frameEnd = replayFrame(end);
+			if (frameEnd == -1)
+				break;
+			end = frameEnd;
+		}
+
+		// Clear what is left of a interrupted write
+		for (int i = end; i < map.capacity() && i < end + FRAME_HEADER_SIZE; i++)
+			map.put(i, (byte) 0);
+	}
+
+	// Finds the newest generation file, older generations and unfinished
+	// compactions are marked for deletion
+	private void findGeneration() {
+		String prefix = file.getName() + ".";
+		File[] files = file.getAbsoluteFile().getParentFile().listFiles();
+		if (files == null)
+			files = new File[0];
+		generation = 0;
+		for (File f : files) {
+			String suffix = f.getName().startsWith(prefix) ? f.getName().substring(prefix.length()) : "";
+			if (suffix.matches("^[0-9]+$"))
+				generation = Math.max(generation, Integer.parseInt(suffix));
+		}
+		current = generationFile(generation);
+		for (File f : files) {
+			String suffix = f.getName().startsWith(prefix) ? f.getName().substring(prefix.length()) : "";
+			if (suffix.endsWith(".compact")
+					|| (suffix.matches("^[0-9]+$") && Integer.parseInt(suffix) < generation))
+				markStale(f);
+		}
+		if (generation != 0)
+			markStale(file);
+	}
+
+	private File generationFile(int generation) {
+		if (generation == 0)
+			return file;
+		return new File(file.getPath() + "." + generation);
+	}
+
+	private void markStale(File f) {
+		if (!staleFiles.contains(f.getAbsoluteFile()))
+			staleFiles.add(f.getAbsoluteFile());
+	}
+
+	// Deletes old generation files, a file that is still mapped cannot be deleted
+	// on some systems until the mapping is released so this is retried on sync
+	private void deleteStaleFiles() {
+		staleFiles.removeIf(f -> !f.exists() || f.delete());
+	}
+
+	// Applies a frame to the index, returns the end of the frame or -1 if there is
+	// no complete frame at the given offset
+	private int replayFrame(int offset) {
+		if (offset + FRAME_HEADER_SIZE > map.capacity())
+			return -1;
+		int length = map.getInt(offset);
+		if (length <= 0 || (long) offset + FRAME_HEADER_SIZE + length > map.capacity())
+			return -1;
+
+		// Verify checksum
+		int crc = map.getInt(offset + 4);
+		int payload = offset + FRAME_HEADER_SIZE;
+		CRC32 check = new CRC32();
+		check.update(map.slice(payload, length));
+		if ((int) check.getValue() != crc)
+			return -1;
+
+		// Apply operations
+		int pos = payload;
+		int count = map.getInt(pos);
+		pos += 4;
+		for (int i = 0; i < count; i++) {
+			byte type = map.get(pos++);
+			int keyLength = map.getInt(pos);
+			pos += 4;
+			byte[] key = new byte[keyLength];
+			map.get(pos, key);
+			pos += keyLength;
+			if (type == TYPE_PUT) {
+				int valueLength = map.getInt(pos);
+				pos += 4;
+				index(new String(key, StandardCharsets.UTF_8), keyLength, pos, valueLength);
+				pos += valueLength;
+			} else
+				unindex(new String(key, StandardCharsets.UTF_8), keyLength);
+		}
+		return payload + length;
+	}
+
+	private void index(String key, int keyLength, int offset, int length) {
+		Long old = index.put(key, ((long) offset << 32) | (length & 0xffffffffL));
+		if (old != null)
+			garbageBytes += 9 + keyLength + (int) (long) old;
+	}
+
+	private void unindex(String key, int keyLength) {
+		Long old = index.remove(key);
+		if (old != null)
+			garbageBytes += 9 + keyLength + (int) (long) old;
+		garbageBytes += 5 + keyLength;
+	}
+
+	@Override
+	public byte[] get(String key) {
+		lock.readLock().lock();
+		try {
+			Long location = index.get(key);
+			if (location == null)
+				return null;
+			byte[] value = new byte[(int) (long) location];
+			map.get((int) (location >>> 32), value);
+			return value;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean contains(String key) {
+		lock.readLock().lock();
+		try {
+			return index.containsKey(key);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String[] keys(String prefix) {
+		lock.readLock().lock();
+		try {
+			return index.subMap(prefix, true, prefix + Character.MAX_VALUE, false).keySet()
+					.toArray(t -> new String[t]);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void put(String key, byte[] value) throws IOException {
+		write(new RecordBatch().put(key, value));
+	}
+
+	@Override
+	public void delete(String key) throws IOException {
+		write(new RecordBatch().delete(key));
+	}
+
+	@Override
+	public void write(RecordBatch batch) throws IOException {
+		if (batch.isEmpty())
+			return;
+		byte[] payload = encode(batch);
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+
+		lock.writeLock().lock();
+		try {
+			if (channel == null)
+				throw new IOException("Record store closed");
+			ensureCapacity((long) end + FRAME_HEADER_SIZE + payload.length + FRAME_HEADER_SIZE);
+
+			// Write payload first, then the header so that a frame is never valid before it
+			// has been written completely
+			int offset = end;
+			map.put(offset + FRAME_HEADER_SIZE, payload);
+			map.putInt(offset + FRAME_HEADER_SIZE + payload.length, 0);
+			map.putInt(offset + 4, (int) crc.getValue());
+			map.putInt(offset, payload.length);
+			end = replayFrame(offset);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void ensureCapacity(long size) throws IOException {
+		if (size <= map.capacity())
+			return;
+		if (size > MAX_SIZE)
+			throw new IOException("Record store is full: " + file);
+
+		// Grow the mapping
+		long newSize = map.capacity();
+		while (newSize < size)
+			newSize *= 2;
+		map.force();
+		map = channel.map(MapMode.READ_WRITE, 0, Math.min(newSize, MAX_SIZE));
+	}
+
+	/**
+	 * Retrieves the amount of bytes used by old values and deletions that can be
+	 * reclaimed by compacting the store
+	 *
+	 * @return Reclaimable byte count
+	 */
+	public long getGarbageSize() {
+		lock.readLock().lock();
+		try {
+			return garbageBytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Rewrites the store with only the current values, the values are written
+	 * to the next generation file and the store switches to it
+	 *
+	 * @throws IOException If compacting fails
+	 */
+	public void compact() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (channel == null)
+				throw new IOException("Record store closed");
+			File next = generationFile(generation + 1);
+			File tmp = new File(next.getPath() + ".compact");
+			try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE,
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC);
+				header.putInt(VERSION);
+				header.flip();
+				out.write(header);
+
+				// Write live values in batches
+				RecordBatch batch = new RecordBatch();
+				for (Map.Entry<String, Long> entry : index.entrySet()) {
+					long location = entry.getValue();
+					byte[] value = new byte[(int) location];
+					map.get((int) (location >>> 32), value);
+					batch.put(entry.getKey(), value);
+					if (batch.size() >= 1000) {
+						writeFrame(out, batch);
+						batch = new RecordBatch();
+					}
+				}
+				writeFrame(out, batch);
+				out.force(true);
+			}
+
+			try {
+				Files.move(tmp.toPath(), next.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), next.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			// Switch to the new generation, the old file is deleted once it is no longer
+			// mapped
+			map.force();
+			channel.close();
+			channel = null;
+			map = null;
+			open();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private static byte[] encode(RecordBatch batch) {
+		// Operation count, then type, key and value of each operation
+		int size = 4;
+		byte[][] keys = new byte[batch.size()][];
+		for (int i = 0; i < batch.size(); i++) {
+			keys[i] = batch.getKey(i).getBytes(StandardCharsets.UTF_8);
+			byte[] value = batch.getValue(i);
+			size += 5 + keys[i].length + (value != null ? 4 + value.length : 0);
+		}
+		ByteBuffer buf = ByteBuffer.allocate(size);
+		buf.putInt(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			byte[] value = batch.getValue(i);
+			buf.put(value != null ? TYPE_PUT : TYPE_DELETE);
+			buf.putInt(keys[i].length);
+			buf.put(keys[i]);
+			if (value != null) {
+				buf.putInt(value.length);
+				buf.put(value);
+			}
+		}
+		return buf.array();
+	}
+
+	private static void writeFrame(FileChannel out, RecordBatch batch) throws IOException {
+		if (batch.isEmpty())
+			return;
+		byte[] payload = encode(batch);
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.length);
+		frame.putInt(payload.length);
+		frame.putInt((int) crc.getValue());
+		frame.put(payload);
+		frame.flip();
+		while (frame.hasRemaining())
+			out.write(frame);
+	}
+
+	@Override
+	public void sync() {
+		lock.writeLock().lock();
+		try {
+			if (map != null)
+				map.force();
+			if (!staleFiles.isEmpty())
+				deleteStaleFiles();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (channel == null)
+				return;
+			map.force();
+			channel.close();
+			channel = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+package org.asf.emuferal.storage;
+
+import java.io.IOException;
+
+import org.asf.emuferal.storage.impl.RecordStoreProvider;
+
+/**
+ *
+ * Storage provider interface, opens the key-value stores used by the
+ * key-value storage backend (storage=kv in server.conf). Modules can replace
+ * the provider to use a different storage engine.
+ *
+ */
+public abstract class StorageProvider {
+
+	protected static StorageProvider implementation = new RecordStoreProvider();
+
+	/**
+	 * Retrieves the active storage provider
+	 *
+	 * @return StorageProvider instance
+	 */
+	public static StorageProvider getInstance() {
+		return implementation;
+	}
+
+	/**
+	 * Replaces the active storage provider, must be called before any store is
+	 * opened
+	 *
+	 * @param provider New StorageProvider instance
+	 */
+	public static void setInstance(StorageProvider provider) {
+		implementation = provider;
+	}
+
+	/**
+	 * Opens a key-value store, opening the same store twice returns the same
+	 * instance
+	 *
+	 * @param name Store name
+	 * @return KeyValueStore instance
+	 * @throws IOException If the store cannot be opened
+	 */
+	public abstract KeyValueStore openStore(String name) throws IOException;
+
+}
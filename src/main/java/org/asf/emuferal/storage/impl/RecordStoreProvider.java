@@ -0,0 +1,78 @@
+package org.asf.emuferal.storage.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+import org.asf.emuferal.storage.KeyValueStore;
+import org.asf.emuferal.storage.RecordStore;
+import org.asf.emuferal.storage.StorageProvider;
+
+/**
+ *
+ * Default storage provider, stores are record stores in the storage folder.
+ * Stores are synced to disk periodically and compacted once enough old
+ * records have built up.
+ *
+ */
+public class RecordStoreProvider extends StorageProvider {
+
+	private static final int SYNC_INTERVAL = 5000;
+	private static final long COMPACT_THRESHOLD = 32 * 1024 * 1024;
+
+	private HashMap<String, RecordStore> stores = new HashMap<String, RecordStore>();
+	private Thread syncThread;
+
+	@Override
+	public synchronized KeyValueStore openStore(String name) throws IOException {
+		RecordStore store = stores.get(name);
+		if (store != null)
+			return store;
+
+		store = new RecordStore(new File("storage/" + name + ".db"));
+		if (store.getGarbageSize() > COMPACT_THRESHOLD)
+			store.compact();
+		stores.put(name, store);
+		if (syncThread == null)
+			start();
+		return store;
+	}
+
+	private void start() {
+		syncThread = new Thread(() -> {
+			while (true) {
+				try {
+					Thread.sleep(SYNC_INTERVAL);
+				} catch (InterruptedException e) {
+					break;
+				}
+				for (RecordStore store : getStores()) {
+					try {
+						if (store.getGarbageSize() > COMPACT_THRESHOLD)
+							store.compact();
+					} catch (IOException e) {
+						System.err.println("Failed to compact record store: " + e);
+					}
+					store.sync();
+				}
+			}
+		}, "Record Store Sync");
+		syncThread.setDaemon(true);
+		syncThread.start();
+
+		// Close on exit
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			for (RecordStore store : getStores()) {
+				try {
+					store.close();
+				} catch (IOException e) {
+				}
+			}
+		}, "Record Store Shutdown"));
+	}
+
+	private synchronized RecordStore[] getStores() {
+		return stores.values().toArray(t -> new RecordStore[t]);
+	}
+
+}
@@ -0,0 +1,86 @@
+package org.asf.emuferal.textfilter;
+
+/**
+ *
+ * Result of a text filter check, holds which lists matched and the filtered
+ * versions of the text
+ *
+ */
+public class FilterResult {
+
+	private String text;
+	private int flags;
+	private char[] filtered;
+	private char[] alwaysFiltered;
+
+	FilterResult(String text) {
+		this.text = text;
+	}
+
+	// Called for each word that is in one or more lists
+	void match(int start, int end, int wordFlags) {
+		flags |= wordFlags;
+		if ((wordFlags & (TextFilter.FILTER | TextFilter.ALWAYS_FILTER)) != 0) {
+			if (filtered == null)
+				filtered = text.toCharArray();
+			mask(filtered, start, end);
+		}
+		if ((wordFlags & TextFilter.ALWAYS_FILTER) != 0) {
+			if (alwaysFiltered == null)
+				alwaysFiltered = text.toCharArray();
+			mask(alwaysFiltered, start, end);
+		}
+	}
+
+	/**
+	 * Checks if the text contains words that result in a ban
+	 *
+	 * @return True if the text contains banned words, false otherwise
+	 */
+	public boolean isBanned() {
+		return (flags & TextFilter.BAN) != 0;
+	}
+
+	/**
+	 * Checks if the text contains words that are filtered when the filter is
+	 * enabled
+	 *
+	 * @return True if the text contains filtered words, false otherwise
+	 */
+	public boolean isFiltered() {
+		return (flags & TextFilter.FILTER) != 0;
+	}
+
+	/**
+	 * Checks if the text contains words that are always filtered
+	 *
+	 * @return True if the text contains always-filtered words, false otherwise
+	 */
+	public boolean isAlwaysFiltered() {
+		return (flags & TextFilter.ALWAYS_FILTER) != 0;
+	}
+
+	/**
+	 * Retrieves the filtered text, filtered words have their letters and digits
+	 * replaced with #
+	 *
+	 * @param filterEnabled True to filter all filtered words, false to only
+	 *                      filter words that are always filtered
+	 * @return Filtered text
+	 */
+	public String getText(boolean filterEnabled) {
+		char[] chars = filterEnabled ? filtered : alwaysFiltered;
+		if (chars == null)
+			return text;
+		return new String(chars);
+	}
+
+	private static void mask(char[] chars, int start, int end) {
+		for (int i = start; i < end; i++) {
+			char ch = chars[i];
+			if ((ch >= '0' && ch <= '9') || (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z'))
+				chars[i] = '#';
+		}
+	}
+
+}
@@ -0,0 +1,188 @@
+package org.asf.emuferal.textfilter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ *
+ * Compiled text filter, the word lists in textfilter/ are compiled into a
+ * single trie so a message is checked against all lists in one pass. Words
+ * are matched against whole words of the message with everything but letters
+ * and digits removed, the same way names and chat messages were checked
+ * before.<br/>
+ * <br/>
+ * The lists are loaded from the textfilter folder in the server directory if
+ * present, otherwise the built-in lists are used. Use {@link #reload()} to
+ * apply changes without restarting.
+ *
+ */
+public class TextFilter {
+
+	static final int BAN = 1;
+	static final int FILTER = 2;
+	static final int ALWAYS_FILTER = 4;
+
+	private static final int ALPHABET = 36;
+
+	private static volatile TextFilter instance;
+
+	private int[] transitions = new int[ALPHABET * 64];
+	private byte[] flags = new byte[64];
+	private int nodes = 1;
+	private int words;
+
+	private TextFilter() {
+	}
+
+	/**
+	 * Retrieves the active text filter
+	 *
+	 * @return TextFilter instance
+	 */
+	public static TextFilter getInstance() {
+		TextFilter filter = instance;
+		if (filter == null) {
+			synchronized (TextFilter.class) {
+				if (instance == null)
+					instance = load();
+				filter = instance;
+			}
+		}
+		return filter;
+	}
+
+	/**
+	 * Reloads the word lists, messages that are being checked keep using the
+	 * previous filter
+	 *
+	 * @return New TextFilter instance
+	 */
+	public static TextFilter reload() {
+		TextFilter filter = load();
+		instance = filter;
+		return filter;
+	}
+
+	/**
+	 * Retrieves the amount of words in the filter
+	 *
+	 * @return Word count
+	 */
+	public int getWordCount() {
+		return words;
+	}
+
+	/**
+	 * Checks a message or name against the filter
+	 *
+	 * @param text Text to check
+	 * @return FilterResult instance
+	 */
+	public FilterResult scan(String text) {
+		FilterResult result = new FilterResult(text);
+		int node = 0;
+		int start = 0;
+		int length = text.length();
+		for (int i = 0; i <= length; i++) {
+			char ch = i < length ? text.charAt(i) : ' ';
+			if (ch == ' ') {
+				// End of word
+				if (node != -1 && flags[node] != 0)
+					result.match(start, i, flags[node]);
+				node = 0;
+				start = i + 1;
+				continue;
+			}
+
+			// Characters other than letters and digits are ignored
+			int index = index(ch);
+			if (index == -1 || node == -1)
+				continue;
+			node = transitions[node * ALPHABET + index];
+			if (node == 0)
+				node = -1; // Not in any list
+		}
+		return result;
+	}
+
+	private static TextFilter load() {
+		TextFilter filter = new TextFilter();
+		filter.addWords("instaban.txt", BAN);
+		filter.addWords("filter.txt", FILTER);
+		filter.addWords("alwaysfilter.txt", ALWAYS_FILTER);
+		return filter;
+	}
+
+	private void addWords(String list, int flag) {
+		try {
+			InputStream strm;
+			File file = new File("textfilter", list);
+			if (file.exists())
+				strm = new FileInputStream(file);
+			else
+				strm = TextFilter.class.getClassLoader().getResourceAsStream("textfilter/" + list);
+			if (strm == null)
+				return;
+			String lines = new String(strm.readAllBytes(), "UTF-8").replace("\r", "");
+			strm.close();
+
+			for (String line : lines.split("\n")) {
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+
+				for (String word : line.trim().split(";")) {
+					// Messages are checked word by word, entries with spaces never
+					// matched and would otherwise filter each part on its own
+					if (word.trim().contains(" "))
+						continue;
+					addWord(word, flag);
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void addWord(String word, int flag) {
+		int node = 0;
+		boolean empty = true;
+		for (int i = 0; i < word.length(); i++) {
+			int index = index(word.charAt(i));
+			if (index == -1)
+				continue;
+			empty = false;
+
+			int next = transitions[node * ALPHABET + index];
+			if (next == 0) {
+				// Add node
+				if (nodes == flags.length) {
+					flags = Arrays.copyOf(flags, nodes * 2);
+					transitions = Arrays.copyOf(transitions, nodes * 2 * ALPHABET);
+				}
+				next = nodes++;
+				transitions[node * ALPHABET + index] = next;
+			}
+			node = next;
+		}
+		if (empty)
+			return;
+		if (flags[node] == 0)
+			words++;
+		flags[node] |= flag;
+	}
+
+	// Maps letters and digits to trie indexes, case-insensitive
+	private static int index(char ch) {
+		if (ch >= '0' && ch <= '9')
+			return ch - '0';
+		if (ch >= 'a' && ch <= 'z')
+			return 10 + ch - 'a';
+		if (ch >= 'A' && ch <= 'Z')
+			return 10 + ch - 'A';
+		return -1;
+	}
+
+}
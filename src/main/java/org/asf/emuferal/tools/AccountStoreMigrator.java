@@ -0,0 +1,109 @@
+package org.asf.emuferal.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+
+import org.asf.emuferal.accounts.impl.StoreBasedAccountManager;
+import org.asf.emuferal.storage.KeyValueStore;
+import org.asf.emuferal.storage.StorageProvider;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class AccountStoreMigrator {
+
+	public static void main(String[] args) throws IOException {
+		// This tool converts the accounts folder into a account store
+		// Run in the server directory, inventories are left in the inventories folder
+		// The accounts store is opened through the storage provider
+
+		File accountDir = new File("accounts");
+		File displayNameDir = new File("displaynames");
+		if (!accountDir.exists()) {
+			System.err.println("No accounts folder found in the working directory");
+			System.exit(1);
+			return;
+		}
+		KeyValueStore store = StorageProvider.getInstance().openStore("accounts");
+		if (store.keys("").length != 0) {
+			System.err.println("Refusing to overwrite existing account store");
+			System.exit(1);
+			return;
+		}
+
+		// Find login files, they contain the account ID followed by the login name
+		HashMap<String, String> logins = new HashMap<String, String>();
+		for (File file : accountDir.listFiles(t -> t.isFile() && !t.getName().endsWith(".cred")
+				&& !t.getName().endsWith(".credsave") && !t.getName().endsWith(".privacy")
+				&& !t.getName().endsWith(".requirechangename"))) {
+			List<String> lines = Files.readAllLines(file.toPath());
+			if (lines.size() == 2 && !lines.get(0).equals(file.getName())
+					&& new File(accountDir, lines.get(0)).isFile())
+				logins.put(lines.get(0), file.getName());
+		}
+
+		StoreBasedAccountManager manager = new StoreBasedAccountManager(store);
+		int count = 0;
+		for (String id : logins.keySet()) {
+			// Parse account file
+			File accountFile = new File(accountDir, id);
+			List<String> lines = Files.readAllLines(accountFile.toPath());
+			if (lines.size() < 5) {
+				System.err.println("Skipped account " + id + ": invalid account file");
+				continue;
+			}
+
+			// Privacy settings
+			JsonObject privacy = null;
+			File privacyFile = new File(accountDir, id + ".privacy");
+			if (privacyFile.exists())
+				privacy = JsonParser.parseString(Files.readString(privacyFile.toPath())).getAsJsonObject();
+
+			// Looks
+			String activeLook = null;
+			File lookFile = new File(accountDir, id + ".looks/active.look");
+			if (lookFile.exists())
+				activeLook = Files.readAllLines(lookFile.toPath()).get(0);
+			String activeSanctuaryLook = null;
+			File sanctuaryLookFile = new File(accountDir, id + ".sanctuary.looks/active.look");
+			if (sanctuaryLookFile.exists())
+				activeSanctuaryLook = Files.readAllLines(sanctuaryLookFile.toPath()).get(0);
+
+			// Credentials
+			byte[] credentials = null;
+			File credentialFile = new File(accountDir, id + ".cred");
+			if (credentialFile.exists())
+				credentials = Files.readAllBytes(credentialFile.toPath());
+
+			manager.importAccount(id, logins.get(id), lines.get(3), Integer.parseInt(lines.get(4)),
+					lines.get(2).equals("true"), accountFile.lastModified() / 1000, privacy, activeLook,
+					activeSanctuaryLook, new File(accountDir, id + ".requirechangename").exists(),
+					new File(accountDir, id + ".credsave").exists(), credentials);
+			count++;
+		}
+
+		// Display names
+		int names = 0;
+		if (displayNameDir.exists()) {
+			for (File file : displayNameDir.listFiles(t -> t.isFile())) {
+				List<String> lines = Files.readAllLines(file.toPath());
+				if (lines.size() >= 1 && logins.containsKey(lines.get(0))
+						&& manager.lockDisplayName(file.getName(), lines.get(0)))
+					names++;
+			}
+		}
+
+		// Last numeric ID
+		File idTrackFile = new File("account.lastid.info");
+		if (idTrackFile.exists())
+			manager.importLastAccountID(Integer.parseInt(Files.readAllLines(idTrackFile.toPath()).get(0)));
+
+		manager.close();
+		System.out.println("Migrated " + count + " accounts and " + names + " display names to the account store");
+		System.out.println("Set account-storage=store in server.conf to use the account store.");
+	}
+
+}
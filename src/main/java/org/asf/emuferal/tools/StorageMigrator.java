@@ -0,0 +1,133 @@
+package org.asf.emuferal.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+import org.asf.emuferal.accounts.impl.FileBasedPlayerInventory;
+import org.asf.emuferal.dms.DMManager;
+import org.asf.emuferal.storage.KeyValueStore;
+import org.asf.emuferal.storage.RecordBatch;
+import org.asf.emuferal.storage.StorageProvider;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class StorageMigrator {
+
+	public static void main(String[] args) throws IOException {
+		// This tool converts the inventories, sociallist and dms folders and the
+		// bans.json file into key-value stores
+		// Run in the server directory, no program arguments are expected
+
+		StorageProvider provider = StorageProvider.getInstance();
+
+		// Inventories
+		int count = 0;
+		File inventoryDir = new File("inventories");
+		if (inventoryDir.exists()) {
+			KeyValueStore store = provider.openStore("inventories");
+			for (File dir : inventoryDir.listFiles(t -> t.isDirectory())) {
+				// Convert old inventory layouts first
+				new FileBasedPlayerInventory(dir.getName());
+
+				RecordBatch batch = new RecordBatch();
+				for (File obj : dir.listFiles(t -> t.isFile() && t.getName().matches("^[A-Za-z0-9]+\\.json$"))) {
+					String itemID = obj.getName().substring(0, obj.getName().length() - ".json".length());
+					batch.putString("inventory/" + dir.getName() + "/" + itemID, Files.readString(obj.toPath()));
+				}
+				store.write(batch);
+				count++;
+			}
+		}
+		System.out.println("Migrated " + count + " inventories");
+
+		// Social lists
+		count = 0;
+		File socialDir = new File("sociallist");
+		if (socialDir.exists()) {
+			KeyValueStore store = provider.openStore("social");
+			for (File file : socialDir.listFiles(t -> t.isFile() && t.getName().endsWith(".json"))) {
+				String playerID = file.getName().substring(0, file.getName().length() - ".json".length());
+				JsonObject list = JsonParser.parseString(Files.readString(file.toPath())).getAsJsonObject();
+
+				RecordBatch batch = new RecordBatch().putString("social/" + playerID, "");
+				for (Map.Entry<String, JsonElement> entry : list.entrySet()) {
+					JsonObject data = entry.getValue().getAsJsonObject();
+					if (!data.has("updatedAt"))
+						data.add("updatedAt", data.get("addedAt"));
+					batch.putString("social/" + playerID + "/" + entry.getKey(), data.toString());
+				}
+				store.write(batch);
+				count++;
+			}
+		}
+		System.out.println("Migrated " + count + " social lists");
+
+		// DMs
+		count = 0;
+		File dmDir = new File("dms");
+		if (dmDir.exists()) {
+			KeyValueStore store = provider.openStore("dms");
+			for (File file : dmDir.listFiles(t -> t.isFile() && t.getName().endsWith(".json"))) {
+				String dmID = file.getName().substring(0, file.getName().length() - ".json".length());
+				JsonObject dm = JsonParser.parseString(Files.readString(file.toPath())).getAsJsonObject();
+
+				RecordBatch batch = new RecordBatch().putString("dm/" + dmID, dm.get("participants").toString());
+				JsonArray messages = dm.get("messages").getAsJsonArray();
+				int start = Math.max(0, messages.size() - DMManager.MAX_HISTORY);
+				for (int i = start; i < messages.size(); i++)
+					batch.putString("dm/" + dmID + "/" + String.format("%016d", i - start),
+							messages.get(i).toString());
+				store.write(batch);
+				count++;
+			}
+
+			// Conversations stored as segmented logs, compaction runs in the background so
+			// the log may still hold more than the retained history
+			for (File dir : dmDir.listFiles(t -> t.isDirectory() && new File(t, "participants.json").exists())) {
+				RecordBatch batch = new RecordBatch().putString("dm/" + dir.getName(),
+						Files.readString(new File(dir, "participants.json").toPath()));
+				File[] segments = dir.listFiles(t -> t.isFile() && t.getName().matches("^[0-9]+\\.log$"));
+				Arrays.sort(segments, Comparator
+						.comparingInt(t -> Integer.parseInt(t.getName().substring(0, t.getName().length() - 4))));
+				ArrayList<String> messages = new ArrayList<String>();
+				for (File segment : segments) {
+					for (String line : Files.readAllLines(segment.toPath())) {
+						if (!line.isBlank())
+							messages.add(line);
+					}
+				}
+				int start = Math.max(0, messages.size() - DMManager.MAX_HISTORY);
+				for (int i = start; i < messages.size(); i++)
+					batch.putString("dm/" + dir.getName() + "/" + String.format("%016d", i - start), messages.get(i));
+				store.write(batch);
+				count++;
+			}
+		}
+		System.out.println("Migrated " + count + " DMs");
+
+		// IP bans
+		count = 0;
+		File banList = new File("bans.json");
+		if (banList.exists()) {
+			KeyValueStore store = provider.openStore("ipbans");
+			RecordBatch batch = new RecordBatch();
+			for (JsonElement ele : JsonParser.parseString(Files.readString(banList.toPath())).getAsJsonArray()) {
+				batch.putString("ipban/" + ele.getAsString().toLowerCase(), ele.getAsString());
+				count++;
+			}
+			store.write(batch);
+		}
+		System.out.println("Migrated " + count + " IP bans");
+		System.out.println("Set storage=kv in server.conf to use the key-value stores.");
+		System.exit(0);
+	}
+
+}
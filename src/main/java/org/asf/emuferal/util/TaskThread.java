@@ -1,54 +1,79 @@
 package org.asf.emuferal.util;
 
-import java.util.ArrayList;
-import java.util.ConcurrentModificationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
-public class TaskThread extends Thread {
+public class TaskThread {
 
-	private ArrayList<Runnable> tasks = new ArrayList<Runnable>();
-	private boolean stop = false;
+	private Thread thread;
+	private ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+	private volatile boolean stop = false;
+
+	// Metrics
+	private AtomicInteger pending = new AtomicInteger();
+	private AtomicInteger peakPending = new AtomicInteger();
+	private AtomicLong completed = new AtomicLong();
+
+	private Object flushLock = new Object();
 
 	public TaskThread() {
-		super();
+		this("TaskThread");
 	}
 
 	public TaskThread(String name) {
-		super(name);
+		// Runs on a virtual thread if those are enabled
+		thread = ThreadUtil.createClientThread(this::run, name);
 	}
 
-	@Override
-	public void run() {
+	/**
+	 * Starts processing tasks
+	 */
+	public void start() {
+		thread.start();
+	}
+
+	/**
+	 * Checks if the task loop is still running
+	 * 
+	 * @return True if running, false otherwise
+	 */
+	public boolean isAlive() {
+		return thread.isAlive();
+	}
+
+	/**
+	 * Retrieves the thread name
+	 * 
+	 * @return Thread name
+	 */
+	public String getName() {
+		return thread.getName();
+	}
+
+	private void run() {
 		while (!stop) {
-			while (tasks.isEmpty()) {
-				try {
-					if (stop)
-						break;
-					Thread.sleep(1);
-				} catch (InterruptedException e) {
-				}
+			Runnable task = tasks.poll();
+			if (task == null) {
+				// Wait for work, schedule() unparks the thread
+				LockSupport.park(thread);
+				continue;
 			}
 
-			ArrayList<Runnable> tasks;
-			while (true) {
-				try {
-					tasks = new ArrayList<Runnable>(this.tasks);
-					break;
-				} catch (ConcurrentModificationException e) {
-				}
+			try {
+				task.run();
+			} catch (Exception e) {
+				System.err.println("Exception in TaskThread " + getName() + ": " + e.getClass().getTypeName()
+						+ (e.getMessage() != null ? ": " + e.getMessage() : ""));
+				e.printStackTrace();
 			}
+			completed.incrementAndGet();
 
-			for (Runnable task : tasks) {
-				try {
-					if (task != null)
-						task.run();
-				} catch (Exception e) {
-					System.err.println("Exception in TaskThread " + getName() + ": " + e.getClass().getTypeName()
-							+ (e.getMessage() != null ? ": " + e.getMessage() : ""));
-					e.printStackTrace();
-				}
-				try {
-					this.tasks.remove(task);
-				} catch (Exception e) {
+			// Wake up flushing threads
+			if (pending.decrementAndGet() == 0) {
+				synchronized (flushLock) {
+					flushLock.notifyAll();
 				}
 			}
 		}
@@ -60,8 +85,18 @@ public class TaskThread extends Thread {
 	 * @param task Task to schedule
 	 */
 	public void schedule(Runnable task) {
-		if (!stop)
-			tasks.add(task);
+		if (stop || task == null)
+			return;
+
+		// Add task
+		int depth = pending.incrementAndGet();
+		tasks.add(task);
+		LockSupport.unpark(thread);
+
+		// Update peak depth
+		int peak = peakPending.get();
+		while (depth > peak && !peakPending.compareAndSet(peak, depth))
+			peak = peakPending.get();
 	}
 
 	/**
@@ -69,11 +104,17 @@ public class TaskThread extends Thread {
 	 */
 	public void stopCleanly() {
 		stop = true;
+		LockSupport.unpark(thread);
 		try {
-			join();
+			if (Thread.currentThread() != thread && thread.isAlive())
+				thread.join();
 		} catch (InterruptedException e) {
 		}
 		tasks.clear();
+		pending.set(0);
+		synchronized (flushLock) {
+			flushLock.notifyAll();
+		}
 	}
 
 	/**
@@ -86,20 +127,52 @@ public class TaskThread extends Thread {
 	/**
 	 * Waits for all tasks to finish
 	 * 
-	 * @param timeout Wait timeout length in seconds
+	 * @param timeout Wait timeout length in seconds, -1 to wait without timeout
 	 */
 	public void flush(int timeout) {
-		int i = 0;
-		while (!tasks.isEmpty()) {
-			try {
-				if (i < timeout * 10)
-					i++;
-				else
+		if (Thread.currentThread() == thread)
+			return; // Would never finish
+
+		long end = System.currentTimeMillis() + (timeout * 1000l);
+		synchronized (flushLock) {
+			while (pending.get() != 0 && !stop && isAlive()) {
+				long wait = timeout < 0 ? 0 : end - System.currentTimeMillis();
+				if (timeout >= 0 && wait <= 0)
 					break;
-				Thread.sleep(100);
-			} catch (InterruptedException e) {
+				try {
+					flushLock.wait(wait);
+				} catch (InterruptedException e) {
+					break;
+				}
 			}
 		}
 	}
 
+	/**
+	 * Retrieves the amount of tasks that are queued or running
+	 * 
+	 * @return Current queue depth
+	 */
+	public int getQueueDepth() {
+		return pending.get();
+	}
+
+	/**
+	 * Retrieves the highest queue depth since the thread was created
+	 * 
+	 * @return Peak queue depth
+	 */
+	public int getPeakQueueDepth() {
+		return peakPending.get();
+	}
+
+	/**
+	 * Retrieves the amount of tasks that have been run
+	 * 
+	 * @return Completed task count
+	 */
+	public long getCompletedTaskCount() {
+		return completed.get();
+	}
+
 }
@@ -0,0 +1,86 @@
+package org.asf.emuferal.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+public class ThreadUtil {
+
+	private static boolean useVirtualThreads = false;
+
+	private static MethodHandle ofVirtual;
+	private static MethodHandle builderName;
+	private static MethodHandle builderUnstarted;
+
+	static {
+		// Virtual threads are only available on newer JVMs, look them up reflectively
+		try {
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			ofVirtual = lookup.findStatic(Thread.class, "ofVirtual",
+					MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual")));
+			builderName = lookup.findVirtual(builder, "name", MethodType.methodType(builder, String.class));
+			builderUnstarted = lookup.findVirtual(builder, "unstarted",
+					MethodType.methodType(Thread.class, Runnable.class));
+			Thread test = (Thread) builderUnstarted.invoke(ofVirtual.invoke(), (Runnable) () -> {
+			});
+			if (test == null)
+				ofVirtual = null;
+		} catch (Throwable e) {
+			ofVirtual = null;
+		}
+	}
+
+	/**
+	 * Checks if the JVM supports virtual threads
+	 *
+	 * @return True if supported, false otherwise
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		return ofVirtual != null;
+	}
+
+	/**
+	 * Checks if client threads are created as virtual threads
+	 *
+	 * @return True if virtual threads are used, false otherwise
+	 */
+	public static boolean isVirtualThreadsEnabled() {
+		return useVirtualThreads;
+	}
+
+	/**
+	 * Enables or disables virtual client threads (ignored if the JVM does not
+	 * support them)
+	 *
+	 * @param enabled True to enable virtual threads, false to use platform threads
+	 * @return True if virtual threads are now in use, false otherwise
+	 */
+	public static boolean setVirtualThreadsEnabled(boolean enabled) {
+		useVirtualThreads = enabled && isVirtualThreadsSupported();
+		return useVirtualThreads;
+	}
+
+	/**
+	 * Creates a new (unstarted) daemon thread for client work, uses a virtual
+	 * thread if enabled
+	 *
+	 * @param task Thread task
+	 * @param name Thread name
+	 * @return Thread instance
+	 */
+	public static Thread createClientThread(Runnable task, String name) {
+		if (useVirtualThreads) {
+			try {
+				return (Thread) builderUnstarted.invoke(builderName.invoke(ofVirtual.invoke(), name), task);
+			} catch (Throwable e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		Thread th = new Thread(task, name);
+		th.setDaemon(true);
+		return th;
+	}
+
+}
@@ -0,0 +1,182 @@
+package org.asf.emuferal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+
+import org.asf.emuferal.modules.eventbus.EventListener;
+import org.asf.emuferal.modules.eventbus.EventObject;
+import org.asf.emuferal.modules.eventbus.EventPath;
+import org.asf.emuferal.modules.eventbus.IEventReceiver;
+import org.asf.emuferal.modules.eventbus.impl.EventBusImpl;
+
+/**
+ *
+ * Event dispatch benchmark, registers a receiver with eight listeners for a
+ * test event and compares dispatching through a method map and Method.invoke
+ * (the way events were dispatched before) with the compiled listeners of the
+ * event bus. The receiver is registered a second time from a separate class
+ * loader, the way module listeners are loaded.
+ *
+ * Usage: TestEventDispatch [events]
+ *
+ */
+public class TestEventDispatch {
+
+	public static void main(String[] args) throws Exception {
+		int events = args.length >= 1 ? Integer.parseInt(args[0]) : 5000000;
+
+		// Register the receiver
+		Receiver receiver = new Receiver();
+		EventBusImpl bus = new EventBusImpl();
+		bus.addEventReceiver(receiver);
+
+		// Register the same receiver loaded from a separate class loader
+		ModuleLoader loader = new ModuleLoader();
+		IEventReceiver moduleReceiver = (IEventReceiver) loader.loadClass(Receiver.class.getName())
+				.getConstructor().newInstance();
+		EventBusImpl moduleBus = new EventBusImpl();
+		moduleBus.addEventReceiver(moduleReceiver);
+
+		// Build the method map used by the previous event bus
+		HashMap<String, HashMap<Method, IEventReceiver>> listeners = new HashMap<String, HashMap<Method, IEventReceiver>>();
+		listeners.put("test.dispatch", new HashMap<Method, IEventReceiver>());
+		for (Method meth : Receiver.class.getMethods()) {
+			if (meth.isAnnotationPresent(EventListener.class)) {
+				meth.setAccessible(true);
+				listeners.get("test.dispatch").put(meth, receiver);
+			}
+		}
+
+		// Warm up
+		for (int i = 0; i < 3; i++) {
+			runReflection(listeners, events / 10);
+			runCompiled(bus, events / 10);
+			runCompiled(moduleBus, events / 10);
+		}
+
+		long start = System.nanoTime();
+		long reflected = runReflection(listeners, events);
+		long reflection = System.nanoTime() - start;
+		start = System.nanoTime();
+		long compiled = runCompiled(bus, events);
+		long direct = System.nanoTime() - start;
+		start = System.nanoTime();
+		long moduleCompiled = runCompiled(moduleBus, events);
+		long module = System.nanoTime() - start;
+
+		System.out.println("Listeners: " + listeners.get("test.dispatch").size() + ", events: " + events);
+		System.out.println("Method.invoke: " + (reflection / events) + " ns/event (" + reflected + " calls)");
+		System.out.println("Compiled:      " + (direct / events) + " ns/event (" + compiled + " calls)");
+		System.out.println("Module loader: " + (module / events) + " ns/event (" + moduleCompiled + " calls)");
+	}
+
+	private static long runReflection(HashMap<String, HashMap<Method, IEventReceiver>> listeners, int events)
+			throws Exception {
+		TestEvent event = new TestEvent();
+		for (int i = 0; i < events; i++) {
+			if (listeners.containsKey(event.eventPath())) {
+				HashMap<Method, IEventReceiver> eventListeners = listeners.get(event.eventPath());
+				for (Method mth : eventListeners.keySet()) {
+					if (event.isHandled())
+						break;
+					mth.invoke(eventListeners.get(mth), event);
+				}
+			}
+		}
+		return event.calls;
+	}
+
+	private static long runCompiled(EventBusImpl bus, int events) {
+		TestEvent event = new TestEvent();
+		for (int i = 0; i < events; i++)
+			bus.dispatchEvent(event);
+		return event.calls;
+	}
+
+	@EventPath("test.dispatch")
+	public static class TestEvent extends EventObject {
+		public long calls;
+
+		@Override
+		public String eventPath() {
+			return "test.dispatch";
+		}
+	}
+
+	public static class Receiver implements IEventReceiver {
+
+		@EventListener
+		public void onTest1(TestEvent event) {
+			event.calls++;
+		}
+
+		@EventListener
+		public void onTest2(TestEvent event) {
+			event.calls++;
+		}
+
+		@EventListener
+		public void onTest3(TestEvent event) {
+			event.calls++;
+		}
+
+		@EventListener
+		public void onTest4(TestEvent event) {
+			event.calls++;
+		}
+
+		@EventListener
+		public void onTest5(TestEvent event) {
+			event.calls++;
+		}
+
+		@EventListener
+		public void onTest6(TestEvent event) {
+			event.calls++;
+		}
+
+		@EventListener
+		public void onTest7(TestEvent event) {
+			event.calls++;
+		}
+
+		@EventListener
+		public void onTest8(TestEvent event) {
+			event.calls++;
+		}
+
+	}
+
+	// Loads the receiver class itself instead of delegating to the parent, like
+	// the module manager loading a module jar
+	private static class ModuleLoader extends URLClassLoader {
+
+		public ModuleLoader() {
+			super(new URL[0], TestEventDispatch.class.getClassLoader());
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (!name.equals(Receiver.class.getName()))
+				return super.loadClass(name, resolve);
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> cls = findLoadedClass(name);
+				if (cls == null) {
+					try (InputStream strm = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+						byte[] data = strm.readAllBytes();
+						cls = defineClass(name, data, 0, data.length);
+					} catch (IOException e) {
+						throw new ClassNotFoundException(name, e);
+					}
+				}
+				return cls;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,116 @@
+package org.asf.emuferal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+
+import org.asf.emuferal.networking.smartfox.BaseSmartfoxServer;
+import org.asf.emuferal.networking.smartfox.SmartfoxClient;
+import org.asf.emuferal.util.ThreadUtil;
+
+/**
+ *
+ * Idle connection load test, opens connections to a local smartfox server
+ * until the target count is reached or the connection fails, then reports
+ * threads and heap in use.
+ *
+ * Usage: TestIdleConnections [threads|virtual|nio] [count]
+ *
+ */
+public class TestIdleConnections {
+
+	public static void main(String[] args) throws Exception {
+		String mode = args.length >= 1 ? args[0] : "threads";
+		int count = args.length >= 2 ? Integer.parseInt(args[1]) : 1000;
+
+		// Create server
+		IdleServer server;
+		if (mode.equals("nio")) {
+			ServerSocketChannel channel = ServerSocketChannel.open();
+			channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1000);
+			server = new IdleServer(channel);
+		} else {
+			if (mode.equals("virtual") && !ThreadUtil.setVirtualThreadsEnabled(true)) {
+				System.err.println("Virtual threads are not supported by this JVM.");
+				return;
+			}
+			server = new IdleServer(new ServerSocket(0, 1000, InetAddress.getLoopbackAddress()));
+		}
+		server.start();
+		int port = server.getServerSocket().getLocalPort();
+		int baseThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+		// Connect clients
+		ArrayList<Socket> clients = new ArrayList<Socket>();
+		long start = System.currentTimeMillis();
+		try {
+			for (int i = 0; i < count; i++) {
+				Socket sock = new Socket(InetAddress.getLoopbackAddress(), port);
+				sock.getOutputStream().write("hello\0".getBytes("UTF-8"));
+				InputStream in = sock.getInputStream();
+				while (in.read() > 0)
+					;
+				clients.add(sock);
+			}
+		} catch (IOException e) {
+			System.err.println("Connection failed after " + clients.size() + " clients: " + e);
+		}
+		long time = System.currentTimeMillis() - start;
+
+		// Report
+		System.gc();
+		Runtime rt = Runtime.getRuntime();
+		System.out.println("Mode: " + mode);
+		System.out.println("Idle connections held: " + clients.size());
+		System.out.println("Connect time: " + time + "ms");
+		System.out.println("Live platform threads: " + ManagementFactory.getThreadMXBean().getThreadCount()
+				+ " (base " + baseThreads + ")");
+		System.out.println("Heap in use: " + ((rt.totalMemory() - rt.freeMemory()) / 1024 / 1024) + "MB");
+
+		// Close
+		for (Socket sock : clients)
+			sock.close();
+		server.stop();
+	}
+
+	private static class IdleServer extends BaseSmartfoxServer {
+
+		public IdleServer(ServerSocket socket) {
+			super(socket);
+		}
+
+		public IdleServer(ServerSocketChannel channel) throws IOException {
+			super(channel, 2);
+		}
+
+		@Override
+		protected void registerPackets() {
+		}
+
+		@Override
+		protected boolean handleHandshake(SmartfoxClient client, String packet) throws IOException {
+			client.sendPacket("ok:" + packet);
+			return true;
+		}
+
+		@Override
+		protected void clientDisconnect(SmartfoxClient client) {
+		}
+
+		@Override
+		protected void onStart() {
+		}
+
+		@Override
+		protected void onStop() {
+		}
+
+	}
+
+}
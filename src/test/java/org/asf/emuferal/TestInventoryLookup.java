@@ -0,0 +1,131 @@
+package org.asf.emuferal;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.UUID;
+
+import org.asf.emuferal.accounts.PlayerInventory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ *
+ * Inventory lookup benchmark, fills a clothing inventory with the given amount
+ * of objects and compares a linear scan of the array with the indexed lookups
+ * of the inventory accessor, then checks that direct edits of the array are
+ * picked up by the index.
+ *
+ * Usage: TestInventoryLookup [objects] [lookups]
+ *
+ */
+public class TestInventoryLookup {
+
+	public static void main(String[] args) {
+		int count = args.length >= 1 ? Integer.parseInt(args[0]) : 5000;
+		int lookups = args.length >= 2 ? Integer.parseInt(args[1]) : 100000;
+
+		// Build inventory
+		MemoryInventory inv = new MemoryInventory();
+		JsonArray items = new JsonArray();
+		String[] ids = new String[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = UUID.randomUUID().toString();
+			JsonObject obj = new JsonObject();
+			obj.addProperty("defId", 1000 + i);
+			obj.add("components", new JsonObject());
+			obj.addProperty("id", ids[i]);
+			obj.addProperty("type", 100);
+			items.add(obj);
+		}
+		inv.setItem("100", items);
+
+		// Pick random objects to look up
+		Random rnd = new Random(0);
+		int[] targets = new int[lookups];
+		for (int i = 0; i < lookups; i++)
+			targets[i] = rnd.nextInt(count);
+
+		// Warm up
+		for (int i = 0; i < 3; i++) {
+			runScan(items, ids, targets);
+			runIndexed(inv, ids, targets);
+		}
+
+		long start = System.nanoTime();
+		int found = runScan(items, ids, targets);
+		long scan = System.nanoTime() - start;
+		start = System.nanoTime();
+		int foundIndexed = runIndexed(inv, ids, targets);
+		long indexed = System.nanoTime() - start;
+
+		System.out.println("Objects: " + count + ", lookups: " + lookups);
+		System.out.println("Linear scan: " + (scan / lookups) + " ns/lookup (" + found + " found)");
+		System.out.println("Indexed:     " + (indexed / lookups) + " ns/lookup (" + foundIndexed + " found)");
+		System.out.println("Speedup:     " + (scan / Math.max(1, indexed)) + "x");
+
+		// Remove a object and add another directly, the size stays the same
+		JsonObject removed = items.remove(0).getAsJsonObject();
+		JsonObject added = removed.deepCopy();
+		added.addProperty("id", UUID.randomUUID().toString());
+		added.addProperty("defId", 1000 + count);
+		items.add(added);
+		boolean direct = inv.getAccessor().findInventoryObject("100", added.get("id").getAsString()) == added
+				&& inv.getAccessor().getInventoryObjectCount("100", 1000) == 0
+				&& inv.getAccessor().getInventoryObjectCount("100", 1000 + count) == 1;
+		System.out.println("Direct edits: " + (direct ? "detected" : "MISSED"));
+	}
+
+	private static int runScan(JsonArray items, String[] ids, int[] targets) {
+		int found = 0;
+		for (int target : targets) {
+			String id = ids[target];
+			for (JsonElement ele : items) {
+				JsonObject itm = ele.getAsJsonObject();
+				if (itm.has("id") && itm.get("id").getAsString().equals(id)) {
+					found++;
+					break;
+				}
+			}
+		}
+		return found;
+	}
+
+	private static int runIndexed(PlayerInventory inv, String[] ids, int[] targets) {
+		int found = 0;
+		for (int target : targets) {
+			if (inv.getAccessor().findInventoryObject("100", ids[target]) != null)
+				found++;
+		}
+		return found;
+	}
+
+	private static class MemoryInventory extends PlayerInventory {
+		private HashMap<String, JsonElement> items = new HashMap<String, JsonElement>();
+
+		@Override
+		public JsonElement getItem(String itemID) {
+			return items.get(itemID);
+		}
+
+		@Override
+		public void setItem(String itemID, JsonElement itemData) {
+			items.put(itemID, itemData);
+			if (itemData.isJsonArray())
+				getAccessor().indexInventory(itemID, itemData.getAsJsonArray());
+		}
+
+		@Override
+		public void deleteItem(String itemID) {
+			items.remove(itemID);
+			getAccessor().invalidateIndex(itemID);
+		}
+
+		@Override
+		public boolean containsItem(String itemID) {
+			return items.containsKey(itemID);
+		}
+	}
+
+}
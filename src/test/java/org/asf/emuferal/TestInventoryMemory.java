@@ -0,0 +1,240 @@
+package org.asf.emuferal;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.UUID;
+
+import org.asf.emuferal.accounts.PlayerInventory;
+import org.asf.emuferal.accounts.highlevel.itemdata.item.CompactInventory;
+import org.asf.emuferal.entities.components.ComponentManager;
+import org.asf.emuferal.entities.inventoryitems.uservars.UserVarItem;
+import org.asf.emuferal.enums.uservars.UserVarType;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ *
+ * Inventory memory comparison, loads the given amount of player inventories
+ * with currency and user var objects the way they are loaded from disk and
+ * reports the heap used per player when the objects are kept as JSON trees and
+ * when they are kept in compact form, then compares the memory allocated by
+ * reading user vars and currency through the JSON objects and through the
+ * accessors.
+ *
+ * Usage: TestInventoryMemory [players] [uservars]
+ *
+ */
+public class TestInventoryMemory {
+
+	public static void main(String[] args) throws Exception {
+		int players = args.length >= 1 ? Integer.parseInt(args[0]) : 500;
+		int vars = args.length >= 2 ? Integer.parseInt(args[1]) : 200;
+
+		ComponentManager.registerAllComponents();
+
+		// Build the inventory json as saved on disk
+		ArrayList<Integer> defIds = new ArrayList<Integer>();
+		ArrayList<UserVarType> types = new ArrayList<UserVarType>();
+		JsonArray currency = new JsonArray();
+		currency.add(quantityObject(2327, 2500));
+		currency.add(quantityObject(14500, 10));
+		currency.add(quantityObject(8372, 5));
+		String currencyJson = currency.toString();
+		InputStream strm = TestInventoryMemory.class.getClassLoader().getResourceAsStream("itemlists/uservars.json");
+		JsonObject definitions = JsonParser.parseString(new String(strm.readAllBytes(), "UTF-8")).getAsJsonObject()
+				.get("UserVars").getAsJsonObject();
+		strm.close();
+		JsonArray userVars = new JsonArray();
+		for (String defId : definitions.keySet()) {
+			if (userVars.size() >= vars)
+				break;
+			int type = definitions.get(defId).getAsJsonObject().get("type").getAsInt();
+			for (UserVarType t : UserVarType.values()) {
+				if (t.val == type) {
+					int i = userVars.size();
+					UserVarItem itm = new UserVarItem(Integer.parseInt(defId), UUID.randomUUID().toString(), t);
+					JsonObject obj = itm.toJsonObject();
+					JsonObject component = new JsonObject();
+					component.addProperty("values", "{\"0\":" + i + ",\"1\":" + (i * 2) + "}");
+					obj.get("components").getAsJsonObject().add(t.componentName, component);
+					userVars.add(obj);
+					defIds.add(Integer.parseInt(defId));
+					types.add(t);
+				}
+			}
+		}
+		vars = userVars.size();
+		String userVarJson = userVars.toString();
+
+		// Load inventories as json
+		long base = usedMemory();
+		JsonInventory[] jsonInventories = new JsonInventory[players];
+		for (int i = 0; i < players; i++) {
+			jsonInventories[i] = new JsonInventory();
+			jsonInventories[i].setItem("104", JsonParser.parseString(currencyJson));
+			jsonInventories[i].setItem("303", JsonParser.parseString(userVarJson));
+		}
+		long json = usedMemory() - base;
+		JsonInventory jsonInventory = jsonInventories[0];
+		jsonInventories = null;
+
+		// Load inventories in compact form, the first typed read converts the json
+		base = usedMemory();
+		CompactMemoryInventory[] inventories = new CompactMemoryInventory[players];
+		for (int i = 0; i < players; i++) {
+			inventories[i] = new CompactMemoryInventory();
+			inventories[i].setItem("104", JsonParser.parseString(currencyJson));
+			inventories[i].setItem("303", JsonParser.parseString(userVarJson));
+			inventories[i].getCurrencyAccessor().getLikes();
+			inventories[i].getUserVarAccesor().getPlayerVarValue(defIds.get(0), 0);
+		}
+		long compact = usedMemory() - base;
+
+		System.out.println("Players: " + players + ", user vars per player: " + vars);
+		System.out.println("Heap per player (json):    " + (json / players / 1024) + " KiB");
+		System.out.println("Heap per player (compact): " + (compact / players / 1024) + " KiB");
+
+		// Check that saving writes the same objects
+		if (!JsonParser.parseString(CompactMemoryInventory.saved.get("303")).equals(JsonParser.parseString(userVarJson))
+				|| !JsonParser.parseString(CompactMemoryInventory.saved.get("104"))
+						.equals(JsonParser.parseString(currencyJson)))
+			throw new IllegalStateException("Compact inventory json does not match the loaded json");
+
+		// Compare allocations when reading
+		CompactMemoryInventory inv = inventories[0];
+		int reads = 100000;
+		for (int i = 0; i < 3; i++) {
+			readJson(jsonInventory, defIds, types, reads);
+			readTyped(inv, defIds, reads);
+		}
+		long start = allocatedBytes();
+		readJson(jsonInventory, defIds, types, reads);
+		long jsonAllocated = allocatedBytes() - start;
+		start = allocatedBytes();
+		readTyped(inv, defIds, reads);
+		long compactAllocated = allocatedBytes() - start;
+		System.out.println("Allocated per read (json):    " + (jsonAllocated / reads) + " bytes");
+		System.out.println("Allocated per read (compact): " + (compactAllocated / reads) + " bytes");
+	}
+
+	// Reads a user var and currency value the way the accessors did before the
+	// compact form
+	private static long readJson(PlayerInventory inv, ArrayList<Integer> defIds, ArrayList<UserVarType> types,
+			int reads) throws Exception {
+		long total = 0;
+		for (int i = 0; i < reads; i++) {
+			JsonObject obj = inv.getAccessor().findInventoryObject("303", defIds.get(i % defIds.size()));
+			UserVarItem userVarItem = new UserVarItem(types.get(i % defIds.size()));
+			userVarItem.fromJsonObject(obj);
+			total += userVarItem.getUserVarComponent().getUserVarValue(0).value;
+			total += inv.getAccessor().findInventoryObject("104", 2327).get("components").getAsJsonObject()
+					.get("Quantity").getAsJsonObject().get("quantity").getAsInt();
+		}
+		return total;
+	}
+
+	private static long readTyped(PlayerInventory inv, ArrayList<Integer> defIds, int reads) {
+		long total = 0;
+		for (int i = 0; i < reads; i++) {
+			total += inv.getUserVarAccesor().getPlayerVarValue(defIds.get(i % defIds.size()), 0).value;
+			total += inv.getCurrencyAccessor().getLikes();
+		}
+		return total;
+	}
+
+	private static JsonObject quantityObject(int defId, int quantity) {
+		JsonObject q = new JsonObject();
+		q.addProperty("quantity", quantity);
+		JsonObject components = new JsonObject();
+		components.add("Quantity", q);
+		JsonObject obj = new JsonObject();
+		obj.addProperty("defId", defId);
+		obj.add("components", components);
+		obj.addProperty("id", UUID.randomUUID().toString());
+		obj.addProperty("type", 104);
+		return obj;
+	}
+
+	private static long usedMemory() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+	}
+
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	// Keeps every object as json
+	private static class JsonInventory extends PlayerInventory {
+		private HashMap<String, JsonElement> items = new HashMap<String, JsonElement>();
+
+		@Override
+		public JsonElement getItem(String itemID) {
+			return items.get(itemID);
+		}
+
+		@Override
+		public void setItem(String itemID, JsonElement itemData) {
+			items.put(itemID, itemData);
+			if (itemData.isJsonArray())
+				getAccessor().indexInventory(itemID, itemData.getAsJsonArray());
+		}
+
+		@Override
+		public void deleteItem(String itemID) {
+			items.remove(itemID);
+			getAccessor().invalidateIndex(itemID);
+		}
+
+		@Override
+		public boolean containsItem(String itemID) {
+			return items.containsKey(itemID);
+		}
+	}
+
+	// Keeps the currency and user vars in compact form like the storage backends
+	private static class CompactMemoryInventory extends JsonInventory {
+		private HashMap<String, CompactInventory> compactItems = new HashMap<String, CompactInventory>();
+		private static HashMap<String, String> saved = new HashMap<String, String>(); // Last saved json
+
+		@Override
+		public JsonElement getItem(String itemID) {
+			if (compactItems.containsKey(itemID))
+				return compactItems.get(itemID).toJson();
+			return super.getItem(itemID);
+		}
+
+		@Override
+		public void setItem(String itemID, JsonElement itemData) {
+			if (CompactInventory.isCompactInventory(itemID)) {
+				CompactInventory inv = compactItems.computeIfAbsent(itemID,
+						t -> new CompactInventory(itemID, json -> saved.put(itemID, json)));
+				inv.load(itemData.getAsJsonArray());
+				getAccessor().cacheInventory(itemID, itemData.getAsJsonArray());
+				inv.save();
+				return;
+			}
+			super.setItem(itemID, itemData);
+		}
+
+		@Override
+		public CompactInventory getCompactInventory(String itemID) {
+			return compactItems.get(itemID);
+		}
+
+		@Override
+		public boolean containsItem(String itemID) {
+			return compactItems.containsKey(itemID) || super.containsItem(itemID);
+		}
+	}
+
+}
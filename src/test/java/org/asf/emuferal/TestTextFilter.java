@@ -0,0 +1,49 @@
+package org.asf.emuferal;
+
+import org.asf.emuferal.textfilter.FilterResult;
+import org.asf.emuferal.textfilter.TextFilter;
+
+/**
+ *
+ * Text filter check, makes sure common words that are part of multi-word
+ * entries in the word lists pass through unchanged and that the listed words
+ * are still filtered.
+ *
+ * Usage: TestTextFilter
+ *
+ */
+public class TestTextFilter {
+
+	public static void main(String[] args) {
+		TextFilter filter = TextFilter.getInstance();
+		System.out.println("Loaded " + filter.getWordCount() + " words");
+
+		int failed = 0;
+		String[] clean = new String[] { "see you at the end", "u hit it", "oh god", "good job", "my ex", "s x",
+				"knob", "fudge", "blow" };
+		for (String text : clean) {
+			FilterResult result = filter.scan(text);
+			if (result.isBanned() || result.isFiltered() || result.isAlwaysFiltered()
+					|| !result.getText(true).equals(text)) {
+				System.out.println("FAIL: \"" + text + "\" -> \"" + result.getText(true) + "\"");
+				failed++;
+			}
+		}
+
+		String[] filtered = new String[] { "knobend", "fudgepacker", "goddamn", "sex", "blowjob" };
+		for (String text : filtered) {
+			FilterResult result = filter.scan(text);
+			if (!result.isFiltered() && !result.isAlwaysFiltered()) {
+				System.out.println("FAIL: \"" + text + "\" was not filtered");
+				failed++;
+			}
+		}
+
+		if (failed != 0) {
+			System.out.println(failed + " checks failed");
+			System.exit(1);
+		}
+		System.out.println("All checks passed");
+	}
+
+}